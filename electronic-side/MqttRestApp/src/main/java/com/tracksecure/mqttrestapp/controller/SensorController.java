@@ -1,14 +1,27 @@
 package com.tracksecure.mqttrestapp.controller;
 
+import com.tracksecure.mqttrestapp.dtos.RecentReadings;
+import com.tracksecure.mqttrestapp.dtos.RollupSeries;
+import com.tracksecure.mqttrestapp.dtos.SensorHistoryPage;
 import com.tracksecure.mqttrestapp.model.SensorData;
+import com.tracksecure.mqttrestapp.service.DeviceStateStore;
 import com.tracksecure.mqttrestapp.service.MqttService;
+import com.tracksecure.mqttrestapp.service.RecentReadingsService;
+import com.tracksecure.mqttrestapp.service.SensorHistoryService;
+import com.tracksecure.mqttrestapp.service.SensorRollupService;
+import com.tracksecure.mqttrestapp.stream.SensorStreamService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.tracksecure.mqttrestapp.repository.SensorDataRepository;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -19,8 +32,18 @@ import java.util.HashMap;
 @CrossOrigin(origins = "*") // Allow CORS for testing
 public class SensorController {
 
+    // Longer windows belong to /sensor/history or /sensor/rollups
+    private static final int MAX_RECENT_MINUTES = 24 * 60;
+    // More points than a chart can show; bounds the rollup documents one request reads
+    private static final int MAX_ROLLUP_POINTS = 5_000;
+
     private final MqttService mqttService;
+    private final DeviceStateStore deviceStateStore;
+    private final SensorStreamService sensorStreamService;
     private final SensorDataRepository sensorDataRepository;
+    private final SensorHistoryService sensorHistoryService;
+    private final SensorRollupService sensorRollupService;
+    private final RecentReadingsService recentReadingsService;
 
     @GetMapping("/health")
     public ResponseEntity<String> health() {
@@ -28,37 +51,129 @@ public class SensorController {
     }
 
     @GetMapping("/sensor/latest")
-    public ResponseEntity<SensorData> getLatestSensorData() {
-        SensorData data = mqttService.getLatestData().get();
-        log.info("REST API: Returning latest sensor data");
+    public ResponseEntity<SensorData> getLatestSensorData(@RequestParam(required = false) String deviceId) {
+        SensorData data = latestFor(deviceId);
+        log.debug("REST API: Returning latest sensor data for {}", data.getDeviceId());
         return ResponseEntity.ok(data);
     }
 
     @GetMapping("/sensor/dht")
-    public ResponseEntity<?> getDhtData() {
-        SensorData data = mqttService.getLatestData().get();
-        return ResponseEntity.ok(data.getDhtData());
+    public ResponseEntity<?> getDhtData(@RequestParam(required = false) String deviceId) {
+        return ResponseEntity.ok(latestFor(deviceId).getDhtData());
     }
 
     @GetMapping("/sensor/gps")
-    public ResponseEntity<?> getGpsData() {
-        SensorData data = mqttService.getLatestData().get();
-        return ResponseEntity.ok(data.getGpsData());
+    public ResponseEntity<?> getGpsData(@RequestParam(required = false) String deviceId) {
+        return ResponseEntity.ok(latestFor(deviceId).getGpsData());
+    }
+
+    @GetMapping("/sensor/devices")
+    public ResponseEntity<Collection<SensorData>> getAllDevices() {
+        return ResponseEntity.ok(deviceStateStore.getAll());
+    }
+
+    /**
+     * Server-Sent Events stream of "sensor" events, one per snapshot change; replaces polling
+     * /sensor/latest and /status. The current state is sent as soon as the stream opens.
+     * Like /sensor/latest it follows the default device unless deviceId is given; all=true
+     * streams every device.
+     */
+    @GetMapping(value = "/sensor/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSensorData(@RequestParam(required = false) String deviceId,
+                                       @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            return sensorStreamService.subscribe(null);
+        }
+        return sensorStreamService.subscribe(deviceId != null ? deviceId : mqttService.getDefaultDeviceId());
+    }
+
+    /**
+     * The history as a JSON array in receivedAt order, as this endpoint always returned it. The
+     * array is written from the Mongo cursor; large ranges are better read page by page.
+     */
+    @GetMapping(value = "/sensor/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getSensorHistory(
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("REST API: Returning sensor history (device={}, from={}, to={})", deviceId, from, to);
+        StreamingResponseBody body = out -> sensorHistoryService.streamArray(deviceId, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
-    @GetMapping("/sensor/history")
-    public ResponseEntity<List<SensorData>> getSensorHistory() {
-        log.info("REST API: Returning sensor data history from MongoDB");
-        // Return all data (in a real app, you would use pagination)
-        return ResponseEntity.ok(sensorDataRepository.findAll());
+    /**
+     * One page of history in receivedAt order. Pass the returned nextCursor to get the following page.
+     */
+    @GetMapping("/sensor/history/page")
+    public ResponseEntity<SensorHistoryPage> getSensorHistoryPage(
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        log.debug("REST API: Returning sensor history page (device={}, from={}, to={})", deviceId, from, to);
+        try {
+            return ResponseEntity.ok(sensorHistoryService.page(deviceId, from, to, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * The whole range as newline-delimited JSON, written from the Mongo cursor as documents arrive.
+     */
+    @GetMapping(value = "/sensor/history/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamSensorHistory(
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("REST API: Streaming sensor history (device={}, from={}, to={})", deviceId, from, to);
+        StreamingResponseBody body = out -> sensorHistoryService.stream(deviceId, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * The last N minutes of a device, served from memory; MongoDB is only read for the part
+     * of the window older than the in-memory buffer.
+     */
+    @GetMapping("/sensor/recent")
+    public ResponseEntity<RecentReadings> getRecentReadings(
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(defaultValue = "10") int minutes) {
+        if (minutes <= 0 || minutes > MAX_RECENT_MINUTES) {
+            return ResponseEntity.badRequest().build();
+        }
+        String id = deviceId != null ? deviceId : mqttService.getDefaultDeviceId();
+        return ResponseEntity.ok(recentReadingsService.recent(id, minutes));
+    }
+
+    /**
+     * Min/max/avg/count of temperature and humidity over [from, to), at the finest resolution
+     * (minute, hour or day) that keeps the number of buckets within maxPoints, at most
+     * {@value #MAX_ROLLUP_POINTS}.
+     */
+    @GetMapping("/sensor/rollups")
+    public ResponseEntity<RollupSeries> getRollups(
+            @RequestParam(required = false) String deviceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        if (!from.isBefore(to) || maxPoints <= 0 || maxPoints > MAX_ROLLUP_POINTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        String id = deviceId != null ? deviceId : mqttService.getDefaultDeviceId();
+        return ResponseEntity.ok(sensorRollupService.query(id, from, to, maxPoints));
     }
 
     @GetMapping("/sensor/latest-from-db")
     public SensorData getLatestSensorDataFromDb() {
         log.info("REST API: Fetching latest sensor data directly from MongoDB");
-        // Fetch the most recent record sorted by ID (assuming ID is timestamp-based or auto-increment)
-        // Since we don't have a timestamp field in the root, we rely on ID or we can findTopByOrderByIdDesc
-        return sensorDataRepository.findTopByOrderByIdDesc().orElse(new SensorData());
+        // Newest by receivedAt: _id is not time-ordered unless Mongo generated it
+        return sensorDataRepository.findTopByOrderByReceivedAtDescIdDesc().orElseGet(() -> SensorData.empty(null));
     }
 
     @GetMapping("/status")
@@ -67,7 +182,15 @@ public class SensorController {
         status.put("mqttConnected", mqttService.isConnected());
         status.put("lastError", mqttService.getLastError());
         status.put("lastMessageTime", mqttService.getLastMessageTime());
-        status.put("latestData", mqttService.getLatestData().get());
+        status.put("latestData", latestFor(null));
+        status.put("deviceCount", deviceStateStore.size());
+        status.put("streamSubscribers", sensorStreamService.getSubscriberCount());
         return status;
     }
+
+    // Each call returns one immutable snapshot, so the DHT and GPS parts are always consistent
+    private SensorData latestFor(String deviceId) {
+        String id = deviceId != null ? deviceId : mqttService.getDefaultDeviceId();
+        return deviceStateStore.get(id).orElseGet(() -> SensorData.empty(id));
+    }
 }
\ No newline at end of file
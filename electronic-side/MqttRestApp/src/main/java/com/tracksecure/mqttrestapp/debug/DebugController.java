@@ -1,20 +1,34 @@
 package com.tracksecure.mqttrestapp.debug;
 
+import com.tracksecure.mqttrestapp.model.SensorData;
+import com.tracksecure.mqttrestapp.service.DeviceStateStore;
+import com.tracksecure.mqttrestapp.service.MqttService;
+import com.tracksecure.mqttrestapp.stream.SensorStreamService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
- * Debug endpoints kept for development. WebSocket removed — this endpoint
- * now returns a simple confirmation and does not broadcast anything.
+ * Debug endpoints kept for development. Pushes the current snapshot of a device
+ * to the /api/sensor/stream subscribers of that device without waiting for an MQTT message.
  */
 @RestController
 @RequestMapping("/debug")
+@RequiredArgsConstructor
 public class DebugController {
 
-    @PostMapping("/ws/push")
-    public ResponseEntity<String> pushTest() {
-        return ResponseEntity.ok("websocket disabled: debug endpoint did not broadcast (use REST polling)");
+    private final MqttService mqttService;
+    private final DeviceStateStore deviceStateStore;
+    private final SensorStreamService sensorStreamService;
+
+    @PostMapping("/stream/push")
+    public ResponseEntity<String> pushTest(@RequestParam(required = false) String deviceId) {
+        String id = deviceId != null ? deviceId : mqttService.getDefaultDeviceId();
+        SensorData snapshot = deviceStateStore.get(id).orElseGet(() -> SensorData.empty(id));
+        sensorStreamService.publish(snapshot);
+        return ResponseEntity.ok("pushed snapshot of " + id + " to " + sensorStreamService.getSubscriberCount() + " subscriber(s)");
     }
 }
@@ -0,0 +1,49 @@
+package com.tracksecure.mqttrestapp.dtos;
+
+import lombok.*;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented samples: values[c][i] is channel c at timestamps[i] (epoch millis, UTC).
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ReadingSeries {
+    private String[] channels;
+    private long[] timestamps;
+    private double[][] values;
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public static ReadingSeries slice(String[] channels, long[] timestamps, double[][] values, int from, int to) {
+        if (from == 0 && to == timestamps.length) {
+            return new ReadingSeries(channels, timestamps, values);
+        }
+        double[][] sliced = new double[values.length][];
+        for (int c = 0; c < values.length; c++) {
+            sliced[c] = Arrays.copyOfRange(values[c], from, to);
+        }
+        return new ReadingSeries(channels, Arrays.copyOfRange(timestamps, from, to), sliced);
+    }
+
+    /** Older samples first, then this series. Both must share the same channels. */
+    public ReadingSeries prepend(ReadingSeries older) {
+        if (older.size() == 0) {
+            return this;
+        }
+        int n = older.size() + size();
+        long[] ts = Arrays.copyOf(older.timestamps, n);
+        System.arraycopy(timestamps, 0, ts, older.size(), size());
+        double[][] vs = new double[values.length][];
+        for (int c = 0; c < values.length; c++) {
+            vs[c] = Arrays.copyOf(older.values[c], n);
+            System.arraycopy(values[c], 0, vs[c], older.size(), size());
+        }
+        return new ReadingSeries(channels, ts, vs);
+    }
+}
@@ -0,0 +1,13 @@
+package com.tracksecure.mqttrestapp.dtos;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class RecentReadings {
+    private String deviceId;
+    private ReadingSeries dht;
+    private ReadingSeries gps;
+}
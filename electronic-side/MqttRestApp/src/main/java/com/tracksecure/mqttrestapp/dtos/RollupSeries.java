@@ -0,0 +1,17 @@
+package com.tracksecure.mqttrestapp.dtos;
+
+import com.tracksecure.mqttrestapp.model.RollupResolution;
+import com.tracksecure.mqttrestapp.model.SensorRollup;
+import lombok.*;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+public class RollupSeries {
+    private RollupResolution resolution;
+    private List<SensorRollup> points;
+}
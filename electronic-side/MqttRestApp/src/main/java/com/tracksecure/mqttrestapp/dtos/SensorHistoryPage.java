@@ -0,0 +1,17 @@
+package com.tracksecure.mqttrestapp.dtos;
+
+import com.tracksecure.mqttrestapp.model.SensorData;
+import lombok.*;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+public class SensorHistoryPage {
+    private List<SensorData> items;
+    // Opaque keyset cursor for the next page; null when this is the last page
+    private String nextCursor;
+}
@@ -2,60 +2,65 @@ package com.tracksecure.mqttrestapp.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
-@Getter
-@Setter
-@Builder
-@NoArgsConstructor
+/**
+ * Immutable sensor snapshot. Instances are shared between the latest-state store, REST
+ * readers and the write-behind queue, so every update builds a new object instead of
+ * mutating one that may already have been published.
+ */
+@Value
+@With
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @Document(collection = "sensor_data")
+@CompoundIndexes({
+        // Keyset pagination of /api/sensor/history/page: (receivedAt, _id) is a unique, ordered position
+        @CompoundIndex(name = "device_received_id", def = "{'deviceId': 1, 'receivedAt': 1, '_id': 1}"),
+        @CompoundIndex(name = "received_id", def = "{'receivedAt': 1, '_id': 1}")
+})
 public class SensorData {
     @Id
-    private String id;
+    String id;
 
-    private DhtData dhtData = new DhtData();
-    private GpsData gpsData = new GpsData();
+    String deviceId;
 
-    @Getter
-    @Setter
-    @Builder
-    @NoArgsConstructor
+    // When the reading that produced this snapshot arrived; the history time axis
+    LocalDateTime receivedAt;
+
+    @Builder.Default
+    DhtData dhtData = DhtData.EMPTY;
+    @Builder.Default
+    GpsData gpsData = GpsData.EMPTY;
+
+    public static SensorData empty(String deviceId) {
+        return SensorData.builder().deviceId(deviceId).build();
+    }
+
+    @Value
+    @Builder(toBuilder = true)
     @AllArgsConstructor
     public static class DhtData{
-        private double temperature;
-        private double humidity;
-        private LocalDateTime timestamp;
-        @Override
-        public  String toString() {
-            return "DhtData{" +
-                    "temperature=" + temperature +
-                    ", humidity=" + humidity +
-                    ", timestamp=" + timestamp +
-                    '}';
-        }
+        public static final DhtData EMPTY = DhtData.builder().build();
+
+        double temperature;
+        double humidity;
+        LocalDateTime timestamp;
     }
 
-    @Getter
-    @Setter
-    @Builder
-    @NoArgsConstructor
+    @Value
+    @Builder(toBuilder = true)
     @AllArgsConstructor
     public static class GpsData{
-        private double longitude;
-        private double latitude;
-        private int satellites;
-        private LocalDateTime timestamp;
-        @Override
-        public  String toString() {
-            return "GpsData{" +
-                    "temperature=" + longitude +
-                    ", humidity=" + latitude +
-                    ", satellites=" + satellites +
-                    ", timestamp=" + timestamp +
-                    '}';
-        }
+        public static final GpsData EMPTY = GpsData.builder().build();
+
+        double longitude;
+        double latitude;
+        int satellites;
+        LocalDateTime timestamp;
     }
 }
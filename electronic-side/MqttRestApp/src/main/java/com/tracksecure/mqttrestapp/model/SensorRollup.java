@@ -0,0 +1,47 @@
+package com.tracksecure.mqttrestapp.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Min/max/sum/count of the DHT11 readings of one device within one time bucket.
+ * Documents are only ever written through $min/$max/$inc upserts, so several
+ * partial flushes of the same bucket merge into one document.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "sensor_rollups")
+@CompoundIndex(name = "device_resolution_bucket", def = "{'deviceId': 1, 'resolution': 1, 'bucketStart': 1}", unique = true)
+public class SensorRollup {
+    @Id
+    private String id;
+
+    private String deviceId;
+    private RollupResolution resolution;
+    private LocalDateTime bucketStart;
+
+    private Stats temperature;
+    private Stats humidity;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stats {
+        private double min;
+        private double max;
+        private double sum;
+        private long count;
+
+        public Double getAvg() {
+            return count == 0 ? null : sum / count;
+        }
+    }
+}
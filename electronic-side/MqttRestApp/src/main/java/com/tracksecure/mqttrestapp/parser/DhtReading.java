@@ -0,0 +1,39 @@
+package com.tracksecure.mqttrestapp.parser;
+
+import lombok.Getter;
+
+/**
+ * Reusable holder for one decoded sensor/dht11 payload.
+ * Meant to be owned by a single MQTT callback thread and reset before each message.
+ */
+@Getter
+public final class DhtReading implements SensorPayloadParser.FieldSink {
+    public static final int TEMPERATURE = 0;
+    public static final int HUMIDITY = 1;
+
+    static final SensorPayloadParser PARSER = new SensorPayloadParser("temperature", "humidity");
+
+    private double temperature;
+    private double humidity;
+    private int present;
+
+    public DhtReading parse(byte[] payload) {
+        present = 0;
+        PARSER.parse(payload, this);
+        return this;
+    }
+
+    public boolean has(int field) {
+        return (present & (1 << field)) != 0;
+    }
+
+    @Override
+    public void accept(int field, double value) {
+        if (field == TEMPERATURE) {
+            temperature = value;
+        } else {
+            humidity = value;
+        }
+        present |= 1 << field;
+    }
+}
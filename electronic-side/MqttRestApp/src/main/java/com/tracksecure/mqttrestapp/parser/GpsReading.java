@@ -0,0 +1,41 @@
+package com.tracksecure.mqttrestapp.parser;
+
+import lombok.Getter;
+
+/**
+ * Reusable holder for one decoded sensor/gps payload.
+ * Meant to be owned by a single MQTT callback thread and reset before each message.
+ */
+@Getter
+public final class GpsReading implements SensorPayloadParser.FieldSink {
+    public static final int LATITUDE = 0;
+    public static final int LONGITUDE = 1;
+    public static final int SATELLITES = 2;
+
+    static final SensorPayloadParser PARSER = new SensorPayloadParser("latitude", "longitude", "satellites");
+
+    private double latitude;
+    private double longitude;
+    private int satellites;
+    private int present;
+
+    public GpsReading parse(byte[] payload) {
+        present = 0;
+        PARSER.parse(payload, this);
+        return this;
+    }
+
+    public boolean has(int field) {
+        return (present & (1 << field)) != 0;
+    }
+
+    @Override
+    public void accept(int field, double value) {
+        switch (field) {
+            case LATITUDE -> latitude = value;
+            case LONGITUDE -> longitude = value;
+            default -> satellites = (int) value;
+        }
+        present |= 1 << field;
+    }
+}
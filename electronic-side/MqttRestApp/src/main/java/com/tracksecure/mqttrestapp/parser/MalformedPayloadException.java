@@ -0,0 +1,7 @@
+package com.tracksecure.mqttrestapp.parser;
+
+public class MalformedPayloadException extends RuntimeException {
+    public MalformedPayloadException(String message) {
+        super(message);
+    }
+}
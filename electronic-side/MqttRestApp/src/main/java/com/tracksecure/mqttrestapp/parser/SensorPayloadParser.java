@@ -0,0 +1,273 @@
+package com.tracksecure.mqttrestapp.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-level parser for the flat JSON objects published by the ESP8266 firmware
+ * (e.g. {"temperature":23.50,"humidity":41.00}).
+ * <p>
+ * The payload bytes are scanned once and numeric values are decoded straight into
+ * a {@link FieldSink}; no intermediate String, array or regex is created on the
+ * common path. Keys are matched against pre-encoded byte arrays, string values
+ * (including ones containing ':' or ',') and nested objects/arrays are skipped
+ * correctly, and quoted numbers ("23.5") are accepted like the old parser did.
+ * <p>
+ * Instances are stateless and thread-safe.
+ */
+public final class SensorPayloadParser {
+
+    /** Receives the decoded value of every recognised field. */
+    @FunctionalInterface
+    public interface FieldSink {
+        void accept(int field, double value);
+    }
+
+    // Exact powers of ten representable as doubles, used by the fast number path
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final byte[][] fields;
+
+    /**
+     * @param fieldNames the keys to extract; the index of a key in this array is the
+     *                   field id passed to {@link FieldSink#accept(int, double)}
+     */
+    public SensorPayloadParser(String... fieldNames) {
+        this.fields = new byte[fieldNames.length][];
+        for (int i = 0; i < fieldNames.length; i++) {
+            this.fields[i] = fieldNames[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    public int parse(byte[] payload, FieldSink sink) {
+        return parse(payload, 0, payload.length, sink);
+    }
+
+    /**
+     * Parses one JSON object and pushes recognised numeric fields to the sink.
+     *
+     * @return the number of recognised fields that were decoded
+     * @throws MalformedPayloadException if the bytes are not a flat JSON object
+     */
+    public int parse(byte[] buf, int offset, int length, FieldSink sink) {
+        final int end = offset + length;
+        int pos = skipWhitespace(buf, offset, end);
+        pos = expect(buf, pos, end, (byte) '{');
+        int matched = 0;
+
+        pos = skipWhitespace(buf, pos, end);
+        if (pos < end && buf[pos] == '}') {
+            return 0;
+        }
+
+        while (true) {
+            pos = skipWhitespace(buf, pos, end);
+            pos = expect(buf, pos, end, (byte) '"');
+            int keyStart = pos;
+            pos = skipStringBody(buf, pos, end);
+            int field = matchField(buf, keyStart, pos - 1);
+
+            pos = skipWhitespace(buf, pos, end);
+            pos = expect(buf, pos, end, (byte) ':');
+            pos = skipWhitespace(buf, pos, end);
+            if (pos >= end) {
+                throw new MalformedPayloadException("Unexpected end of payload at " + pos);
+            }
+
+            byte b = buf[pos];
+            if (field >= 0 && (b == '-' || b == '+' || (b >= '0' && b <= '9'))) {
+                pos = parseNumber(buf, pos, end, field, sink);
+                matched++;
+            } else if (field >= 0 && b == '"' && pos + 1 < end && isNumberStart(buf[pos + 1])) {
+                int next = parseNumber(buf, pos + 1, end, field, sink);
+                pos = expect(buf, next, end, (byte) '"');
+                matched++;
+            } else {
+                pos = skipValue(buf, pos, end);
+            }
+
+            pos = skipWhitespace(buf, pos, end);
+            if (pos >= end) {
+                throw new MalformedPayloadException("Unterminated object");
+            }
+            if (buf[pos] == ',') {
+                pos++;
+            } else if (buf[pos] == '}') {
+                return matched;
+            } else {
+                throw new MalformedPayloadException("Expected ',' or '}' at " + pos);
+            }
+        }
+    }
+
+    private int matchField(byte[] buf, int start, int end) {
+        int len = end - start;
+        for (int f = 0; f < fields.length; f++) {
+            byte[] key = fields[f];
+            if (key.length != len) {
+                continue;
+            }
+            int i = 0;
+            while (i < len && buf[start + i] == key[i]) {
+                i++;
+            }
+            if (i == len) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    private static int parseNumber(byte[] buf, int pos, int end, int field, FieldSink sink) {
+        final int start = pos;
+        boolean negative = false;
+        if (buf[pos] == '-' || buf[pos] == '+') {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimalExponent = 0;
+        boolean exact = true;
+
+        while (pos < end && isDigit(buf[pos])) {
+            if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                mantissa = mantissa * 10 + (buf[pos] - '0');
+            } else {
+                exact = false;
+            }
+            digits++;
+            pos++;
+        }
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            while (pos < end && isDigit(buf[pos])) {
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + (buf[pos] - '0');
+                    decimalExponent--;
+                } else {
+                    exact = false;
+                }
+                digits++;
+                pos++;
+            }
+        }
+        if (digits == 0) {
+            throw new MalformedPayloadException("Invalid number at " + start);
+        }
+        if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                negativeExponent = buf[pos] == '-';
+                pos++;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            while (pos < end && isDigit(buf[pos])) {
+                if (exponent < 10_000) {
+                    exponent = exponent * 10 + (buf[pos] - '0');
+                }
+                exponentDigits++;
+                pos++;
+            }
+            if (exponentDigits == 0) {
+                throw new MalformedPayloadException("Invalid exponent at " + start);
+            }
+            decimalExponent += negativeExponent ? -exponent : exponent;
+        }
+
+        double value;
+        if (exact && decimalExponent >= -22 && decimalExponent <= 22) {
+            // Both operands are exact doubles, so a single multiply/divide is correctly rounded
+            value = decimalExponent < 0
+                    ? mantissa / POW10[-decimalExponent]
+                    : mantissa * POW10[decimalExponent];
+            if (negative) {
+                value = -value;
+            }
+        } else {
+            // Rare path (very long or huge/tiny numbers): defer to the JDK for correct rounding
+            value = Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.US_ASCII));
+        }
+        sink.accept(field, value);
+        return pos;
+    }
+
+    private static int skipValue(byte[] buf, int pos, int end) {
+        byte b = buf[pos];
+        if (b == '"') {
+            return skipStringBody(buf, pos + 1, end);
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            while (pos < end) {
+                byte c = buf[pos];
+                if (c == '"') {
+                    pos = skipStringBody(buf, pos + 1, end);
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return pos + 1;
+                    }
+                }
+                pos++;
+            }
+            throw new MalformedPayloadException("Unterminated nested value");
+        }
+        // number, true, false, null: consume up to the next delimiter
+        while (pos < end && buf[pos] != ',' && buf[pos] != '}' && !isWhitespace(buf[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /** Skips a string whose opening quote has already been consumed; returns the index after the closing quote. */
+    private static int skipStringBody(byte[] buf, int pos, int end) {
+        while (pos < end) {
+            byte c = buf[pos];
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == '"') {
+                return pos + 1;
+            } else {
+                pos++;
+            }
+        }
+        throw new MalformedPayloadException("Unterminated string");
+    }
+
+    private static int expect(byte[] buf, int pos, int end, byte expected) {
+        if (pos >= end || buf[pos] != expected) {
+            throw new MalformedPayloadException("Expected '" + (char) expected + "' at " + pos);
+        }
+        return pos + 1;
+    }
+
+    private static int skipWhitespace(byte[] buf, int pos, int end) {
+        while (pos < end && isWhitespace(buf[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || b == '+' || isDigit(b);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -8,5 +8,6 @@ import java.util.Optional;
 
 @Repository
 public interface SensorDataRepository extends MongoRepository<SensorData, String> {
-    Optional<SensorData> findTopByOrderByIdDesc();
+    /** Newest reading by receivedAt, _id breaking ties; walks the received_id index backwards. */
+    Optional<SensorData> findTopByOrderByReceivedAtDescIdDesc();
 }
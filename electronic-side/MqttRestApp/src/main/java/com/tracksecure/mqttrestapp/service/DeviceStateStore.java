@@ -0,0 +1,61 @@
+package com.tracksecure.mqttrestapp.service;
+
+import com.tracksecure.mqttrestapp.model.SensorData;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Latest {@link SensorData} per device.
+ * <p>
+ * Each device owns its own {@link AtomicReference}, so writers for different devices never
+ * contend, and an update is a copy-on-write compare-and-set on that single reference.
+ * Readers always see a complete, immutable snapshot.
+ */
+@Component
+public class DeviceStateStore {
+
+    private final ConcurrentHashMap<String, AtomicReference<SensorData>> states = new ConcurrentHashMap<>();
+
+    /**
+     * Atomically replaces a device's snapshot with {@code updater(current)}.
+     * The updater must be side-effect free: it is re-run if another writer wins the race.
+     *
+     * @return the snapshot that was installed
+     */
+    public SensorData update(String deviceId, UnaryOperator<SensorData> updater) {
+        AtomicReference<SensorData> ref = states.get(deviceId);
+        if (ref == null) {
+            ref = states.computeIfAbsent(deviceId, id -> new AtomicReference<>(SensorData.empty(id)));
+        }
+        while (true) {
+            SensorData current = ref.get();
+            SensorData next = updater.apply(current);
+            if (ref.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    public Optional<SensorData> get(String deviceId) {
+        AtomicReference<SensorData> ref = states.get(deviceId);
+        return ref == null ? Optional.empty() : Optional.of(ref.get());
+    }
+
+    public Collection<SensorData> getAll() {
+        return states.values().stream().map(AtomicReference::get).toList();
+    }
+
+    public List<String> getDeviceIds() {
+        return List.copyOf(states.keySet());
+    }
+
+    public int size() {
+        return states.size();
+    }
+}
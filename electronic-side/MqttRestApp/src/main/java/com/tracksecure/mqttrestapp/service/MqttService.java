@@ -1,29 +1,36 @@
 package com.tracksecure.mqttrestapp.service;
 
 import com.tracksecure.mqttrestapp.model.SensorData;
-import com.tracksecure.mqttrestapp.repository.SensorDataRepository;
+import com.tracksecure.mqttrestapp.parser.DhtReading;
+import com.tracksecure.mqttrestapp.parser.GpsReading;
+import com.tracksecure.mqttrestapp.stream.SensorStreamService;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MqttService {
 
-    private final SensorDataRepository sensorDataRepository;
+    // Legacy single-device firmware publishes to sensor/dht11 and sensor/gps; fleets use sensor/<deviceId>/...
+    private static final String[] DHT_TOPICS = {"sensor/dht11", "sensor/+/dht11"};
+    private static final String[] GPS_TOPICS = {"sensor/gps", "sensor/+/gps"};
 
-    @Getter
-    private final AtomicReference<SensorData> latestData = new AtomicReference<>(new SensorData());
+    private final SensorDataWriteBehind sensorDataWriteBehind;
+    private final DeviceStateStore deviceStateStore;
+    private final SensorStreamService sensorStreamService;
+    private final SensorRollupService sensorRollupService;
+    private final RecentReadingsService recentReadingsService;
 
     @Value("${mqtt.broker.url}")
     private String brokerUrl;
@@ -37,6 +44,10 @@ public class MqttService {
     @Value("${mqtt.client.id}")
     private String clientId;
 
+    @Getter
+    @Value("${mqtt.default-device-id:esp8266}")
+    private String defaultDeviceId;
+
     @Getter
     private boolean isConnected = false;
 
@@ -46,6 +57,11 @@ public class MqttService {
     @Getter
     private LocalDateTime lastMessageTime = null;
 
+    // Paho delivers every message on the client's single callback thread, so the
+    // decode targets can be reused across messages without synchronisation
+    private final DhtReading dhtReading = new DhtReading();
+    private final GpsReading gpsReading = new GpsReading();
+
     @PostConstruct
     public void initMqtt() {
         try {
@@ -66,103 +82,15 @@ public class MqttService {
             lastError = null;
             log.info("✅ Successfully connected to MQTT broker");
 
-            // Subscribe to DHT11 sensor topic
-            client.subscribe("sensor/dht11", (topic, msg) -> {
-                lastMessageTime = LocalDateTime.now();
-                String payload = new String(msg.getPayload());
-                log.info("📥 MQTT message received on '{}': {}", topic, payload);
-
-                try {
-                    SensorData data = latestData.get();
-                    String[] parts = payload.replaceAll("[{}\"]", "").split(",");
-
-                    for (String part : parts) {
-                        String[] kv = part.split(":");
-                        if (kv.length == 2) {
-                            String key = kv[0].trim();
-                            double value = Double.parseDouble(kv[1].trim());
-
-                            if (key.equals("temperature")) {
-                                data.getDhtData().setTemperature(value);
-                            } else if (key.equals("humidity")) {
-                                data.getDhtData().setHumidity(value);
-                            }
-                        }
-                    }
-                    data.getDhtData().setTimestamp(LocalDateTime.now());
-                    latestData.set(data);
-
-                    log.info("Latest updated DHT Data: {}", data.getDhtData().toString());
-
-                    // Save to MongoDB (Create a snapshot to save history)
-                    SensorData snapshot = new SensorData();
-                    snapshot.setDhtData(data.getDhtData());
-                    snapshot.setGpsData(data.getGpsData());
-                    
-                    // Save asynchronously to avoid blocking the MQTT thread
-                    CompletableFuture.runAsync(() -> {
-                        try {
-                            sensorDataRepository.save(snapshot);
-                            log.info("✅ DHT data saved to MongoDB");
-                        } catch (Exception e) {
-                            log.error("❌ Failed to save DHT data to MongoDB: {}", e.getMessage());
-                        }
-                    });
-
-                } catch (Exception e) {
-                    lastError = "Parsing error DHT: " + e.getMessage();
-                    log.error("❌ Error processing DHT data: {}", e.getMessage(), e);
-                }
-            });
+            // Subscribe to DHT11 sensor topics
+            for (String filter : DHT_TOPICS) {
+                client.subscribe(filter, this::onDhtMessage);
+            }
 
-            // Subscribe to GPS sensor topic
-            client.subscribe("sensor/gps", (topic, msg) -> {
-                lastMessageTime = LocalDateTime.now();
-                String payload = new String(msg.getPayload());
-                log.info("📥 MQTT message received on '{}': {}", topic, payload);
-
-                try {
-                    SensorData data = latestData.get();
-                    String[] parts = payload.replaceAll("[{}\"]", "").split(",");
-
-                    for (String part : parts) {
-                        String[] kv = part.split(":");
-                        if (kv.length == 2) {
-                            String key = kv[0].trim();
-                            String valueStr = kv[1].trim();
-
-                            switch (key) {
-                                case "latitude" -> data.getGpsData().setLatitude(Double.parseDouble(valueStr));
-                                case "longitude" -> data.getGpsData().setLongitude(Double.parseDouble(valueStr));
-                                case "satellites" -> data.getGpsData().setSatellites(Integer.parseInt(valueStr));
-                            }
-                        }
-                    }
-                    data.getGpsData().setTimestamp(LocalDateTime.now());
-                    latestData.set(data);
-
-                    log.info("Latest updated GPS data: {}", data.getGpsData().toString());
-
-                    // Save to MongoDB
-                    SensorData snapshot = new SensorData();
-                    snapshot.setDhtData(data.getDhtData());
-                    snapshot.setGpsData(data.getGpsData());
-                    
-                    // Save asynchronously
-                    CompletableFuture.runAsync(() -> {
-                        try {
-                            sensorDataRepository.save(snapshot);
-                            log.info("✅ GPS data saved to MongoDB");
-                        } catch (Exception e) {
-                            log.error("❌ Failed to save GPS data to MongoDB: {}", e.getMessage());
-                        }
-                    });
-
-                } catch (Exception e) {
-                    lastError = "Parsing error GPS: " + e.getMessage();
-                    log.error("❌ Error processing GPS data: {}", e.getMessage(), e);
-                }
-            });
+            // Subscribe to GPS sensor topics
+            for (String filter : GPS_TOPICS) {
+                client.subscribe(filter, this::onGpsMessage);
+            }
 
             log.info("✅ MQTT connected and subscribed to sensor topics");
             log.info("📡 Broker: {}, Client ID: {}", brokerUrl, clientId);
@@ -174,4 +102,82 @@ public class MqttService {
             e.printStackTrace(); // Print full stack trace for debugging
         }
     }
-}
\ No newline at end of file
+
+    private void onDhtMessage(String topic, MqttMessage msg) {
+        LocalDateTime now = LocalDateTime.now();
+        lastMessageTime = now;
+        byte[] payload = msg.getPayload();
+        if (log.isDebugEnabled()) {
+            log.debug("📥 MQTT message received on '{}': {}", topic, new String(payload, StandardCharsets.UTF_8));
+        }
+
+        try {
+            DhtReading reading = dhtReading.parse(payload);
+            SensorData snapshot = deviceStateStore.update(deviceIdOf(topic), current -> {
+                SensorData.DhtData previous = current.getDhtData();
+                return current.toBuilder().receivedAt(now).dhtData(SensorData.DhtData.builder()
+                        .temperature(reading.has(DhtReading.TEMPERATURE) ? reading.getTemperature() : previous.getTemperature())
+                        .humidity(reading.has(DhtReading.HUMIDITY) ? reading.getHumidity() : previous.getHumidity())
+                        .timestamp(now)
+                        .build()).build();
+            });
+
+            log.debug("Latest updated DHT Data for {}: {}", snapshot.getDeviceId(), snapshot.getDhtData());
+
+            // The snapshot is immutable, so it can be handed to the write-behind stage and stream as is
+            sensorDataWriteBehind.submit(snapshot);
+            sensorStreamService.publish(snapshot);
+            recentReadingsService.recordDht(snapshot.getDeviceId(), now,
+                    snapshot.getDhtData().getTemperature(), snapshot.getDhtData().getHumidity());
+            sensorRollupService.record(snapshot.getDeviceId(), now,
+                    reading.has(DhtReading.TEMPERATURE), reading.getTemperature(),
+                    reading.has(DhtReading.HUMIDITY), reading.getHumidity());
+
+        } catch (Exception e) {
+            lastError = "Parsing error DHT: " + e.getMessage();
+            log.error("❌ Error processing DHT data: {}", e.getMessage(), e);
+        }
+    }
+
+    private void onGpsMessage(String topic, MqttMessage msg) {
+        LocalDateTime now = LocalDateTime.now();
+        lastMessageTime = now;
+        byte[] payload = msg.getPayload();
+        if (log.isDebugEnabled()) {
+            log.debug("📥 MQTT message received on '{}': {}", topic, new String(payload, StandardCharsets.UTF_8));
+        }
+
+        try {
+            GpsReading reading = gpsReading.parse(payload);
+            SensorData snapshot = deviceStateStore.update(deviceIdOf(topic), current -> {
+                SensorData.GpsData previous = current.getGpsData();
+                return current.toBuilder().receivedAt(now).gpsData(SensorData.GpsData.builder()
+                        .latitude(reading.has(GpsReading.LATITUDE) ? reading.getLatitude() : previous.getLatitude())
+                        .longitude(reading.has(GpsReading.LONGITUDE) ? reading.getLongitude() : previous.getLongitude())
+                        .satellites(reading.has(GpsReading.SATELLITES) ? reading.getSatellites() : previous.getSatellites())
+                        .timestamp(now)
+                        .build()).build();
+            });
+
+            log.debug("Latest updated GPS data for {}: {}", snapshot.getDeviceId(), snapshot.getGpsData());
+
+            sensorDataWriteBehind.submit(snapshot);
+            sensorStreamService.publish(snapshot);
+            recentReadingsService.recordGps(snapshot.getDeviceId(), now, snapshot.getGpsData().getLatitude(),
+                    snapshot.getGpsData().getLongitude(), snapshot.getGpsData().getSatellites());
+
+        } catch (Exception e) {
+            lastError = "Parsing error GPS: " + e.getMessage();
+            log.error("❌ Error processing GPS data: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * sensor/&lt;deviceId&gt;/dht11 yields deviceId; the legacy two-level topics map to the default device.
+     */
+    private String deviceIdOf(String topic) {
+        int first = topic.indexOf('/');
+        int last = topic.lastIndexOf('/');
+        return first == last ? defaultDeviceId : topic.substring(first + 1, last);
+    }
+}
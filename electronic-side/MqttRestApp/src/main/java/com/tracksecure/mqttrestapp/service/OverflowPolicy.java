@@ -0,0 +1,13 @@
+package com.tracksecure.mqttrestapp.service;
+
+/**
+ * What {@link SensorDataWriteBehind} does when its queue is full.
+ */
+public enum OverflowPolicy {
+    /** Wait up to the configured offer timeout for space, then drop the new snapshot. */
+    BLOCK,
+    /** Reject the new snapshot and keep what is already queued. */
+    DROP_NEWEST,
+    /** Evict the oldest queued snapshot to make room for the new one. */
+    DROP_OLDEST
+}
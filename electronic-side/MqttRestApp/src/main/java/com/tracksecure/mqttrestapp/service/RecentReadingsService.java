@@ -0,0 +1,151 @@
+package com.tracksecure.mqttrestapp.service;
+
+import com.tracksecure.mqttrestapp.dtos.ReadingSeries;
+import com.tracksecure.mqttrestapp.dtos.RecentReadings;
+import com.tracksecure.mqttrestapp.model.SensorData;
+import com.tracksecure.mqttrestapp.util.PrimitiveRingBuffer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves "the last N minutes" of a device from per-device in-memory ring buffers filled by
+ * the MQTT subscribers. Only the part of the window older than what a channel's buffer still
+ * holds (before startup, or past the samples the buffer has dropped) is read from MongoDB, once
+ * for both channels, and each channel only takes the documents before its own buffer begins.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecentReadingsService {
+
+    private static final String[] DHT_CHANNELS = {"temperature", "humidity"};
+    private static final String[] GPS_CHANNELS = {"latitude", "longitude", "satellites"};
+
+    private final SensorHistoryService sensorHistoryService;
+
+    @Value("${sensor.recent.capacity:1024}")
+    private int capacity;
+
+    private final ConcurrentHashMap<String, DeviceBuffers> buffers = new ConcurrentHashMap<>();
+    // Readings before this were received by an earlier run and are only in MongoDB
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    public void recordDht(String deviceId, LocalDateTime timestamp, double temperature, double humidity) {
+        buffersOf(deviceId).dht.append(toEpochMillis(timestamp), temperature, humidity);
+    }
+
+    public void recordGps(String deviceId, LocalDateTime timestamp, double latitude, double longitude, int satellites) {
+        buffersOf(deviceId).gps.append(toEpochMillis(timestamp), latitude, longitude, satellites);
+    }
+
+    public RecentReadings recent(String deviceId, int minutes) {
+        long now = System.currentTimeMillis();
+        long since = now - minutes * 60_000L;
+        DeviceBuffers device = buffers.get(deviceId);
+
+        ReadingSeries dht = device != null ? device.dht.readSince(since) : empty(DHT_CHANNELS);
+        ReadingSeries gps = device != null ? device.gps.readSince(since) : empty(GPS_CHANNELS);
+
+        long dhtBufferedFrom = bufferedFrom(device != null ? device.dht : null, now);
+        long gpsBufferedFrom = bufferedFrom(device != null ? device.gps : null, now);
+        long gapEnd = Math.max(dhtBufferedFrom, gpsBufferedFrom);
+        if (since < gapEnd) {
+            // The window reaches past a buffer: fill that channel's gap from MongoDB
+            List<SensorData> older = sensorHistoryService.findRange(deviceId,
+                    toLocalDateTime(since), toLocalDateTime(gapEnd));
+            dht = dht.prepend(dhtSeries(older, dhtBufferedFrom));
+            gps = gps.prepend(gpsSeries(older, gpsBufferedFrom));
+            log.debug("Recent readings for {} read {} documents from MongoDB", deviceId, older.size());
+        }
+        return new RecentReadings(deviceId, dht, gps);
+    }
+
+    /**
+     * From when on a buffer holds every sample of its channel. One that has not dropped anything
+     * holds all since startup, however few, or none for a device silent on that channel.
+     */
+    private long bufferedFrom(PrimitiveRingBuffer buffer, long now) {
+        if (buffer == null || !buffer.hasEvicted()) {
+            return startedAtMillis;
+        }
+        return Math.min(buffer.oldestTimestamp(), now);
+    }
+
+    private DeviceBuffers buffersOf(String deviceId) {
+        DeviceBuffers device = buffers.get(deviceId);
+        return device != null ? device : buffers.computeIfAbsent(deviceId, id -> new DeviceBuffers(capacity));
+    }
+
+    // A snapshot was produced by a DHT (resp. GPS) message when that part's timestamp equals receivedAt
+    private static ReadingSeries dhtSeries(List<SensorData> documents, long before) {
+        List<SensorData> matching = new ArrayList<>();
+        for (SensorData d : documents) {
+            if (d.getDhtData() != null && d.getReceivedAt().equals(d.getDhtData().getTimestamp())
+                    && toEpochMillis(d.getReceivedAt()) < before) {
+                matching.add(d);
+            }
+        }
+        long[] ts = new long[matching.size()];
+        double[][] vs = new double[DHT_CHANNELS.length][matching.size()];
+        for (int i = 0; i < ts.length; i++) {
+            SensorData d = matching.get(i);
+            ts[i] = toEpochMillis(d.getReceivedAt());
+            vs[0][i] = d.getDhtData().getTemperature();
+            vs[1][i] = d.getDhtData().getHumidity();
+        }
+        return new ReadingSeries(DHT_CHANNELS, ts, vs);
+    }
+
+    private static ReadingSeries gpsSeries(List<SensorData> documents, long before) {
+        List<SensorData> matching = new ArrayList<>();
+        for (SensorData d : documents) {
+            if (d.getGpsData() != null && d.getReceivedAt().equals(d.getGpsData().getTimestamp())
+                    && toEpochMillis(d.getReceivedAt()) < before) {
+                matching.add(d);
+            }
+        }
+        long[] ts = new long[matching.size()];
+        double[][] vs = new double[GPS_CHANNELS.length][matching.size()];
+        for (int i = 0; i < ts.length; i++) {
+            SensorData d = matching.get(i);
+            ts[i] = toEpochMillis(d.getReceivedAt());
+            vs[0][i] = d.getGpsData().getLatitude();
+            vs[1][i] = d.getGpsData().getLongitude();
+            vs[2][i] = d.getGpsData().getSatellites();
+        }
+        return new ReadingSeries(GPS_CHANNELS, ts, vs);
+    }
+
+    private static ReadingSeries empty(String[] channels) {
+        return new ReadingSeries(channels, new long[0], new double[channels.length][0]);
+    }
+
+    // Timestamps in this app are LocalDateTime.now(), i.e. in the JVM's default zone
+    private static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static final class DeviceBuffers {
+        private final PrimitiveRingBuffer dht;
+        private final PrimitiveRingBuffer gps;
+
+        // One slot more than the samples kept: a ring yields capacity - 1 samples
+        private DeviceBuffers(int capacity) {
+            this.dht = new PrimitiveRingBuffer(capacity + 1, DHT_CHANNELS);
+            this.gps = new PrimitiveRingBuffer(capacity + 1, GPS_CHANNELS);
+        }
+    }
+}
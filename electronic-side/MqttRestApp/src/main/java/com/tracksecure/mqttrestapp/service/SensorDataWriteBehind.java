@@ -0,0 +1,315 @@
+package com.tracksecure.mqttrestapp.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import com.tracksecure.mqttrestapp.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded write-behind stage for {@link SensorData} snapshots.
+ * <p>
+ * MQTT subscribers hand snapshots to {@link #submit(SensorData)}, which never touches Mongo.
+ * A single flusher thread collects them and writes each batch with one unordered bulk insert
+ * once either {@code batch-size} snapshots are waiting or {@code flush-interval-ms} has elapsed
+ * since the first one arrived. When the queue is full the configured {@link OverflowPolicy}
+ * applies, so a Mongo slowdown costs dropped history instead of an unbounded heap.
+ * <p>
+ * Snapshots get their id before the first attempt. Transient errors (connection, timeout,
+ * primary step-down) retry the whole batch up to {@code max-attempts} times with doubling
+ * backoff, and a duplicate id then means an earlier attempt stored it. Items that fail in any
+ * other way are saved one by one, so one bad document does not take its batch down with it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorDataWriteBehind {
+    private static final int DUPLICATE_KEY = 11000;
+    private static final String RETRYABLE_WRITE_ERROR = "RetryableWriteError";
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sensor.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${sensor.persistence.batch-size:500}")
+    private int batchSize;
+
+    @Value("${sensor.persistence.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${sensor.persistence.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${sensor.persistence.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    @Value("${sensor.persistence.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${sensor.persistence.retry-backoff-ms:100}")
+    private long retryBackoffMs;
+
+    @Value("${sensor.persistence.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private BlockingQueue<SensorData> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private DistributionSummary batchSizeSummary;
+    private Counter writtenCounter;
+    private Counter failedCounter;
+    private Counter droppedCounter;
+    private Counter duplicateCounter;
+    private Counter fallbackCounter;
+    private Counter retryCounter;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("sensor.persistence.queue.depth", queue, BlockingQueue::size)
+                .description("Snapshots waiting to be written to MongoDB")
+                .register(meterRegistry);
+        Gauge.builder("sensor.persistence.queue.capacity", queue, q -> queueCapacity)
+                .register(meterRegistry);
+        flushTimer = Timer.builder("sensor.persistence.flush")
+                .description("Latency of one bulk insert, retries and per-document fallback included")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("sensor.persistence.batch.size")
+                .register(meterRegistry);
+        writtenCounter = meterRegistry.counter("sensor.persistence.written");
+        failedCounter = meterRegistry.counter("sensor.persistence.failed");
+        droppedCounter = meterRegistry.counter("sensor.persistence.dropped", "policy", overflowPolicy.name());
+        duplicateCounter = meterRegistry.counter("sensor.persistence.duplicates");
+        fallbackCounter = meterRegistry.counter("sensor.persistence.fallbacks");
+        retryCounter = meterRegistry.counter("sensor.persistence.retries");
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "sensor-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind started (capacity={}, batchSize={}, flushInterval={}ms, overflow={})",
+                queueCapacity, batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    /**
+     * Queues a snapshot for persistence. Never blocks longer than the configured offer timeout.
+     *
+     * @return false if the snapshot was dropped
+     */
+    public boolean submit(SensorData snapshot) {
+        if (!running) {
+            droppedCounter.increment();
+            return false;
+        }
+        boolean accepted = switch (overflowPolicy) {
+            case DROP_NEWEST -> queue.offer(snapshot);
+            case BLOCK -> offerWithTimeout(snapshot);
+            case DROP_OLDEST -> {
+                while (!queue.offer(snapshot)) {
+                    if (queue.poll() != null) {
+                        droppedCounter.increment();
+                    }
+                }
+                yield true;
+            }
+        };
+        if (!accepted) {
+            droppedCounter.increment();
+            log.warn("Write-behind queue full, dropping snapshot");
+        }
+        return accepted;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private boolean offerWithTimeout(SensorData snapshot) {
+        try {
+            return queue.offer(snapshot, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runFlusher() {
+        List<SensorData> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                SensorData first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    SensorData next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and write whatever we already hold
+                queue.drainTo(batch);
+                running = false;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<SensorData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Ids fixed up front: a retry of a write that was applied then hits a duplicate id
+        List<SensorData> documents = new ArrayList<>(batch.size());
+        for (SensorData snapshot : batch) {
+            documents.add(snapshot.getId() != null ? snapshot : snapshot.withId(new ObjectId().toHexString()));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            insert(documents);
+        } finally {
+            sample.stop(flushTimer);
+            batchSizeSummary.record(batch.size());
+        }
+    }
+
+    private void insert(List<SensorData> documents) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                mongoTemplate.bulkOps(BulkMode.UNORDERED, SensorData.class).insert(documents).execute();
+                writtenCounter.increment(documents.size());
+                log.debug("Flushed {} sensor snapshots to MongoDB", documents.size());
+                return;
+            } catch (BulkOperationException e) {
+                // Unordered: every item without an error was inserted
+                handleItemErrors(documents, e.getErrors());
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || attempt >= maxAttempts) {
+                    failedCounter.increment(documents.size());
+                    log.error("❌ Failed to write {} sensor snapshots to MongoDB: {}", documents.size(), e.getMessage());
+                    return;
+                }
+                retryCounter.increment();
+                log.warn("Bulk insert of {} snapshots failed (attempt {}/{}), retrying: {}",
+                        documents.size(), attempt, maxAttempts, e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs << (attempt - 1));
+                } catch (InterruptedException interrupted) {
+                    // Shutdown: one last try without waiting
+                    Thread.currentThread().interrupt();
+                    attempt = Math.max(attempt, maxAttempts - 1);
+                }
+            }
+        }
+    }
+
+    private void handleItemErrors(List<SensorData> documents, List<BulkWriteError> errors) {
+        BitSet failed = new BitSet(documents.size());
+        BitSet duplicates = new BitSet(documents.size());
+        for (BulkWriteError error : errors) {
+            (isDuplicateId(error) ? duplicates : failed).set(error.getIndex());
+        }
+        duplicateCounter.increment(duplicates.cardinality());
+        writtenCounter.increment(documents.size() - failed.cardinality());
+        for (int i = failed.nextSetBit(0); i >= 0; i = failed.nextSetBit(i + 1)) {
+            saveOne(documents.get(i));
+        }
+    }
+
+    private void saveOne(SensorData snapshot) {
+        fallbackCounter.increment();
+        try {
+            mongoTemplate.save(snapshot);
+            writtenCounter.increment();
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            log.error("❌ Failed to store snapshot of {} at {}: {}", snapshot.getDeviceId(), snapshot.getReceivedAt(), e.getMessage());
+        }
+    }
+
+    /** A duplicate of the snapshot id itself; duplicates on any other unique index are real failures. */
+    private static boolean isDuplicateId(BulkWriteError error) {
+        if (error.getCode() != DUPLICATE_KEY) {
+            return false;
+        }
+        BsonValue keyPattern = error.getDetails().get("keyPattern");
+        if (keyPattern != null && keyPattern.isDocument()) {
+            return keyPattern.asDocument().containsKey("_id");
+        }
+        return error.getMessage() != null && error.getMessage().contains("index: _id_ ");
+    }
+
+    // MongoTemplate translates some driver errors and lets others through, so check both kinds
+    private static boolean isTransient(RuntimeException e) {
+        if (e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException) {
+            return true;
+        }
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof MongoSocketException || cause instanceof MongoTimeoutException) {
+                return true;
+            }
+            if (cause instanceof MongoException mongo && mongo.hasErrorLabel(RETRYABLE_WRITE_ERROR)) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            flusher.join(shutdownTimeoutMs);
+            if (flusher.isAlive()) {
+                log.warn("Write-behind did not drain within {}ms, {} snapshots lost", shutdownTimeoutMs, queue.size());
+                flusher.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.tracksecure.mqttrestapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tracksecure.mqttrestapp.dtos.SensorHistoryPage;
+import com.tracksecure.mqttrestapp.model.SensorData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Time-bounded reads of the sensor_data collection.
+ * <p>
+ * Both modes walk the (deviceId, receivedAt, _id) index in order: the paged mode seeks past
+ * the last returned position instead of using skip, and the streaming mode writes documents
+ * from the Mongo cursor to the response as they arrive, so neither holds more than one
+ * page or one cursor batch in memory however large the range is.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorHistoryService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    public SensorHistoryPage page(String deviceId, LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Query query = rangeQuery(deviceId, from, to);
+        if (cursor != null && !cursor.isBlank()) {
+            Position after = Position.decode(cursor);
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("receivedAt").gt(after.receivedAt()),
+                    Criteria.where("receivedAt").is(after.receivedAt()).and("_id").gt(after.id())));
+        }
+        // Fetch one extra document to know whether another page exists
+        query.limit(pageSize + 1);
+
+        List<SensorData> items = mongoTemplate.find(query, SensorData.class);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            SensorData last = items.get(pageSize - 1);
+            nextCursor = new Position(last.getReceivedAt(), new ObjectId(last.getId())).encode();
+        }
+        return new SensorHistoryPage(items, nextCursor);
+    }
+
+    /**
+     * Every document of [from, to) in receivedAt order, for callers that need a short range in full.
+     */
+    public List<SensorData> findRange(String deviceId, LocalDateTime from, LocalDateTime to) {
+        return mongoTemplate.find(rangeQuery(deviceId, from, to), SensorData.class);
+    }
+
+    /**
+     * Writes every document of the range as newline-delimited JSON.
+     */
+    public void stream(String deviceId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        write(deviceId, from, to, out, false);
+    }
+
+    /**
+     * Writes every document of the range as one JSON array, the shape /sensor/history has always
+     * returned, without holding the range in memory.
+     */
+    public void streamArray(String deviceId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        write(deviceId, from, to, out, true);
+    }
+
+    private void write(String deviceId, LocalDateTime from, LocalDateTime to, OutputStream out, boolean array)
+            throws IOException {
+        Query query = rangeQuery(deviceId, from, to);
+        query.cursorBatchSize(STREAM_BATCH_SIZE);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<SensorData> documents = mongoTemplate.stream(query, SensorData.class)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Root values are otherwise separated by a space, which would start every NDJSON line after the first
+            generator.setRootValueSeparator(null);
+            if (array) {
+                generator.writeStartArray();
+            }
+            var iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                if (!array) {
+                    generator.writeRaw('\n');
+                }
+                if (++count % STREAM_BATCH_SIZE == 0) {
+                    generator.flush();
+                }
+            }
+            if (array) {
+                generator.writeEndArray();
+            }
+            generator.flush();
+        }
+        log.debug("Streamed {} history documents", count);
+    }
+
+    private static Query rangeQuery(String deviceId, LocalDateTime from, LocalDateTime to) {
+        Query query = new Query();
+        if (deviceId != null) {
+            query.addCriteria(Criteria.where("deviceId").is(deviceId));
+        }
+        // Snapshots written before receivedAt existed have no position on the time axis
+        Criteria range = Criteria.where("receivedAt").exists(true);
+        if (from != null) {
+            range = range.gte(from);
+        }
+        if (to != null) {
+            range = range.lt(to);
+        }
+        query.addCriteria(range);
+        return query.with(Sort.by(Sort.Order.asc("receivedAt"), Sort.Order.asc("_id")));
+    }
+
+    private record Position(LocalDateTime receivedAt, ObjectId id) {
+        String encode() {
+            String raw = receivedAt.toInstant(ZoneOffset.UTC).toEpochMilli() + ":" + id.toHexString();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static Position decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                int separator = raw.indexOf(':');
+                long epochMillis = Long.parseLong(raw.substring(0, separator));
+                return new Position(
+                        LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                                (int) Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC),
+                        new ObjectId(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid history cursor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.tracksecure.mqttrestapp.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.tracksecure.mqttrestapp.dtos.RollupSeries;
+import com.tracksecure.mqttrestapp.model.RollupResolution;
+import com.tracksecure.mqttrestapp.model.SensorRollup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps 1 min / 1 h / 1 day min-max-avg-count rollups of temperature and humidity.
+ * <p>
+ * Readings are folded into in-memory accumulators as they arrive; a scheduled flush turns
+ * every touched bucket into one $min/$max/$inc upsert and sends them in a single unordered
+ * bulk write. Mongo therefore sees a few upserts per device per flush interval instead of
+ * three writes per reading, and a chart over months reads day buckets, not raw documents.
+ * <p>
+ * Buckets whose upsert fails are merged back into the open ones and go out with the next flush.
+ * Their deltas are kept in memory however long MongoDB is away, still one accumulator per
+ * bucket. When a write is applied but its reply is lost, the retry counts it twice.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorRollupService {
+
+    private static final RollupResolution[] RESOLUTIONS = RollupResolution.values();
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<BucketKey, Accumulator> openBuckets = new ConcurrentHashMap<>();
+
+    private Timer flushTimer;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        flushTimer = Timer.builder("sensor.rollup.flush")
+                .description("Latency of one rollup bulk upsert")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("sensor.rollup.failed")
+                .description("Bucket upserts that failed and were kept for the next flush")
+                .register(meterRegistry);
+        meterRegistry.gauge("sensor.rollup.open.buckets", openBuckets, ConcurrentHashMap::size);
+    }
+
+    public void record(String deviceId, LocalDateTime timestamp, boolean hasTemperature, double temperature,
+                       boolean hasHumidity, double humidity) {
+        for (RollupResolution resolution : RESOLUTIONS) {
+            BucketKey key = new BucketKey(deviceId, resolution, resolution.bucketStart(timestamp));
+            while (true) {
+                Accumulator accumulator = openBuckets.computeIfAbsent(key, k -> new Accumulator());
+                // A flush may have detached this accumulator between lookup and lock; retry with a fresh one
+                if (accumulator.add(hasTemperature, temperature, hasHumidity, humidity)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sensor.rollup.flush-interval-ms:10000}")
+    public void flush() {
+        if (openBuckets.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SensorRollup.class);
+        List<BucketKey> keys = new ArrayList<>();
+        List<Accumulator> accumulators = new ArrayList<>();
+        for (BucketKey key : openBuckets.keySet()) {
+            Accumulator accumulator = openBuckets.remove(key);
+            if (accumulator == null || !accumulator.close()) {
+                continue;
+            }
+            bulk.upsert(Query.query(Criteria.where("deviceId").is(key.deviceId())
+                            .and("resolution").is(key.resolution())
+                            .and("bucketStart").is(key.bucketStart())),
+                    accumulator.toUpdate());
+            keys.add(key);
+            accumulators.add(accumulator);
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            bulk.execute();
+            log.debug("Flushed {} rollup buckets", keys.size());
+        } catch (BulkOperationException e) {
+            // Unordered: every upsert without an error was applied
+            for (BulkWriteError error : e.getErrors()) {
+                restore(keys.get(error.getIndex()), accumulators.get(error.getIndex()));
+            }
+            failedCounter.increment(e.getErrors().size());
+            log.error("❌ Failed to upsert {} of {} rollup buckets, kept for the next flush: {}",
+                    e.getErrors().size(), keys.size(), e.getMessage());
+        } catch (Exception e) {
+            for (int i = 0; i < keys.size(); i++) {
+                restore(keys.get(i), accumulators.get(i));
+            }
+            failedCounter.increment(keys.size());
+            log.error("❌ Failed to upsert {} rollup buckets, kept for the next flush: {}", keys.size(), e.getMessage());
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    /** Puts the deltas of a bucket that was not written back with whatever arrived since. */
+    private void restore(BucketKey key, Accumulator unwritten) {
+        while (true) {
+            Accumulator accumulator = openBuckets.computeIfAbsent(key, k -> new Accumulator());
+            if (accumulator.absorb(unwritten)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the finest resolution whose bucket count over [from, to) stays within maxPoints,
+     * falling back to day buckets for very long ranges. Buckets still open in memory appear
+     * after the next flush.
+     */
+    public RollupSeries query(String deviceId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        RollupResolution resolution = pickResolution(Duration.between(from, to), Math.max(1, maxPoints));
+        Query query = Query.query(Criteria.where("deviceId").is(deviceId)
+                        .and("resolution").is(resolution)
+                        .and("bucketStart").gte(resolution.bucketStart(from)).lt(to))
+                .with(Sort.by(Sort.Direction.ASC, "bucketStart"));
+        List<SensorRollup> points = mongoTemplate.find(query, SensorRollup.class);
+        return new RollupSeries(resolution, points);
+    }
+
+    static RollupResolution pickResolution(Duration range, int maxPoints) {
+        for (RollupResolution resolution : RESOLUTIONS) {
+            long buckets = range.toMillis() / resolution.getDuration().toMillis() + 1;
+            if (buckets <= maxPoints) {
+                return resolution;
+            }
+        }
+        return RESOLUTIONS[RESOLUTIONS.length - 1];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private record BucketKey(String deviceId, RollupResolution resolution, LocalDateTime bucketStart) {
+    }
+
+    private static final class Accumulator {
+        private double temperatureMin = Double.POSITIVE_INFINITY;
+        private double temperatureMax = Double.NEGATIVE_INFINITY;
+        private double temperatureSum;
+        private long temperatureCount;
+        private double humidityMin = Double.POSITIVE_INFINITY;
+        private double humidityMax = Double.NEGATIVE_INFINITY;
+        private double humiditySum;
+        private long humidityCount;
+        private boolean closed;
+
+        synchronized boolean add(boolean hasTemperature, double temperature, boolean hasHumidity, double humidity) {
+            if (closed) {
+                return false;
+            }
+            if (hasTemperature) {
+                temperatureMin = Math.min(temperatureMin, temperature);
+                temperatureMax = Math.max(temperatureMax, temperature);
+                temperatureSum += temperature;
+                temperatureCount++;
+            }
+            if (hasHumidity) {
+                humidityMin = Math.min(humidityMin, humidity);
+                humidityMax = Math.max(humidityMax, humidity);
+                humiditySum += humidity;
+                humidityCount++;
+            }
+            return true;
+        }
+
+        /** Adds everything {@code other} accumulated; false if this one is closed. */
+        synchronized boolean absorb(Accumulator other) {
+            if (closed) {
+                return false;
+            }
+            synchronized (other) {
+                temperatureMin = Math.min(temperatureMin, other.temperatureMin);
+                temperatureMax = Math.max(temperatureMax, other.temperatureMax);
+                temperatureSum += other.temperatureSum;
+                temperatureCount += other.temperatureCount;
+                humidityMin = Math.min(humidityMin, other.humidityMin);
+                humidityMax = Math.max(humidityMax, other.humidityMax);
+                humiditySum += other.humiditySum;
+                humidityCount += other.humidityCount;
+            }
+            return true;
+        }
+
+        /** Stops further adds; returns false if nothing was accumulated. */
+        synchronized boolean close() {
+            closed = true;
+            return temperatureCount > 0 || humidityCount > 0;
+        }
+
+        synchronized Update toUpdate() {
+            Update update = new Update();
+            if (temperatureCount > 0) {
+                update.min("temperature.min", temperatureMin)
+                        .max("temperature.max", temperatureMax)
+                        .inc("temperature.sum", temperatureSum)
+                        .inc("temperature.count", temperatureCount);
+            }
+            if (humidityCount > 0) {
+                update.min("humidity.min", humidityMin)
+                        .max("humidity.max", humidityMax)
+                        .inc("humidity.sum", humiditySum)
+                        .inc("humidity.count", humidityCount);
+            }
+            return update;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.tracksecure.mqttrestapp.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.mqttrestapp.model.SensorData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events fan-out of sensor snapshots, fed directly by the MQTT subscribers.
+ * <p>
+ * Every snapshot is serialized to one SSE frame exactly once, and that frame is shared by
+ * all subscribers. Each subscriber keeps only the newest pending frame per device, so a
+ * slow client skips intermediate readings instead of building a backlog, and one sender
+ * thread at most works on a given client at any time.
+ * <p>
+ * The blocking socket write of each frame runs on one of {@code writer-threads} writer threads,
+ * and the sender waits for it at most {@code send-timeout-ms}. A client that stalls for longer is
+ * dropped at once, but its emitter is completed by the writer once the stuck write returns:
+ * completing takes the emitter's write lock, which the stuck write holds and which does not yield
+ * to interrupts. The few sender threads keep serving everyone else; each stalled client pins one
+ * writer thread until its socket gives up, and once all are pinned the clients whose writes cannot
+ * start in time are dropped too. Event ids are a sequence across all frames, so a client can tell
+ * new events from ones it has seen.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorStreamService {
+
+    private static final String HEARTBEAT_KEY = "";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${sensor.stream.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${sensor.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${sensor.stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${sensor.stream.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    @Value("${sensor.stream.writer-threads:16}")
+    private int writerThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, Set<ResponseBodyEmitter.DataWithMediaType>> lastFrames = new ConcurrentHashMap<>();
+    private final AtomicLong eventIds = new AtomicLong();
+    private ExecutorService sender;
+    private ExecutorService writer;
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIds = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "sensor-stream-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger writerIds = new AtomicInteger();
+        // A sender waits on one write at a time, so at most senderThreads writes are ever queued
+        ThreadPoolExecutor writerPool = new ThreadPoolExecutor(writerThreads, writerThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "sensor-stream-writer-" + writerIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        writerPool.allowCoreThreadTimeOut(true);
+        writer = writerPool;
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sensor-stream-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        Set<ResponseBodyEmitter.DataWithMediaType> keepAlive = SseEmitter.event().comment("keep-alive").build();
+        heartbeat.scheduleAtFixedRate(() -> subscribers.forEach(s -> s.offer(HEARTBEAT_KEY, keepAlive)),
+                heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream of "sensor" events.
+     *
+     * @param deviceId only stream this device, or every device when null
+     */
+    public SseEmitter subscribe(String deviceId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, deviceId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        // Replay the current state so a new client does not have to poll for it
+        if (deviceId == null) {
+            lastFrames.forEach(subscriber::offer);
+        } else {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame = lastFrames.get(deviceId);
+            if (frame != null) {
+                subscriber.offer(deviceId, frame);
+            }
+        }
+        log.debug("SSE subscriber added (device={}, total={})", deviceId, subscribers.size());
+        return emitter;
+    }
+
+    public void publish(SensorData snapshot) {
+        String deviceId = snapshot.getDeviceId();
+        Set<ResponseBodyEmitter.DataWithMediaType> frame;
+        try {
+            frame = SseEmitter.event()
+                    .name("sensor")
+                    .id(Long.toString(eventIds.incrementAndGet()))
+                    .data(objectMapper.writeValueAsString(snapshot))
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.error("❌ Failed to serialize snapshot for {}: {}", deviceId, e.getMessage());
+            return;
+        }
+        lastFrames.put(deviceId, frame);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.deviceFilter == null || subscriber.deviceFilter.equals(deviceId)) {
+                subscriber.offer(deviceId, frame);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        // Emitters with a write in progress are completed by their writer, so shutdown never waits on a socket
+        subscribers.forEach(s -> s.close(null));
+        subscribers.clear();
+        writer.shutdownNow();
+    }
+
+    private final class Subscriber {
+        private static final int IDLE = 0;
+        private static final int QUEUED = 1;
+        private static final int WRITING = 2;
+
+        private final SseEmitter emitter;
+        private final String deviceFilter;
+        // Newest undelivered frame per device; older ones are overwritten, never queued
+        private final ConcurrentHashMap<String, Set<ResponseBodyEmitter.DataWithMediaType>> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // State of the one write a sender may have handed to the writer pool
+        private final AtomicInteger write = new AtomicInteger(IDLE);
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, String deviceFilter) {
+            this.emitter = emitter;
+            this.deviceFilter = deviceFilter;
+        }
+
+        void offer(String key, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+            if (closed) {
+                return;
+            }
+            pending.put(key, frame);
+            if (scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    Collection<String> keys = pending.keySet();
+                    for (String key : keys) {
+                        Set<ResponseBodyEmitter.DataWithMediaType> frame = pending.remove(key);
+                        if (frame != null) {
+                            send(frame);
+                        }
+                    }
+                    scheduled.set(false);
+                    // A frame may have arrived after the loop but before the flag was cleared
+                } while (!pending.isEmpty() && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("SSE subscriber gone: {}", e.getMessage());
+                close(e);
+            }
+        }
+
+        /**
+         * Drops the subscriber and completes its emitter, unless a write is in progress: the
+         * writer then completes it when the write returns.
+         */
+        void close(Throwable error) {
+            closed = true;
+            subscribers.remove(this);
+            pending.clear();
+            // A queued write is abandoned before it starts; the writer checks closed after setting IDLE
+            if (write.compareAndSet(QUEUED, IDLE) || write.get() == IDLE) {
+                complete(error);
+            }
+        }
+
+        private void complete(Throwable error) {
+            try {
+                if (error == null) {
+                    emitter.complete();
+                } else {
+                    emitter.completeWithError(error);
+                }
+            } catch (RuntimeException e) {
+                log.debug("SSE emitter already closed: {}", e.getMessage());
+            }
+        }
+
+        private void send(Set<ResponseBodyEmitter.DataWithMediaType> frame) throws IOException {
+            write.set(QUEUED);
+            Future<?> task = writer.submit(() -> {
+                if (!write.compareAndSet(QUEUED, WRITING)) {
+                    return null;
+                }
+                try {
+                    emitter.send(frame);
+                } finally {
+                    write.set(IDLE);
+                    if (closed) {
+                        complete(null);
+                    }
+                }
+                return null;
+            });
+            try {
+                task.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new IOException("send did not complete within " + sendTimeoutMs + " ms");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                if (e.getCause() instanceof IllegalStateException closed) {
+                    throw closed;
+                }
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                // Shutting down
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while sending");
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.tracksecure.mqttrestapp.util;
+
+import com.tracksecure.mqttrestapp.dtos.ReadingSeries;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-capacity ring of timestamped samples stored column-wise in primitive arrays,
+ * so a sample costs no boxed Double or LocalDateTime.
+ * <p>
+ * Appends are serialised; reads are lock-free. The slot of sample {@code written} is the one an
+ * append may be filling right now, which once the ring is full is the slot of the oldest sample,
+ * so readers only trust samples from {@code written - capacity + 1} on: the ring yields at most
+ * {@code capacity - 1} samples. A reader copies the window it wants and then drops any slot the
+ * writer may have started on during the copy, detected by re-reading the write counter behind
+ * an acquire fence (the validation of an optimistic read).
+ */
+public final class PrimitiveRingBuffer {
+
+    private final String[] channels;
+    private final long[] timestamps;
+    private final double[][] values;
+    private final int capacity;
+
+    // Total number of samples ever appended; slot = index % capacity. Written last (publication point).
+    private volatile long written;
+
+    public PrimitiveRingBuffer(int capacity, String... channels) {
+        this.capacity = capacity;
+        this.channels = channels.clone();
+        this.timestamps = new long[capacity];
+        this.values = new double[channels.length][capacity];
+    }
+
+    /** Appends a sample to a two-channel buffer. */
+    public synchronized void append(long epochMillis, double first, double second) {
+        int slot = (int) (written % capacity);
+        timestamps[slot] = epochMillis;
+        values[0][slot] = first;
+        values[1][slot] = second;
+        written++;
+    }
+
+    /** Appends a sample to a three-channel buffer. */
+    public synchronized void append(long epochMillis, double first, double second, double third) {
+        int slot = (int) (written % capacity);
+        timestamps[slot] = epochMillis;
+        values[0][slot] = first;
+        values[1][slot] = second;
+        values[2][slot] = third;
+        written++;
+    }
+
+    /** Timestamp of the oldest sample still held, or Long.MAX_VALUE if empty. */
+    public long oldestTimestamp() {
+        while (true) {
+            long end = written;
+            long start = firstReadable(end);
+            if (start >= end) {
+                return Long.MAX_VALUE;
+            }
+            long ts = timestamps[(int) (start % capacity)];
+            VarHandle.acquireFence();
+            if (firstReadable(written) <= start) {
+                return ts;
+            }
+        }
+    }
+
+    /** Whether samples have been dropped to make room: if not, the ring holds everything appended. */
+    public boolean hasEvicted() {
+        return written >= capacity;
+    }
+
+    /**
+     * Copies every sample with a timestamp at or after {@code sinceMillis}, oldest first.
+     */
+    public ReadingSeries readSince(long sinceMillis) {
+        long end = written;
+        long start = firstReadable(end);
+        int n = (int) (end - start);
+
+        long[] ts = new long[n];
+        double[][] vs = new double[values.length][n];
+        for (int i = 0; i < n; i++) {
+            int slot = (int) ((start + i) % capacity);
+            ts[i] = timestamps[slot];
+            for (int c = 0; c < values.length; c++) {
+                vs[c][i] = values[c][slot];
+            }
+        }
+
+        // Slots below this index may have been overwritten while we were copying
+        VarHandle.acquireFence();
+        long firstValid = Math.max(start, firstReadable(written));
+        int from = (int) (firstValid - start);
+        while (from < n && ts[from] < sinceMillis) {
+            from++;
+        }
+        return ReadingSeries.slice(channels, ts, vs, from, n);
+    }
+
+    // Sample `end` may be in the middle of being written, and it takes the slot of `end - capacity`
+    private long firstReadable(long end) {
+        return Math.max(0, end - capacity + 1);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -1,13 +0,0 @@
-package com.tracksecure.mqttrestapp.websocket;
-
-import org.springframework.context.annotation.Configuration;
-
-/**
- * WebSocket configuration removed. This class remains as an inert placeholder
- * so that the application can continue to start if any code still references
- * the original configuration class during the migration to AJAX polling.
- */
-@Configuration
-public class WebSocketConfig {
-    // Intentionally empty: websockets disabled in this build
-}
@@ -0,0 +1,67 @@
+package com.tracksecure.mqttrestapp.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorPayloadParserTests {
+
+    @Test
+    void parsesTheFirmwarePayloads() {
+        DhtReading dht = new DhtReading().parse(bytes("{\"temperature\":23.50,\"humidity\":41.00}"));
+        assertEquals(23.5, dht.getTemperature());
+        assertEquals(41.0, dht.getHumidity());
+
+        GpsReading gps = new GpsReading().parse(bytes("{\"latitude\":30.427755,\"longitude\":-9.598107,\"satellites\":7}"));
+        assertEquals(30.427755, gps.getLatitude());
+        assertEquals(-9.598107, gps.getLongitude());
+        assertEquals(7, gps.getSatellites());
+    }
+
+    @Test
+    void matchesDoubleParseDouble() {
+        String[] literals = {"0", "-0.5", "+12.25", "1e3", "-2.5E-2", "0.1", "179.999999999999", "123456789012345678.5"};
+        SensorPayloadParser parser = new SensorPayloadParser("v");
+        for (String literal : literals) {
+            double[] value = new double[1];
+            parser.parse(bytes("{\"v\":" + literal + "}"), (field, v) -> value[0] = v);
+            assertEquals(Double.parseDouble(literal), value[0], literal);
+        }
+    }
+
+    @Test
+    void skipsUnknownFieldsStringsAndNestedValues() {
+        DhtReading dht = new DhtReading().parse(bytes(
+                " { \"note\" : \"a:b,c}\\\"\" , \"meta\":{\"x\":[1,{\"y\":2}]}, \"humidity\" : \"55.5\", \"ok\":true }"));
+        assertFalse(dht.has(DhtReading.TEMPERATURE));
+        assertTrue(dht.has(DhtReading.HUMIDITY));
+        assertEquals(55.5, dht.getHumidity());
+    }
+
+    @Test
+    void resetsThePresentFieldsOnEveryParse() {
+        DhtReading dht = new DhtReading();
+        dht.parse(bytes("{\"temperature\":20}"));
+        dht.parse(bytes("{\"humidity\":30}"));
+        assertFalse(dht.has(DhtReading.TEMPERATURE));
+        assertTrue(dht.has(DhtReading.HUMIDITY));
+    }
+
+    @Test
+    void rejectsMalformedPayloads() {
+        DhtReading dht = new DhtReading();
+        for (String payload : new String[]{"", "[]", "{\"temperature\":", "{\"temperature\":1", "{\"temperature\" 1}",
+                "{\"temperature\":1;}", "{\"temperature\":\"1}"}) {
+            assertThrows(MalformedPayloadException.class, () -> dht.parse(bytes(payload)), payload);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.tracksecure.mqttrestapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tracksecure.mqttrestapp.model.SensorData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SensorHistoryServiceTests {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private SensorHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SensorHistoryService(mongoTemplate, objectMapper);
+        when(mongoTemplate.stream(any(Query.class), eq(SensorData.class)))
+                .thenAnswer(invocation -> Stream.of(reading("a", 1), reading("b", 2), reading("c", 3)));
+    }
+
+    @Test
+    void streamsOneDocumentPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.stream("device-1", null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(4, lines.length);
+        assertEquals("", lines[3]);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(lines[i].startsWith("{"), "line " + i + " starts with a separator: " + lines[i]);
+            assertEquals("device-1", objectMapper.readTree(lines[i]).get("deviceId").asText());
+        }
+    }
+
+    @Test
+    void streamsTheRangeAsOneArray() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.streamArray("device-1", null, null, out);
+
+        JsonNode array = objectMapper.readTree(out.toByteArray());
+        assertTrue(array.isArray());
+        assertEquals(3, array.size());
+        assertEquals("c", array.get(2).get("id").asText());
+    }
+
+    private static SensorData reading(String id, int second) {
+        return SensorData.builder()
+                .id(id)
+                .deviceId("device-1")
+                .receivedAt(LocalDateTime.of(2025, 1, 1, 0, 0, second))
+                .build();
+    }
+}
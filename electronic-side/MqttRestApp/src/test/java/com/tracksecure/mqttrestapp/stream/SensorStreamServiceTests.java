@@ -0,0 +1,223 @@
+package com.tracksecure.mqttrestapp.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.mqttrestapp.model.SensorData;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitterReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorStreamServiceTests {
+    private static final long SEND_TIMEOUT_MS = 200;
+
+    private final ResponseBodyEmitterReturnValueHandler handler =
+            new ResponseBodyEmitterReturnValueHandler(List.of(new StringHttpMessageConverter(StandardCharsets.UTF_8)));
+    private SensorStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SensorStreamService(new ObjectMapper());
+        ReflectionTestUtils.setField(service, "senderThreads", 1);
+        ReflectionTestUtils.setField(service, "emitterTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(service, "heartbeatMs", 60_000L);
+        ReflectionTestUtils.setField(service, "sendTimeoutMs", SEND_TIMEOUT_MS);
+        ReflectionTestUtils.setField(service, "writerThreads", 2);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void dropsAStalledClientWithoutHoldingUpTheOthers() throws Exception {
+        Client stalled = connect(null, new BlockingOutputStream());
+        Client healthy = connect(null, null);
+
+        service.publish(reading("device-1"));
+        awaitUntil(() -> service.getSubscriberCount() == 1);
+        // The stuck write still holds the emitter: it is not completed on the sender thread
+        assertFalse(stalled.isCompleted());
+
+        service.publish(reading("device-2"));
+        awaitUntil(() -> healthy.body().contains("device-2"));
+        assertTrue(healthy.body().contains("device-1"));
+
+        // Once the socket gives up, the writer completes the dropped client's emitter
+        stalled.out.release();
+        awaitUntil(stalled::isCompleted);
+    }
+
+    @Test
+    void stopsWithoutWaitingForAStuckWrite() throws Exception {
+        Client stalled = connect(null, new BlockingOutputStream());
+        service.publish(reading("device-1"));
+        assertTrue(stalled.out.writing.await(5, TimeUnit.SECONDS));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2), service::stop);
+        assertEquals(0, service.getSubscriberCount());
+        stalled.out.release();
+        awaitUntil(stalled::isCompleted);
+    }
+
+    @Test
+    void pinsNoMoreThanTheWriterThreads() throws Exception {
+        BlockingOutputStream shared = new BlockingOutputStream();
+        for (int i = 0; i < 4; i++) {
+            connect(null, shared);
+        }
+        service.publish(reading("device-1"));
+        awaitUntil(() -> service.getSubscriberCount() == 0);
+
+        long writers = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("sensor-stream-writer-") && thread.isAlive())
+                .count();
+        assertTrue(writers <= 2, writers + " writer threads");
+        shared.release();
+    }
+
+    private Client connect(String deviceId, BlockingOutputStream out) throws Exception {
+        SseEmitter emitter = service.subscribe(deviceId);
+        Client client = new Client(out);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        client.asyncManager = WebAsyncUtils.getAsyncManager(request);
+        client.asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, client.response));
+        handler.handleReturnValue(emitter, new MethodParameter(getClass().getDeclaredMethod("stream"), -1),
+                new ModelAndViewContainer(), new ServletWebRequest(request, client.response));
+        if (out != null) {
+            out.arm();
+        }
+        return client;
+    }
+
+    @SuppressWarnings("unused")
+    private SseEmitter stream() {
+        return null;
+    }
+
+    private static SensorData reading(String deviceId) {
+        return SensorData.empty(deviceId);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class Client {
+        final BlockingOutputStream out;
+        final MockHttpServletResponse response;
+        WebAsyncManager asyncManager;
+
+        Client(BlockingOutputStream out) {
+            this.out = out;
+            this.response = out == null ? new MockHttpServletResponse() : new MockHttpServletResponse() {
+                @Override
+                public ServletOutputStream getOutputStream() {
+                    return out;
+                }
+            };
+        }
+
+        String body() {
+            try {
+                return response.getContentAsString(StandardCharsets.UTF_8);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        boolean isCompleted() {
+            return asyncManager.hasConcurrentResult();
+        }
+    }
+
+    /** A client socket whose writes block, once armed, until it is released. */
+    private static final class BlockingOutputStream extends ServletOutputStream {
+        final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private volatile boolean armed;
+
+        void arm() {
+            armed = true;
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void write(int b) {
+            block();
+            synchronized (written) {
+                written.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            block();
+            synchronized (written) {
+                written.write(b, off, len);
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+        }
+
+        private void block() {
+            if (!armed) {
+                return;
+            }
+            writing.countDown();
+            try {
+                // Like a blocking socket write, it does not give up when interrupted
+                while (!released.await(1, TimeUnit.SECONDS)) {
+                    // keep waiting
+                }
+            } catch (InterruptedException e) {
+                block();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
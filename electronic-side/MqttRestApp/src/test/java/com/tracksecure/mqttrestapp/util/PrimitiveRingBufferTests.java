@@ -0,0 +1,99 @@
+package com.tracksecure.mqttrestapp.util;
+
+import com.tracksecure.mqttrestapp.dtos.ReadingSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrimitiveRingBufferTests {
+
+    @Test
+    void emptyBufferHoldsNothing() {
+        PrimitiveRingBuffer buffer = new PrimitiveRingBuffer(4, "temperature", "humidity");
+        assertEquals(Long.MAX_VALUE, buffer.oldestTimestamp());
+        assertEquals(0, buffer.readSince(0).size());
+        assertFalse(buffer.hasEvicted());
+    }
+
+    @Test
+    void readsSamplesSinceATimestampOldestFirst() {
+        PrimitiveRingBuffer buffer = new PrimitiveRingBuffer(8, "temperature", "humidity");
+        for (int i = 1; i <= 5; i++) {
+            buffer.append(i * 1000L, 20 + i, 40 + i);
+        }
+
+        ReadingSeries series = buffer.readSince(3000);
+        assertArrayEquals(new long[]{3000, 4000, 5000}, series.getTimestamps());
+        assertArrayEquals(new double[]{23, 24, 25}, series.getValues()[0]);
+        assertArrayEquals(new double[]{43, 44, 45}, series.getValues()[1]);
+        assertArrayEquals(new String[]{"temperature", "humidity"}, series.getChannels());
+        assertEquals(1000, buffer.oldestTimestamp());
+        assertFalse(buffer.hasEvicted());
+    }
+
+    @Test
+    void yieldsAtMostCapacityMinusOneSamplesOnceWrapped() {
+        PrimitiveRingBuffer buffer = new PrimitiveRingBuffer(4, "latitude", "longitude", "satellites");
+        for (int i = 1; i <= 10; i++) {
+            buffer.append(i, i, -i, i % 8);
+        }
+
+        // The slot of the oldest sample is the one the next append fills: it is never read
+        ReadingSeries series = buffer.readSince(0);
+        assertArrayEquals(new long[]{8, 9, 10}, series.getTimestamps());
+        assertArrayEquals(new double[]{-8, -9, -10}, series.getValues()[1]);
+        assertEquals(8, buffer.oldestTimestamp());
+        assertTrue(buffer.hasEvicted());
+    }
+
+    @Test
+    void hasEvictedOnceTheFirstSampleIsUnreadable() {
+        PrimitiveRingBuffer buffer = new PrimitiveRingBuffer(3, "temperature", "humidity");
+        buffer.append(1, 0, 0);
+        buffer.append(2, 0, 0);
+        assertFalse(buffer.hasEvicted());
+        assertEquals(1, buffer.oldestTimestamp());
+        buffer.append(3, 0, 0);
+        assertTrue(buffer.hasEvicted());
+        assertEquals(2, buffer.oldestTimestamp());
+    }
+
+    @Test
+    void concurrentReadersNeverSeeATornSample() throws InterruptedException {
+        // Every sample carries its timestamp in both channels; a reader racing the writer must
+        // only ever return consistent, strictly increasing samples
+        PrimitiveRingBuffer buffer = new PrimitiveRingBuffer(16, "a", "b");
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get() && failure.get() == null) {
+                ReadingSeries series = buffer.readSince(0);
+                long[] ts = series.getTimestamps();
+                for (int i = 0; i < ts.length; i++) {
+                    if (series.getValues()[0][i] != ts[i] || series.getValues()[1][i] != -ts[i]
+                            || (i > 0 && ts[i] != ts[i - 1] + 1)) {
+                        failure.set("torn sample at " + i + ": " + ts[i]);
+                    }
+                }
+                long oldest = buffer.oldestTimestamp();
+                if (oldest != Long.MAX_VALUE && oldest <= 0) {
+                    failure.set("oldest " + oldest);
+                }
+            }
+        });
+        reader.start();
+        for (long i = 1; i <= 2_000_000 && failure.get() == null; i++) {
+            buffer.append(i, i, -i);
+        }
+        running.set(false);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
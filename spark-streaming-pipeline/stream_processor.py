@@ -50,12 +50,18 @@
     "gps_schema = StructType().add(\"package_id\", StringType()).add(\"latitude\", DoubleType()).add(\"longitude\", DoubleType())\n",
     "temperature_schema = StructType().add(\"package_id\", StringType()).add(\"temperature\", DoubleType())\n",
     "battery_schema = StructType().add(\"package_id\", StringType()).add(\"battery_level\", DoubleType())\n",
+    "# Enriched events of the IoT gateway: compact JSON keyed by device id, null fields left out\n",
+    "tracking_event_schema = StructType().add(\"eventId\", StringType()).add(\"shipmentId\", StringType()) \\\n",
+    "    .add(\"deviceId\", StringType()).add(\"eventType\", StringType()).add(\"eventTimestamp\", StringType()) \\\n",
+    "    .add(\"latitude\", DoubleType()).add(\"longitude\", DoubleType()) \\\n",
+    "    .add(\"temperature\", DoubleType()).add(\"humidity\", DoubleType()) \\\n",
+    "    .add(\"description\", StringType()).add(\"idempotencyKey\", StringType())\n",
     "\n",
     "# 3️⃣ Read from Kafka - USE THE SPECIAL DOCKER ADDRESS\n",
     "df = spark.readStream \\\n",
     "    .format(\"kafka\") \\\n",
     "    .option(\"kafka.bootstrap.servers\", \"host.docker.internal:9092\") \\\n",
-    "    .option(\"subscribe\", \"gps,temperature,battery\") \\\n",
+    "    .option(\"subscribe\", \"gps,temperature,battery,tracking-events\") \\\n",
     "    .option(\"startingOffsets\", \"latest\") \\\n",
     "    .load()\n",
     "\n",
@@ -66,6 +72,7 @@
     "gps_df = df.filter(col(\"topic\") == \"gps\").select(from_json(col(\"value\"), gps_schema).alias(\"data\")).select(\"data.*\")\n",
     "temperature_df = df.filter(col(\"topic\") == \"temperature\").select(from_json(col(\"value\"), temperature_schema).alias(\"data\")).select(\"data.*\")\n",
     "battery_df = df.filter(col(\"topic\") == \"battery\").select(from_json(col(\"value\"), battery_schema).alias(\"data\")).select(\"data.*\")\n",
+    "tracking_events_df = df.filter(col(\"topic\") == \"tracking-events\").select(from_json(col(\"value\"), tracking_event_schema).alias(\"data\")).select(\"data.*\")\n",
     "\n",
     "# 6️⃣ Write stream\n",
     "# We can use simple relative paths for checkpoints. They are created inside the container's file system.\n",
@@ -90,6 +97,13 @@
     "    .option(\"checkpointLocation\", \"/tmp/spark-checkpoints/battery\") \\\n",
     "    .start()\n",
     "\n",
+    "tracking_events_query = tracking_events_df.writeStream \\\n",
+    "    .outputMode(\"append\") \\\n",
+    "    .format(\"console\") \\\n",
+    "    .option(\"truncate\", False) \\\n",
+    "    .option(\"checkpointLocation\", \"/tmp/spark-checkpoints/tracking-events\") \\\n",
+    "    .start()\n",
+    "\n",
     "# 7️⃣ Await termination\n",
     "print(\"Starting streams... waiting for termination.\")\n",
     "spark.streams.awaitAnyTermination()"
@@ -0,0 +1,80 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.common.util.AesCipherEngine;
+import com.tracksecure.common.util.EncryptionUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AesCipherEngine (cached keys, per-thread Cipher and buffers) against the static EncryptionUtil
+ * calls it replaces in PayloadDecryptionService. {@code devices} rotates the secret between calls,
+ * as a gateway lane does when consecutive messages come from different devices; 1024 exceeds the
+ * 256 ciphers kept per thread and shows the cost of a miss.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AesCipherEngineBenchmark {
+
+    @Param({"1", "64", "1024"})
+    private int devices;
+
+    private final AesCipherEngine engine = new AesCipherEngine(10_000, 256);
+    private String plainText;
+    private String[] keys;
+    private String[] cipherTexts;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        plainText = Fixtures.telemetryJson(Fixtures.objectMapper());
+        keys = new String[devices];
+        cipherTexts = new String[devices];
+        for (int i = 0; i < devices; i++) {
+            keys[i] = String.format("device-key-%05d", i);
+            cipherTexts[i] = EncryptionUtil.encrypt(plainText, keys[i]);
+        }
+    }
+
+    private int nextDevice() {
+        int device = next;
+        next = device + 1 == devices ? 0 : device + 1;
+        return device;
+    }
+
+    @Benchmark
+    public String decryptStatic() {
+        int device = nextDevice();
+        return EncryptionUtil.decrypt(cipherTexts[device], keys[device]);
+    }
+
+    @Benchmark
+    public String decryptEngine() {
+        int device = nextDevice();
+        return engine.decrypt(cipherTexts[device], keys[device]);
+    }
+
+    /** What the gateway does now: plaintext bytes in the thread's buffer, handed to Jackson as is. */
+    @Benchmark
+    public ByteBuffer decryptEngineBytes() {
+        int device = nextDevice();
+        return engine.decryptBytes(cipherTexts[device], keys[device]);
+    }
+
+    @Benchmark
+    public String encryptStatic() {
+        int device = nextDevice();
+        return EncryptionUtil.encrypt(plainText, keys[device]);
+    }
+
+    @Benchmark
+    public String encryptEngine() {
+        int device = nextDevice();
+        return engine.encrypt(plainText, keys[device]);
+    }
+}
@@ -0,0 +1,91 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.iotgatewayservice.alert.AlertEngine;
+import com.tracksecure.iotgatewayservice.alert.AlertRule;
+import com.tracksecure.iotgatewayservice.alert.AlertRule.Direction;
+import com.tracksecure.iotgatewayservice.alert.AlertRule.Kind;
+import com.tracksecure.iotgatewayservice.alert.AlertRule.Metric;
+import com.tracksecure.iotgatewayservice.alert.AlertRuleTable;
+import com.tracksecure.iotgatewayservice.alert.AlertSeverity;
+import com.tracksecure.iotgatewayservice.alert.AlertTrigger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readings of 100k devices in 1000 shipments against their alert rules: 2 global thresholds,
+ * a duration rule ("above 8 for 5 min") and a rate-of-change rule per shipment, and a threshold
+ * of its own for one device in ten. Each device reports every 30 s, mostly in range, with
+ * excursions that make rules fire and clear. The table is warm: every device has been seen.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Thread)
+public class AlertEngineBenchmark {
+    private static final int SHIPMENTS = 1000;
+    private static final int READINGS = 1 << 16;
+
+    @Param("100000")
+    private int deviceCount;
+
+    private AlertEngine engine;
+    private String[] deviceIds;
+    private String[] shipmentIds;
+    private double[] temperatures;
+    private double[] humidities;
+    private long[] clock;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        List<AlertRule> rules = new ArrayList<>();
+        rules.add(new AlertRule("global-heat", null, null, null, Metric.TEMPERATURE, Kind.THRESHOLD, Direction.ABOVE,
+                30, 1, 0, AlertSeverity.CRITICAL));
+        rules.add(new AlertRule("global-humidity", null, null, null, Metric.HUMIDITY, Kind.THRESHOLD, Direction.ABOVE,
+                90, 2, 0, AlertSeverity.MEDIUM));
+        for (int s = 0; s < SHIPMENTS; s++) {
+            rules.add(new AlertRule("cold-chain-" + s, null, null, "SHIP-" + s, Metric.TEMPERATURE, Kind.DURATION,
+                    Direction.ABOVE, 8, 0.5, 300, AlertSeverity.HIGH));
+            rules.add(new AlertRule("warming-" + s, null, null, "SHIP-" + s, Metric.TEMPERATURE, Kind.RATE_OF_CHANGE,
+                    Direction.ABOVE, 2, 0.5, 0, AlertSeverity.MEDIUM));
+        }
+        deviceIds = new String[deviceCount];
+        shipmentIds = new String[deviceCount];
+        clock = new long[deviceCount];
+        for (int d = 0; d < deviceCount; d++) {
+            deviceIds[d] = "DEV-" + d;
+            shipmentIds[d] = "SHIP-" + (d % SHIPMENTS);
+            clock[d] = 1_700_000_000L;
+            if (d % 10 == 0) {
+                rules.add(new AlertRule("freeze-" + d, null, deviceIds[d], null, Metric.TEMPERATURE, Kind.THRESHOLD,
+                        Direction.BELOW, 0, 0.5, 0, AlertSeverity.HIGH));
+            }
+        }
+        engine = new AlertEngine(new AlertRuleTable(rules));
+
+        SplittableRandom random = new SplittableRandom(42);
+        temperatures = new double[READINGS];
+        humidities = new double[READINGS];
+        for (int r = 0; r < READINGS; r++) {
+            temperatures[r] = random.nextInt(20) == 0 ? 9 + random.nextDouble() * 25 : 2 + random.nextDouble() * 6;
+            humidities[r] = random.nextInt(50) == 0 ? 92 : 40 + random.nextDouble() * 30;
+        }
+        for (int d = 0; d < deviceCount; d++) {
+            engine.evaluate(deviceIds[d], shipmentIds[d], clock[d], 5, 50);
+        }
+    }
+
+    @Benchmark
+    public List<AlertTrigger> evaluate() {
+        int c = cursor++;
+        int d = (int) ((c * 0x9E3779B9L) & 0x7fffffffL) % deviceCount;
+        int r = c & (READINGS - 1);
+        return engine.evaluate(deviceIds[d], shipmentIds[d], clock[d] += 30, temperatures[r], humidities[r]);
+    }
+}
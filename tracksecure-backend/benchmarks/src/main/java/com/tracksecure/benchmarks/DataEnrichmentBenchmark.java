@@ -0,0 +1,34 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
+import com.tracksecure.iotgatewayservice.service.DataEnrichmentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Mapping a validated TelemetryPayload and its envelope to the persisted EnrichedEvent. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DataEnrichmentBenchmark {
+
+    private final DataEnrichmentService enrichmentService = new DataEnrichmentService();
+    private TelemetryPayload payload;
+    private DeviceMessage message;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = Fixtures.telemetry();
+        message = Fixtures.deviceMessage(Fixtures.objectMapper());
+    }
+
+    @Benchmark
+    public EnrichedEvent enrich() {
+        return enrichmentService.enrich(payload, message);
+    }
+}
@@ -0,0 +1,74 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.iotgatewayservice.liveness.DeviceLivenessTracker;
+import com.tracksecure.iotgatewayservice.liveness.LivenessTransition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages of 1M devices, each reporting every 10 s with a 30 s timeout, on a simulated clock.
+ * Every 1024 messages the wheel is advanced to the clock, as the ticker would, so the per-message
+ * figure includes the wheel's share: one reschedule per device per timeout period. One device in
+ * a thousand is silent and goes offline and back online each time its turn comes round.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Thread)
+public class DeviceLivenessBenchmark {
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    private static final long INTERVAL_MILLIS = 10_000;
+    private static final long TIMEOUT_MILLIS = 3 * INTERVAL_MILLIS;
+
+    @Param("1000000")
+    private int deviceCount;
+
+    private DeviceLivenessTracker tracker;
+    private String[] deviceIds;
+    private long clockMicros;
+    private long stepMicros;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        tracker = new DeviceLivenessTracker(1000, 7 * 24 * 3600_000L, START_MILLIS);
+        deviceIds = new String[deviceCount];
+        for (int d = 0; d < deviceCount; d++) {
+            deviceIds[d] = "DEV-" + d;
+        }
+        // One round over all devices per interval
+        stepMicros = INTERVAL_MILLIS * 1000 / deviceCount;
+        clockMicros = START_MILLIS * 1000;
+        for (int d = 0; d < deviceCount; d++) {
+            tracker.touch(deviceIds[d], "SHIP-" + (d % 1000), "fw-1", TIMEOUT_MILLIS, now());
+            clockMicros += stepMicros;
+        }
+    }
+
+    @Benchmark
+    public Object touch() {
+        int c = cursor++;
+        int d = c % deviceCount;
+        clockMicros += stepMicros;
+        long now = now();
+        if ((c & 1023) == 0) {
+            List<LivenessTransition> offline = tracker.advance(now);
+            if (!offline.isEmpty()) {
+                return offline;
+            }
+        }
+        if (d % 1000 == 7 && (c / deviceCount & 3) != 0) {
+            // Silent for three rounds in four: offline on the third, online again on the fourth
+            return null;
+        }
+        return tracker.touch(deviceIds[d], null, "fw-1", TIMEOUT_MILLIS, now);
+    }
+
+    private long now() {
+        return clockMicros / 1000;
+    }
+}
@@ -0,0 +1,37 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.common.util.EncryptionUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AES round trip of one telemetry payload as done per message by devices and PayloadDecryptionService.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncryptionUtilBenchmark {
+
+    private String plainText;
+    private String cipherText;
+
+    @Setup
+    public void setUp() throws Exception {
+        plainText = Fixtures.telemetryJson(Fixtures.objectMapper());
+        cipherText = EncryptionUtil.encrypt(plainText, Fixtures.SECRET_KEY);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return EncryptionUtil.encrypt(plainText, Fixtures.SECRET_KEY);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return EncryptionUtil.decrypt(cipherText, Fixtures.SECRET_KEY);
+    }
+}
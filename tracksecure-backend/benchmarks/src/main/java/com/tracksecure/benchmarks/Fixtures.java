@@ -0,0 +1,85 @@
+package com.tracksecure.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tracksecure.common.codec.WireWriter;
+import com.tracksecure.common.constants.EventTypes;
+import com.tracksecure.common.util.AesCipherEngine;
+import com.tracksecure.common.util.EncryptionUtil;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
+
+import java.math.BigDecimal;
+import java.util.Base64;
+
+/** Representative gateway messages shared by the benchmarks. */
+final class Fixtures {
+    static final String DEVICE_ID = "esp8266-0042";
+    static final String SECRET_KEY = "k3y-0f-16-chars!"; // EncryptionUtil expects a 16-character key
+    static final long EVENT_TIMESTAMP = 1_760_000_000L;
+
+    private Fixtures() {
+    }
+
+    /** Configured like the mapper Spring Boot auto-configures for the gateway. */
+    static ObjectMapper objectMapper() {
+        return JsonMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .findAndAddModules()
+                .build();
+    }
+
+    static TelemetryPayload telemetry() {
+        return TelemetryPayload.builder()
+                .eventId(DEVICE_ID + "-000001")
+                .deviceId(DEVICE_ID)
+                .shipmentId("SHP-2025-0117")
+                .eventType(EventTypes.LOCATION_UPDATE)
+                .eventTimestamp(EVENT_TIMESTAMP)
+                .latitude(new BigDecimal("30.427755"))
+                .longitude(new BigDecimal("-9.598107"))
+                .temperature(new BigDecimal("4.75"))
+                .humidity(new BigDecimal("61.20"))
+                .build();
+    }
+
+    static String telemetryJson(ObjectMapper objectMapper) throws Exception {
+        return objectMapper.writeValueAsString(telemetry());
+    }
+
+    static DeviceMessage deviceMessage(ObjectMapper objectMapper) throws Exception {
+        return DeviceMessage.builder()
+                .messageId(DEVICE_ID + "-000001")
+                .deviceId(DEVICE_ID)
+                .encryptedPayload(EncryptionUtil.encrypt(telemetryJson(objectMapper), SECRET_KEY))
+                .signature("c2lnbmF0dXJlLW9mLXRoZS1lbmNyeXB0ZWQtcGF5bG9hZA==")
+                .receivedTimestamp(EVENT_TIMESTAMP + 1)
+                .firmwareVersion("1.4.2")
+                .transmissionMethod("MQTT")
+                .build();
+    }
+
+    static byte[] deviceMessageBytes(ObjectMapper objectMapper) throws Exception {
+        return objectMapper.writeValueAsBytes(deviceMessage(objectMapper));
+    }
+
+    /** {@link #telemetry()} in the binary TelemetryWireFormat. */
+    static byte[] telemetryBinary() {
+        TelemetryPayload telemetry = telemetry();
+        return new WireWriter().telemetry(telemetry.getEventId(), telemetry.getDeviceId(), telemetry.getShipmentId(),
+                telemetry.getEventType(), telemetry.getEventTimestamp(),
+                telemetry.getLatitude().doubleValue(), telemetry.getLongitude().doubleValue(),
+                telemetry.getTemperature().doubleValue(), telemetry.getHumidity().doubleValue(), null);
+    }
+
+    /** {@link #deviceMessage} as a binary envelope: raw ciphertext of {@link #telemetryBinary()}, raw signature. */
+    static byte[] deviceMessageBinary(ObjectMapper objectMapper) throws Exception {
+        DeviceMessage message = deviceMessage(objectMapper);
+        byte[] telemetry = telemetryBinary();
+        byte[] ciphertext = new AesCipherEngine(16, 16).encrypt(telemetry, 0, telemetry.length, SECRET_KEY);
+        return new WireWriter().envelope(message.getMessageId(), message.getDeviceId(), message.getReceivedTimestamp(),
+                message.getFirmwareVersion(), message.getTransmissionMethod(),
+                Base64.getDecoder().decode(message.getSignature()), ciphertext);
+    }
+}
@@ -0,0 +1,27 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.common.util.GeoLocationUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Haversine distance, the primitive behind geofence and route-deviation checks. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GeoLocationUtilBenchmark {
+
+    // Fields rather than constants so the JIT cannot fold the result
+    private double lon1 = -9.598107;
+    private double lat1 = 30.427755;
+    private double lon2 = -7.589843;
+    private double lat2 = 33.573110;
+
+    @Benchmark
+    public double calculateDistance() {
+        return GeoLocationUtil.calculateDistance(lon1, lat1, lon2, lat2);
+    }
+}
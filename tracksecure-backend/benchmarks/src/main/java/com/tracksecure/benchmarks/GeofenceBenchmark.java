@@ -0,0 +1,125 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.iotgatewayservice.geofence.CircleGeofence;
+import com.tracksecure.iotgatewayservice.geofence.Geofence;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceEvaluator;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceIndex;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceTransition;
+import com.tracksecure.iotgatewayservice.geofence.PolygonGeofence;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Location updates against 100k fences (70% circles of 100 m - 5 km, 30% polygons of 4-8
+ * vertices, one in ten scoped to a shipment) spread over 20° x 20° of the Iberian peninsula and
+ * the Atlantic. Half of the updates fall near a fence center, so devices keep entering and
+ * leaving fences. {@code evaluate} goes through the grid index with per-device state;
+ * {@code scanAllFences} is the same question answered without an index, for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Thread)
+public class GeofenceBenchmark {
+    private static final double MIN_LATITUDE = 25;
+    private static final double MIN_LONGITUDE = -20;
+    private static final double SPAN = 20;
+    private static final int DEVICES = 1024;
+    private static final int UPDATES = 1 << 16;
+
+    @Param("100000")
+    private int fenceCount;
+
+    private List<Geofence> fences;
+    private GeofenceEvaluator evaluator;
+    private String[] deviceIds;
+    private String[] shipmentIds;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        fences = new ArrayList<>(fenceCount);
+        double[] centerLatitudes = new double[fenceCount];
+        double[] centerLongitudes = new double[fenceCount];
+        for (int i = 0; i < fenceCount; i++) {
+            double latitude = MIN_LATITUDE + random.nextDouble() * SPAN;
+            double longitude = MIN_LONGITUDE + random.nextDouble() * SPAN;
+            centerLatitudes[i] = latitude;
+            centerLongitudes[i] = longitude;
+            String shipmentId = i % 10 == 0 ? "SHIP-" + (i % 100) : null;
+            double radiusMeters = 100 + random.nextDouble() * 4900;
+            if (i % 10 < 7) {
+                fences.add(new CircleGeofence("fence-" + i, null, shipmentId, latitude, longitude, radiusMeters));
+            } else {
+                int vertices = 4 + random.nextInt(5);
+                double[] vertexLatitudes = new double[vertices];
+                double[] vertexLongitudes = new double[vertices];
+                double degrees = radiusMeters / 111_000;
+                for (int v = 0; v < vertices; v++) {
+                    double angle = 2 * Math.PI * v / vertices;
+                    double reach = degrees * (0.5 + random.nextDouble() * 0.5);
+                    vertexLatitudes[v] = latitude + reach * Math.sin(angle);
+                    vertexLongitudes[v] = longitude + reach * Math.cos(angle);
+                }
+                fences.add(new PolygonGeofence("fence-" + i, null, shipmentId, vertexLatitudes, vertexLongitudes));
+            }
+        }
+        evaluator = new GeofenceEvaluator(new GeofenceIndex(fences, 0.05, 1024));
+
+        deviceIds = new String[DEVICES];
+        shipmentIds = new String[DEVICES];
+        for (int d = 0; d < DEVICES; d++) {
+            deviceIds[d] = "DEV-" + d;
+            shipmentIds[d] = "SHIP-" + (d % 100);
+        }
+        latitudes = new double[UPDATES];
+        longitudes = new double[UPDATES];
+        for (int u = 0; u < UPDATES; u++) {
+            if (random.nextBoolean()) {
+                int fence = random.nextInt(fenceCount);
+                latitudes[u] = centerLatitudes[fence] + (random.nextDouble() - 0.5) * 0.05;
+                longitudes[u] = centerLongitudes[fence] + (random.nextDouble() - 0.5) * 0.05;
+            } else {
+                latitudes[u] = MIN_LATITUDE + random.nextDouble() * SPAN;
+                longitudes[u] = MIN_LONGITUDE + random.nextDouble() * SPAN;
+            }
+        }
+    }
+
+    @Benchmark
+    public List<GeofenceTransition> evaluate() {
+        int u = cursor++ & (UPDATES - 1);
+        int device = u & (DEVICES - 1);
+        return evaluator.evaluate(deviceIds[device], shipmentIds[device], latitudes[u], longitudes[u]);
+    }
+
+    @Benchmark
+    public int scanAllFences() {
+        int u = cursor++ & (UPDATES - 1);
+        int inside = 0;
+        for (Geofence fence : fences) {
+            if (fence.contains(latitudes[u], longitudes[u])) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public GeofenceIndex buildIndex() {
+        return new GeofenceIndex(fences, 0.05, 1024);
+    }
+}
@@ -0,0 +1,31 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.common.util.IdempotencyKeyGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random (SecureRandom-backed UUID) and deterministic (MD5 name-based UUID) key generation.
+ * Run with -t 4 as well: random UUIDs share one SecureRandom across threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IdempotencyKeyGeneratorBenchmark {
+
+    private final String seed = Fixtures.DEVICE_ID + ":" + Fixtures.DEVICE_ID + "-000001";
+
+    @Benchmark
+    public String random() {
+        return IdempotencyKeyGenerator.generateIdempotencyKey("evt");
+    }
+
+    @Benchmark
+    public String deterministic() {
+        return IdempotencyKeyGenerator.deterministic(seed);
+    }
+}
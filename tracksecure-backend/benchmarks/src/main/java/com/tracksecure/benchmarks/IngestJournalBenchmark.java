@@ -0,0 +1,73 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.iotgatewayservice.journal.IngestJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * One journaled message of 200 bytes: append, then a sync every {@code syncEvery} messages, which
+ * runs the acknowledgement callbacks, then completion. {@code syncEvery=1} is an fsync per message,
+ * what acknowledging each message on its own would cost; 256 is a group commit. With
+ * {@code force=false} writes stay in the page cache. Every 4096 messages the watermark is
+ * checkpointed and finished segments deleted, as the syncer would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@State(Scope.Thread)
+public class IngestJournalBenchmark {
+    private static final int PAYLOAD_BYTES = 200;
+
+    @Param({"1", "256"})
+    private int syncEvery;
+    @Param({"true", "false"})
+    private boolean force;
+
+    private Path dir;
+    private IngestJournal journal;
+    private byte[] payload;
+    private long acknowledged;
+    private final Runnable acknowledge = () -> acknowledged++;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ingest-journal-bench");
+        journal = new IngestJournal(dir, 64 * 1024 * 1024, 65536);
+        journal.open();
+        payload = new byte[PAYLOAD_BYTES];
+        new Random(42).nextBytes(payload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+        long sequence = journal.append(payload, acknowledge);
+        if (sequence % syncEvery == 0) {
+            journal.sync(force);
+        }
+        journal.complete(sequence);
+        if ((sequence & 4095) == 0) {
+            journal.advanceProcessed();
+            journal.checkpoint();
+        }
+        return acknowledged;
+    }
+}
@@ -0,0 +1,42 @@
+package com.tracksecure.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two readValue calls MqttMessageHandler makes per message: the raw MQTT bytes into a
+ * DeviceMessage, then the decrypted JSON string into a TelemetryPayload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JacksonDeserializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private byte[] deviceMessageBytes;
+    private String telemetryJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Fixtures.objectMapper();
+        deviceMessageBytes = Fixtures.deviceMessageBytes(objectMapper);
+        telemetryJson = Fixtures.telemetryJson(objectMapper);
+    }
+
+    @Benchmark
+    public DeviceMessage deviceMessage() throws Exception {
+        return objectMapper.readValue(deviceMessageBytes, DeviceMessage.class);
+    }
+
+    @Benchmark
+    public TelemetryPayload telemetryPayload() throws Exception {
+        return objectMapper.readValue(telemetryJson, TelemetryPayload.class);
+    }
+}
@@ -0,0 +1,59 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
+import com.tracksecure.iotgatewayservice.service.PayloadValidationService;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of a TelemetryPayload, for a valid payload and for one that is rejected
+ * (the rejected path also pays for building the exception).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private PayloadValidationService validationService;
+    private TelemetryPayload valid;
+    private TelemetryPayload invalid;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validationService = new PayloadValidationService(validatorFactory.getValidator());
+        valid = Fixtures.telemetry();
+        invalid = Fixtures.telemetry();
+        invalid.setHumidity(new BigDecimal("140.0"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public TelemetryPayload valid() {
+        validationService.validate(valid);
+        return valid;
+    }
+
+    @Benchmark
+    public Object invalid() {
+        try {
+            validationService.validate(invalid);
+            return invalid;
+        } catch (InvalidPayloadException e) {
+            return e;
+        }
+    }
+}
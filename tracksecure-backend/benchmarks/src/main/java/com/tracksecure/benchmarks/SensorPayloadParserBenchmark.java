@@ -0,0 +1,90 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.mqttrestapp.parser.DhtReading;
+import com.tracksecure.mqttrestapp.parser.GpsReading;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares MqttRestApp's byte-level payload parser with the regex/split parsing that its
+ * MqttService used before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorPayloadParserBenchmark {
+
+    // Same shape as the ESP8266_DHT11_GPS_MQTT sketch publishes
+    private final byte[] dhtPayload = "{\"temperature\":23.50,\"humidity\":41.00}".getBytes(StandardCharsets.UTF_8);
+    private final byte[] gpsPayload = "{\"latitude\":30.427755,\"longitude\":-9.598107,\"satellites\":7}".getBytes(StandardCharsets.UTF_8);
+
+    private final DhtReading dhtReading = new DhtReading();
+    private final GpsReading gpsReading = new GpsReading();
+
+    @Benchmark
+    public void dhtLegacy(Blackhole bh) {
+        double temperature = 0;
+        double humidity = 0;
+        String payload = new String(dhtPayload);
+        String[] parts = payload.replaceAll("[{}\"]", "").split(",");
+        for (String part : parts) {
+            String[] kv = part.split(":");
+            if (kv.length == 2) {
+                String key = kv[0].trim();
+                double value = Double.parseDouble(kv[1].trim());
+                if (key.equals("temperature")) {
+                    temperature = value;
+                } else if (key.equals("humidity")) {
+                    humidity = value;
+                }
+            }
+        }
+        bh.consume(temperature);
+        bh.consume(humidity);
+    }
+
+    @Benchmark
+    public void dhtByteParser(Blackhole bh) {
+        DhtReading reading = dhtReading.parse(dhtPayload);
+        bh.consume(reading.getTemperature());
+        bh.consume(reading.getHumidity());
+    }
+
+    @Benchmark
+    public void gpsLegacy(Blackhole bh) {
+        double latitude = 0;
+        double longitude = 0;
+        int satellites = 0;
+        String payload = new String(gpsPayload);
+        String[] parts = payload.replaceAll("[{}\"]", "").split(",");
+        for (String part : parts) {
+            String[] kv = part.split(":");
+            if (kv.length == 2) {
+                String key = kv[0].trim();
+                String valueStr = kv[1].trim();
+                switch (key) {
+                    case "latitude" -> latitude = Double.parseDouble(valueStr);
+                    case "longitude" -> longitude = Double.parseDouble(valueStr);
+                    case "satellites" -> satellites = Integer.parseInt(valueStr);
+                }
+            }
+        }
+        bh.consume(latitude);
+        bh.consume(longitude);
+        bh.consume(satellites);
+    }
+
+    @Benchmark
+    public void gpsByteParser(Blackhole bh) {
+        GpsReading reading = gpsReading.parse(gpsPayload);
+        bh.consume(reading.getLatitude());
+        bh.consume(reading.getLongitude());
+        bh.consume(reading.getSatellites());
+    }
+}
@@ -0,0 +1,81 @@
+package com.tracksecure.benchmarks;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.codec.JsonTelemetryDecoder;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import com.tracksecure.iotgatewayservice.service.DataEnrichmentService;
+import com.tracksecure.iotgatewayservice.service.PayloadValidationService;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MQTT path's TelemetryFrame stages: streaming JSON decode, precompiled validation (accepted
+ * and rejected) and enrichment. Compare with JacksonDeserializationBenchmark.telemetryPayload,
+ * PayloadValidationBenchmark and DataEnrichmentBenchmark for the TelemetryPayload path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TelemetryFrameBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private PayloadValidationService validationService;
+    private JsonTelemetryDecoder jsonDecoder;
+    private final DataEnrichmentService enrichmentService = new DataEnrichmentService();
+    private byte[] telemetryJson;
+    private DeviceMessage message;
+    private TelemetryFrame valid;
+    private TelemetryFrame invalid;
+
+    @Setup
+    public void setUp() throws Exception {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validationService = new PayloadValidationService(validatorFactory.getValidator());
+        jsonDecoder = new JsonTelemetryDecoder(Fixtures.objectMapper());
+        telemetryJson = Fixtures.telemetryJson(Fixtures.objectMapper()).getBytes(StandardCharsets.UTF_8);
+        message = Fixtures.deviceMessage(Fixtures.objectMapper());
+        valid = jsonDecoder.decode(telemetryJson, 0, telemetryJson.length);
+        invalid = jsonDecoder.decode(telemetryJson, 0, telemetryJson.length);
+        invalid.setHumidity(140.0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public TelemetryFrame decodeJson() throws Exception {
+        return jsonDecoder.decode(telemetryJson, 0, telemetryJson.length);
+    }
+
+    @Benchmark
+    public TelemetryFrame validateValid() {
+        validationService.validate(valid);
+        return valid;
+    }
+
+    @Benchmark
+    public Object validateInvalid() {
+        try {
+            validationService.validate(invalid);
+            return invalid;
+        } catch (InvalidPayloadException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public EnrichedEvent enrich() {
+        return enrichmentService.enrich(valid, message);
+    }
+}
@@ -0,0 +1,64 @@
+package com.tracksecure.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.iotgatewayservice.codec.BinaryMessageDecoder;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON against the binary TelemetryWireFormat, for both structures the gateway decodes per message:
+ * the envelope from the MQTT bytes and the telemetry from the decrypted plaintext. Decryption is
+ * left out (see AesCipherEngineBenchmark). Bytes on the wire are printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+    private ObjectMapper objectMapper;
+    private BinaryMessageDecoder binaryDecoder;
+    private byte[] envelopeJson;
+    private byte[] envelopeBinary;
+    private byte[] telemetryJson;
+    private byte[] telemetryBinary;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Fixtures.objectMapper();
+        binaryDecoder = new BinaryMessageDecoder();
+        envelopeJson = Fixtures.deviceMessageBytes(objectMapper);
+        envelopeBinary = Fixtures.deviceMessageBinary(objectMapper);
+        telemetryJson = Fixtures.telemetryJson(objectMapper).getBytes(StandardCharsets.UTF_8);
+        telemetryBinary = Fixtures.telemetryBinary();
+        System.out.printf("%nwire bytes: envelope json %d / binary %d, telemetry plaintext json %d / binary %d%n",
+                envelopeJson.length, envelopeBinary.length, telemetryJson.length, telemetryBinary.length);
+    }
+
+    @Benchmark
+    public DeviceMessage envelopeJson() throws Exception {
+        return objectMapper.readValue(envelopeJson, DeviceMessage.class);
+    }
+
+    @Benchmark
+    public DeviceMessage envelopeBinary() {
+        return binaryDecoder.decodeEnvelope(envelopeBinary);
+    }
+
+    @Benchmark
+    public TelemetryPayload telemetryJson() throws Exception {
+        return objectMapper.readValue(telemetryJson, 0, telemetryJson.length, TelemetryPayload.class);
+    }
+
+    @Benchmark
+    public TelemetryFrame telemetryBinary() {
+        return binaryDecoder.decodeTelemetry(telemetryBinary, 0, telemetryBinary.length);
+    }
+}
@@ -0,0 +1,67 @@
+package com.tracksecure.common.codec;
+
+/**
+ * Binary encoding of the device envelope (DeviceMessage) and of the encrypted telemetry inside it
+ * (TelemetryPayload), for firmware that can afford neither the airtime nor the heap of
+ * JSON-in-Base64-in-JSON.
+ * <p>
+ * Both structures start with {@link #MAGIC} and a version byte. JSON text always starts with
+ * '{' or whitespace, and Base64 text is ASCII, so the first byte tells the two encodings apart
+ * on the same topic. Older firmware keeps working unchanged. All integers are big-endian.
+ * <pre>
+ * Envelope, version 1
+ *   u8     magic 0xB1
+ *   u8     version
+ *   u8     flags        ENVELOPE_FIRMWARE | ENVELOPE_TRANSMISSION
+ *   i64    receivedTimestamp (epoch seconds)
+ *   str8   messageId
+ *   str8   deviceId
+ *   str8   firmwareVersion       if ENVELOPE_FIRMWARE
+ *   str8   transmissionMethod    if ENVELOPE_TRANSMISSION
+ *   bin8   signature  (raw HMAC bytes, no Base64)
+ *   bin16  ciphertext (raw AES bytes of an encrypted telemetry structure, no Base64)
+ *
+ * Telemetry, version 1
+ *   u8     magic 0xB1
+ *   u8     version
+ *   u8     fields       TELEMETRY_POSITION | TELEMETRY_TEMPERATURE | TELEMETRY_HUMIDITY | TELEMETRY_DESCRIPTION
+ *   i64    eventTimestamp (epoch seconds)
+ *   str8   eventId, deviceId, shipmentId, eventType
+ *   i32    latitude, i32 longitude in microdegrees     if TELEMETRY_POSITION
+ *   i16    temperature in hundredths of a degree       if TELEMETRY_TEMPERATURE
+ *   u16    humidity in hundredths of a percent         if TELEMETRY_HUMIDITY
+ *   str8   description                                 if TELEMETRY_DESCRIPTION
+ *
+ * str8 = u8 length + UTF-8 bytes, bin8 / bin16 = u8 / u16 length + bytes
+ * </pre>
+ * Fixed-point fields keep 6 decimals for coordinates (about 0.1 m) and 2 for the DHT11 values,
+ * which is more than the sensors resolve.
+ */
+public final class TelemetryWireFormat {
+    private TelemetryWireFormat() {
+        throw new UnsupportedOperationException("Telemetry Wire Format is a utility class and cannot be instantiated");
+    }
+
+    public static final byte MAGIC = (byte) 0xB1;
+    public static final int VERSION = 1;
+
+    public static final int ENVELOPE_FIRMWARE = 0x01;
+    public static final int ENVELOPE_TRANSMISSION = 0x02;
+
+    public static final int TELEMETRY_POSITION = 0x01;
+    public static final int TELEMETRY_TEMPERATURE = 0x02;
+    public static final int TELEMETRY_HUMIDITY = 0x04;
+    public static final int TELEMETRY_DESCRIPTION = 0x08;
+
+    public static final int COORDINATE_SCALE = 6;
+    public static final int SENSOR_SCALE = 2;
+
+    /** True if the bytes start with the binary content-type byte rather than JSON text. */
+    public static boolean isBinary(byte[] buf, int offset, int length) {
+        return length > 0 && buf[offset] == MAGIC;
+    }
+
+    public static boolean isBinary(byte[] buf) {
+        return isBinary(buf, 0, buf.length);
+    }
+}
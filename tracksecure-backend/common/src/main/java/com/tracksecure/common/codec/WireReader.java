@@ -0,0 +1,111 @@
+package com.tracksecure.common.codec;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounds-checked big-endian cursor over a byte range of the {@link TelemetryWireFormat}.
+ * Truncated or oversized fields raise {@link InvalidPayloadException} instead of index errors.
+ */
+public final class WireReader {
+    private final byte[] buf;
+    private final int end;
+    private int pos;
+    private int lastLength;
+
+    public WireReader(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * Checks the magic and version bytes.
+     *
+     * @param structure name used in the error message
+     */
+    public void expectHeader(String structure) {
+        if (u8() != (TelemetryWireFormat.MAGIC & 0xff)) {
+            throw new InvalidPayloadException("Not a binary " + structure);
+        }
+        int version = u8();
+        if (version != TelemetryWireFormat.VERSION) {
+            throw new InvalidPayloadException("Unsupported binary " + structure + " version " + version);
+        }
+    }
+
+    public int u8() {
+        require(1);
+        return buf[pos++] & 0xff;
+    }
+
+    public int u16() {
+        require(2);
+        int value = (buf[pos] & 0xff) << 8 | (buf[pos + 1] & 0xff);
+        pos += 2;
+        return value;
+    }
+
+    public short i16() {
+        return (short) u16();
+    }
+
+    public int i32() {
+        require(4);
+        int value = (buf[pos] & 0xff) << 24 | (buf[pos + 1] & 0xff) << 16 | (buf[pos + 2] & 0xff) << 8 | (buf[pos + 3] & 0xff);
+        pos += 4;
+        return value;
+    }
+
+    public long i64() {
+        return (long) i32() << 32 | (i32() & 0xffffffffL);
+    }
+
+    public String str8() {
+        int length = u8();
+        require(length);
+        String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    /** Skips a u8-length field and returns its offset in the buffer; its length is {@link #lastLength()}. */
+    public int bin8() {
+        return skip(u8());
+    }
+
+    /** Skips a u16-length field and returns its offset in the buffer; its length is {@link #lastLength()}. */
+    public int bin16() {
+        return skip(u16());
+    }
+
+    public int lastLength() {
+        return lastLength;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /** Fails unless every byte of the range was consumed. */
+    public void expectEnd(String structure) {
+        if (pos != end) {
+            throw new InvalidPayloadException((end - pos) + " trailing bytes after binary " + structure);
+        }
+    }
+
+    private int skip(int length) {
+        require(length);
+        int start = pos;
+        pos += length;
+        lastLength = length;
+        return start;
+    }
+
+    private void require(int bytes) {
+        if (end - pos < bytes) {
+            throw new InvalidPayloadException("Truncated binary payload at byte " + pos);
+        }
+    }
+}
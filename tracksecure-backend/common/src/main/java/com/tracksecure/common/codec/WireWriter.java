@@ -0,0 +1,133 @@
+package com.tracksecure.common.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encoder of the {@link TelemetryWireFormat} structures, for device firmware ports, the fleet
+ * simulator and tests. The scratch buffer is reused between calls, so an instance must not be
+ * shared between threads.
+ */
+public final class WireWriter {
+    private byte[] buf = new byte[256];
+    private int pos;
+
+    /**
+     * @param firmwareVersion    optional
+     * @param transmissionMethod optional
+     * @param signature          raw signature bytes, at most 255
+     * @param ciphertext         raw encrypted telemetry, at most 65535 bytes
+     */
+    public byte[] envelope(String messageId, String deviceId, long receivedTimestamp, String firmwareVersion,
+                           String transmissionMethod, byte[] signature, byte[] ciphertext) {
+        pos = 0;
+        header();
+        u8((firmwareVersion != null ? TelemetryWireFormat.ENVELOPE_FIRMWARE : 0)
+                | (transmissionMethod != null ? TelemetryWireFormat.ENVELOPE_TRANSMISSION : 0));
+        i64(receivedTimestamp);
+        str8(messageId);
+        str8(deviceId);
+        if (firmwareVersion != null) {
+            str8(firmwareVersion);
+        }
+        if (transmissionMethod != null) {
+            str8(transmissionMethod);
+        }
+        bin(signature, 0xff);
+        bin(ciphertext, 0xffff);
+        return Arrays.copyOf(buf, pos);
+    }
+
+    /** Null sensor values are left out; latitude and longitude are only written as a pair. */
+    public byte[] telemetry(String eventId, String deviceId, String shipmentId, String eventType, long eventTimestamp,
+                            Double latitude, Double longitude, Double temperature, Double humidity, String description) {
+        pos = 0;
+        header();
+        boolean position = latitude != null && longitude != null;
+        u8((position ? TelemetryWireFormat.TELEMETRY_POSITION : 0)
+                | (temperature != null ? TelemetryWireFormat.TELEMETRY_TEMPERATURE : 0)
+                | (humidity != null ? TelemetryWireFormat.TELEMETRY_HUMIDITY : 0)
+                | (description != null ? TelemetryWireFormat.TELEMETRY_DESCRIPTION : 0));
+        i64(eventTimestamp);
+        str8(eventId);
+        str8(deviceId);
+        str8(shipmentId);
+        str8(eventType);
+        if (position) {
+            i32(fixed(latitude, TelemetryWireFormat.COORDINATE_SCALE, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            i32(fixed(longitude, TelemetryWireFormat.COORDINATE_SCALE, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        }
+        if (temperature != null) {
+            i16(fixed(temperature, TelemetryWireFormat.SENSOR_SCALE, Short.MIN_VALUE, Short.MAX_VALUE));
+        }
+        if (humidity != null) {
+            i16(fixed(humidity, TelemetryWireFormat.SENSOR_SCALE, 0, 0xffff));
+        }
+        if (description != null) {
+            str8(description);
+        }
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private void header() {
+        u8(TelemetryWireFormat.MAGIC);
+        u8(TelemetryWireFormat.VERSION);
+    }
+
+    private static int fixed(double value, int scale, long min, long max) {
+        long scaled = Math.round(value * Math.pow(10, scale));
+        if (scaled < min || scaled > max) {
+            throw new IllegalArgumentException("Value " + value + " does not fit the binary field");
+        }
+        return (int) scaled;
+    }
+
+    private void str8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        bin(bytes, 0xff);
+    }
+
+    private void bin(byte[] bytes, int maxLength) {
+        if (bytes.length > maxLength) {
+            throw new IllegalArgumentException("Field of " + bytes.length + " bytes exceeds " + maxLength);
+        }
+        if (maxLength > 0xff) {
+            i16(bytes.length);
+        } else {
+            u8(bytes.length);
+        }
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void u8(int value) {
+        ensure(1);
+        buf[pos++] = (byte) value;
+    }
+
+    private void i16(int value) {
+        ensure(2);
+        buf[pos++] = (byte) (value >> 8);
+        buf[pos++] = (byte) value;
+    }
+
+    private void i32(int value) {
+        ensure(4);
+        buf[pos++] = (byte) (value >> 24);
+        buf[pos++] = (byte) (value >> 16);
+        buf[pos++] = (byte) (value >> 8);
+        buf[pos++] = (byte) value;
+    }
+
+    private void i64(long value) {
+        i32((int) (value >> 32));
+        i32((int) value);
+    }
+
+    private void ensure(int bytes) {
+        if (pos + bytes > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + bytes));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.tracksecure.common.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 
@@ -34,6 +35,16 @@ public class AlertDTO {
     @Size(max = 500)
     private String message;
 
+    // Repeats of the same alert collapsed into this one while it is open, and when they occurred
+    @Positive
+    private Integer count;
+
+    @PastOrPresent
+    private LocalDateTime firstTimestamp;
+
+    @PastOrPresent
+    private LocalDateTime lastTimestamp;
+
     private boolean ack;
 
     @PastOrPresent
@@ -43,6 +43,7 @@ public class GlobalExceptionHandler {
         ErrorResponse response = ErrorResponse.builder()
                 .timestamp(LocalDateTime.now())
                 .status(status.value())
+                .error(error)
                 .message(message)
                 .path(path)
                 .build();
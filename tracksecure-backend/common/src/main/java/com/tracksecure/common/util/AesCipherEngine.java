@@ -0,0 +1,269 @@
+package com.tracksecure.common.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reusable AES engine, wire compatible with {@link EncryptionUtil} (same "AES" transformation, Base64 text).
+ * <p>
+ * EncryptionUtil pays for a provider lookup, a new SecretKeySpec and a full key setup on every call,
+ * which costs more than decrypting a telemetry payload. This engine instead keeps
+ * <ul>
+ *     <li>a bounded LRU of key specs, one per device secret</li>
+ *     <li>per thread, a bounded LRU of initialised Ciphers per secret (after doFinal a Cipher is
+ *     back in its initialised state and can be reused as is)</li>
+ *     <li>per-thread scratch buffers for the Base64 and plaintext bytes</li>
+ * </ul>
+ * Instances are thread-safe.
+ */
+public final class AesCipherEngine {
+    private static final String ALGORITHM = "AES";
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    // Larger payloads get one-off arrays so a single big message does not pin memory on every thread
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final int[] BASE64_VALUES = new int[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final int ciphersPerThread;
+    // Access-ordered, guarded by itself; only consulted when a thread builds a cipher
+    private final Map<String, SecretKeySpec> keys;
+    private final ThreadLocal<ThreadState> threadState = ThreadLocal.withInitial(ThreadState::new);
+
+    /**
+     * @param maxKeys          upper bound of cached key specs; roughly the number of active devices
+     * @param ciphersPerThread initialised ciphers kept per thread and mode, so interleaved devices
+     *                         do not pay a key setup on every message
+     */
+    public AesCipherEngine(int maxKeys, int ciphersPerThread) {
+        if (maxKeys <= 0 || ciphersPerThread <= 0) {
+            throw new IllegalArgumentException("maxKeys and ciphersPerThread must be positive");
+        }
+        this.ciphersPerThread = ciphersPerThread;
+        this.keys = lruMap(maxKeys);
+    }
+
+    /** Same contract as {@link EncryptionUtil#encrypt(String, String)}. */
+    public String encrypt(String plainText, String secretKey) {
+        byte[] plain = plainText.getBytes(StandardCharsets.UTF_8);
+        return Base64.getEncoder().encodeToString(encrypt(plain, 0, plain.length, secretKey));
+    }
+
+    /** Encrypts raw bytes and returns the raw (not Base64 encoded) ciphertext. */
+    public byte[] encrypt(byte[] plain, int offset, int length, String secretKey) {
+        try {
+            ThreadState state = threadState.get();
+            Cipher cipher = state.encryptCipher(secretKey);
+            return cipher.doFinal(plain, offset, length);
+        } catch (Exception e) {
+            throw new RuntimeException("Encryption failed", e);
+        }
+    }
+
+    /** Same contract as {@link EncryptionUtil#decrypt(String, String)}. */
+    public String decrypt(String cipherText, String secretKey) {
+        ByteBuffer plain = decryptBytes(cipherText, secretKey);
+        return new String(plain.array(), plain.arrayOffset() + plain.position(), plain.remaining(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decrypts Base64 text without building intermediate Strings or byte arrays.
+     *
+     * @return the plaintext, backed by a per-thread buffer that is overwritten by the next
+     * decryption on the same thread; copy it if it must outlive that
+     */
+    public ByteBuffer decryptBytes(CharSequence base64CipherText, String secretKey) {
+        ThreadState state = threadState.get();
+        int length = base64CipherText.length();
+        byte[] ascii = state.base64(length);
+        for (int i = 0; i < length; i++) {
+            char c = base64CipherText.charAt(i);
+            ascii[i] = c < 128 ? (byte) c : (byte) -1; // non-ASCII is rejected by the decoder
+        }
+        return decrypt(state, ascii, 0, length, secretKey);
+    }
+
+    /**
+     * Decrypts Base64 bytes, e.g. a slice of the raw MQTT payload.
+     *
+     * @return the plaintext, backed by a per-thread buffer (see {@link #decryptBytes(CharSequence, String)})
+     */
+    public ByteBuffer decryptBytes(byte[] base64CipherText, int offset, int length, String secretKey) {
+        return decrypt(threadState.get(), base64CipherText, offset, length, secretKey);
+    }
+
+    /**
+     * Decrypts raw ciphertext (no Base64), as carried by the binary telemetry envelope.
+     *
+     * @return the plaintext, backed by a per-thread buffer (see {@link #decryptBytes(CharSequence, String)})
+     */
+    public ByteBuffer decryptRaw(byte[] cipherText, int offset, int length, String secretKey) {
+        try {
+            ThreadState state = threadState.get();
+            return decipher(state, cipherText, offset, length, secretKey);
+        } catch (Exception e) {
+            throw new RuntimeException("Decryption failed", e);
+        }
+    }
+
+    /** Drops the cached key of a rotated or revoked secret; ciphers already built for it age out per thread. */
+    public void evict(String secretKey) {
+        synchronized (keys) {
+            keys.remove(secretKey);
+        }
+    }
+
+    public int cachedKeyCount() {
+        synchronized (keys) {
+            return keys.size();
+        }
+    }
+
+    boolean isKeyCached(String secretKey) {
+        synchronized (keys) {
+            return keys.containsKey(secretKey);
+        }
+    }
+
+    private ByteBuffer decrypt(ThreadState state, byte[] base64, int offset, int length, String secretKey) {
+        try {
+            byte[] raw = state.raw(length);
+            int rawLength = decodeBase64(base64, offset, length, raw);
+            return decipher(state, raw, 0, rawLength, secretKey);
+        } catch (Exception e) {
+            throw new RuntimeException("Decryption failed", e);
+        }
+    }
+
+    private ByteBuffer decipher(ThreadState state, byte[] raw, int offset, int length, String secretKey) throws Exception {
+        Cipher cipher = state.decryptCipher(secretKey);
+        byte[] plain = state.plain(length);
+        int plainLength = cipher.doFinal(raw, offset, length, plain, 0);
+        return ByteBuffer.wrap(plain, 0, plainLength);
+    }
+
+    /**
+     * Standard (RFC 4648, padded) Base64 into {@code out}. java.util.Base64 can only decode whole
+     * arrays or allocate its output, neither of which fits a reused scratch buffer.
+     *
+     * @return the number of decoded bytes
+     */
+    private static int decodeBase64(byte[] src, int offset, int length, byte[] out) {
+        if (length % 4 != 0) {
+            throw new IllegalArgumentException("Base64 input length is not a multiple of 4");
+        }
+        int end = offset + length;
+        int padding = 0;
+        if (length > 0 && src[end - 1] == '=') {
+            padding = src[end - 2] == '=' ? 2 : 1;
+        }
+        int written = 0;
+        for (int i = offset; i < end; i += 4) {
+            boolean last = i + 4 == end;
+            int b0 = sextet(src[i]);
+            int b1 = sextet(src[i + 1]);
+            int b2 = last && padding == 2 ? 0 : sextet(src[i + 2]);
+            int b3 = last && padding >= 1 ? 0 : sextet(src[i + 3]);
+            int bits = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+            out[written++] = (byte) (bits >> 16);
+            if (!last || padding < 2) {
+                out[written++] = (byte) (bits >> 8);
+            }
+            if (!last || padding < 1) {
+                out[written++] = (byte) bits;
+            }
+        }
+        return written;
+    }
+
+    private static int sextet(byte c) {
+        int value = c < 0 ? -1 : BASE64_VALUES[c];
+        if (value < 0) {
+            throw new IllegalArgumentException("Illegal Base64 character 0x" + Integer.toHexString(c & 0xff));
+        }
+        return value;
+    }
+
+    private SecretKeySpec keyFor(String secretKey) {
+        synchronized (keys) {
+            // Evicts the least recently used secret: that device pays one key setup when it returns
+            return keys.computeIfAbsent(secretKey, k -> new SecretKeySpec(k.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        }
+    }
+
+    private static <V> Map<String, V> lruMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    private final class ThreadState {
+        // Access-ordered LRU per thread: a gateway lane keeps the ciphers of the devices hashed to it
+        private final Map<String, Cipher> encryptCiphers = lruMap(ciphersPerThread);
+        private final Map<String, Cipher> decryptCiphers = lruMap(ciphersPerThread);
+        private byte[] base64 = new byte[INITIAL_BUFFER_SIZE];
+        private byte[] raw = new byte[INITIAL_BUFFER_SIZE];
+        private byte[] plain = new byte[INITIAL_BUFFER_SIZE];
+
+        Cipher encryptCipher(String secretKey) throws Exception {
+            return cipher(encryptCiphers, Cipher.ENCRYPT_MODE, secretKey);
+        }
+
+        Cipher decryptCipher(String secretKey) throws Exception {
+            return cipher(decryptCiphers, Cipher.DECRYPT_MODE, secretKey);
+        }
+
+        private Cipher cipher(Map<String, Cipher> ciphers, int mode, String secretKey) throws Exception {
+            Cipher cipher = ciphers.get(secretKey);
+            if (cipher == null) {
+                cipher = Cipher.getInstance(ALGORITHM);
+                cipher.init(mode, keyFor(secretKey));
+                ciphers.put(secretKey, cipher);
+            }
+            return cipher;
+        }
+
+        byte[] base64(int size) {
+            if (size <= base64.length) {
+                return base64;
+            }
+            return size > MAX_RETAINED_BUFFER_SIZE ? new byte[size] : (base64 = new byte[grownSize(base64, size)]);
+        }
+
+        byte[] raw(int base64Length) {
+            int size = base64Length / 4 * 3;
+            if (size <= raw.length) {
+                return raw;
+            }
+            return size > MAX_RETAINED_BUFFER_SIZE ? new byte[size] : (raw = new byte[grownSize(raw, size)]);
+        }
+
+        byte[] plain(int rawLength) {
+            int size = rawLength + 16; // at most one padding block
+            if (size <= plain.length) {
+                return plain;
+            }
+            return size > MAX_RETAINED_BUFFER_SIZE ? new byte[size] : (plain = new byte[grownSize(plain, size)]);
+        }
+
+        private static int grownSize(byte[] current, int size) {
+            return Math.max(size, Math.min(current.length * 2, MAX_RETAINED_BUFFER_SIZE));
+        }
+    }
+}
@@ -11,13 +11,14 @@ public final class EncryptionUtil {
     }
 
     private static final String ALGORITHM = "AES";
+    // Keys too: the platform default charset would derive a different key from a non-ASCII secret
     private static final String CHARSET = "UTF-8";
 
     // This is a symmetric encryption = same secret key used in both modes
     public static String encrypt(String plainText, String secretKey){
         try{
             Cipher cipher = Cipher.getInstance(ALGORITHM);
-            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(), ALGORITHM);
+            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(CHARSET), ALGORITHM);
             cipher.init(Cipher.ENCRYPT_MODE,key); // set up for encryption mode
             byte[] encrypted = cipher.doFinal(plainText.getBytes(CHARSET)); // converts the string into bytes
             return Base64.getEncoder().encodeToString(encrypted); //since the data is a binary so we convert it into a Base64 so if we want to send it as a readable string
@@ -29,7 +30,7 @@ public final class EncryptionUtil {
     public static String decrypt(String cipherText, String secretKey){
         try{
             Cipher cipher = Cipher.getInstance(ALGORITHM);
-            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(), ALGORITHM);
+            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(CHARSET), ALGORITHM);
             cipher.init(Cipher.DECRYPT_MODE,key); // We define the cipher instance on the decrypt mode
             byte[] decoded =  Base64.getDecoder().decode(cipherText);
             return new String(cipher.doFinal(decoded), CHARSET);
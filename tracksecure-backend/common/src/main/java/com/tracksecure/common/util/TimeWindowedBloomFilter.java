@@ -0,0 +1,165 @@
+package com.tracksecure.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Bloom filter that forgets: keys are added to the current generation, lookups check the current
+ * and the previous one, and every {@code windowMillis} the previous generation is dropped. A key
+ * is therefore remembered for at least one window and at most two.
+ * <p>
+ * {@link #mightContain} never answers false for a key added within the last window; it may answer
+ * true for a key never added, with roughly the configured probability while a generation holds no
+ * more than {@code expectedKeysPerWindow} keys. Instances are thread-safe and lock-free except
+ * for the rotation itself.
+ */
+public final class TimeWindowedBloomFilter {
+    private final long windowMillis;
+    private final int bitCount;
+    private final int hashCount;
+    private final LongSupplier clock;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public TimeWindowedBloomFilter(long expectedKeysPerWindow, double falsePositiveRate, long windowMillis) {
+        this(expectedKeysPerWindow, falsePositiveRate, windowMillis, System::currentTimeMillis);
+    }
+
+    public TimeWindowedBloomFilter(long expectedKeysPerWindow, double falsePositiveRate, long windowMillis,
+                                   LongSupplier clock) {
+        if (expectedKeysPerWindow <= 0 || windowMillis <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedKeysPerWindow and windowMillis must be positive, "
+                    + "falsePositiveRate in (0, 1)");
+        }
+        // Optimal sizing: m = -n ln p / (ln 2)^2, k = m / n ln 2
+        long bits = (long) Math.ceil(-expectedKeysPerWindow * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeysPerWindow * Math.log(2)));
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.current = new Generation(bitCount, now + windowMillis);
+        this.previous = new Generation(bitCount, now);
+    }
+
+    /** False if the key was definitely not added during the last window. */
+    public boolean mightContain(CharSequence key) {
+        long hash1 = hash(key, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(key, 0xC2B2AE3D27D4EB4FL);
+        Generation generation = currentGeneration();
+        return generation.contains(hash1, hash2) || previous.contains(hash1, hash2);
+    }
+
+    public void put(CharSequence key) {
+        currentGeneration().put(hash(key, 0x9E3779B97F4A7C15L), hash(key, 0xC2B2AE3D27D4EB4FL));
+    }
+
+    /**
+     * Adds the key and reports whether it might have been present before.
+     *
+     * @return false if the key is definitely new
+     */
+    public boolean putAndCheck(CharSequence key) {
+        long hash1 = hash(key, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(key, 0xC2B2AE3D27D4EB4FL);
+        Generation generation = currentGeneration();
+        boolean seen = previous.contains(hash1, hash2);
+        // put reports whether it flipped a bit; if it did not, the key was (probably) in the current generation
+        return !generation.put(hash1, hash2) || seen;
+    }
+
+    /** Estimated false positive probability of the current generation, from its fill ratio. */
+    public double expectedFalsePositiveRate() {
+        double fill = (double) currentGeneration().bitsSet.get() / bitCount;
+        return Math.pow(fill, hashCount);
+    }
+
+    public int getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private Generation currentGeneration() {
+        Generation generation = current;
+        if (clock.getAsLong() < generation.expiresAt) {
+            return generation;
+        }
+        synchronized (this) {
+            long now = clock.getAsLong();
+            generation = current;
+            if (now >= generation.expiresAt) {
+                // After a long idle period both generations are stale: start over instead of keeping an old one
+                previous = now - generation.expiresAt < windowMillis ? generation : new Generation(bitCount, now);
+                generation = new Generation(bitCount, now + windowMillis);
+                current = generation;
+            }
+            return generation;
+        }
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars, finished with the murmur3 avalanche step. */
+    private static long hash(CharSequence key, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0, n = key.length(); i < n; i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private final class Generation {
+        private final AtomicLongArray words;
+        private final AtomicLong bitsSet = new AtomicLong();
+        private final long expiresAt;
+
+        private Generation(int bits, long expiresAt) {
+            this.words = new AtomicLongArray((bits + 63) >>> 6);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean contains(long hash1, long hash2) {
+            for (int i = 0; i < hashCount; i++) {
+                int bit = bitIndex(hash1, hash2, i);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** @return true if at least one bit changed */
+        boolean put(long hash1, long hash2) {
+            boolean changed = false;
+            for (int i = 0; i < hashCount; i++) {
+                int bit = bitIndex(hash1, hash2, i);
+                long mask = 1L << bit;
+                int index = bit >>> 6;
+                long word = words.get(index);
+                while ((word & mask) == 0) {
+                    if (words.compareAndSet(index, word, word | mask)) {
+                        bitsSet.incrementAndGet();
+                        changed = true;
+                        break;
+                    }
+                    word = words.get(index);
+                }
+            }
+            return changed;
+        }
+
+        // Kirsch-Mitzenmacher double hashing: k indexes from two hashes
+        private int bitIndex(long hash1, long hash2, int i) {
+            return (int) Math.floorMod(hash1 + i * hash2, (long) bitCount);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.tracksecure.common.codec;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WireReaderTests {
+    @Test
+    void rejectsAFieldLongerThanWhatIsLeft() {
+        byte[] buf = {3, 'a', 'b', 'c', 2, 'd'};
+        WireReader reader = new WireReader(buf, 0, buf.length);
+        assertEquals("abc", reader.str8());
+        InvalidPayloadException e = assertThrows(InvalidPayloadException.class, reader::str8);
+        assertEquals("Truncated binary payload at byte 5", e.getMessage());
+    }
+
+    @Test
+    void staysInsideItsRange() {
+        byte[] buf = {0, 'a', 'b', 'c'};
+        WireReader reader = new WireReader(buf, 1, 2);
+        assertEquals('a', reader.u8());
+        assertEquals('b', reader.u8());
+        reader.expectEnd("test");
+        assertThrows(InvalidPayloadException.class, reader::u8);
+        assertThrows(InvalidPayloadException.class, () -> new WireReader(buf, 1, 3).i32());
+    }
+
+    @Test
+    void readsBigEndianIntegers() {
+        byte[] buf = {(byte) 0xff, (byte) 0xfe, (byte) 0x80, 0, 0, 0, 0, 0, 0, 1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+        WireReader reader = new WireReader(buf, 0, buf.length);
+        assertEquals(0xfffe, reader.u16());
+        assertEquals(Long.MIN_VALUE + 1, reader.i64());
+        assertEquals(-1, reader.i32());
+    }
+
+    @Test
+    void pointsAtBinaryFieldsWithoutCopying() {
+        byte[] buf = {2, 9, 8, 0, 1, 7};
+        WireReader reader = new WireReader(buf, 0, buf.length);
+        assertEquals(1, reader.bin8());
+        assertEquals(2, reader.lastLength());
+        assertEquals(5, reader.bin16());
+        assertEquals(1, reader.lastLength());
+        reader.expectEnd("test");
+    }
+}
@@ -0,0 +1,81 @@
+package com.tracksecure.common.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WireWriterTests {
+    private final WireWriter writer = new WireWriter();
+
+    @Test
+    void writesTheTelemetryLayout() {
+        byte[] telemetry = writer.telemetry("e", "d", "s", "t", 0x0102030405060708L, -0.000001, 180.0, -0.01, 655.35, "x");
+
+        WireReader reader = new WireReader(telemetry, 0, telemetry.length);
+        reader.expectHeader("telemetry");
+        assertEquals(TelemetryWireFormat.TELEMETRY_POSITION | TelemetryWireFormat.TELEMETRY_TEMPERATURE
+                | TelemetryWireFormat.TELEMETRY_HUMIDITY | TelemetryWireFormat.TELEMETRY_DESCRIPTION, reader.u8());
+        assertEquals(0x0102030405060708L, reader.i64());
+        for (String expected : new String[]{"e", "d", "s", "t"}) {
+            assertEquals(expected, reader.str8());
+        }
+        assertEquals(-1, reader.i32());
+        assertEquals(180_000_000, reader.i32());
+        assertEquals(-1, reader.i16());
+        assertEquals(65_535, reader.u16());
+        assertEquals("x", reader.str8());
+        reader.expectEnd("telemetry");
+    }
+
+    @Test
+    void writesStringsOfUpTo255Bytes() {
+        String longest = "é".repeat(127) + "a";
+        assertEquals(255, longest.getBytes(StandardCharsets.UTF_8).length);
+        byte[] envelope = writer.envelope(longest, "device-1", 0, null, null, new byte[0], new byte[0]);
+
+        WireReader reader = new WireReader(envelope, 0, envelope.length);
+        reader.expectHeader("envelope");
+        reader.u8();
+        reader.i64();
+        assertEquals(longest, reader.str8());
+
+        // 256 bytes although only 128 characters
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.envelope("é".repeat(128), "device-1", 0, null, null, new byte[0], new byte[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.envelope("msg-1", "device-1", 0, null, null, new byte[256], new byte[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.envelope("msg-1", "device-1", 0, null, null, new byte[0], new byte[65_536]));
+        assertDoesNotThrow(() -> writer.envelope("msg-1", "device-1", 0, null, null, new byte[255], new byte[65_535]));
+    }
+
+    @Test
+    void rejectsValuesOutsideTheirFixedPointField() {
+        assertDoesNotThrow(() -> telemetry(null, null, 327.67, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> telemetry(null, null, 327.68, null));
+        assertThrows(IllegalArgumentException.class, () -> telemetry(null, null, -327.69, null));
+        // Humidity is unsigned
+        assertThrows(IllegalArgumentException.class, () -> telemetry(null, null, null, -0.01));
+        assertThrows(IllegalArgumentException.class, () -> telemetry(null, null, null, 655.36));
+        // 2148 degrees no longer fits an i32 of microdegrees
+        assertThrows(IllegalArgumentException.class, () -> telemetry(2148.0, 0.0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> telemetry(0.0, Double.NEGATIVE_INFINITY, null, null));
+    }
+
+    @Test
+    void reusesItsBufferWithoutLeakingEarlierMessages() {
+        byte[] large = writer.envelope("msg-1", "device-1", 0, null, null, new byte[0], new byte[1000]);
+        byte[] small = writer.envelope("msg-2", "device-1", 0, null, null, new byte[0], new byte[0]);
+        assertEquals(1000, large.length - small.length);
+        assertArrayEquals(small, new WireWriter().envelope("msg-2", "device-1", 0, null, null, new byte[0], new byte[0]));
+    }
+
+    private byte[] telemetry(Double latitude, Double longitude, Double temperature, Double humidity) {
+        return writer.telemetry("evt-1", "device-1", "SHIP-1", "t", 0, latitude, longitude, temperature, humidity, null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.tracksecure.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AesCipherEngineTests {
+    private static final String KEY = "0123456789abcdef";
+    // 15 characters, 16 bytes in UTF-8
+    private static final String NON_ASCII_KEY = "clé-secret-0001";
+
+    private final AesCipherEngine engine = new AesCipherEngine(16, 4);
+
+    @Test
+    void isWireCompatibleWithEncryptionUtil() {
+        String plain = "{\"deviceId\":\"device-1\",\"temperature\":4.25,\"note\":\"réfrigéré\"}";
+        for (String key : new String[]{KEY, NON_ASCII_KEY}) {
+            assertEquals(EncryptionUtil.encrypt(plain, key), engine.encrypt(plain, key));
+            assertEquals(plain, engine.decrypt(EncryptionUtil.encrypt(plain, key), key));
+            assertEquals(plain, EncryptionUtil.decrypt(engine.encrypt(plain, key), key));
+        }
+    }
+
+    @Test
+    void decryptsBase64BytesAndRawCiphertext() {
+        String plain = "x".repeat(3000); // larger than the initial scratch buffers
+        String cipherText = EncryptionUtil.encrypt(plain, KEY);
+        byte[] base64 = ("--" + cipherText).getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(plain, text(engine.decryptBytes(base64, 2, base64.length - 2, KEY)));
+        byte[] raw = Base64.getDecoder().decode(cipherText);
+        assertEquals(plain, text(engine.decryptRaw(raw, 0, raw.length, KEY)));
+    }
+
+    @Test
+    void rejectsMalformedBase64() {
+        assertThrows(RuntimeException.class, () -> engine.decrypt("abc", KEY));
+        assertThrows(RuntimeException.class, () -> engine.decrypt("ab$d", KEY));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedKey() {
+        // One cipher per thread, so every switch of device goes back to the key cache
+        AesCipherEngine small = new AesCipherEngine(2, 1);
+        String a = "aaaaaaaaaaaaaaaa";
+        String b = "bbbbbbbbbbbbbbbb";
+        String c = "cccccccccccccccc";
+
+        small.encrypt("1", a);
+        small.encrypt("1", b);
+        small.encrypt("1", a);
+        small.encrypt("1", c);
+
+        assertEquals(2, small.cachedKeyCount());
+        assertTrue(small.isKeyCached(a));
+        assertFalse(small.isKeyCached(b));
+        assertTrue(small.isKeyCached(c));
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,73 @@
+package com.tracksecure.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeWindowedBloomFilterTests {
+    private static final long WINDOW = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final TimeWindowedBloomFilter filter = new TimeWindowedBloomFilter(10_000, 0.001, WINDOW, now::get);
+
+    @Test
+    void reportsAKeyAsNewOnlyOnce() {
+        assertFalse(filter.putAndCheck("device-1:msg-1"));
+        assertTrue(filter.putAndCheck("device-1:msg-1"));
+        assertTrue(filter.mightContain("device-1:msg-1"));
+        assertFalse(filter.mightContain("device-1:msg-2"));
+    }
+
+    @Test
+    void remembersAKeyForAtLeastOneWindow() {
+        filter.put("key");
+        now.addAndGet(WINDOW - 1);
+        assertTrue(filter.mightContain("key"));
+        now.addAndGet(WINDOW); // rotated once: the key is in the previous generation
+        assertTrue(filter.mightContain("key"));
+        assertTrue(filter.putAndCheck("key"));
+    }
+
+    @Test
+    void forgetsAKeyAfterTwoWindows() {
+        filter.put("key");
+        now.addAndGet(WINDOW);
+        filter.mightContain("other"); // rotation happens on access
+        now.addAndGet(WINDOW);
+        assertFalse(filter.mightContain("key"));
+    }
+
+    @Test
+    void startsOverAfterALongIdlePeriod() {
+        filter.put("key");
+        now.addAndGet(10 * WINDOW);
+        assertFalse(filter.mightContain("key"));
+    }
+
+    @Test
+    void staysNearTheConfiguredFalsePositiveRate() {
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("added-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        // 0.1% configured; allow for the spread of a 100k sample
+        assertTrue(falsePositives < 300, falsePositives + " false positives");
+        assertTrue(filter.expectedFalsePositiveRate() < 0.002);
+    }
+
+    @Test
+    void rejectsInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeWindowedBloomFilter(0, 0.01, WINDOW));
+        assertThrows(IllegalArgumentException.class, () -> new TimeWindowedBloomFilter(100, 1, WINDOW));
+        assertThrows(IllegalArgumentException.class, () -> new TimeWindowedBloomFilter(100, 0.01, 0));
+    }
+}
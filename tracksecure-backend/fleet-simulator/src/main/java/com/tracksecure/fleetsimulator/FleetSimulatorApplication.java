@@ -0,0 +1,14 @@
+package com.tracksecure.fleetsimulator;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class FleetSimulatorApplication {
+
+    public static void main(String[] args) {
+        // The simulation runs once and exits with its own status code
+        System.exit(SpringApplication.exit(SpringApplication.run(FleetSimulatorApplication.class, args)));
+    }
+
+}
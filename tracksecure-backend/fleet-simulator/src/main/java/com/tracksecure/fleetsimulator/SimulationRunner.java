@@ -0,0 +1,218 @@
+package com.tracksecure.fleetsimulator;
+
+import com.tracksecure.fleetsimulator.broker.EmbeddedBroker;
+import com.tracksecure.fleetsimulator.device.FleetPublisher;
+import com.tracksecure.fleetsimulator.device.PayloadEncoding;
+import com.tracksecure.fleetsimulator.device.SimulationTarget;
+import com.tracksecure.fleetsimulator.device.TelemetryPattern;
+import com.tracksecure.fleetsimulator.device.VirtualDevice;
+import com.tracksecure.fleetsimulator.kafka.EmbeddedKafka;
+import com.tracksecure.fleetsimulator.kafka.TrackingEventsConsumer;
+import com.tracksecure.fleetsimulator.redis.CredentialSeeder;
+import com.tracksecure.fleetsimulator.redis.EmbeddedRedis;
+import com.tracksecure.fleetsimulator.report.PrometheusScraper;
+import com.tracksecure.fleetsimulator.report.SseLatencyProbe;
+import com.tracksecure.fleetsimulator.report.SystemUnderTest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs one load test: seed credentials, wait for the services under test to subscribe,
+ * publish through a warm-up and a measurement window, let the backlog drain and print the report.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SimulationRunner implements ApplicationRunner, ExitCodeGenerator {
+    private static final String GATEWAY_FILTER = VirtualDevice.GATEWAY_TOPIC;
+    private static final String MQTTRESTAPP_FILTER = "sensor/+/dht11";
+
+    @Value("${sim.target}")
+    private SimulationTarget target;
+    @Value("${sim.pattern}")
+    private TelemetryPattern pattern;
+    @Value("${sim.devices.encoding}")
+    private PayloadEncoding encoding;
+    @Value("${sim.devices.count}")
+    private int deviceCount;
+    @Value("${sim.devices.id-prefix}")
+    private String idPrefix;
+    @Value("${sim.devices.seed}")
+    private long seed;
+    @Value("${sim.devices.rate-per-second}")
+    private double ratePerDevice;
+    @Value("${sim.broker.await-subscribers-seconds}")
+    private long awaitSubscribersSeconds;
+    @Value("${sim.run.warmup-seconds}")
+    private long warmupSeconds;
+    @Value("${sim.run.duration-seconds}")
+    private long durationSeconds;
+    @Value("${sim.run.drain-timeout-seconds}")
+    private long drainTimeoutSeconds;
+    @Value("${sim.run.report-interval-seconds}")
+    private long reportIntervalSeconds;
+    @Value("${sim.gateway.metrics-url}")
+    private String gatewayMetricsUrl;
+    @Value("${sim.mqttrestapp.metrics-url}")
+    private String mqttRestAppMetricsUrl;
+
+    private final EmbeddedBroker broker;
+    private final EmbeddedRedis redis; // started before the seeder runs
+    private final EmbeddedKafka kafka; // started before the gateway connects its producer
+    private final TrackingEventsConsumer trackingEventsConsumer;
+    private final CredentialSeeder credentialSeeder;
+    private final FleetPublisher publisher;
+    private final SseLatencyProbe probe;
+    private final PrometheusScraper scraper;
+
+    private int exitCode;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<VirtualDevice> fleet = new ArrayList<>(deviceCount);
+        for (int i = 1; i <= deviceCount; i++) {
+            fleet.add(new VirtualDevice(String.format("%s%04d", idPrefix, i), seed + i, encoding.isBinary(i)));
+        }
+
+        List<SystemUnderTest> systems = new ArrayList<>();
+        if (target.includesGateway()) {
+            credentialSeeder.seed(fleet);
+            trackingEventsConsumer.start(); // assigned before anything is published
+            systems.add(new SystemUnderTest("iot-gateway-service", gatewayMetricsUrl,
+                    "gateway_ingest_accepted_total", "gateway_ingest_failures_total",
+                    "gateway_ingest_end_to_end_seconds", publisher::getGatewaySent));
+        }
+        if (target.includesMqttRestApp()) {
+            systems.add(new SystemUnderTest("MqttRestApp", mqttRestAppMetricsUrl,
+                    "sensor_persistence_written_total", "sensor_persistence_failed_total",
+                    null, publisher::getLegacySent));
+        }
+        if (!awaitSubscribers()) {
+            exitCode = 1;
+            return;
+        }
+
+        systems.forEach(system -> system.beforeRun(scraper.scrape(system.getMetricsUrl())));
+        if (target.includesMqttRestApp()) {
+            probe.start();
+        }
+        publisher.start(fleet, target, pattern, ratePerDevice);
+
+        log.info("Warming up for {}s", warmupSeconds);
+        Thread.sleep(Duration.ofSeconds(warmupSeconds).toMillis());
+        publisher.takeAckLatency();
+        probe.takeLatency();
+        long sentBeforeWindow = publisher.getSent();
+        long windowStart = System.nanoTime();
+        systems.forEach(system -> system.startWindow(scraper.scrape(system.getMetricsUrl())));
+
+        long windowEnd = windowStart + Duration.ofSeconds(durationSeconds).toNanos();
+        long lastSent = sentBeforeWindow;
+        while (System.nanoTime() < windowEnd) {
+            Thread.sleep(Math.min(Duration.ofSeconds(reportIntervalSeconds).toMillis(),
+                    Math.max(1, (windowEnd - System.nanoTime()) / 1_000_000)));
+            long sent = publisher.getSent();
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "published %.0f msg/s",
+                    (sent - lastSent) / (double) reportIntervalSeconds));
+            lastSent = sent;
+            for (SystemUnderTest system : systems) {
+                line.append(" | ").append(system.progress(scraper.scrape(system.getMetricsUrl())));
+            }
+            log.info(line.toString());
+        }
+        systems.forEach(system -> system.endWindow(scraper.scrape(system.getMetricsUrl())));
+        double windowSeconds = (System.nanoTime() - windowStart) / 1e9;
+        long sentInWindow = publisher.getSent() - sentBeforeWindow;
+        Histogram ackLatency = publisher.takeAckLatency();
+        Histogram sseLatency = probe.takeLatency();
+
+        publisher.stop(5000);
+        probe.stop();
+        double drainSeconds = drain(systems);
+        if (target.includesGateway() && trackingEventsConsumer.isEnabled()
+                && !trackingEventsConsumer.awaitRecords(publisher.getGatewaySent(), Duration.ofSeconds(drainTimeoutSeconds))) {
+            log.warn("Only {} of {} gateway messages reached Kafka", trackingEventsConsumer.getRecords(), publisher.getGatewaySent());
+        }
+        trackingEventsConsumer.stop();
+
+        StringBuilder report = new StringBuilder(System.lineSeparator());
+        report.append(String.format(Locale.ROOT, "=== Fleet simulation: %d devices x %.2f msg/s, %s, %s, %s, %ds window ===%n",
+                deviceCount, ratePerDevice, target, pattern, encoding, durationSeconds));
+        report.append(String.format(Locale.ROOT, "publisher: %.1f msg/s offered, %d failed, %d throttled by max-inflight%n",
+                sentInWindow / windowSeconds, publisher.getFailed(), publisher.getThrottled()));
+        report.append(String.format(Locale.ROOT, "broker ack p50/p99/max : %s%n", percentiles(ackLatency)));
+        if (target.includesMqttRestApp()) {
+            report.append(String.format(Locale.ROOT, "publish -> SSE p50/p99/max : %s (%d probes)%n",
+                    percentiles(sseLatency), sseLatency.getTotalCount()));
+        }
+        report.append(String.format(Locale.ROOT, "backlog drained %s%n",
+                drainSeconds < 0 ? "NOT within " + drainTimeoutSeconds + "s" : String.format(Locale.ROOT, "in %.1fs", drainSeconds)));
+        if (target.includesGateway() && trackingEventsConsumer.isEnabled()) {
+            report.append(trackingEventsConsumer.report()).append(System.lineSeparator());
+        }
+        for (SystemUnderTest system : systems) {
+            report.append(system.report()).append(System.lineSeparator());
+        }
+        log.info(report.toString());
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private boolean awaitSubscribers() throws InterruptedException {
+        Duration timeout = Duration.ofSeconds(awaitSubscribersSeconds);
+        if (target.includesGateway() && !broker.awaitSubscription(GATEWAY_FILTER, timeout)) {
+            log.error("iot-gateway-service did not subscribe to {} within {}", GATEWAY_FILTER, timeout);
+            return false;
+        }
+        if (target.includesMqttRestApp() && !broker.awaitSubscription(MQTTRESTAPP_FILTER, timeout)) {
+            log.error("MqttRestApp did not subscribe to {} within {}", MQTTRESTAPP_FILTER, timeout);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every service has processed what was published for it.
+     *
+     * @return seconds until the backlog was gone, or -1 on timeout
+     */
+    private double drain(List<SystemUnderTest> systems) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofSeconds(drainTimeoutSeconds).toNanos();
+        while (System.nanoTime() < deadline) {
+            boolean drained = true;
+            for (SystemUnderTest system : systems) {
+                drained &= system.isDrained(scraper.scrape(system.getMetricsUrl()));
+            }
+            if (drained) {
+                return (System.nanoTime() - start) / 1e9;
+            }
+            Thread.sleep(250);
+        }
+        return -1;
+    }
+
+    private static String percentiles(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return "n/a";
+        }
+        return String.format(Locale.ROOT, "%.2f / %.2f / %.2f ms",
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+}
@@ -0,0 +1,107 @@
+package com.tracksecure.fleetsimulator.broker;
+
+import io.moquette.broker.Server;
+import io.moquette.broker.config.MemoryConfig;
+import io.moquette.interception.AbstractInterceptHandler;
+import io.moquette.interception.InterceptHandler;
+import io.moquette.interception.messages.InterceptSubscribeMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process Moquette broker the virtual devices and the systems under test connect to.
+ * Subscriptions are tracked so publishing only starts once the consumers are listening.
+ */
+@Component
+@Slf4j
+public class EmbeddedBroker {
+    @Value("${sim.broker.embedded}")
+    private boolean embedded;
+    @Value("${sim.broker.host}")
+    private String host;
+    @Value("${sim.broker.port}")
+    private int port;
+
+    private final Set<String> subscribedFilters = ConcurrentHashMap.newKeySet();
+    private Server server;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!embedded) {
+            log.info("Embedded broker disabled, devices publish to an external broker");
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("host", host);
+        properties.setProperty("port", Integer.toString(port));
+        properties.setProperty("allow_anonymous", "true");
+        properties.setProperty("persistence_enabled", "false");
+        properties.setProperty("telemetry_enabled", "false"); // offline: no call home to the Moquette collector
+
+        server = new Server();
+        List<InterceptHandler> handlers = List.of(new SubscriptionTracker());
+        server.startServer(new MemoryConfig(properties), handlers);
+        log.info("Embedded MQTT broker listening on {}:{}", host, port);
+    }
+
+    /**
+     * Waits until a client has subscribed with exactly this topic filter.
+     *
+     * @return false if nobody subscribed in time; always true for an external broker
+     */
+    public boolean awaitSubscription(String topicFilter, Duration timeout) throws InterruptedException {
+        if (server == null) {
+            return true;
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!subscribedFilters.contains(topicFilter)) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(200);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stopServer();
+        }
+    }
+
+    private class SubscriptionTracker extends AbstractInterceptHandler {
+        @Override
+        public String getID() {
+            return "fleet-simulator-subscriptions";
+        }
+
+        @Override
+        public Class<?>[] getInterceptedMessageTypes() {
+            // Publishes are not intercepted, which keeps the broker's payload buffers out of our hands
+            return new Class<?>[]{InterceptSubscribeMessage.class};
+        }
+
+        @Override
+        public void onSubscribe(InterceptSubscribeMessage msg) {
+            if (subscribedFilters.add(msg.getTopicFilter())) {
+                log.info("Client {} subscribed to {}", msg.getClientID(), msg.getTopicFilter());
+            }
+        }
+
+        @Override
+        public void onSessionLoopError(Throwable error) {
+            log.warn("Broker session loop error: {}", error.getMessage());
+        }
+    }
+}
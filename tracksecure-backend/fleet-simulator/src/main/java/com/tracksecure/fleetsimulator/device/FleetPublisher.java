@@ -0,0 +1,194 @@
+package com.tracksecure.fleetsimulator.device;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the virtual fleet over a pool of MQTT connections. Each connection has its own
+ * publisher thread that owns a slice of the devices and publishes on a fixed open-loop
+ * schedule; latency is measured from the scheduled send time to the broker's PUBACK, so a
+ * stalled broker or client shows up as latency instead of silently lowering the rate.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FleetPublisher {
+    @Value("${sim.broker.url}")
+    private String brokerUrl;
+    @Value("${sim.mqtt.connections}")
+    private int connectionCount;
+    @Value("${sim.mqtt.qos}")
+    private int qos;
+    @Value("${sim.mqtt.max-inflight}")
+    private int maxInflight;
+
+    private final ObjectMapper objectMapper;
+
+    private final Recorder ackLatency = new Recorder(3);
+    private final LongAdder gatewaySent = new LongAdder();
+    private final LongAdder legacySent = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final List<MqttAsyncClient> clients = new ArrayList<>();
+    private volatile boolean running;
+
+    public void start(List<VirtualDevice> devices, SimulationTarget target, TelemetryPattern pattern,
+                      double ratePerDevice) throws MqttException {
+        int lanes = Math.max(1, Math.min(connectionCount, devices.size()));
+        running = true;
+        for (int lane = 0; lane < lanes; lane++) {
+            List<VirtualDevice> slice = new ArrayList<>();
+            for (int i = lane; i < devices.size(); i += lanes) {
+                slice.add(devices.get(i));
+            }
+            MqttAsyncClient client = connect("fleet-simulator-" + lane);
+            clients.add(client);
+            Thread thread = new Thread(() -> publishLoop(client, slice, target, pattern, ratePerDevice),
+                    "fleet-publisher-" + lane);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        log.info("Publishing for {} devices over {} connections at {}/s per device ({} {})",
+                devices.size(), lanes, ratePerDevice, target, pattern);
+    }
+
+    /** Stops publishing and waits up to {@code ackTimeoutMs} for outstanding acknowledgements. */
+    public void stop(long ackTimeoutMs) throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long deadline = System.currentTimeMillis() + ackTimeoutMs;
+        while (acked.sum() + failed.sum() < getSent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        for (MqttAsyncClient client : clients) {
+            try {
+                client.disconnect().waitForCompletion(5000);
+                client.close();
+            } catch (MqttException e) {
+                log.warn("Failed to close {}: {}", client.getClientId(), e.getMessage());
+            }
+        }
+    }
+
+    /** PUBACK latency recorded since the previous call (nanoseconds). */
+    public Histogram takeAckLatency() {
+        return ackLatency.getIntervalHistogram();
+    }
+
+    public long getSent() {
+        return gatewaySent.sum() + legacySent.sum();
+    }
+
+    public long getGatewaySent() {
+        return gatewaySent.sum();
+    }
+
+    public long getLegacySent() {
+        return legacySent.sum();
+    }
+
+    public long getAcked() {
+        return acked.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /** Publishes refused by the client because max-inflight was reached. */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    private MqttAsyncClient connect(String clientId) throws MqttException {
+        MqttAsyncClient client = new MqttAsyncClient(brokerUrl, clientId, new MemoryPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setMaxInflight(maxInflight);
+        options.setAutomaticReconnect(true);
+        options.setConnectionTimeout(10);
+        options.setKeepAliveInterval(30);
+        client.connect(options).waitForCompletion(15000);
+        return client;
+    }
+
+    private void publishLoop(MqttAsyncClient client, List<VirtualDevice> devices, SimulationTarget target,
+                             TelemetryPattern pattern, double ratePerDevice) {
+        IMqttActionListener listener = new AckListener();
+        long intervalNanos = (long) (1_000_000_000L / (ratePerDevice * devices.size()));
+        long next = System.nanoTime();
+        int index = 0;
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            VirtualDevice device = devices.get(index);
+            index = index + 1 == devices.size() ? 0 : index + 1;
+            device.advance();
+            try {
+                if (target.includesGateway()) {
+                    publish(client, VirtualDevice.GATEWAY_TOPIC, device.gatewayMessage(objectMapper, pattern), next, listener, gatewaySent);
+                }
+                if (target.includesMqttRestApp()) {
+                    publish(client, device.legacyTopic(pattern), device.legacyPayload(pattern), next, listener, legacySent);
+                }
+            } catch (JsonProcessingException e) {
+                failed.increment();
+                log.warn("Cannot serialize message of {}: {}", device.getDeviceId(), e.getMessage());
+            }
+            next += intervalNanos;
+        }
+    }
+
+    private void publish(MqttAsyncClient client, String topic, byte[] payload, long scheduledNanos,
+                         IMqttActionListener listener, LongAdder sentCounter) {
+        try {
+            client.publish(topic, payload, qos, false, scheduledNanos, listener);
+            sentCounter.increment();
+        } catch (MqttException e) {
+            if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT) {
+                throttled.increment();
+            } else {
+                failed.increment();
+            }
+        }
+    }
+
+    private class AckListener implements IMqttActionListener {
+        @Override
+        public void onSuccess(IMqttToken token) {
+            ackLatency.recordValue(Math.max(0, System.nanoTime() - (Long) token.getUserContext()));
+            acked.increment();
+        }
+
+        @Override
+        public void onFailure(IMqttToken token, Throwable exception) {
+            failed.increment();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.tracksecure.fleetsimulator.device;
+
+/** Wire encoding of the gateway messages; MIXED models a fleet halfway through a firmware rollout. */
+public enum PayloadEncoding {
+    JSON,
+    BINARY,
+    MIXED;
+
+    /** Whether the device with this (1-based) index in the fleet publishes binary envelopes. */
+    public boolean isBinary(int deviceIndex) {
+        return this == BINARY || (this == MIXED && deviceIndex % 2 == 0);
+    }
+}
@@ -0,0 +1,18 @@
+package com.tracksecure.fleetsimulator.device;
+
+/** System under test the fleet publishes for. */
+public enum SimulationTarget {
+    /** Encrypted DeviceMessage envelopes on tracksecure/telemetry (iot-gateway-service). */
+    GATEWAY,
+    /** Plain sensor/&lt;deviceId&gt;/dht11 and sensor/&lt;deviceId&gt;/gps payloads (MqttRestApp). */
+    MQTTRESTAPP,
+    BOTH;
+
+    public boolean includesGateway() {
+        return this != MQTTRESTAPP;
+    }
+
+    public boolean includesMqttRestApp() {
+        return this != GATEWAY;
+    }
+}
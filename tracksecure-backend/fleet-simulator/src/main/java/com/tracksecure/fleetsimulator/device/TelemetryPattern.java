@@ -0,0 +1,16 @@
+package com.tracksecure.fleetsimulator.device;
+
+/** Which sensors a virtual device reports on every tick. */
+public enum TelemetryPattern {
+    GPS,
+    DHT,
+    MIXED;
+
+    public boolean hasGps() {
+        return this != DHT;
+    }
+
+    public boolean hasDht() {
+        return this != GPS;
+    }
+}
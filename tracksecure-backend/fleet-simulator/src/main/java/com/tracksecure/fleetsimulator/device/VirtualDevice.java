@@ -0,0 +1,182 @@
+package com.tracksecure.fleetsimulator.device;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.common.codec.WireWriter;
+import com.tracksecure.common.constants.EventTypes;
+import com.tracksecure.common.util.AesCipherEngine;
+import com.tracksecure.common.util.EncryptionUtil;
+import lombok.Getter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * One simulated ESP8266 tracker. Position follows a random walk and the DHT11 values drift,
+ * so consecutive readings look like a truck on the road rather than constant noise.
+ * <p>
+ * Not thread-safe: a device is only ever driven by the publisher thread that owns it.
+ */
+public class VirtualDevice {
+    public static final String GATEWAY_TOPIC = "tracksecure/telemetry";
+    private static final String FIRMWARE_VERSION = "sim-1.0.0";
+    // Thread-safe, shared by every binary device for its raw (non-Base64) ciphertext
+    private static final AesCipherEngine CIPHER_ENGINE = new AesCipherEngine(100_000, 64);
+
+    @Getter
+    private final String deviceId;
+    @Getter
+    private final String serialNumber;
+    @Getter
+    private final String secretKey;
+    @Getter
+    private final String shipmentId;
+    @Getter
+    private final String firmwareVersion = FIRMWARE_VERSION;
+    @Getter
+    private final boolean binary;
+
+    private final String dhtTopic;
+    private final String gpsTopic;
+    private final SplittableRandom random;
+    private final Mac signer;
+    private final WireWriter wireWriter;
+
+    private double latitude;
+    private double longitude;
+    private double heading;
+    private double temperature;
+    private double humidity;
+    private int satellites;
+    private long sequence;
+    private boolean nextLegacyIsGps;
+
+    public VirtualDevice(String deviceId, long seed) {
+        this(deviceId, seed, false);
+    }
+
+    /** @param binary publish binary envelopes (TelemetryWireFormat) instead of JSON */
+    public VirtualDevice(String deviceId, long seed, boolean binary) {
+        this.binary = binary;
+        this.wireWriter = binary ? new WireWriter() : null;
+        this.random = new SplittableRandom(seed);
+        this.deviceId = deviceId;
+        this.serialNumber = "SN-" + deviceId;
+        this.secretKey = String.format("%016x", random.nextLong()); // EncryptionUtil expects a 16-character key
+        this.shipmentId = "SHP-" + deviceId;
+        this.dhtTopic = "sensor/" + deviceId + "/dht11";
+        this.gpsTopic = "sensor/" + deviceId + "/gps";
+
+        // Spread the fleet over southern Morocco, around the Agadir warehouse
+        this.latitude = 30.0 + random.nextDouble() * 2.0;
+        this.longitude = -10.0 + random.nextDouble() * 3.0;
+        this.heading = random.nextDouble() * 2 * Math.PI;
+        this.temperature = 4.0 + random.nextDouble() * 20.0;
+        this.humidity = 30.0 + random.nextDouble() * 40.0;
+        this.satellites = 6 + random.nextInt(6);
+
+        try {
+            this.signer = Mac.getInstance("HmacSHA256");
+            this.signer.init(new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    /** Moves the device one tick forward. */
+    public void advance() {
+        heading += (random.nextDouble() - 0.5) * 0.3;
+        double step = 0.0002 + random.nextDouble() * 0.0003; // ~20-50 m per tick
+        latitude = clamp(latitude + Math.cos(heading) * step, -89.0, 89.0);
+        longitude = clamp(longitude + Math.sin(heading) * step, -179.0, 179.0);
+        temperature = clamp(temperature + (random.nextDouble() - 0.5) * 0.2, -20.0, 45.0);
+        humidity = clamp(humidity + (random.nextDouble() - 0.5) * 0.5, 5.0, 95.0);
+        if (random.nextInt(20) == 0) {
+            satellites = 4 + random.nextInt(9);
+        }
+        sequence++;
+    }
+
+    /**
+     * Builds the DeviceMessage envelope the gateway consumes: the TelemetryPayload JSON is
+     * encrypted with the device's secret key and the ciphertext is signed with HMAC-SHA256.
+     * Binary devices send the same content in the TelemetryWireFormat, with raw ciphertext
+     * and signature.
+     */
+    public byte[] gatewayMessage(ObjectMapper objectMapper, TelemetryPattern pattern) throws JsonProcessingException {
+        long now = System.currentTimeMillis() / 1000; // the gateway works with epoch seconds
+        String eventId = deviceId + "-" + sequence;
+        if (binary) {
+            byte[] telemetry = wireWriter.telemetry(eventId, deviceId, shipmentId, EventTypes.LOCATION_UPDATE, now,
+                    pattern.hasGps() ? latitude : null,
+                    pattern.hasGps() ? longitude : null,
+                    pattern.hasDht() ? temperature : null,
+                    pattern.hasDht() ? humidity : null,
+                    null);
+            byte[] ciphertext = CIPHER_ENGINE.encrypt(telemetry, 0, telemetry.length, secretKey);
+            return wireWriter.envelope(eventId, deviceId, now, firmwareVersion, "MQTT", signer.doFinal(ciphertext), ciphertext);
+        }
+        Telemetry telemetry = new Telemetry(
+                eventId,
+                deviceId,
+                shipmentId,
+                EventTypes.LOCATION_UPDATE,
+                now,
+                pattern.hasGps() ? round(latitude, 6) : null,
+                pattern.hasGps() ? round(longitude, 6) : null,
+                pattern.hasDht() ? round(temperature, 2) : null,
+                pattern.hasDht() ? round(humidity, 2) : null,
+                null);
+        String encrypted = EncryptionUtil.encrypt(objectMapper.writeValueAsString(telemetry), secretKey);
+        String signature = Base64.getEncoder().encodeToString(signer.doFinal(encrypted.getBytes(StandardCharsets.UTF_8)));
+        Envelope envelope = new Envelope(eventId, deviceId, encrypted, signature, now, firmwareVersion, "MQTT");
+        return objectMapper.writeValueAsBytes(envelope);
+    }
+
+    /** Topic of the next legacy payload; MIXED alternates between DHT11 and GPS. */
+    public String legacyTopic(TelemetryPattern pattern) {
+        return legacyIsGps(pattern) ? gpsTopic : dhtTopic;
+    }
+
+    /** Payload in the shape the ESP8266_DHT11_GPS_MQTT sketch publishes, matching {@link #legacyTopic}. */
+    public byte[] legacyPayload(TelemetryPattern pattern) {
+        boolean gps = legacyIsGps(pattern);
+        if (pattern == TelemetryPattern.MIXED) {
+            nextLegacyIsGps = !nextLegacyIsGps;
+        }
+        String json = gps
+                ? String.format(Locale.ROOT, "{\"latitude\":%.6f,\"longitude\":%.6f,\"satellites\":%d}", latitude, longitude, satellites)
+                : String.format(Locale.ROOT, "{\"temperature\":%.2f,\"humidity\":%.2f}", temperature, humidity);
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean legacyIsGps(TelemetryPattern pattern) {
+        return pattern == TelemetryPattern.GPS || (pattern == TelemetryPattern.MIXED && nextLegacyIsGps);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    /** Mirrors iot-gateway-service's DeviceMessage. */
+    record Envelope(String messageId, String deviceId, String encryptedPayload, String signature,
+                    Long receivedTimestamp, String firmwareVersion, String transmissionMethod) {
+    }
+
+    /** Mirrors iot-gateway-service's TelemetryPayload. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Telemetry(String eventId, String deviceId, String shipmentId, String eventType, Long eventTimestamp,
+                     Double latitude, Double longitude, Double temperature, Double humidity, String description) {
+    }
+}
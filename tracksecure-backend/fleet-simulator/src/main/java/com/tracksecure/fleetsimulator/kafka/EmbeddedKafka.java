@@ -0,0 +1,47 @@
+package com.tracksecure.fleetsimulator.kafka;
+
+import com.tracksecure.common.constants.KafkaTopics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.test.EmbeddedKafkaZKBroker;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-node Kafka the gateway publishes its tracking events to. It listens on localhost:9092,
+ * the gateway's default KAFKA_BOOTSTRAP_SERVERS. The ZooKeeper-based broker is used because the
+ * KRaft one ignores fixed ports.
+ */
+@Component
+@Slf4j
+public class EmbeddedKafka {
+    @Value("${sim.kafka.embedded}")
+    private boolean embedded;
+    @Value("${sim.kafka.port}")
+    private int port;
+    @Value("${sim.kafka.partitions}")
+    private int partitions;
+
+    private EmbeddedKafkaZKBroker broker;
+
+    @PostConstruct
+    public void start() {
+        if (!embedded) {
+            log.info("Embedded Kafka disabled, tracking events are read from sim.kafka.bootstrap-servers");
+            return;
+        }
+        broker = new EmbeddedKafkaZKBroker(1, true, partitions, KafkaTopics.TRACKING_EVENTS);
+        broker.kafkaPorts(port);
+        broker.afterPropertiesSet();
+        log.info("Embedded Kafka listening on {} with {} ({} partitions)",
+                broker.getBrokersAsString(), KafkaTopics.TRACKING_EVENTS, partitions);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.tracksecure.fleetsimulator.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.common.constants.KafkaTopics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads back what the gateway published to tracking-events and checks the delivery contract:
+ * the record key is the device id, and each device's events arrive in the order the device sent
+ * them. Simulated event ids are {@code <deviceId>-<sequence>}, so a lower sequence than the last
+ * one seen for that key means a reordering and an equal one means a redelivery.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TrackingEventsConsumer {
+    private final ObjectMapper objectMapper;
+
+    @Value("${sim.kafka.consume}")
+    private boolean consume;
+    @Value("${sim.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong outOfOrder = new AtomicLong();
+    private final AtomicLong redelivered = new AtomicLong();
+    private final AtomicLong wrongKey = new AtomicLong();
+    // Written by the polling thread only
+    private final Map<String, Long> lastSequence = new ConcurrentHashMap<>();
+
+    private volatile KafkaConsumer<String, String> consumer;
+    private Thread thread;
+
+    public void start() {
+        if (!consume) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, "fleet-simulator-" + UUID.randomUUID());
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumer = new KafkaConsumer<>(properties);
+        consumer.subscribe(List.of(KafkaTopics.TRACKING_EVENTS));
+        thread = new Thread(this::poll, "tracking-events-consumer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isEnabled() {
+        return consume;
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    /**
+     * Waits until at least {@code expected} records were read.
+     *
+     * @return false on timeout
+     */
+    public boolean awaitRecords(long expected, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (records.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(100);
+        }
+        return true;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "kafka %s : %d records from %d devices, %d out of order, %d redelivered, %d wrongly keyed",
+                KafkaTopics.TRACKING_EVENTS, records.get(), lastSequence.size(), outOfOrder.get(), redelivered.get(), wrongKey.get());
+    }
+
+    public void stop() throws InterruptedException {
+        if (consumer != null) {
+            consumer.wakeup();
+            thread.join(5000);
+        }
+    }
+
+    private void poll() {
+        try {
+            while (true) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500))) {
+                    check(record);
+                    records.incrementAndGet();
+                }
+            }
+        } catch (WakeupException e) {
+            // stop() was called
+        } catch (RuntimeException e) {
+            log.error("Reading {} failed", KafkaTopics.TRACKING_EVENTS, e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void check(ConsumerRecord<String, String> record) {
+        String eventId;
+        try {
+            JsonNode event = objectMapper.readTree(record.value());
+            eventId = event.path("eventId").asText();
+            if (!event.path("deviceId").asText().equals(record.key())) {
+                wrongKey.incrementAndGet();
+            }
+        } catch (Exception e) {
+            log.warn("Unreadable tracking event at offset {}: {}", record.offset(), e.getMessage());
+            return;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(eventId.substring(eventId.lastIndexOf('-') + 1));
+        } catch (NumberFormatException e) {
+            return; // not published by the simulator
+        }
+        Long previous = lastSequence.get(record.key());
+        if (previous == null || sequence > previous) {
+            lastSequence.put(record.key(), sequence);
+        } else if (sequence == previous) {
+            redelivered.incrementAndGet();
+        } else {
+            outOfOrder.incrementAndGet();
+        }
+    }
+}
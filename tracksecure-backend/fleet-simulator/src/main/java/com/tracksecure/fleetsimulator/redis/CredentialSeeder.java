@@ -0,0 +1,64 @@
+package com.tracksecure.fleetsimulator.redis;
+
+import com.tracksecure.fleetsimulator.device.VirtualDevice;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one DeviceCredential per virtual device in the layout Spring Data Redis uses for
+ * the gateway's {@code @RedisHash("DeviceCredential")} entity, so DeviceCredentialRepository.findById
+ * resolves the simulated fleet exactly like provisioned boards.
+ */
+@Component
+@Slf4j
+public class CredentialSeeder {
+    private static final String KEYSPACE = "DeviceCredential";
+
+    @Value("${sim.redis.host}")
+    private String host;
+    @Value("${sim.redis.port}")
+    private int port;
+
+    public void seed(List<VirtualDevice> devices) {
+        RedisClient client = RedisClient.create(RedisURI.create(host, port));
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            RedisAsyncCommands<String, String> commands = connection.async();
+            // Pipeline the whole fleet: thousands of credentials go out in a handful of round trips
+            connection.setAutoFlushCommands(false);
+            List<RedisFuture<?>> pending = new ArrayList<>(devices.size() * 4);
+            for (VirtualDevice device : devices) {
+                String key = KEYSPACE + ":" + device.getDeviceId();
+                String serialIndex = KEYSPACE + ":serialNumber:" + device.getSerialNumber();
+                pending.add(commands.hset(key, Map.of(
+                        "deviceId", device.getDeviceId(),
+                        "serialNumber", device.getSerialNumber(),
+                        "secretKey", device.getSecretKey(),
+                        "active", "1", // Spring Data Redis stores booleans as "1"/"0"
+                        "firmwareVersion", device.getFirmwareVersion(),
+                        "assignedShipmentId", device.getShipmentId())));
+                pending.add(commands.sadd(KEYSPACE, device.getDeviceId()));
+                pending.add(commands.sadd(serialIndex, device.getDeviceId()));
+                pending.add(commands.sadd(key + ":idx", serialIndex));
+            }
+            connection.flushCommands();
+            if (!LettuceFutures.awaitAll(Duration.ofSeconds(30), pending.toArray(new RedisFuture[0]))) {
+                throw new IllegalStateException("Timed out seeding device credentials into Redis");
+            }
+            log.info("Seeded {} device credentials into Redis at {}:{}", devices.size(), host, port);
+        } finally {
+            client.shutdown();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.tracksecure.fleetsimulator.redis;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+
+/**
+ * Local Redis stand-in for the gateway's DeviceCredential store. The gateway's
+ * LettuceConnectionFactory uses localhost:6379, which is the default port here.
+ */
+@Component
+@Slf4j
+public class EmbeddedRedis {
+    @Value("${sim.redis.embedded}")
+    private boolean embedded;
+    @Value("${sim.redis.port}")
+    private int port;
+
+    private RedisServer server;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!embedded) {
+            log.info("Embedded Redis disabled, credentials are seeded into an external Redis");
+            return;
+        }
+        server = new RedisServer(port);
+        server.start();
+        log.info("Embedded Redis listening on port {}", port);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
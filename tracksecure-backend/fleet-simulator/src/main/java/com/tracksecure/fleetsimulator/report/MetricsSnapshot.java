@@ -0,0 +1,173 @@
+package com.tracksecure.fleetsimulator.report;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One scrape of a Prometheus text exposition endpoint. Series with the same metric name
+ * are aggregated across labels (e.g. both heap pools, every gc cause).
+ */
+public final class MetricsSnapshot {
+    public static final MetricsSnapshot EMPTY = new MetricsSnapshot(System.nanoTime(), List.of());
+
+    private final long takenAtNanos;
+    private final List<Sample> samples;
+
+    private MetricsSnapshot(long takenAtNanos, List<Sample> samples) {
+        this.takenAtNanos = takenAtNanos;
+        this.samples = samples;
+    }
+
+    public long getTakenAtNanos() {
+        return takenAtNanos;
+    }
+
+    public boolean isEmpty() {
+        return samples.isEmpty();
+    }
+
+    public double sum(String name) {
+        double total = 0;
+        for (Sample sample : samples) {
+            if (sample.name().equals(name)) {
+                total += sample.value();
+            }
+        }
+        return total;
+    }
+
+    public double sum(String name, String label, String labelValue) {
+        double total = 0;
+        for (Sample sample : samples) {
+            if (sample.name().equals(name) && labelValue.equals(sample.labels().get(label))) {
+                total += sample.value();
+            }
+        }
+        return total;
+    }
+
+    public double max(String name) {
+        double max = 0;
+        for (Sample sample : samples) {
+            if (sample.name().equals(name) && sample.value() > max) {
+                max = sample.value();
+            }
+        }
+        return max;
+    }
+
+    /** Cumulative bucket counts of a histogram keyed by upper bound, summed across the other labels. */
+    public TreeMap<Double, Double> buckets(String histogram) {
+        String name = histogram + "_bucket";
+        TreeMap<Double, Double> buckets = new TreeMap<>();
+        for (Sample sample : samples) {
+            String le = sample.labels().get("le");
+            if (le != null && sample.name().equals(name)) {
+                buckets.merge(le.equals("+Inf") ? Double.POSITIVE_INFINITY : Double.parseDouble(le), sample.value(), Double::sum);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Estimates a quantile of the observations made between two scrapes, interpolating
+     * linearly inside the bucket like PromQL's histogram_quantile.
+     *
+     * @return the quantile in the histogram's base unit, or NaN if nothing was observed
+     */
+    public static double quantile(MetricsSnapshot from, MetricsSnapshot to, String histogram, double q) {
+        TreeMap<Double, Double> start = from.buckets(histogram);
+        TreeMap<Double, Double> end = to.buckets(histogram);
+        if (end.isEmpty()) {
+            return Double.NaN;
+        }
+        double total = end.lastEntry().getValue() - start.getOrDefault(end.lastKey(), 0.0);
+        if (total <= 0) {
+            return Double.NaN;
+        }
+        double rank = q * total;
+        double previousBound = 0;
+        double previousCount = 0;
+        for (Map.Entry<Double, Double> bucket : end.entrySet()) {
+            double count = bucket.getValue() - start.getOrDefault(bucket.getKey(), 0.0);
+            if (count >= rank) {
+                if (bucket.getKey().isInfinite()) {
+                    return previousBound;
+                }
+                double inBucket = count - previousCount;
+                return inBucket <= 0
+                        ? bucket.getKey()
+                        : previousBound + (bucket.getKey() - previousBound) * (rank - previousCount) / inBucket;
+            }
+            previousBound = bucket.getKey();
+            previousCount = count;
+        }
+        return previousBound;
+    }
+
+    /** Parses the text exposition format (version 0.0.4). */
+    public static MetricsSnapshot parse(String body) {
+        List<Sample> samples = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (line.isBlank() || line.charAt(0) == '#') {
+                continue;
+            }
+            Sample sample = parseLine(line.trim());
+            if (sample != null) {
+                samples.add(sample);
+            }
+        }
+        return new MetricsSnapshot(System.nanoTime(), samples);
+    }
+
+    private static Sample parseLine(String line) {
+        int brace = line.indexOf('{');
+        int space;
+        String name;
+        Map<String, String> labels = Map.of();
+        if (brace >= 0 && brace < line.indexOf(' ')) {
+            name = line.substring(0, brace);
+            labels = new HashMap<>();
+            int pos = brace + 1;
+            while (pos < line.length() && line.charAt(pos) != '}') {
+                int eq = line.indexOf('=', pos);
+                String key = line.substring(pos, eq).trim();
+                StringBuilder value = new StringBuilder();
+                pos = eq + 2; // skip ="
+                while (line.charAt(pos) != '"') {
+                    char c = line.charAt(pos);
+                    if (c == '\\') {
+                        pos++;
+                        c = line.charAt(pos) == 'n' ? '\n' : line.charAt(pos);
+                    }
+                    value.append(c);
+                    pos++;
+                }
+                labels.put(key, value.toString());
+                pos++; // closing quote
+                if (pos < line.length() && line.charAt(pos) == ',') {
+                    pos++;
+                }
+            }
+            space = line.indexOf(' ', pos);
+        } else {
+            space = line.indexOf(' ');
+            name = line.substring(0, space);
+        }
+        if (space < 0) {
+            return null;
+        }
+        String[] rest = line.substring(space + 1).trim().split(" ");
+        try {
+            return new Sample(name, labels, Double.parseDouble(rest[0]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    record Sample(String name, Map<String, String> labels, double value) {
+    }
+}
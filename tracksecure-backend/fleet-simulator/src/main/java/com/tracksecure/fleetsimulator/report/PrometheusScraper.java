@@ -0,0 +1,55 @@
+package com.tracksecure.fleetsimulator.report;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Reads /actuator/prometheus of the systems under test. */
+@Component
+@Slf4j
+public class PrometheusScraper {
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final Set<String> unreachable = ConcurrentHashMap.newKeySet();
+
+    /** @return the parsed metrics, or {@link MetricsSnapshot#EMPTY} if the endpoint is not configured or down */
+    public MetricsSnapshot scrape(String url) {
+        if (url == null || url.isBlank()) {
+            return MetricsSnapshot.EMPTY;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                warnOnce(url, "HTTP " + response.statusCode());
+                return MetricsSnapshot.EMPTY;
+            }
+            unreachable.remove(url);
+            return MetricsSnapshot.parse(response.body());
+        } catch (IOException e) {
+            warnOnce(url, e.getMessage());
+            return MetricsSnapshot.EMPTY;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return MetricsSnapshot.EMPTY;
+        }
+    }
+
+    private void warnOnce(String url, String reason) {
+        if (unreachable.add(url)) {
+            log.warn("Cannot scrape {}: {}", url, reason);
+        }
+    }
+}
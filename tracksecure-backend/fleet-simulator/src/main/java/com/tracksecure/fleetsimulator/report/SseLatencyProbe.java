@@ -0,0 +1,142 @@
+package com.tracksecure.fleetsimulator.report;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Measures MqttRestApp end to end: a dedicated probe device publishes DHT11 readings to the
+ * broker while the probe listens on /api/sensor/stream for the same device. The temperature
+ * carries a sequence slot (10.00 + slot / 100), which maps each SSE frame back to its publish time.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SseLatencyProbe {
+    private static final int SLOTS = 1000;
+
+    @Value("${sim.broker.url}")
+    private String brokerUrl;
+    @Value("${sim.probe.device-id}")
+    private String probeDeviceId;
+    @Value("${sim.probe.rate-per-second}")
+    private double ratePerSecond;
+    @Value("${sim.probe.stream-url}")
+    private String streamUrl;
+
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLongArray sentAt = new AtomicLongArray(SLOTS);
+    private final Recorder latency = new Recorder(3);
+    private volatile boolean running;
+    private Thread publisher;
+    private CompletableFuture<HttpResponse<Stream<String>>> stream;
+    private volatile Stream<String> lines;
+
+    public void start() throws MqttException {
+        stream = HttpClient.newHttpClient().sendAsync(
+                HttpRequest.newBuilder(URI.create(streamUrl)).header("Accept", "text/event-stream").build(),
+                HttpResponse.BodyHandlers.ofLines());
+        stream.thenAccept(response -> {
+                    lines = response.body();
+                    lines.filter(line -> line.startsWith("data:"))
+                            .forEach(line -> onFrame(line.substring(5)));
+                })
+                .exceptionally(e -> {
+                    if (running) {
+                        log.warn("SSE probe stream {} failed: {}", streamUrl, e.getMessage());
+                    }
+                    return null;
+                });
+
+        MqttClient client = new MqttClient(brokerUrl, "fleet-simulator-probe", new MemoryPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setAutomaticReconnect(true);
+        client.connect(options);
+
+        running = true;
+        publisher = new Thread(() -> publishLoop(client), "fleet-probe");
+        publisher.setDaemon(true);
+        publisher.start();
+        log.info("SSE latency probe publishing as {} and listening on {}", probeDeviceId, streamUrl);
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        if (publisher != null) {
+            publisher.join();
+        }
+        if (lines != null) {
+            lines.close();
+        } else if (stream != null) {
+            stream.cancel(true);
+        }
+    }
+
+    /** Publish-to-SSE latency recorded since the previous call (nanoseconds). */
+    public Histogram takeLatency() {
+        return latency.getIntervalHistogram();
+    }
+
+    private void publishLoop(MqttClient client) {
+        String topic = "sensor/" + probeDeviceId + "/dht11";
+        long intervalMs = (long) (1000 / ratePerSecond);
+        int slot = 0;
+        try {
+            while (running) {
+                String payload = String.format(Locale.ROOT, "{\"temperature\":%.2f,\"humidity\":50.00}", 10.0 + slot / 100.0);
+                sentAt.set(slot, System.nanoTime());
+                client.publish(topic, payload.getBytes(StandardCharsets.UTF_8), 1, false);
+                slot = (slot + 1) % SLOTS;
+                Thread.sleep(intervalMs);
+            }
+            client.disconnect();
+            client.close();
+        } catch (MqttException e) {
+            log.warn("SSE probe publisher stopped: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onFrame(String data) {
+        long receivedAt = System.nanoTime();
+        try {
+            JsonNode snapshot = objectMapper.readTree(data);
+            if (!probeDeviceId.equals(snapshot.path("deviceId").asText())) {
+                return;
+            }
+            int slot = (int) Math.round((snapshot.path("dhtData").path("temperature").asDouble() - 10.0) * 100);
+            if (slot < 0 || slot >= SLOTS) {
+                return;
+            }
+            // Each publish is counted once; repeated snapshots (e.g. the initial one) are ignored
+            long sent = sentAt.getAndSet(slot, 0);
+            if (sent != 0) {
+                latency.recordValue(receivedAt - sent);
+            }
+        } catch (Exception e) {
+            log.debug("Ignoring unreadable SSE frame: {}", e.getMessage());
+        }
+    }
+}
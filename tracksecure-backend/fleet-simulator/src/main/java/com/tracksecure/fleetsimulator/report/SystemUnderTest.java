@@ -0,0 +1,121 @@
+package com.tracksecure.fleetsimulator.report;
+
+import lombok.Getter;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Prometheus view of one service under load: a counter of fully processed messages, an
+ * optional server-side latency histogram and the standard Micrometer JVM meters.
+ */
+public class SystemUnderTest {
+    private static final double MB = 1024.0 * 1024.0;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String metricsUrl;
+    private final String processedCounter;
+    private final String failedCounter;
+    private final String latencyHistogram;
+    private final LongSupplier published;
+
+    private MetricsSnapshot beforeRun = MetricsSnapshot.EMPTY;
+    private MetricsSnapshot windowStart = MetricsSnapshot.EMPTY;
+    private MetricsSnapshot windowEnd = MetricsSnapshot.EMPTY;
+    private MetricsSnapshot previous = MetricsSnapshot.EMPTY;
+    private double maxHeapUsed;
+
+    /**
+     * @param processedCounter Prometheus name of the counter incremented once per processed message
+     * @param failedCounter    Prometheus name of the counter of rejected or dropped messages
+     * @param latencyHistogram Prometheus base name of a latency histogram in seconds, or null
+     * @param published        number of messages the fleet has published for this service so far
+     */
+    public SystemUnderTest(String name, String metricsUrl, String processedCounter, String failedCounter,
+                           String latencyHistogram, LongSupplier published) {
+        this.name = name;
+        this.metricsUrl = metricsUrl;
+        this.processedCounter = processedCounter;
+        this.failedCounter = failedCounter;
+        this.latencyHistogram = latencyHistogram;
+        this.published = published;
+    }
+
+    public void beforeRun(MetricsSnapshot snapshot) {
+        beforeRun = snapshot;
+        previous = snapshot;
+    }
+
+    public void startWindow(MetricsSnapshot snapshot) {
+        windowStart = snapshot;
+        previous = snapshot;
+        maxHeapUsed = heapUsed(snapshot);
+    }
+
+    /** Records an intermediate scrape and returns a one-line progress summary. */
+    public String progress(MetricsSnapshot snapshot) {
+        if (snapshot.isEmpty()) {
+            return name + ": metrics unavailable";
+        }
+        maxHeapUsed = Math.max(maxHeapUsed, heapUsed(snapshot));
+        String line = String.format(Locale.ROOT, "%s: %.0f msg/s, heap %.0f MB",
+                name, previous.isEmpty() ? 0 : rate(previous, snapshot, processedCounter), heapUsed(snapshot) / MB);
+        previous = snapshot;
+        return line;
+    }
+
+    public void endWindow(MetricsSnapshot snapshot) {
+        windowEnd = snapshot;
+        maxHeapUsed = Math.max(maxHeapUsed, heapUsed(snapshot));
+    }
+
+    /** True once everything published for this service has been processed (or its metrics are unavailable). */
+    public boolean isDrained(MetricsSnapshot snapshot) {
+        return snapshot.isEmpty()
+                || snapshot.sum(processedCounter) - beforeRun.sum(processedCounter) >= published.getAsLong();
+    }
+
+    public String report() {
+        if (windowStart.isEmpty() || windowEnd.isEmpty()) {
+            return String.format("%s (%s)%n  metrics unavailable", name, metricsUrl);
+        }
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%s (%s)%n", name, metricsUrl));
+        out.append(String.format(Locale.ROOT, "  sustained throughput : %.1f msg/s%n",
+                rate(windowStart, windowEnd, processedCounter)));
+        out.append(String.format(Locale.ROOT, "  failed / dropped    : %.0f%n", delta(failedCounter)));
+        if (latencyHistogram != null) {
+            out.append(String.format(Locale.ROOT, "  %s p50/p99 : %.2f / %.2f ms%n", latencyHistogram,
+                    MetricsSnapshot.quantile(windowStart, windowEnd, latencyHistogram, 0.50) * 1000,
+                    MetricsSnapshot.quantile(windowStart, windowEnd, latencyHistogram, 0.99) * 1000));
+        }
+        double seconds = (windowEnd.getTakenAtNanos() - windowStart.getTakenAtNanos()) / 1e9;
+        double gcPauses = delta("jvm_gc_pause_seconds_count");
+        double gcPauseSeconds = delta("jvm_gc_pause_seconds_sum");
+        out.append(String.format(Locale.ROOT, "  heap used end / max : %.0f / %.0f MB (committed %.0f MB)%n",
+                heapUsed(windowEnd) / MB, maxHeapUsed / MB,
+                windowEnd.sum("jvm_memory_committed_bytes", "area", "heap") / MB));
+        out.append(String.format(Locale.ROOT, "  allocation rate     : %.1f MB/s%n",
+                delta("jvm_gc_memory_allocated_bytes_total") / MB / seconds));
+        out.append(String.format(Locale.ROOT, "  gc pauses           : %.0f (%.1f ms total, %.1f%% of wall time, max %.1f ms)%n",
+                gcPauses, gcPauseSeconds * 1000, gcPauseSeconds / seconds * 100,
+                windowEnd.max("jvm_gc_pause_seconds_max") * 1000));
+        out.append(String.format(Locale.ROOT, "  process cpu         : %.0f%%%n", windowEnd.max("process_cpu_usage") * 100));
+        return out.toString();
+    }
+
+    private double delta(String metric) {
+        return windowEnd.sum(metric) - windowStart.sum(metric);
+    }
+
+    private static double rate(MetricsSnapshot from, MetricsSnapshot to, String counter) {
+        double seconds = (to.getTakenAtNanos() - from.getTakenAtNanos()) / 1e9;
+        return seconds <= 0 ? 0 : (to.sum(counter) - from.sum(counter)) / seconds;
+    }
+
+    private static double heapUsed(MetricsSnapshot snapshot) {
+        return snapshot.sum("jvm_memory_used_bytes", "area", "heap");
+    }
+}
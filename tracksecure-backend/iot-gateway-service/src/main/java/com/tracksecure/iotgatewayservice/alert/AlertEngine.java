@@ -0,0 +1,188 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates readings against the rules of their device and keeps the per-rule state.
+ * <p>
+ * The table is indexed by device id. Each entry holds the device's resolved rules and, in
+ * primitive arrays, the state of each rule: whether it is firing, since when the condition holds
+ * (DURATION) and the previous reading (RATE_OF_CHANGE). Evaluating a reading is one map lookup and
+ * a pass over those arrays; it allocates only when a rule starts to fire. Times are the devices'
+ * event times in epoch seconds, so late or replayed readings are judged by when they were taken.
+ * <p>
+ * When the rule set is replaced or a device moves to another shipment, the device's entry is
+ * rebuilt on its next reading and the state of rules that are still present carries over, so a
+ * reload does not raise again what is already firing.
+ * <p>
+ * Readings of one device must not be evaluated concurrently (the ingest lanes guarantee this).
+ */
+public class AlertEngine {
+    private static final List<AlertTrigger> NONE = List.of();
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<String, DeviceRules> devices = new ConcurrentHashMap<>();
+    private final LongAdder cleared = new LongAdder();
+    private volatile AlertRuleTable table;
+
+    public AlertEngine(AlertRuleTable table) {
+        this.table = table;
+    }
+
+    public void setTable(AlertRuleTable table) {
+        this.table = table;
+    }
+
+    public AlertRuleTable getTable() {
+        return table;
+    }
+
+    /** Devices with an entry in the table. */
+    public int trackedDevices() {
+        return devices.size();
+    }
+
+    /** Firing rules that have ended, since startup. */
+    public long clearedCount() {
+        return cleared.sum();
+    }
+
+    public void forget(String deviceId) {
+        devices.remove(deviceId);
+    }
+
+    /**
+     * @param temperature NaN if the reading has none; the same for humidity
+     * @return the rules that started to fire; an immutable empty list if none did
+     */
+    public List<AlertTrigger> evaluate(String deviceId, String shipmentId, long epochSecond,
+                                       double temperature, double humidity) {
+        AlertRuleTable current = table;
+        DeviceRules device = devices.get(deviceId);
+        if (device == null || device.table != current || !Objects.equals(device.shipmentId, shipmentId)) {
+            device = new DeviceRules(current, shipmentId, current.rulesFor(deviceId, shipmentId), device);
+            devices.put(deviceId, device);
+        }
+        List<AlertTrigger> triggers = NONE;
+        AlertRule[] rules = device.rules;
+        for (int i = 0; i < rules.length; i++) {
+            AlertRule rule = rules[i];
+            double value = rule.getMetric() == AlertRule.Metric.TEMPERATURE ? temperature : humidity;
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            AlertTrigger trigger = switch (rule.getKind()) {
+                case THRESHOLD -> threshold(device, i, rule, value, value, epochSecond);
+                case DURATION -> duration(device, i, rule, value, epochSecond);
+                case RATE_OF_CHANGE -> rateOfChange(device, i, rule, value, epochSecond);
+            };
+            if (trigger != null) {
+                if (triggers == NONE) {
+                    triggers = new ArrayList<>(2);
+                }
+                triggers.add(trigger);
+            }
+        }
+        return triggers;
+    }
+
+    private AlertTrigger threshold(DeviceRules device, int i, AlertRule rule, double reading, double observed, long now) {
+        if (!device.firing[i]) {
+            if (rule.breached(observed)) {
+                device.firing[i] = true;
+                return new AlertTrigger(rule, reading, observed, now);
+            }
+        } else if (rule.cleared(observed)) {
+            device.firing[i] = false;
+            cleared.increment();
+        }
+        return null;
+    }
+
+    private AlertTrigger duration(DeviceRules device, int i, AlertRule rule, double value, long now) {
+        if (device.firing[i]) {
+            if (rule.cleared(value)) {
+                device.firing[i] = false;
+                device.since[i] = UNSET;
+                cleared.increment();
+            }
+            return null;
+        }
+        if (rule.breached(value)) {
+            if (device.since[i] == UNSET) {
+                device.since[i] = now;
+            }
+            if (now - device.since[i] >= rule.getDurationSeconds()) {
+                device.firing[i] = true;
+                return new AlertTrigger(rule, value, value, device.since[i]);
+            }
+        } else if (rule.cleared(value)) {
+            // Back inside the hysteresis band the clock keeps running; only a clear restarts it
+            device.since[i] = UNSET;
+        }
+        return null;
+    }
+
+    private AlertTrigger rateOfChange(DeviceRules device, int i, AlertRule rule, double value, long now) {
+        long previousTime = device.previousTime[i];
+        if (previousTime != UNSET && now <= previousTime) {
+            // Out of order or same second: no meaningful rate, and it must not become the reference
+            return null;
+        }
+        double previousValue = device.previousValue[i];
+        device.previousTime[i] = now;
+        device.previousValue[i] = value;
+        if (previousTime == UNSET) {
+            return null;
+        }
+        double perMinute = (value - previousValue) * 60 / (now - previousTime);
+        return threshold(device, i, rule, value, perMinute, now);
+    }
+
+    private static final class DeviceRules {
+        final AlertRuleTable table;
+        final String shipmentId;
+        final AlertRule[] rules;
+        final boolean[] firing;
+        final long[] since;
+        final long[] previousTime;
+        final double[] previousValue;
+
+        DeviceRules(AlertRuleTable table, String shipmentId, AlertRule[] rules, DeviceRules previous) {
+            this.table = table;
+            this.shipmentId = shipmentId;
+            this.rules = rules;
+            this.firing = new boolean[rules.length];
+            this.since = new long[rules.length];
+            this.previousTime = new long[rules.length];
+            this.previousValue = new double[rules.length];
+            Arrays.fill(since, UNSET);
+            Arrays.fill(previousTime, UNSET);
+            if (previous != null) {
+                for (int i = 0; i < rules.length; i++) {
+                    int j = previous.indexOf(rules[i].getId());
+                    if (j >= 0) {
+                        firing[i] = previous.firing[j];
+                        since[i] = previous.since[j];
+                        previousTime[i] = previous.previousTime[j];
+                        previousValue[i] = previous.previousValue[j];
+                    }
+                }
+            }
+        }
+
+        int indexOf(String ruleId) {
+            for (int i = 0; i < rules.length; i++) {
+                if (rules[i].getId().equals(ruleId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
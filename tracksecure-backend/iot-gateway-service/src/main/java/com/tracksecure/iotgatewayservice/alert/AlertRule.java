@@ -0,0 +1,116 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+import com.tracksecure.common.constants.EventTypes;
+import lombok.Getter;
+
+import java.util.function.DoublePredicate;
+
+/**
+ * A compiled alert rule. The limit, direction and hysteresis are folded into two predicates when
+ * the rule is built, so evaluating a reading is two primitive comparisons without boxing:
+ * {@code breached} starts an alert, {@code cleared} ends it, and between the two (the hysteresis
+ * band) the rule keeps its state. A reading hovering at the limit therefore raises one alert, not
+ * one per crossing.
+ * <ul>
+ *     <li>THRESHOLD - the reading is past the limit</li>
+ *     <li>DURATION - the reading has been past the limit, without clearing, for durationSeconds</li>
+ *     <li>RATE_OF_CHANGE - the change since the previous reading, per minute, is past the limit
+ *     (ABOVE 2 = rising faster than 2 per minute, BELOW -2 = falling faster)</li>
+ * </ul>
+ * Scope: a rule with a deviceId applies to that device, one with a shipmentId to the devices of
+ * that shipment, one with neither to every device.
+ */
+@Getter
+public final class AlertRule {
+    public enum Metric {
+        TEMPERATURE(EventTypes.TEMPERATURE_ALERT),
+        HUMIDITY(EventTypes.HUMIDITY_ALERT);
+
+        private final String alertType;
+
+        Metric(String alertType) {
+            this.alertType = alertType;
+        }
+
+        /** The {@link EventTypes} value used as AlertDTO.alertType. */
+        public String getAlertType() {
+            return alertType;
+        }
+    }
+
+    public enum Kind {
+        THRESHOLD,
+        DURATION,
+        RATE_OF_CHANGE
+    }
+
+    public enum Direction {
+        ABOVE,
+        BELOW
+    }
+
+    private final String id;
+    private final String name;
+    private final String deviceId;
+    private final String shipmentId;
+    private final Metric metric;
+    private final Kind kind;
+    private final Direction direction;
+    private final double limit;
+    private final double hysteresis;
+    private final long durationSeconds;
+    private final AlertSeverity severity;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final DoublePredicate breached;
+    @Getter(lombok.AccessLevel.NONE)
+    private final DoublePredicate cleared;
+
+    public AlertRule(String id, String name, String deviceId, String shipmentId, Metric metric, Kind kind,
+                     Direction direction, double limit, double hysteresis, long durationSeconds, AlertSeverity severity) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Alert rule id is required");
+        }
+        if (deviceId != null && shipmentId != null) {
+            throw new IllegalArgumentException("An alert rule is scoped to a device or to a shipment, not both");
+        }
+        if (metric == null || kind == null || direction == null || severity == null) {
+            throw new IllegalArgumentException("Alert rule metric, kind, direction and severity are required");
+        }
+        if (!Double.isFinite(limit) || !(Double.isFinite(hysteresis) && hysteresis >= 0)) {
+            throw new IllegalArgumentException("Alert rule limit must be finite and hysteresis a finite value >= 0");
+        }
+        if (kind == Kind.DURATION && durationSeconds <= 0) {
+            throw new IllegalArgumentException("A DURATION rule needs a positive durationSeconds");
+        }
+        this.id = id;
+        this.name = name;
+        this.deviceId = deviceId;
+        this.shipmentId = shipmentId;
+        this.metric = metric;
+        this.kind = kind;
+        this.direction = direction;
+        this.limit = limit;
+        this.hysteresis = hysteresis;
+        this.durationSeconds = durationSeconds;
+        this.severity = severity;
+
+        if (direction == Direction.ABOVE) {
+            double clearBelow = limit - hysteresis;
+            this.breached = value -> value > limit;
+            this.cleared = value -> value <= clearBelow;
+        } else {
+            double clearAbove = limit + hysteresis;
+            this.breached = value -> value < limit;
+            this.cleared = value -> value >= clearAbove;
+        }
+    }
+
+    public boolean breached(double value) {
+        return breached.test(value);
+    }
+
+    public boolean cleared(double value) {
+        return cleared.test(value);
+    }
+}
@@ -0,0 +1,68 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup of the rules that apply to a device: its own, its shipment's and the global
+ * ones. Built once per rule set; {@link AlertEngine} resolves a device against it only when the
+ * device is first seen, changes shipment or the rule set is replaced.
+ */
+public final class AlertRuleTable {
+    private static final AlertRule[] NONE = new AlertRule[0];
+
+    private final AlertRule[] global;
+    private final Map<String, AlertRule[]> byShipment;
+    private final Map<String, AlertRule[]> byDevice;
+    private final int size;
+
+    public static AlertRuleTable empty() {
+        return new AlertRuleTable(List.of());
+    }
+
+    public AlertRuleTable(Collection<AlertRule> rules) {
+        List<AlertRule> globalRules = new ArrayList<>();
+        Map<String, List<AlertRule>> shipments = new HashMap<>();
+        Map<String, List<AlertRule>> devices = new HashMap<>();
+        for (AlertRule rule : rules) {
+            if (rule.getDeviceId() != null) {
+                devices.computeIfAbsent(rule.getDeviceId(), k -> new ArrayList<>(2)).add(rule);
+            } else if (rule.getShipmentId() != null) {
+                shipments.computeIfAbsent(rule.getShipmentId(), k -> new ArrayList<>(2)).add(rule);
+            } else {
+                globalRules.add(rule);
+            }
+        }
+        this.global = globalRules.toArray(NONE);
+        this.byShipment = toArrays(shipments);
+        this.byDevice = toArrays(devices);
+        this.size = rules.size();
+    }
+
+    /** Device rules first, then shipment rules, then global rules. */
+    public AlertRule[] rulesFor(String deviceId, String shipmentId) {
+        AlertRule[] device = deviceId == null ? NONE : byDevice.getOrDefault(deviceId, NONE);
+        AlertRule[] shipment = shipmentId == null ? NONE : byShipment.getOrDefault(shipmentId, NONE);
+        if (device.length == 0 && shipment.length == 0) {
+            return global;
+        }
+        AlertRule[] rules = new AlertRule[device.length + shipment.length + global.length];
+        System.arraycopy(device, 0, rules, 0, device.length);
+        System.arraycopy(shipment, 0, rules, device.length, shipment.length);
+        System.arraycopy(global, 0, rules, device.length + shipment.length, global.length);
+        return rules;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Map<String, AlertRule[]> toArrays(Map<String, List<AlertRule>> lists) {
+        Map<String, AlertRule[]> arrays = new HashMap<>(lists.size() * 2);
+        lists.forEach((key, list) -> arrays.put(key, list.toArray(NONE)));
+        return arrays;
+    }
+}
@@ -0,0 +1,9 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+/** Severity of an alert, lowest first; published as the name in AlertDTO.severity. */
+public enum AlertSeverity {
+    LOW,
+    MEDIUM,
+    HIGH,
+    CRITICAL
+}
@@ -0,0 +1,219 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.tracksecure.common.dto.AlertDTO;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Collapses alert storms. Alerts are keyed by (deviceId, alertType, severity); the first one of a
+ * key opens an alert and is published, repeats within {@code window} of the previous one are
+ * folded into it (count, first and last timestamp) and not published. Every {@code escalateAfter}
+ * occurrences the open alert goes up one severity and is published again under the same id.
+ * <p>
+ * An open alert closes when:
+ * <ul>
+ *     <li>no repeat arrives for {@code window} - if repeats were folded in since it was last
+ *     published, it is published once more with the final count</li>
+ *     <li>more than {@code maxOpen} alerts are open - one picked by the cache's size policy is
+ *     closed the same way</li>
+ *     <li>it is acknowledged - it is published with ack, ackTimestamp and ackedBy set</li>
+ * </ul>
+ * The next alert of a closed key opens a new one. Closing publishes go to the {@code sink} given at
+ * construction, from Caffeine's maintenance threads for expiry and eviction.
+ */
+public class AlertSuppressor {
+    public enum Outcome {
+        OPENED,
+        SUPPRESSED,
+        ESCALATED
+    }
+
+    public enum CloseReason {
+        EXPIRED,
+        EVICTED,
+        ACKNOWLEDGED
+    }
+
+    /** What {@link #offer} decided, and the alert to publish now (null when suppressed). */
+    public record Decision(Outcome outcome, AlertDTO publish) {
+    }
+
+    /** Receives closed alerts; {@code summary} is null when nothing new happened since the last publish. */
+    @FunctionalInterface
+    public interface CloseListener {
+        void onClose(CloseReason reason, AlertDTO summary);
+    }
+
+    private static final class OpenAlert {
+        final AlertDTO first;
+        AlertSeverity severity;
+        String message;
+        LocalDateTime lastTimestamp;
+        int count;
+        int publishedCount;
+
+        OpenAlert(AlertDTO first, AlertSeverity severity) {
+            this.first = first;
+            this.severity = severity;
+            this.message = first.getMessage();
+            this.lastTimestamp = first.getAlertTimestamp();
+            this.count = 1;
+        }
+
+        AlertDTO snapshot() {
+            return AlertDTO.builder()
+                    .alertId(first.getAlertId())
+                    .shipmentId(first.getShipmentId())
+                    .deviceId(first.getDeviceId())
+                    .alertType(first.getAlertType())
+                    .severity(severity.name())
+                    .alertTimestamp(first.getAlertTimestamp())
+                    .message(message)
+                    .count(count)
+                    .firstTimestamp(first.getAlertTimestamp())
+                    .lastTimestamp(lastTimestamp)
+                    .build();
+        }
+
+        /** The snapshot that is about to be published; later repeats are new again. */
+        AlertDTO published() {
+            publishedCount = count;
+            return snapshot();
+        }
+    }
+
+    private final Cache<String, OpenAlert> open;
+    // alertId -> key of the open alert, for acknowledgements
+    private final Map<String, String> keysByAlertId = new ConcurrentHashMap<>();
+    private final int escalateAfter;
+
+    /**
+     * @param escalateAfter occurrences per severity step; 0 never escalates
+     * @param closed        receives the final state of alerts closed by expiry or eviction, with the reason
+     */
+    public AlertSuppressor(Duration window, long maxOpen, int escalateAfter, CloseListener closed) {
+        // Expire on time rather than on the next access, so the closing summary is not delayed
+        this(window, maxOpen, escalateAfter, closed, Ticker.systemTicker(), Scheduler.systemScheduler(),
+                ForkJoinPool.commonPool());
+    }
+
+    /** With the clock, expiry scheduler and listener executor given, so tests control expiry. */
+    AlertSuppressor(Duration window, long maxOpen, int escalateAfter, CloseListener closed,
+                    Ticker ticker, Scheduler scheduler, Executor executor) {
+        this.escalateAfter = escalateAfter;
+        this.open = Caffeine.newBuilder()
+                .maximumSize(maxOpen)
+                .expireAfterWrite(window)
+                .ticker(ticker)
+                .scheduler(scheduler)
+                .executor(executor)
+                .removalListener((String key, OpenAlert alert, RemovalCause cause) -> {
+                    if (alert == null) {
+                        return;
+                    }
+                    keysByAlertId.remove(alert.first.getAlertId(), key);
+                    if (cause == RemovalCause.EXPIRED || cause == RemovalCause.SIZE) {
+                        AlertDTO summary;
+                        synchronized (alert) {
+                            summary = alert.count > alert.publishedCount ? alert.published() : null;
+                        }
+                        closed.onClose(cause == RemovalCause.EXPIRED ? CloseReason.EXPIRED : CloseReason.EVICTED, summary);
+                    }
+                })
+                .build();
+    }
+
+    public Decision offer(AlertDTO alert) {
+        String key = alert.getDeviceId() + '|' + alert.getAlertType() + '|' + alert.getSeverity();
+        Decision[] decision = new Decision[1];
+        open.asMap().compute(key, (k, current) -> {
+            if (current == null) {
+                OpenAlert opened = new OpenAlert(alert, AlertSeverity.valueOf(alert.getSeverity()));
+                keysByAlertId.put(alert.getAlertId(), k);
+                decision[0] = new Decision(Outcome.OPENED, opened.published());
+                return opened;
+            }
+            synchronized (current) {
+                current.count++;
+                current.message = alert.getMessage();
+                if (alert.getAlertTimestamp() != null
+                        && (current.lastTimestamp == null || alert.getAlertTimestamp().isAfter(current.lastTimestamp))) {
+                    current.lastTimestamp = alert.getAlertTimestamp();
+                }
+                if (escalateAfter > 0 && current.count % escalateAfter == 0
+                        && current.severity.ordinal() < AlertSeverity.CRITICAL.ordinal()) {
+                    current.severity = AlertSeverity.values()[current.severity.ordinal() + 1];
+                    decision[0] = new Decision(Outcome.ESCALATED, current.published());
+                } else {
+                    decision[0] = new Decision(Outcome.SUPPRESSED, null);
+                }
+            }
+            return current;
+        });
+        return decision[0];
+    }
+
+    /**
+     * Closes the open alert with this id.
+     *
+     * @return its final state with the acknowledgement, or empty if no such alert is open
+     */
+    public Optional<AlertDTO> acknowledge(String alertId, String ackedBy, LocalDateTime ackTimestamp) {
+        String key = keysByAlertId.get(alertId);
+        if (key == null) {
+            return Optional.empty();
+        }
+        AlertDTO[] closed = new AlertDTO[1];
+        // Only if the key still holds this alert: it may have closed and reopened under a new id
+        open.asMap().computeIfPresent(key, (k, current) -> {
+            if (!current.first.getAlertId().equals(alertId)) {
+                return current;
+            }
+            synchronized (current) {
+                closed[0] = current.published();
+            }
+            return null;
+        });
+        AlertDTO alert = closed[0];
+        if (alert == null) {
+            return Optional.empty();
+        }
+        alert.setAck(true);
+        alert.setAckTimestamp(ackTimestamp);
+        alert.setAckedBy(ackedBy);
+        return Optional.of(alert);
+    }
+
+    /** Current state of every open alert. */
+    public List<AlertDTO> openAlerts() {
+        List<AlertDTO> alerts = new ArrayList<>();
+        for (OpenAlert alert : open.asMap().values()) {
+            synchronized (alert) {
+                alerts.add(alert.snapshot());
+            }
+        }
+        return alerts;
+    }
+
+    public long openCount() {
+        return open.estimatedSize();
+    }
+
+    /** Closes what has expired or overflowed now, rather than on the cache's next maintenance. */
+    void cleanUp() {
+        open.cleanUp();
+    }
+}
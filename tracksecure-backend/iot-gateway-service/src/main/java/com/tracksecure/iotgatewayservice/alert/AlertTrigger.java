@@ -0,0 +1,11 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+/**
+ * A rule that started to fire.
+ *
+ * @param reading  the metric value of the reading that fired it
+ * @param observed what the rule compared with its limit: the reading, or the rate per minute
+ * @param since    epoch second at which the condition began (the reading's own time except for DURATION)
+ */
+public record AlertTrigger(AlertRule rule, double reading, double observed, long since) {
+}
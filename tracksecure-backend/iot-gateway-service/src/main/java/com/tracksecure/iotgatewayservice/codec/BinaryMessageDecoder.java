@@ -0,0 +1,79 @@
+package com.tracksecure.iotgatewayservice.codec;
+
+import com.tracksecure.common.codec.TelemetryWireFormat;
+import com.tracksecure.common.codec.WireReader;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Decodes the binary {@link TelemetryWireFormat} straight into the pipeline's DeviceMessage and
+ * TelemetryFrame: one pass over the bytes, with no token stream and no intermediate tree. Malformed
+ * input raises InvalidPayloadException.
+ */
+@Component
+public class BinaryMessageDecoder {
+    // Powers of ten up to 10^22 are exact doubles, so unscaled / unit is the correctly rounded value
+    private static final double COORDINATE_UNIT = Math.pow(10, TelemetryWireFormat.COORDINATE_SCALE);
+    private static final double SENSOR_UNIT = Math.pow(10, TelemetryWireFormat.SENSOR_SCALE);
+
+    /**
+     * The ciphertext is not copied: the message references it inside {@code payload}, which must
+     * therefore not be reused until the message is processed.
+     */
+    public DeviceMessage decodeEnvelope(byte[] payload){
+        WireReader reader = new WireReader(payload, 0, payload.length);
+        reader.expectHeader("envelope");
+        int flags = reader.u8();
+        DeviceMessage message = new DeviceMessage();
+        message.setReceivedTimestamp(reader.i64());
+        message.setMessageId(reader.str8());
+        message.setDeviceId(reader.str8());
+        if ((flags & TelemetryWireFormat.ENVELOPE_FIRMWARE) != 0) {
+            message.setFirmwareVersion(reader.str8());
+        }
+        if ((flags & TelemetryWireFormat.ENVELOPE_TRANSMISSION) != 0) {
+            message.setTransmissionMethod(reader.str8());
+        }
+        int signatureOffset = reader.bin8();
+        int signatureLength = reader.lastLength();
+        // Same representation as the JSON envelope, for whoever verifies it downstream
+        message.setSignature(Base64.getEncoder().encodeToString(
+                Arrays.copyOfRange(payload, signatureOffset, signatureOffset + signatureLength)));
+        message.setCiphertextOffset(reader.bin16());
+        message.setCiphertextLength(reader.lastLength());
+        message.setCiphertextBuffer(payload);
+        reader.expectEnd("envelope");
+        return message;
+    }
+
+    public TelemetryFrame decodeTelemetry(byte[] buf, int offset, int length){
+        WireReader reader = new WireReader(buf, offset, length);
+        reader.expectHeader("telemetry");
+        int fields = reader.u8();
+        TelemetryFrame frame = new TelemetryFrame();
+        frame.setEventTimestamp(reader.i64());
+        frame.setEventId(reader.str8());
+        frame.setDeviceId(reader.str8());
+        frame.setShipmentId(reader.str8());
+        frame.setEventType(reader.str8());
+        if ((fields & TelemetryWireFormat.TELEMETRY_POSITION) != 0) {
+            frame.setLatitude(reader.i32() / COORDINATE_UNIT);
+            frame.setLongitude(reader.i32() / COORDINATE_UNIT);
+        }
+        if ((fields & TelemetryWireFormat.TELEMETRY_TEMPERATURE) != 0) {
+            frame.setTemperature(reader.i16() / SENSOR_UNIT);
+        }
+        if ((fields & TelemetryWireFormat.TELEMETRY_HUMIDITY) != 0) {
+            frame.setHumidity(reader.u16() / SENSOR_UNIT);
+        }
+        if ((fields & TelemetryWireFormat.TELEMETRY_DESCRIPTION) != 0) {
+            frame.setDescription(reader.str8());
+        }
+        reader.expectEnd("telemetry");
+        return frame;
+    }
+}
@@ -0,0 +1,169 @@
+package com.tracksecure.iotgatewayservice.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Reads the JSON telemetry of older firmware into a {@link TelemetryFrame} with Jackson's
+ * streaming parser: numbers go straight to doubles, with no BigDecimal and no databind, and plain
+ * decimals are converted from the parser's characters without building a String first.
+ * Accepts what databind accepts for TelemetryPayload: unknown fields are skipped, null leaves a
+ * field absent (also when an earlier duplicate of the key set it, as databind's last value wins),
+ * and numbers and text may be given as each other's JSON type.
+ */
+@Component
+public class JsonTelemetryDecoder {
+    // Exact powers of ten: a mantissa below 2^53 divided by one of these is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final JsonFactory jsonFactory;
+
+    public JsonTelemetryDecoder(ObjectMapper objectMapper){
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public TelemetryFrame decode(byte[] buf, int offset, int length) throws IOException {
+        TelemetryFrame frame = new TelemetryFrame();
+        try (JsonParser parser = jsonFactory.createParser(buf, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidPayloadException("Telemetry is not a JSON object");
+            }
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "eventId" -> frame.setEventId(text(parser, token, field));
+                    case "deviceId" -> frame.setDeviceId(text(parser, token, field));
+                    case "shipmentId" -> frame.setShipmentId(text(parser, token, field));
+                    case "eventType" -> frame.setEventType(text(parser, token, field));
+                    case "description" -> frame.setDescription(text(parser, token, field));
+                    case "eventTimestamp" -> {
+                        if (isNumber(parser, token, field)) {
+                            frame.setEventTimestamp(parser.getValueAsLong());
+                        } else {
+                            frame.clear(TelemetryFrame.EVENT_TIMESTAMP);
+                        }
+                    }
+                    case "latitude" -> {
+                        if (isNumber(parser, token, field)) {
+                            frame.setLatitude(doubleValue(parser, token));
+                        } else {
+                            frame.clear(TelemetryFrame.LATITUDE);
+                        }
+                    }
+                    case "longitude" -> {
+                        if (isNumber(parser, token, field)) {
+                            frame.setLongitude(doubleValue(parser, token));
+                        } else {
+                            frame.clear(TelemetryFrame.LONGITUDE);
+                        }
+                    }
+                    case "temperature" -> {
+                        if (isNumber(parser, token, field)) {
+                            frame.setTemperature(doubleValue(parser, token));
+                        } else {
+                            frame.clear(TelemetryFrame.TEMPERATURE);
+                        }
+                    }
+                    case "humidity" -> {
+                        if (isNumber(parser, token, field)) {
+                            frame.setHumidity(doubleValue(parser, token));
+                        } else {
+                            frame.clear(TelemetryFrame.HUMIDITY);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return frame;
+    }
+
+    private static String text(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new InvalidPayloadException("Telemetry field " + field + " must be a scalar");
+        }
+        return parser.getText();
+    }
+
+    private static double doubleValue(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            double value = parsePlainDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return parser.getValueAsDouble();
+    }
+
+    /**
+     * Parses {@code [-]digits[.digits]} with at most 15 digits, the shape sensors send. The result
+     * is the same double Double.parseDouble returns.
+     *
+     * @return NaN for anything else (exponent, more digits), which the caller hands to Jackson
+     */
+    static double parsePlainDecimal(char[] chars, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_EXACT_DIGITS) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /** @return false for null, which leaves the field absent */
+    private static boolean isNumber(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (token.isNumeric()) {
+            return true;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                Double.parseDouble(parser.getText().trim());
+                return true;
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new InvalidPayloadException("Telemetry field " + field + " must be a number");
+    }
+}
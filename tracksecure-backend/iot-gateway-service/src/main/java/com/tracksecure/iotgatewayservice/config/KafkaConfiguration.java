@@ -0,0 +1,51 @@
+package com.tracksecure.iotgatewayservice.config;
+
+import com.tracksecure.common.constants.KafkaTopics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+@ConditionalOnProperty(name = "gateway.kafka.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaConfiguration {
+    @Value("${gateway.kafka.tracking-events.partitions:12}")
+    private int partitions;
+    @Value("${gateway.kafka.tracking-events.replicas:1}")
+    private short replicas;
+    @Value("${gateway.kafka.alerts.partitions:3}")
+    private int alertPartitions;
+    @Value("${gateway.kafka.device-status.partitions:3}")
+    private int deviceStatusPartitions;
+
+    // Created by Spring's KafkaAdmin at startup if missing; events are keyed by device id, so the
+    // partition count caps consumer parallelism while keeping every device in order
+    @Bean
+    public NewTopic trackingEventsTopic(){
+        return TopicBuilder.name(KafkaTopics.TRACKING_EVENTS)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    // Alerts are keyed by device id as well
+    @Bean
+    public NewTopic alertsTopic(){
+        return TopicBuilder.name(KafkaTopics.ALERTS)
+                .partitions(alertPartitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    // Compacted: one record per device survives, its latest status
+    @Bean
+    public NewTopic deviceStatusTopic(){
+        return TopicBuilder.name(KafkaTopics.DEVICE_STATUS)
+                .partitions(deviceStatusPartitions)
+                .replicas(replicas)
+                .compact()
+                .build();
+    }
+}
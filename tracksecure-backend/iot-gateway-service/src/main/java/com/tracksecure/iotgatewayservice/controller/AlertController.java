@@ -0,0 +1,38 @@
+package com.tracksecure.iotgatewayservice.controller;
+
+import com.tracksecure.common.dto.AlertDTO;
+import com.tracksecure.iotgatewayservice.service.AlertSuppressionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/alerts")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class AlertController {
+    private final AlertSuppressionService alertSuppressionService;
+
+    // Open alerts of this instance: each device's alerts are raised by the instance that ingests it
+
+    @GetMapping("/open")
+    public List<AlertDTO> getOpen() {
+        return alertSuppressionService.openAlerts();
+    }
+
+    @PostMapping("/{alertId}/ack")
+    public ResponseEntity<AlertDTO> acknowledge(@PathVariable String alertId,
+                                                @RequestParam(required = false) String ackedBy) {
+        return alertSuppressionService.acknowledge(alertId, ackedBy)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,47 @@
+package com.tracksecure.iotgatewayservice.controller;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.AlertRuleDefinition;
+import com.tracksecure.iotgatewayservice.service.AlertRuleService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/alert-rules")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class AlertRuleController {
+    private final AlertRuleService alertRuleService;
+
+    // Changes take effect on this instance at once, on the others at their next refresh
+
+    @GetMapping
+    public List<AlertRuleDefinition> getAll() {
+        return alertRuleService.findAll();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> save(@Valid @RequestBody AlertRuleDefinition definition) {
+        try {
+            return ResponseEntity.ok(alertRuleService.save(definition));
+        } catch (InvalidPayloadException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) {
+        return alertRuleService.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,49 @@
+package com.tracksecure.iotgatewayservice.controller;
+
+import com.tracksecure.common.dto.DeviceDTO;
+import com.tracksecure.iotgatewayservice.liveness.DeviceLiveness;
+import com.tracksecure.iotgatewayservice.service.DeviceLivenessService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/devices")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DeviceStatusController {
+    private final DeviceLivenessService deviceLivenessService;
+
+    // Devices this instance ingests; the device-status topic has the status of the whole fleet
+
+    @GetMapping("/status")
+    public ResponseEntity<List<DeviceDTO>> getStatuses(@RequestParam(required = false) String state,
+                                                       @RequestParam(defaultValue = "1000") int limit) {
+        DeviceLiveness.State filter = null;
+        if (state != null) {
+            try {
+                filter = DeviceLiveness.State.valueOf(state.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(deviceLivenessService.statuses(filter, limit));
+    }
+
+    @GetMapping("/{deviceId}/status")
+    public ResponseEntity<DeviceDTO> getStatus(@PathVariable String deviceId) {
+        return deviceLivenessService.status(deviceId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,47 @@
+package com.tracksecure.iotgatewayservice.controller;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.GeofenceDefinition;
+import com.tracksecure.iotgatewayservice.service.GeofenceService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/geofences")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class GeofenceController {
+    private final GeofenceService geofenceService;
+
+    // Changes take effect on this instance at once, on the others at their next refresh
+
+    @GetMapping
+    public List<GeofenceDefinition> getAll() {
+        return geofenceService.findAll();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> save(@Valid @RequestBody GeofenceDefinition definition) {
+        try {
+            return ResponseEntity.ok(geofenceService.save(definition));
+        } catch (InvalidPayloadException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) {
+        return geofenceService.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -1,27 +1,43 @@
 package com.tracksecure.iotgatewayservice.controller;
 
 import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
-import com.tracksecure.iotgatewayservice.repository.SensorDataRepository;
+import com.tracksecure.iotgatewayservice.service.LatestStateService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/sensor")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
 public class SensorDataController {
-    private final SensorDataRepository repository;
+    private final LatestStateService latestStateService;
+
+    // Served from the latest_state collection, which ingest keeps current; none of these scan sensor_data
 
     @GetMapping("/latest-from-db")
     public ResponseEntity<EnrichedEvent> getLatest() {
-        return repository.findAll(Sort.by(Sort.Direction.DESC, "eventTimestamp"))
-                .stream().findFirst()
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        return toResponse(latestStateService.latest());
+    }
+
+    @GetMapping("/latest/{deviceId}")
+    public ResponseEntity<EnrichedEvent> getLatestOfDevice(@PathVariable String deviceId) {
+        return toResponse(latestStateService.latestOfDevice(deviceId));
+    }
+
+    @GetMapping("/latest")
+    public ResponseEntity<EnrichedEvent> getLatestOfShipment(@RequestParam String shipmentId) {
+        return toResponse(latestStateService.latestOfShipment(shipmentId));
+    }
+
+    private static ResponseEntity<EnrichedEvent> toResponse(Optional<EnrichedEvent> event) {
+        return event.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 }
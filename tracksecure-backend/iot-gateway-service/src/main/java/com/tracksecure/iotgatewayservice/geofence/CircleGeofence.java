@@ -0,0 +1,47 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import com.tracksecure.common.util.GeoLocationUtil;
+import lombok.Getter;
+
+/** Points within {@code radiusMeters} great-circle distance of the center. */
+@Getter
+public final class CircleGeofence extends Geofence {
+    // GeoLocationUtil's mean Earth radius, in meters per degree of latitude
+    private static final double METERS_PER_DEGREE = 6_371_000.0 * Math.PI / 180;
+
+    private final double centerLatitude;
+    private final double centerLongitude;
+    private final double radiusMeters;
+    private final double radiusKm;
+
+    public CircleGeofence(String id, String name, String shipmentId,
+                          double centerLatitude, double centerLongitude, double radiusMeters) {
+        super(id, name, shipmentId,
+                centerLatitude - radiusMeters / METERS_PER_DEGREE,
+                centerLatitude + radiusMeters / METERS_PER_DEGREE,
+                centerLongitude - longitudeExtent(centerLatitude, radiusMeters),
+                centerLongitude + longitudeExtent(centerLatitude, radiusMeters));
+        if (!(radiusMeters > 0)) {
+            throw new IllegalArgumentException("Geofence radius must be positive");
+        }
+        this.centerLatitude = centerLatitude;
+        this.centerLongitude = centerLongitude;
+        this.radiusMeters = radiusMeters;
+        this.radiusKm = radiusMeters / 1000;
+    }
+
+    @Override
+    protected boolean containsInBounds(double latitude, double longitude) {
+        return GeoLocationUtil.calculateDistance(centerLongitude, centerLatitude, longitude, latitude) <= radiusKm;
+    }
+
+    /** Widest longitude offset of a spherical cap; the whole circle of longitudes if it reaches a pole. */
+    private static double longitudeExtent(double latitude, double radiusMeters) {
+        double angular = radiusMeters / 6_371_000.0;
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        if (Math.abs(latitude) + Math.toDegrees(angular) >= 90 || Math.sin(angular) >= cosLatitude) {
+            return 180;
+        }
+        return Math.toDegrees(Math.asin(Math.sin(angular) / cosLatitude));
+    }
+}
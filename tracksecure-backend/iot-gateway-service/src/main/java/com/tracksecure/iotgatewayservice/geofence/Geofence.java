@@ -0,0 +1,49 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import lombok.Getter;
+
+/**
+ * A fence that location updates are tested against. The bounding box is what the
+ * {@link GeofenceIndex} files the fence under; {@link #contains} is only called for points
+ * inside it. Coordinates are degrees. Fences that cross the antimeridian are not supported.
+ */
+@Getter
+public abstract class Geofence {
+    private final String id;
+    private final String name;
+    /** Null for a fence that applies to every shipment. */
+    private final String shipmentId;
+
+    protected final double minLatitude;
+    protected final double maxLatitude;
+    protected final double minLongitude;
+    protected final double maxLongitude;
+
+    protected Geofence(String id, String name, String shipmentId,
+                       double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Geofence id is required");
+        }
+        this.id = id;
+        this.name = name;
+        this.shipmentId = shipmentId;
+        this.minLatitude = minLatitude;
+        this.maxLatitude = maxLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLongitude = maxLongitude;
+    }
+
+    /** True if the fence watches devices of this shipment. */
+    public boolean appliesTo(String eventShipmentId) {
+        return shipmentId == null || shipmentId.equals(eventShipmentId);
+    }
+
+    /** Exact test, with the bounding box checked first. */
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude
+                && longitude >= minLongitude && longitude <= maxLongitude
+                && containsInBounds(latitude, longitude);
+    }
+
+    protected abstract boolean containsInBounds(double latitude, double longitude);
+}
@@ -0,0 +1,109 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns location updates into fence entries and exits.
+ * <p>
+ * For each device it remembers the ids of the fences the device was last inside. An update tests
+ * only the fences listed under its grid cell (plus the few large ones), which gives the complete
+ * set of fences containing the point, and compares it with the remembered set: new ids are
+ * entries, missing ids are exits. A fence removed from the index is forgotten without an exit.
+ * <p>
+ * Updates of one device must not run concurrently (the ingest lanes guarantee this); different
+ * devices may. Devices outside every fence hold no state. The state is in memory only, so after a
+ * restart devices already inside a fence report it again as an entry.
+ */
+public class GeofenceEvaluator {
+    private static final String[] OUTSIDE = new String[0];
+
+    private final ConcurrentHashMap<String, String[]> insideByDevice = new ConcurrentHashMap<>();
+    private volatile GeofenceIndex index;
+
+    public GeofenceEvaluator(GeofenceIndex index) {
+        this.index = index;
+    }
+
+    /** Swaps in a new fence set; the next update of each device is evaluated against it. */
+    public void setIndex(GeofenceIndex index) {
+        this.index = index;
+    }
+
+    public GeofenceIndex getIndex() {
+        return index;
+    }
+
+    /** Devices currently inside at least one fence. */
+    public int trackedDevices() {
+        return insideByDevice.size();
+    }
+
+    /**
+     * @return the transitions this update causes, exits first; an immutable empty list if none
+     */
+    public List<GeofenceTransition> evaluate(String deviceId, String shipmentId, double latitude, double longitude) {
+        GeofenceIndex current = index;
+        String[] previous = insideByDevice.getOrDefault(deviceId, OUTSIDE);
+        String[] inside = OUTSIDE;
+        int count = 0;
+        Geofence[] cell = current.candidates(latitude, longitude);
+        Geofence[] large = current.large();
+        for (int i = 0, total = cell.length + large.length; i < total; i++) {
+            Geofence fence = i < cell.length ? cell[i] : large[i - cell.length];
+            if (fence.appliesTo(shipmentId) && fence.contains(latitude, longitude)) {
+                if (count == inside.length) {
+                    inside = Arrays.copyOf(inside, Math.max(4, count * 2));
+                }
+                inside[count++] = fence.getId();
+            }
+        }
+        if (count == previous.length && containsAll(inside, count, previous)) {
+            return List.of();
+        }
+
+        List<GeofenceTransition> transitions = new ArrayList<>(2);
+        for (String id : previous) {
+            Geofence fence;
+            if (!contains(inside, count, id) && (fence = current.get(id)) != null) {
+                transitions.add(new GeofenceTransition(GeofenceTransition.Type.EXIT, fence));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (!contains(previous, previous.length, inside[i])) {
+                transitions.add(new GeofenceTransition(GeofenceTransition.Type.ENTRY, current.get(inside[i])));
+            }
+        }
+        if (count == 0) {
+            insideByDevice.remove(deviceId);
+        } else {
+            insideByDevice.put(deviceId, count == inside.length ? inside : Arrays.copyOf(inside, count));
+        }
+        return transitions;
+    }
+
+    /** Drops the remembered state of a device; its next update reports the fences it is in as entries. */
+    public void forget(String deviceId) {
+        insideByDevice.remove(deviceId);
+    }
+
+    private static boolean containsAll(String[] ids, int count, String[] expected) {
+        for (String id : expected) {
+            if (!contains(ids, count, id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(String[] ids, int count, String id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i].equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
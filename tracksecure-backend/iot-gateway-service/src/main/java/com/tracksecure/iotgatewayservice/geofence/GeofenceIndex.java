@@ -0,0 +1,122 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable grid index over a set of fences. The plane is cut into square cells of
+ * {@code cellDegrees}; every fence is listed under each cell its bounding box overlaps, so the
+ * fences that can contain a point are exactly those listed under the point's cell. A lookup is
+ * one hash probe and returns a shared array, without allocating.
+ * <p>
+ * Fences whose box spans more than {@code maxCellsPerFence} cells (a country, a polar circle) are
+ * not spread over the grid but kept in one list that every lookup also tests; there should be few.
+ * A grid was chosen over an R-tree because fences are small compared to the cells and the index is
+ * rebuilt rather than updated: a query costs the same however many fences there are.
+ */
+public final class GeofenceIndex {
+    private static final Geofence[] NONE = new Geofence[0];
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final double cellsPerDegree;
+    private final Map<String, Geofence> byId;
+    private final Geofence[] large;
+
+    // Open addressing, linear probing: cell key -> fences of that cell
+    private final long[] keys;
+    private final Geofence[][] cells;
+    private final int mask;
+
+    public static GeofenceIndex empty() {
+        return new GeofenceIndex(List.of(), 1, 1);
+    }
+
+    public GeofenceIndex(Collection<? extends Geofence> fences, double cellDegrees, int maxCellsPerFence) {
+        if (!(cellDegrees > 0)) {
+            throw new IllegalArgumentException("Geofence cell size must be positive");
+        }
+        this.cellsPerDegree = 1 / cellDegrees;
+        this.byId = new HashMap<>(fences.size() * 2);
+
+        Map<Long, List<Geofence>> grid = new HashMap<>();
+        List<Geofence> largeFences = new ArrayList<>();
+        for (Geofence fence : fences) {
+            if (byId.put(fence.getId(), fence) != null) {
+                throw new IllegalArgumentException("Duplicate geofence id " + fence.getId());
+            }
+            long fromRow = cell(fence.minLatitude);
+            long toRow = cell(fence.maxLatitude);
+            long fromColumn = cell(fence.minLongitude);
+            long toColumn = cell(fence.maxLongitude);
+            if ((toRow - fromRow + 1) * (toColumn - fromColumn + 1) > maxCellsPerFence) {
+                largeFences.add(fence);
+                continue;
+            }
+            for (long row = fromRow; row <= toRow; row++) {
+                for (long column = fromColumn; column <= toColumn; column++) {
+                    grid.computeIfAbsent(key(row, column), k -> new ArrayList<>(2)).add(fence);
+                }
+            }
+        }
+        this.large = largeFences.toArray(NONE);
+
+        int capacity = Integer.highestOneBit(Math.max(2, grid.size() * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.cells = new Geofence[capacity][];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        grid.forEach((key, cellFences) -> {
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            cells[slot] = cellFences.toArray(NONE);
+        });
+    }
+
+    /** Fences whose bounding box may contain the point, large fences excluded. Do not modify. */
+    public Geofence[] candidates(double latitude, double longitude) {
+        long key = key(cell(latitude), cell(longitude));
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return cells[slot];
+            }
+        }
+        return NONE;
+    }
+
+    /** Fences tested on every lookup because they cover too many cells. Do not modify. */
+    public Geofence[] large() {
+        return large;
+    }
+
+    public Geofence get(String id) {
+        return byId.get(id);
+    }
+
+    public Collection<Geofence> fences() {
+        return byId.values();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees * cellsPerDegree);
+    }
+
+    private static long key(long row, long column) {
+        return row << 32 | (column & 0xffffffffL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
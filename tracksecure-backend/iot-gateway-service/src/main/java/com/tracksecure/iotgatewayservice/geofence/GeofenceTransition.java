@@ -0,0 +1,22 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import com.tracksecure.common.constants.EventTypes;
+
+/** A device crossing the boundary of a fence. */
+public record GeofenceTransition(Type type, Geofence fence) {
+    public enum Type {
+        ENTRY(EventTypes.GEOFENCE_ENTRY),
+        EXIT(EventTypes.GEOFENCE_EXIT);
+
+        private final String eventType;
+
+        Type(String eventType) {
+            this.eventType = eventType;
+        }
+
+        /** The {@link EventTypes} value published for this transition. */
+        public String getEventType() {
+            return eventType;
+        }
+    }
+}
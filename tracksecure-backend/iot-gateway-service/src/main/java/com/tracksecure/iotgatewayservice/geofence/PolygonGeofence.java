@@ -0,0 +1,53 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+/**
+ * A simple polygon given by its vertices (not closed: the last vertex connects back to the
+ * first). Containment is the even-odd ray test on latitude/longitude, which is accurate for
+ * fences of up to a few hundred kilometres: depots, ports, customs zones.
+ */
+public final class PolygonGeofence extends Geofence {
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    public PolygonGeofence(String id, String name, String shipmentId, double[] latitudes, double[] longitudes) {
+        super(id, name, shipmentId, min(latitudes), max(latitudes), min(longitudes), max(longitudes));
+        if (latitudes.length != longitudes.length || latitudes.length < 3) {
+            throw new IllegalArgumentException("Geofence polygon needs at least 3 vertices");
+        }
+        this.latitudes = latitudes.clone();
+        this.longitudes = longitudes.clone();
+    }
+
+    public int getVertexCount() {
+        return latitudes.length;
+    }
+
+    @Override
+    protected boolean containsInBounds(double latitude, double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                    && longitude < (longitudes[j] - longitudes[i]) * (latitude - latitudes[i])
+                    / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static double min(double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        for (double value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static double max(double[] values) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+}
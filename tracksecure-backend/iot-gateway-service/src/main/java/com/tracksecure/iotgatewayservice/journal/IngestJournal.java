@@ -0,0 +1,626 @@
+package com.tracksecure.iotgatewayservice.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of inbound messages, in memory-mapped segment files.
+ * <p>
+ * Each record is {@code [int length][int crc32c][long sequence][payload]}, the length written last.
+ * Sequences are dense and start at 1. {@link #append} copies a message into the active segment and
+ * returns at once. {@link #sync} forces everything appended so far in one call per dirty segment
+ * (a group commit), then runs the {@code onDurable} callbacks of those entries: that is where the
+ * broker gets its acknowledgement.
+ * <p>
+ * Processing finishes out of order (device lanes, asynchronous storage), so {@link #complete}
+ * only marks its entry in a ring of {@code maxUnprocessed} slots, and {@link #advanceProcessed}
+ * moves a watermark over the entries completed without a gap. Appends wait while the ring is full.
+ * {@link #checkpoint} records the watermark in a file and deletes the segments entirely below it.
+ * <p>
+ * {@link #open} recovers the longest valid chain of records. A torn tail is cut off and zeroed,
+ * and segments after a broken record are renamed {@code *.discarded}. {@link #replay} then yields
+ * the entries past the checkpoint, which were acknowledged but perhaps not processed. They may
+ * have been processed after the checkpoint was written, so consumers must tolerate duplicates.
+ * <p>
+ * A lock file keeps a second process out of the directory. The directory also keeps a random
+ * {@link #instanceId()}, stable across restarts, for naming the broker session that goes with it.
+ * {@link #sync}, {@link #advanceProcessed} and {@link #checkpoint} are called by one thread only.
+ */
+public class IngestJournal implements Closeable {
+    public static final long NO_ENTRY = -1;
+
+    static final int HEADER_BYTES = 16;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String INSTANCE_ID_FILE = "instance-id";
+    private static final String LOCK_FILE = "journal.lock";
+
+    /**
+     * @param discardedSegments segment files set aside because the chain of records broke before them
+     * @param truncatedBytes    bytes past the last valid record that were zeroed (a torn write)
+     */
+    public record Recovery(long checkpoint, long firstUnprocessed, long lastSequence, int segments,
+                           int discardedSegments, long truncatedBytes) {
+        public long unprocessed() {
+            return lastSequence - firstUnprocessed + 1;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ReplayConsumer {
+        void accept(long sequence, byte[] payload);
+    }
+
+    private record PendingCallback(long sequence, Runnable onDurable) {
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int capacity;
+    private final AtomicLongArray completed;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final LongAdder blocked = new LongAdder();
+
+    // Guarded by appendLock
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ArrayDeque<PendingCallback> pending = new ArrayDeque<>();
+    private Segment active;
+    private long nextSequence;
+
+    private volatile long appendedSequence;
+    private volatile long durableSequence;
+    private volatile long processedSequence;
+    private long checkpointedSequence;
+    // Lowest entry released unprocessed in this run; checkpoints stay below it
+    private final AtomicLong lowestReleased = new AtomicLong(Long.MAX_VALUE);
+    private Recovery recovery;
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private String instanceId;
+
+    /**
+     * @param segmentBytes   size of a segment file; a larger record gets a segment of its own size
+     * @param maxUnprocessed entries appended but not processed before appends wait, rounded up to a power of two
+     */
+    public IngestJournal(Path dir, int segmentBytes, int maxUnprocessed) {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment of " + segmentBytes + " bytes holds no record");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.capacity = Integer.highestOneBit(Math.max(2, maxUnprocessed) * 2 - 1);
+        this.completed = new AtomicLongArray(capacity);
+    }
+
+    public Recovery open() throws IOException {
+        Files.createDirectories(dir);
+        lockChannel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Journal " + dir.toAbsolutePath() + " is in use by another process");
+        }
+        instanceId = readOrCreateInstanceId();
+        long checkpoint = readCheckpoint();
+
+        List<Path> files = segmentFiles();
+        long expected = NO_ENTRY;
+        int discarded = 0;
+        long truncated = 0;
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long firstSequence = firstSequenceOf(file);
+            if (expected != NO_ENTRY && firstSequence != expected) {
+                // The chain broke in the previous segment: nothing after it can be trusted to follow on
+                for (int j = i; j < files.size(); j++) {
+                    Files.move(files.get(j), files.get(j).resolveSibling(files.get(j).getFileName() + ".discarded"),
+                            StandardCopyOption.REPLACE_EXISTING);
+                    discarded++;
+                }
+                break;
+            }
+            Segment segment = Segment.open(file, firstSequence);
+            expected = segment.scan();
+            if (segment.lastSequence < firstSequence) {
+                // Created but never written: the next roll would want its name
+                segment.close();
+                Files.delete(file);
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        if (!segments.isEmpty()) {
+            truncated = segments.getLast().clearTail();
+        }
+        nextSequence = Math.max(expected == NO_ENTRY ? 1 : expected, checkpoint + 1);
+        if (nextSequence != expected) {
+            // Records past the end were checkpointed but did not survive (a crash without fsync):
+            // everything here is processed, and numbering goes on after the checkpoint
+            for (Segment segment : segments) {
+                segment.close();
+                Files.delete(segment.path);
+            }
+            segments.clear();
+        }
+        active = segments.isEmpty() ? null : segments.getLast();
+        // Entries below the oldest segment are gone: nothing to wait for there
+        long firstKept = segments.isEmpty() ? nextSequence : segments.getFirst().firstSequence;
+        processedSequence = Math.max(checkpoint, Math.min(firstKept, nextSequence) - 1);
+        checkpointedSequence = checkpoint;
+        appendedSequence = nextSequence - 1;
+        durableSequence = appendedSequence;
+        recovery = new Recovery(checkpoint, processedSequence + 1, appendedSequence, segments.size(), discarded, truncated);
+        return recovery;
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Hands the entries past the checkpoint found by {@link #open} to {@code consumer}, oldest
+     * first. Each must be {@link #complete completed} like a new entry; waits while the ring is full.
+     *
+     * @return the number of entries replayed
+     */
+    public long replay(ReplayConsumer consumer) {
+        List<Segment> recovered;
+        appendLock.lock();
+        try {
+            recovered = new ArrayList<>(segments);
+        } finally {
+            appendLock.unlock();
+        }
+        long replayed = 0;
+        for (Segment segment : recovered) {
+            ByteBuffer buffer = segment.buffer.duplicate();
+            long sequence = segment.firstSequence;
+            for (int position = 0; position < segment.recoveredPosition; sequence++) {
+                int length = buffer.getInt(position);
+                if (sequence >= recovery.firstUnprocessed() && sequence <= recovery.lastSequence()) {
+                    awaitCapacity(sequence);
+                    byte[] payload = new byte[length];
+                    buffer.get(position + HEADER_BYTES, payload);
+                    consumer.accept(sequence, payload);
+                    replayed++;
+                }
+                position += HEADER_BYTES + length;
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Appends a message, waiting while {@code maxUnprocessed} entries are unprocessed.
+     *
+     * @param onDurable run by {@link #sync} once the entry is on disk; may be null
+     * @return the entry's sequence
+     */
+    public long append(byte[] payload, Runnable onDurable) {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("Empty messages are not journaled");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        int checksum = (int) crc.getValue();
+        int size = HEADER_BYTES + payload.length;
+        while (true) {
+            appendLock.lock();
+            try {
+                long sequence = nextSequence;
+                if (sequence - processedSequence <= capacity) {
+                    if (active == null || active.capacity - active.writePosition < size) {
+                        roll(size);
+                    }
+                    MappedByteBuffer buffer = active.buffer;
+                    int position = active.writePosition;
+                    buffer.putLong(position + 8, sequence);
+                    buffer.put(position + HEADER_BYTES, payload, 0, payload.length);
+                    buffer.putInt(position + 4, checksum);
+                    buffer.putInt(position, payload.length);
+                    active.writePosition = position + size;
+                    active.lastSequence = sequence;
+                    nextSequence = sequence + 1;
+                    appendedSequence = sequence;
+                    if (onDurable != null) {
+                        pending.addLast(new PendingCallback(sequence, onDurable));
+                    }
+                    return sequence;
+                }
+            } finally {
+                appendLock.unlock();
+            }
+            blocked.increment();
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /** Marks an entry processed, whatever the outcome; ignores {@link #NO_ENTRY}. */
+    public void complete(long sequence) {
+        if (sequence > 0) {
+            completed.set(slot(sequence), sequence);
+        }
+    }
+
+    /**
+     * Gives an entry up for this run without processing it: the watermark moves past it, so the
+     * entries behind it are not held up, but checkpoints stay below it and the next
+     * {@link #open} replays it (with whatever followed it).
+     */
+    public void release(long sequence) {
+        if (sequence > 0) {
+            lowestReleased.accumulateAndGet(sequence, Math::min);
+            completed.set(slot(sequence), sequence);
+        }
+    }
+
+    /**
+     * Makes every entry appended so far durable and runs their callbacks.
+     *
+     * @param force false leaves the writes in the page cache: they survive a crash of the process, not of the machine
+     * @return the last durable sequence
+     */
+    public long sync(boolean force) throws IOException {
+        long target;
+        List<Segment> dirty = new ArrayList<>(2);
+        List<int[]> ranges = new ArrayList<>(2);
+        appendLock.lock();
+        try {
+            target = nextSequence - 1;
+            if (target == durableSequence) {
+                return target;
+            }
+            for (Segment segment : segments) {
+                if (segment.writePosition > segment.forcedPosition) {
+                    dirty.add(segment);
+                    ranges.add(new int[]{segment.forcedPosition, segment.writePosition});
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (force) {
+            for (int i = 0; i < dirty.size(); i++) {
+                int[] range = ranges.get(i);
+                dirty.get(i).buffer.force(range[0], range[1] - range[0]);
+            }
+        }
+        List<Runnable> callbacks = new ArrayList<>();
+        appendLock.lock();
+        try {
+            for (int i = 0; i < dirty.size(); i++) {
+                dirty.get(i).forcedPosition = Math.max(dirty.get(i).forcedPosition, ranges.get(i)[1]);
+            }
+            PendingCallback next;
+            while ((next = pending.peekFirst()) != null && next.sequence() <= target) {
+                callbacks.add(pending.pollFirst().onDurable());
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        durableSequence = target;
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+        return target;
+    }
+
+    /** Moves the processed watermark over the entries completed since the last call. */
+    public long advanceProcessed() {
+        long watermark = processedSequence;
+        long last = appendedSequence;
+        while (watermark < last && completed.get(slot(watermark + 1)) == watermark + 1) {
+            watermark++;
+        }
+        processedSequence = watermark;
+        return watermark;
+    }
+
+    /**
+     * Writes the processed watermark to the checkpoint file, then deletes the segments whose
+     * entries are all below it. The checkpoint stops short of the lowest {@link #release released} entry.
+     *
+     * @return the number of segments deleted
+     */
+    public int checkpoint() throws IOException {
+        long watermark = Math.min(processedSequence, lowestReleased.get() - 1);
+        if (watermark <= checkpointedSequence) {
+            return 0;
+        }
+        writeCheckpoint(watermark);
+        checkpointedSequence = watermark;
+
+        List<Segment> obsolete = new ArrayList<>();
+        appendLock.lock();
+        try {
+            while (segments.size() > 1 && segments.getFirst().lastSequence <= watermark) {
+                obsolete.add(segments.pollFirst());
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        for (Segment segment : obsolete) {
+            segment.close();
+            Files.deleteIfExists(segment.path);
+        }
+        return obsolete.size();
+    }
+
+    public long getAppendedSequence() {
+        return appendedSequence;
+    }
+
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    public long getProcessedSequence() {
+        return processedSequence;
+    }
+
+    /** Entries up to here are not replayed by the next {@link #open}. */
+    public long getCheckpointedSequence() {
+        return checkpointedSequence;
+    }
+
+    /** Entries appended and not yet processed. */
+    public long unprocessed() {
+        return appendedSequence - processedSequence;
+    }
+
+    public int segmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Appends that had to wait for the ring, since startup. */
+    public long blockedCount() {
+        return blocked.sum();
+    }
+
+    /** Syncs and checkpoints what is done, then releases the directory. */
+    @Override
+    public void close() throws IOException {
+        if (lock == null) {
+            return;
+        }
+        try {
+            sync(true);
+            advanceProcessed();
+            checkpoint();
+        } finally {
+            appendLock.lock();
+            try {
+                for (Segment segment : segments) {
+                    segment.close();
+                }
+            } finally {
+                appendLock.unlock();
+            }
+            lock.release();
+            lockChannel.close();
+            lock = null;
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & (capacity - 1));
+    }
+
+    private void awaitCapacity(long sequence) {
+        while (sequence - processedSequence > capacity) {
+            blocked.increment();
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private void roll(int recordSize) throws IllegalStateException {
+        if (active != null && active.capacity - active.writePosition >= 4) {
+            active.buffer.putInt(active.writePosition, END_OF_SEGMENT);
+        }
+        try {
+            Segment segment = Segment.create(dir.resolve(nameOf(nextSequence)), nextSequence,
+                    Math.max(segmentBytes, recordSize));
+            segments.addLast(segment);
+            active = segment;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create journal segment in " + dir, e);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(firstSequenceOf(a), firstSequenceOf(b)))
+                    .toList();
+        }
+    }
+
+    private static String nameOf(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static long firstSequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private String readOrCreateInstanceId() throws IOException {
+        Path file = dir.resolve(INSTANCE_ID_FILE);
+        if (Files.exists(file)) {
+            String id = Files.readString(file, StandardCharsets.UTF_8).trim();
+            if (!id.isEmpty()) {
+                return id;
+            }
+        }
+        String id = UUID.randomUUID().toString();
+        writeAtomically(file, id.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    /** @return the checkpointed sequence, 0 if there is none or it is unreadable (everything is replayed) */
+    private long readCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (content.remaining() != 12) {
+            return 0;
+        }
+        long sequence = content.getLong(0);
+        return checksumOf(sequence) == content.getInt(8) ? sequence : 0;
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate(12).putLong(sequence).putInt(checksumOf(sequence));
+        writeAtomically(dir.resolve(CHECKPOINT_FILE), content.array());
+    }
+
+    private static int checksumOf(long sequence) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(8).putLong(0, sequence));
+        return (int) crc.getValue();
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(content));
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long firstSequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int writePosition;
+        private int forcedPosition;
+        private int recoveredPosition;
+        private long lastSequence;
+
+        private Segment(Path path, long firstSequence, FileChannel channel, int capacity) throws IOException {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.channel = channel;
+            this.capacity = capacity;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            this.lastSequence = firstSequence - 1;
+        }
+
+        static Segment create(Path path, long firstSequence, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, firstSequence, channel, capacity);
+        }
+
+        static Segment open(Path path, long firstSequence) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                channel.close();
+                throw new IOException("Journal segment " + path + " is larger than 2 GB");
+            }
+            return new Segment(path, firstSequence, channel, (int) size);
+        }
+
+        /** Walks the valid records from the start; @return the sequence expected after the last one */
+        long scan() {
+            int position = 0;
+            long sequence = firstSequence;
+            CRC32C crc = new CRC32C();
+            while (capacity - position >= HEADER_BYTES) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > capacity - position - HEADER_BYTES
+                        || buffer.getLong(position + 8) != sequence) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(position + HEADER_BYTES, length));
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    break;
+                }
+                position += HEADER_BYTES + length;
+                sequence++;
+            }
+            writePosition = position;
+            forcedPosition = position;
+            recoveredPosition = position;
+            lastSequence = sequence - 1;
+            return sequence;
+        }
+
+        /**
+         * Zeroes whatever follows the last valid record (a torn write, or records that reached disk
+         * out of order), so that new records are never followed by stale ones.
+         *
+         * @return bytes from the end of the valid records to the last non-zero byte
+         */
+        long clearTail() {
+            int chunk = 64 * 1024;
+            byte[] zeros = new byte[chunk];
+            int lastNonZero = -1;
+            for (int position = writePosition; position < capacity; position += chunk) {
+                int length = Math.min(chunk, capacity - position);
+                int found = lastNonZero(position, length);
+                if (found >= 0) {
+                    lastNonZero = found;
+                    buffer.put(position, zeros, 0, length);
+                }
+            }
+            if (lastNonZero < 0) {
+                return 0;
+            }
+            buffer.force(writePosition, lastNonZero + 1 - writePosition);
+            return lastNonZero + 1 - writePosition;
+        }
+
+        private int lastNonZero(int position, int length) {
+            for (int i = position + length - 1; i >= position; i--) {
+                if (buffer.get(i) != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
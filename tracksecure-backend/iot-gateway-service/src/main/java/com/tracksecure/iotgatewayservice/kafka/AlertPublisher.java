@@ -0,0 +1,58 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.tracksecure.common.constants.KafkaTopics;
+import com.tracksecure.common.dto.AlertDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes alerts to the alerts topic, keyed by device id like tracking-events.
+ * <p>
+ * Goes through the gateway's one producer, whose {@link GatewayValueSerializer} writes the alert
+ * with the {@link AlertSerializer}. Sends are asynchronous in the same way as
+ * {@link TrackingEventPublisher}, and share its buffer.
+ */
+@Component
+@Slf4j
+public class AlertPublisher {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final boolean enabled;
+    private final Counter sent;
+    private final Counter failed;
+
+    public AlertPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                          @Value("${gateway.kafka.enabled:true}") boolean enabled,
+                          MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.enabled = enabled;
+        this.sent = Counter.builder("gateway.kafka.alerts.published")
+                .tag("result", "sent")
+                .description("Alerts acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failed = Counter.builder("gateway.kafka.alerts.published")
+                .tag("result", "failed")
+                .description("Alerts Kafka did not accept after the producer's retries")
+                .register(meterRegistry);
+    }
+
+    /** Hands the alert to the producer; blocks only while the producer buffer is full. */
+    public void publish(AlertDTO alert){
+        if (!enabled) {
+            return;
+        }
+        kafkaTemplate.send(KafkaTopics.ALERTS, alert.getDeviceId(), alert)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        sent.increment();
+                    } else {
+                        failed.increment();
+                        log.warn("Publishing alert {} of device {} failed: {}",
+                                alert.getAlertId(), alert.getDeviceId(), error.getMessage());
+                    }
+                });
+    }
+}
@@ -0,0 +1,24 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tracksecure.common.dto.AlertDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/** Value serializer of the alerts topic, in the same JSON shape as {@link TrackingEventSerializer}. */
+public class AlertSerializer implements Serializer<AlertDTO> {
+    private static final ObjectWriter WRITER = TrackingEventSerializer.writerFor(AlertDTO.class);
+
+    @Override
+    public byte[] serialize(String topic, AlertDTO alert) {
+        if (alert == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(alert);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Could not serialize alert " + alert.getAlertId(), e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.tracksecure.common.constants.KafkaTopics;
+import com.tracksecure.common.dto.DeviceDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes device status changes to the device-status topic, keyed by device id. The topic is
+ * compacted, so it converges to the latest status of every device. Sent through the producer shared with {@link TrackingEventPublisher}.
+ */
+@Component
+@Slf4j
+public class DeviceStatusPublisher {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final boolean enabled;
+    private final Counter sent;
+    private final Counter failed;
+
+    public DeviceStatusPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                                 @Value("${gateway.kafka.enabled:true}") boolean enabled,
+                                 MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.enabled = enabled;
+        this.sent = Counter.builder("gateway.kafka.device-status.published")
+                .tag("result", "sent")
+                .description("Device status changes acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failed = Counter.builder("gateway.kafka.device-status.published")
+                .tag("result", "failed")
+                .description("Device status changes Kafka did not accept after the producer's retries")
+                .register(meterRegistry);
+    }
+
+    public void publish(DeviceDTO device){
+        if (!enabled) {
+            return;
+        }
+        kafkaTemplate.send(KafkaTopics.DEVICE_STATUS, device.getDeviceId(), device)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        sent.increment();
+                    } else {
+                        failed.increment();
+                        log.warn("Publishing status {} of device {} failed: {}",
+                                device.getStatus(), device.getDeviceId(), error.getMessage());
+                    }
+                });
+    }
+}
@@ -0,0 +1,24 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tracksecure.common.dto.DeviceDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/** Value serializer of the device-status topic, in the same JSON shape as {@link TrackingEventSerializer}. */
+public class DeviceStatusSerializer implements Serializer<DeviceDTO> {
+    private static final ObjectWriter WRITER = TrackingEventSerializer.writerFor(DeviceDTO.class);
+
+    @Override
+    public byte[] serialize(String topic, DeviceDTO device) {
+        if (device == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(device);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Could not serialize status of device " + device.getDeviceId(), e);
+        }
+    }
+}
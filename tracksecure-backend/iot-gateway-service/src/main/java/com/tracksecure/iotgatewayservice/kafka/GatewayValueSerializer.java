@@ -0,0 +1,23 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.tracksecure.common.dto.AlertDTO;
+import com.tracksecure.common.dto.DeviceDTO;
+import com.tracksecure.common.dto.TrackingEventDTO;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+
+import java.util.Map;
+
+/**
+ * Value serializer of the gateway's one producer: picks the serializer of each topic by the type
+ * of the record, so tracking events, alerts and device statuses share a single I/O thread and
+ * buffer.memory. Configured as spring.kafka.producer.value-serializer, hence the no-arg constructor.
+ */
+public class GatewayValueSerializer extends DelegatingByTypeSerializer {
+
+    public GatewayValueSerializer() {
+        super(Map.of(
+                TrackingEventDTO.class, new TrackingEventSerializer(),
+                AlertDTO.class, new AlertSerializer(),
+                DeviceDTO.class, new DeviceStatusSerializer()));
+    }
+}
@@ -0,0 +1,132 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.tracksecure.common.constants.EventTypes;
+import com.tracksecure.common.constants.KafkaTopics;
+import com.tracksecure.common.dto.TrackingEventDTO;
+import com.tracksecure.common.util.IdempotencyKeyGenerator;
+import com.tracksecure.iotgatewayservice.geofence.Geofence;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceTransition;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Publishes enriched events to the tracking-events topic for the downstream consumers
+ * (Spark pipeline, alerting).
+ * <p>
+ * Records are keyed by device id, so all events of a device land on one partition in the
+ * order they were sent; the producer is idempotent, so retries do not reorder them.
+ * Sends are asynchronous: the call returns once the record is in the producer's buffer and
+ * batching, linger and compression are left to the spring.kafka.producer.* settings. The producer
+ * is shared with {@link AlertPublisher} and {@link DeviceStatusPublisher}, see {@link GatewayValueSerializer}.
+ * <p>
+ * Backpressure: the buffer is bounded by buffer.memory. When Kafka falls behind and the buffer is
+ * full, send blocks the calling lane for up to max.block.ms. That fills the lane queue, which
+ * blocks the MQTT callback (see PartitionedDispatcher), so intake slows to what Kafka accepts
+ * instead of the heap growing.
+ */
+@Component
+@Slf4j
+public class TrackingEventPublisher {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final boolean enabled;
+    private final Counter sent;
+    private final Counter failed;
+
+    public TrackingEventPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                                  @Value("${gateway.kafka.enabled:true}") boolean enabled,
+                                  MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.enabled = enabled;
+        this.sent = Counter.builder("gateway.kafka.published")
+                .tag("result", "sent")
+                .description("Tracking events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failed = Counter.builder("gateway.kafka.published")
+                .tag("result", "failed")
+                .description("Tracking events Kafka did not accept after the producer's retries")
+                .register(meterRegistry);
+    }
+
+    /** Hands the event to the producer; blocks only while the producer buffer is full. */
+    public void publish(EnrichedEvent event){
+        if (!enabled) {
+            return;
+        }
+        send(toTrackingEvent(event));
+    }
+
+    /**
+     * Publishes a fence entry or exit as its own tracking event, on the device's key so that it
+     * stays in order with the location updates. The event id is derived from the update that caused
+     * it, so a reprocessed update yields the same id and idempotency key.
+     */
+    public void publish(EnrichedEvent event, GeofenceTransition transition){
+        if (!enabled) {
+            return;
+        }
+        Geofence fence = transition.fence();
+        TrackingEventDTO dto = toTrackingEvent(event);
+        dto.setEventId(event.getEventId() + ':' + transition.type().getEventType() + ':' + fence.getId());
+        dto.setEventType(transition.type().getEventType());
+        dto.setDescription(fence.getName() != null ? fence.getName() : fence.getId());
+        dto.setIdempotencyKey(IdempotencyKeyGenerator.deterministic(event.getDeviceId() + ':' + dto.getEventId()));
+        send(dto);
+    }
+
+    /**
+     * Publishes that a device stopped reporting. The event id is derived from the last message
+     * time, so the same outage always yields the same id.
+     */
+    public void publishDeviceFailure(String deviceId, String shipmentId, long lastSeenMillis, String description){
+        if (!enabled) {
+            return;
+        }
+        TrackingEventDTO dto = new TrackingEventDTO();
+        dto.setEventId(deviceId + ':' + EventTypes.DEVICE_FAILURE + ':' + lastSeenMillis);
+        dto.setShipmentId(shipmentId);
+        dto.setDeviceId(deviceId);
+        dto.setEventType(EventTypes.DEVICE_FAILURE);
+        dto.setEventTimestamp(LocalDateTime.now(ZoneOffset.UTC));
+        dto.setDescription(description);
+        dto.setIdempotencyKey(IdempotencyKeyGenerator.deterministic(deviceId + ':' + dto.getEventId()));
+        send(dto);
+    }
+
+    private void send(TrackingEventDTO dto){
+        kafkaTemplate.send(KafkaTopics.TRACKING_EVENTS, dto.getDeviceId(), dto)
+                .whenComplete((result, error) -> {
+                    // Runs on the producer I/O thread: keep it short
+                    if (error == null) {
+                        sent.increment();
+                    } else {
+                        failed.increment();
+                        log.warn("Publishing event {} of device {} failed: {}",
+                                dto.getEventId(), dto.getDeviceId(), error.getMessage());
+                    }
+                });
+    }
+
+    static TrackingEventDTO toTrackingEvent(EnrichedEvent event){
+        TrackingEventDTO dto = new TrackingEventDTO();
+        dto.setEventId(event.getEventId());
+        dto.setShipmentId(event.getShipmentId());
+        dto.setDeviceId(event.getDeviceId());
+        dto.setEventType(event.getEventType());
+        dto.setEventTimestamp(event.getEventTimestamp());
+        dto.setLatitude(event.getLatitude());
+        dto.setLongitude(event.getLongitude());
+        dto.setTemperature(event.getTemperature());
+        dto.setHumidity(event.getHumidity());
+        // Same event, same key: consumers can drop the redeliveries of an at-least-once pipeline
+        dto.setIdempotencyKey(IdempotencyKeyGenerator.deterministic(event.getDeviceId() + ':' + event.getEventId()));
+        return dto;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tracksecure.common.dto.TrackingEventDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Value serializer of the tracking-events topic: compact JSON (no null fields, ISO-8601
+ * timestamps) that Spark's from_json can read directly.
+ * <p>
+ * Unlike spring-kafka's JsonSerializer it adds no __TypeId__ header to every record, and it
+ * reuses one pre-built ObjectWriter instead of resolving the serializer per call.
+ */
+public class TrackingEventSerializer implements Serializer<TrackingEventDTO> {
+    private static final ObjectWriter WRITER = writerFor(TrackingEventDTO.class);
+
+    /** The JSON shape shared by the gateway's topics. */
+    static ObjectWriter writerFor(Class<?> type) {
+        return JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build()
+                .writerFor(type);
+    }
+
+    @Override
+    public byte[] serialize(String topic, TrackingEventDTO event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Could not serialize tracking event " + event.getEventId(), e);
+        }
+    }
+}
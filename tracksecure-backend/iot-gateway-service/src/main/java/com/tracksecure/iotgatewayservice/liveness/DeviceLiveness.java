@@ -0,0 +1,45 @@
+package com.tracksecure.iotgatewayservice.liveness;
+
+import lombok.Getter;
+
+/**
+ * Liveness of one device. The message path only writes {@link #lastSeenMillis} (and the metadata
+ * of the latest message); state changes happen under the entry's lock, see {@link DeviceLivenessTracker}.
+ */
+@Getter
+public final class DeviceLiveness extends TimingWheel.Timer {
+    public enum State {
+        ONLINE,
+        OFFLINE,
+        /** Offline for so long that the tracker dropped it */
+        FORGOTTEN
+    }
+
+    private final String deviceId;
+    private volatile String shipmentId;
+    private volatile String firmwareVersion;
+    private volatile long timeoutMillis;
+    private volatile long lastSeenMillis;
+    private volatile State state = State.ONLINE;
+    private final long firstSeenMillis;
+
+    DeviceLiveness(String deviceId, long nowMillis) {
+        this.deviceId = deviceId;
+        this.firstSeenMillis = nowMillis;
+        this.lastSeenMillis = nowMillis;
+    }
+
+    void seen(String shipmentId, String firmwareVersion, long timeoutMillis, long nowMillis) {
+        // Plain volatile writes: the hot path takes no lock
+        if (shipmentId != null) {
+            this.shipmentId = shipmentId;
+        }
+        this.firmwareVersion = firmwareVersion;
+        this.timeoutMillis = timeoutMillis;
+        this.lastSeenMillis = nowMillis;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,147 @@
+package com.tracksecure.iotgatewayservice.liveness;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Notices devices that stop reporting, without scanning them.
+ * <p>
+ * Every online device has one timer in a {@link TimingWheel}, due when the device would go
+ * offline if nothing arrived in the meantime. A message does not move the timer: {@link #touch}
+ * only records when the device was last seen, a volatile write. When the timer fires, the device
+ * has either been heard from since (the timer is filed again for lastSeen + timeout) or it is
+ * offline. So a device costs one wheel operation per timeout period, whatever its message rate.
+ * <p>
+ * Offline devices keep a timer too, due after {@code forgetAfterMillis} of silence, when they
+ * are dropped from the table; a device that reports again is back online in the same call.
+ * <p>
+ * Races between the message path and the wheel are settled by the entry's lock, which the
+ * message path takes only when it finds the device not online. Locks are always taken entry
+ * first, then wheel, and the wheel hands out due timers before any entry is locked.
+ */
+public class DeviceLivenessTracker {
+    private final ConcurrentHashMap<String, DeviceLiveness> devices = new ConcurrentHashMap<>();
+    private final TimingWheel<DeviceLiveness> wheel;
+    private final long forgetAfterMillis;
+
+    public DeviceLivenessTracker(long tickMillis, long forgetAfterMillis, long startMillis) {
+        this.wheel = new TimingWheel<>(tickMillis, startMillis);
+        this.forgetAfterMillis = forgetAfterMillis;
+    }
+
+    /**
+     * Records a message of the device.
+     *
+     * @param timeoutMillis silence after which the device counts as offline
+     * @return the back-online transition if the device was offline, else null
+     */
+    public LivenessTransition touch(String deviceId, String shipmentId, String firmwareVersion,
+                                   long timeoutMillis, long nowMillis) {
+        while (true) {
+            DeviceLiveness device = devices.get(deviceId);
+            if (device == null) {
+                DeviceLiveness created = new DeviceLiveness(deviceId, nowMillis);
+                created.seen(shipmentId, firmwareVersion, timeoutMillis, nowMillis);
+                if (devices.putIfAbsent(deviceId, created) == null) {
+                    wheel.schedule(created, nowMillis + timeoutMillis);
+                    return null;
+                }
+                continue;
+            }
+            long previousSeen = device.getLastSeenMillis();
+            device.seen(shipmentId, firmwareVersion, timeoutMillis, nowMillis);
+            if (device.getState() == DeviceLiveness.State.ONLINE) {
+                return null;
+            }
+            synchronized (device) {
+                switch (device.getState()) {
+                    case ONLINE:
+                        // The ticker saw this message in time and kept the device online
+                        return null;
+                    case OFFLINE:
+                        device.setState(DeviceLiveness.State.ONLINE);
+                        wheel.schedule(device, nowMillis + timeoutMillis);
+                        return new LivenessTransition(device, DeviceLiveness.State.ONLINE, nowMillis - previousSeen);
+                    default:
+                        // Dropped meanwhile: start over with a fresh entry
+                        devices.remove(deviceId, device);
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis}.
+     *
+     * @return the devices that went offline, and those forgotten after a long silence
+     */
+    public List<LivenessTransition> advance(long nowMillis) {
+        List<DeviceLiveness> due = new ArrayList<>();
+        wheel.advance(nowMillis, due);
+        if (due.isEmpty()) {
+            return List.of();
+        }
+        List<LivenessTransition> transitions = new ArrayList<>();
+        for (DeviceLiveness device : due) {
+            synchronized (device) {
+                LivenessTransition transition = expire(device, nowMillis);
+                if (transition != null) {
+                    transitions.add(transition);
+                }
+            }
+        }
+        return transitions;
+    }
+
+    public DeviceLiveness get(String deviceId) {
+        return devices.get(deviceId);
+    }
+
+    public Collection<DeviceLiveness> devices() {
+        return devices.values();
+    }
+
+    public int size() {
+        return devices.size();
+    }
+
+    /** Timers in the wheel: every tracked device has one. */
+    public int scheduled() {
+        return wheel.size();
+    }
+
+    private LivenessTransition expire(DeviceLiveness device, long nowMillis) {
+        switch (device.getState()) {
+            case ONLINE -> {
+                if (nowMillis < device.getLastSeenMillis() + device.getTimeoutMillis()) {
+                    wheel.schedule(device, device.getLastSeenMillis() + device.getTimeoutMillis());
+                    return null;
+                }
+                device.setState(DeviceLiveness.State.OFFLINE);
+                // A message written just before the state change must not be missed: look again
+                long lastSeen = device.getLastSeenMillis();
+                if (nowMillis < lastSeen + device.getTimeoutMillis()) {
+                    device.setState(DeviceLiveness.State.ONLINE);
+                    wheel.schedule(device, lastSeen + device.getTimeoutMillis());
+                    return null;
+                }
+                wheel.schedule(device, lastSeen + forgetAfterMillis);
+                return new LivenessTransition(device, DeviceLiveness.State.OFFLINE, nowMillis - lastSeen);
+            }
+            case OFFLINE -> {
+                if (nowMillis < device.getLastSeenMillis() + forgetAfterMillis) {
+                    wheel.schedule(device, device.getLastSeenMillis() + forgetAfterMillis);
+                    return null;
+                }
+                device.setState(DeviceLiveness.State.FORGOTTEN);
+                devices.remove(device.getDeviceId(), device);
+                return new LivenessTransition(device, DeviceLiveness.State.FORGOTTEN, nowMillis - device.getLastSeenMillis());
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.tracksecure.iotgatewayservice.liveness;
+
+/**
+ * A device going silent, reporting again, or being forgotten after a long silence.
+ *
+ * @param silentMillis how long the device had not been heard from when the transition was detected
+ */
+public record LivenessTransition(DeviceLiveness device, DeviceLiveness.State state, long silentMillis) {
+}
@@ -0,0 +1,151 @@
+package com.tracksecure.iotgatewayservice.liveness;
+
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: four levels of 64 slots, each slot of level n spanning 64^n ticks, so
+ * timers up to 64^4 ticks ahead (194 days at one-second ticks) are held without any per-tick work
+ * for the ones not yet due. Scheduling and cancelling are O(1): a timer is a node of the doubly
+ * linked list of its slot. Advancing by one tick drains one level-0 slot; every 64 ticks one
+ * slot of the level above is redistributed into the levels below it, and so on up the hierarchy.
+ * Timers further ahead than the top level are parked in its furthest slot and re-filed when it
+ * cascades.
+ * <p>
+ * Thread-safe; all methods synchronize on the wheel.
+ */
+public final class TimingWheel<T extends TimingWheel.Timer> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    /** A node of the wheel. A timer is in at most one slot at a time. */
+    public abstract static class Timer {
+        Timer previous;
+        Timer next;
+        long deadlineTick;
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    private static final class Head extends Timer {
+        Head() {
+            previous = this;
+            next = this;
+        }
+    }
+
+    private final Head[][] slots = new Head[LEVELS][SLOTS];
+    private final long tickMillis;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Timing wheel tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (Head[] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Head();
+            }
+        }
+    }
+
+    /** (Re)schedules the timer to fire on the first tick at or after the deadline. */
+    public synchronized void schedule(T timer, long deadlineMillis) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+        } else {
+            size++;
+        }
+        timer.deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        // The current tick's slot has been drained already: the earliest a new timer can fire is the next one
+        file(timer, currentTick + 1);
+    }
+
+    /** @return false if the timer was not scheduled */
+    public synchronized boolean cancel(T timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel to {@code nowMillis} and removes the timers that came due on the way.
+     *
+     * @param due receives the fired timers, earliest tick first
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void advance(long nowMillis, List<? super T> due) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            int index = (int) (currentTick & MASK);
+            if (index == 0) {
+                cascade(1);
+            }
+            Head head = slots[0][index];
+            for (Timer timer = head.next; timer != head; ) {
+                Timer next = timer.next;
+                timer.previous = null;
+                timer.next = null;
+                size--;
+                due.add((T) timer);
+                timer = next;
+            }
+            head.previous = head;
+            head.next = head;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(int level) {
+        int index = (int) ((currentTick >>> (BITS * level)) & MASK);
+        Head head = slots[level][index];
+        Timer timer = head.next;
+        head.previous = head;
+        head.next = head;
+        while (timer != head) {
+            Timer next = timer.next;
+            // Cascading runs before the current tick's slot is drained, so timers due now still make it
+            file(timer, currentTick);
+            timer = next;
+        }
+        if (index == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+    }
+
+    private void file(Timer timer, long earliestTick) {
+        long tick = Math.max(timer.deadlineTick, earliestTick);
+        long delta = Math.min(tick - currentTick, MAX_DELTA);
+        tick = currentTick + delta;
+        int level = 0;
+        while (delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        Head head = slots[level][(int) ((tick >>> (BITS * level)) & MASK)];
+        timer.previous = head.previous;
+        timer.next = head;
+        head.previous.next = timer;
+        head.previous = timer;
+    }
+
+    private static void unlink(Timer timer) {
+        timer.previous.next = timer.next;
+        timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+    }
+}
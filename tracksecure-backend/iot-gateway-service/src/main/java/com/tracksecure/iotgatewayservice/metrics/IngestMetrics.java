@@ -0,0 +1,110 @@
+package com.tracksecure.iotgatewayservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the ingest pipeline, exposed through /actuator/prometheus:
+ * <ul>
+ *     <li>gateway.ingest.stage{stage} - latency of each stage, with percentile histograms</li>
+ *     <li>gateway.ingest.failures{stage,exception} - failures by stage and exception type</li>
+ *     <li>gateway.ingest.end-to-end - MQTT arrival until the event is stored (bulk insert included)</li>
+ *     <li>gateway.ingest.lag - device eventTimestamp to message receivedTimestamp</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class IngestMetrics {
+
+    /** A stage body; may throw anything, which is counted and rethrown. */
+    @FunctionalInterface
+    public interface StageCall<T> {
+        T call() throws Exception;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<IngestStage, Timer> stageTimers = new EnumMap<>(IngestStage.class);
+    private final Map<String, Counter> failureCounters = new ConcurrentHashMap<>();
+    private final Timer endToEndTimer;
+    private final Timer lagTimer;
+    private final Counter clockSkewCounter;
+    private final Counter acceptedCounter;
+
+    public IngestMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (IngestStage stage : IngestStage.values()) {
+            stageTimers.put(stage, Timer.builder("gateway.ingest.stage")
+                    .tag("stage", stage.getTag())
+                    .description("Latency of one ingest pipeline stage")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        this.endToEndTimer = Timer.builder("gateway.ingest.end-to-end")
+                .description("From MQTT arrival until the enriched event is stored")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("gateway.ingest.lag")
+                .description("Device eventTimestamp to message receivedTimestamp")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(meterRegistry);
+        this.clockSkewCounter = Counter.builder("gateway.ingest.lag.negative")
+                .description("Messages whose receivedTimestamp precedes eventTimestamp")
+                .register(meterRegistry);
+        this.acceptedCounter = Counter.builder("gateway.ingest.accepted")
+                .description("Messages that went through every stage")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs one stage, recording its latency, and counts the failure if it throws.
+     */
+    public <T> T time(IngestStage stage, StageCall<T> call) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Exception e) {
+            recordFailure(stage, e);
+            throw e;
+        } finally {
+            stageTimers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordFailure(IngestStage stage, Throwable error) {
+        String exception = error.getClass().getSimpleName();
+        failureCounters.computeIfAbsent(stage.getTag() + '/' + exception, key -> Counter.builder("gateway.ingest.failures")
+                        .tag("stage", stage.getTag())
+                        .tag("exception", exception)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /** @param arrivalNanos System.nanoTime() when the MQTT message arrived */
+    public void recordAccepted(long arrivalNanos) {
+        endToEndTimer.record(System.nanoTime() - arrivalNanos, TimeUnit.NANOSECONDS);
+        acceptedCounter.increment();
+    }
+
+    /** Both timestamps are epoch seconds, as sent by the device. */
+    public void recordLag(Long eventTimestamp, Long receivedTimestamp) {
+        if (eventTimestamp == null || receivedTimestamp == null) {
+            return;
+        }
+        long lagSeconds = receivedTimestamp - eventTimestamp;
+        if (lagSeconds < 0) {
+            clockSkewCounter.increment();
+            return;
+        }
+        lagTimer.record(Duration.ofSeconds(lagSeconds));
+    }
+}
@@ -0,0 +1,29 @@
+package com.tracksecure.iotgatewayservice.metrics;
+
+/**
+ * Steps of the MQTT ingest pipeline, in processing order. The tag value is used as the
+ * "stage" tag of the gateway.ingest.* meters.
+ */
+public enum IngestStage {
+    PARSE("parse"),
+    AUTHENTICATE("authenticate"),
+    DEDUPLICATE("deduplicate"),
+    DECRYPT("decrypt"),
+    PARSE_PAYLOAD("parse-payload"),
+    VALIDATE("validate"),
+    ENRICH("enrich"),
+    GEOFENCE("geofence"),
+    ALERT("alert"),
+    PUBLISH("publish"),
+    PERSIST("persist");
+
+    private final String tag;
+
+    IngestStage(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
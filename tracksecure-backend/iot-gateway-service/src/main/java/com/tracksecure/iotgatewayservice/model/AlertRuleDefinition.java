@@ -0,0 +1,61 @@
+package com.tracksecure.iotgatewayservice.model;
+
+import com.tracksecure.iotgatewayservice.alert.AlertRule;
+import com.tracksecure.iotgatewayservice.alert.AlertSeverity;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A stored alert rule, see {@link AlertRule} for the semantics. Scoped to one device (deviceId),
+ * to the devices of one shipment (shipmentId), or to every device (neither).
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@Document(collection = "alert_rules")
+public class AlertRuleDefinition {
+    @Id
+    @NotBlank
+    @Size(max = 100)
+    private String id;
+
+    @Size(max = 255)
+    private String name;
+
+    @Size(max = 100)
+    private String deviceId;
+
+    @Size(max = 100)
+    private String shipmentId;
+
+    @NotNull
+    private AlertRule.Metric metric;
+
+    @NotNull
+    private AlertRule.Kind kind;
+
+    @NotNull
+    private AlertRule.Direction direction;
+
+    /** A reading for THRESHOLD and DURATION, a change per minute for RATE_OF_CHANGE */
+    @NotNull
+    private Double limit;
+
+    @PositiveOrZero
+    private Double hysteresis;
+
+    /** DURATION only */
+    @PositiveOrZero
+    private Long durationSeconds;
+
+    @NotNull
+    private AlertSeverity severity;
+}
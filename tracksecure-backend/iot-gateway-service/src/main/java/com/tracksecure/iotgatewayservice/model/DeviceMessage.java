@@ -1,5 +1,6 @@
 package com.tracksecure.iotgatewayservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Size;
@@ -36,6 +37,23 @@ public class DeviceMessage {
     @Size(max=100)
     private String transmissionMethod;
 
+    // Binary envelopes carry the raw ciphertext instead of encryptedPayload; it stays in the MQTT
+    // payload array and is only referenced here
+    @JsonIgnore
+    @ToString.Exclude
+    private byte[] ciphertextBuffer;
+
+    @JsonIgnore
+    private int ciphertextOffset;
+
+    @JsonIgnore
+    private int ciphertextLength;
+
+    @JsonIgnore
+    public boolean hasRawCiphertext(){
+        return ciphertextBuffer != null;
+    }
+
     //This expected to be a model/ entity of the raw MQTT payload coming from the device*
     //Usually the payload is still encrypted and processed yet
 }
@@ -0,0 +1,76 @@
+package com.tracksecure.iotgatewayservice.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * A stored geofence: a circle (center and radius) or a polygon (vertices, not closed). Without a
+ * shipmentId the fence applies to every device; with one, only to devices of that shipment.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "geofences")
+public class GeofenceDefinition {
+    public enum Type {
+        CIRCLE,
+        POLYGON
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Vertex {
+        @NotNull
+        @DecimalMin("-90.0")
+        @DecimalMax("90.0")
+        private Double latitude;
+
+        @NotNull
+        @DecimalMin("-180.0")
+        @DecimalMax("180.0")
+        private Double longitude;
+    }
+
+    @Id
+    @NotBlank
+    @Size(max = 100)
+    private String id;
+
+    @Size(max = 255)
+    private String name;
+
+    @Size(max = 100)
+    private String shipmentId;
+
+    @NotNull
+    private Type type;
+
+    // CIRCLE
+    @DecimalMin("-90.0")
+    @DecimalMax("90.0")
+    private Double centerLatitude;
+    @DecimalMin("-180.0")
+    @DecimalMax("180.0")
+    private Double centerLongitude;
+    @Positive
+    private Double radiusMeters;
+
+    // POLYGON
+    @Valid
+    @Size(max = 10000)
+    private List<Vertex> vertices;
+}
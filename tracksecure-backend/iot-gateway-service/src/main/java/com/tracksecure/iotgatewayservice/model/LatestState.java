@@ -0,0 +1,41 @@
+package com.tracksecure.iotgatewayservice.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Newest {@link EnrichedEvent} of one device or one shipment, so that "latest" reads are a
+ * lookup by id instead of a scan of sensor_data. Documents are only written by upserts that
+ * match while the stored eventTimestamp is older, so a late or redelivered event never
+ * replaces a newer one.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "latest_state")
+@CompoundIndex(name = "scope_event_timestamp", def = "{'scope': 1, 'eventTimestamp': -1}")
+public class LatestState {
+    public enum Scope {
+        DEVICE,
+        SHIPMENT
+    }
+
+    /** {@code <scope>:<key>}, see {@link #idOf} */
+    @Id
+    private String id;
+
+    private Scope scope;
+    private String key;
+    private LocalDateTime eventTimestamp;
+    private EnrichedEvent event;
+
+    public static String idOf(Scope scope, String key) {
+        return scope.name() + ':' + key;
+    }
+}
@@ -0,0 +1,75 @@
+package com.tracksecure.iotgatewayservice.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * The MQTT ingest path's view of a telemetry reading: the same fields as {@link TelemetryPayload},
+ * but numbers are primitives and a bitmask records which of them the device sent. Reading an
+ * absent number returns 0, so check {@link #has(int)} first. TelemetryPayload and its Bean
+ * Validation annotations remain the model for the REST APIs and the source of the limits.
+ */
+@Getter
+@ToString
+public class TelemetryFrame {
+    public static final int EVENT_TIMESTAMP = 1;
+    public static final int LATITUDE = 1 << 1;
+    public static final int LONGITUDE = 1 << 2;
+    public static final int TEMPERATURE = 1 << 3;
+    public static final int HUMIDITY = 1 << 4;
+
+    @Setter
+    private String eventId;
+    @Setter
+    private String deviceId;
+    @Setter
+    private String shipmentId;
+    @Setter
+    private String eventType;
+    @Setter
+    private String description;
+
+    private long eventTimestamp;
+    private double latitude;
+    private double longitude;
+    private double temperature;
+    private double humidity;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private int present;
+
+    public boolean has(int field){
+        return (present & field) != 0;
+    }
+
+    public void setEventTimestamp(long eventTimestamp){
+        this.eventTimestamp = eventTimestamp;
+        present |= EVENT_TIMESTAMP;
+    }
+
+    public void setLatitude(double latitude){
+        this.latitude = latitude;
+        present |= LATITUDE;
+    }
+
+    public void setLongitude(double longitude){
+        this.longitude = longitude;
+        present |= LONGITUDE;
+    }
+
+    public void setTemperature(double temperature){
+        this.temperature = temperature;
+        present |= TEMPERATURE;
+    }
+
+    public void setHumidity(double humidity){
+        this.humidity = humidity;
+        present |= HUMIDITY;
+    }
+
+    /** Marks a number as not sent, e.g. for an explicit JSON null. */
+    public void clear(int field){
+        present &= ~field;
+    }
+}
@@ -31,12 +31,12 @@ public class TelemetryPayload {
     @NotNull(message = "Event timestamp mustn't be null")
     private Long eventTimestamp;
 
-    @DecimalMin(value = "-90.00")
-    @DecimalMax(value = "90.00")
-    private BigDecimal longitude;
-
     @DecimalMin(value = "-180.00")
     @DecimalMax(value = "180.00")
+    private BigDecimal longitude;
+
+    @DecimalMin(value = "-90.00")
+    @DecimalMax(value = "90.00")
     private BigDecimal latitude;
 
     @DecimalMin(value = "-100.00")
@@ -24,6 +24,17 @@ public class MqttCallbackHandler implements MqttCallback {
         mqttMessageHandler.handle(topic, message);
     }
 
+    /** A message already journaled as {@code journalEntry}. */
+    public void messageArrived(String topic, MqttMessage message, long journalEntry){
+        log.debug("MQTT Message arrived on topic '{}': {} (journal entry {})", topic, message, journalEntry);
+        mqttMessageHandler.handle(topic, message.getPayload(), message.isDuplicate(), journalEntry);
+    }
+
+    /** A journaled message a previous run acknowledged but did not finish; it may have been stored. */
+    public void replay(String topic, byte[] payload, long journalEntry){
+        mqttMessageHandler.handle(topic, payload, true, journalEntry);
+    }
+
     @Override
     public void deliveryComplete(IMqttDeliveryToken token) {
         log.debug("MQTT delivery complete: {}", token.getMessageId());
@@ -1,22 +1,58 @@
 package com.tracksecure.iotgatewayservice.mqtt;
 
 
+import com.tracksecure.iotgatewayservice.service.IngestJournalService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Connects to the broker and subscribes to the telemetry topic.
+ * <p>
+ * With {@code mqtt.shared.group} set, the subscription is the shared {@code $share/<group>/<topic>}:
+ * the broker hands each message to one member of the group, so gateway instances split the load
+ * instead of each receiving everything. {@code mqtt.client.connections} then opens several members
+ * per instance, each with its own Paho callback thread, all feeding the same device-keyed lanes.
+ * Per-device order across members is up to the broker's dispatch strategy: one that keeps a
+ * publisher on one member (EMQX {@code hash_clientid}, {@code sticky}) preserves it while the group
+ * is stable; round robin does not.
+ * <p>
+ * With the {@link IngestJournalService ingest journal} enabled, messages are acknowledged by hand once
+ * journaled and synced to disk, many per sync, and the session is persistent under a client id
+ * kept in the journal directory: what the broker sent but never saw acknowledged, before a crash
+ * or during a reconnect, it sends again. Entries the previous run journaled but did not finish are
+ * replayed before connecting. Without the journal, Paho acknowledges on arrival and sessions are
+ * clean. Subscriptions are made again after every automatic reconnect either way.
+ * <p>
+ * Paho's own persistence stays in memory: it only holds outgoing and QoS 2 handshake state, none
+ * of which this subscriber has. The number of unacknowledged messages the broker lets through per
+ * connection (EMQX {@code mqtt.max_inflight}, Mosquitto {@code max_inflight_messages}) bounds how
+ * many one sync can acknowledge; raise it when throughput stalls on sync latency.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class MqttConnectionManager {
+    private static final String SHARED_PREFIX = "$share/";
+    private static final int QOS = 1;
+
     @Value("${mqtt.broker.url}")
     private String brokerUrl;
     @Value("${mqtt.client.id-prefix}")
@@ -27,33 +63,166 @@ public class MqttConnectionManager {
     private String username;
     @Value("${mqtt.password}")
     private String password;
+    @Value("${mqtt.shared.group:}")
+    private String sharedGroup;
+    @Value("${mqtt.client.connections:1}")
+    private int connectionCount;
     private final MqttCallbackHandler mqttCallbackHandler;
-    private MqttClient client;
+    private final IngestJournalService ingestJournalService;
+    private final MeterRegistry meterRegistry;
+    private final List<MqttClient> clients = new ArrayList<>();
 
     @PostConstruct
     public void connect(){
+        boolean shared = sharedGroup != null && !sharedGroup.isBlank();
+        if (connectionCount < 1 || (connectionCount > 1 && !shared)) {
+            throw new IllegalStateException("mqtt.client.connections=" + connectionCount
+                    + " needs to be 1, or set mqtt.shared.group: every plain subscriber receives every message");
+        }
+        String topicFilter = shared ? SHARED_PREFIX + sharedGroup.trim() + '/' + topic : topic;
+        boolean durable = ingestJournalService.isEnabled();
+        // Before any new message: nothing else is appended to the journal while it replays
+        ingestJournalService.replay((sequence, payload) -> mqttCallbackHandler.replay(topic, payload, sequence));
+        // A persistent session has to be found again under the same client id after a restart
+        String instanceId = clientIdPrefix + "-" + (durable ? ingestJournalService.instanceId() : UUID.randomUUID());
         try{
-            String clientId = clientIdPrefix+"-"+ UUID.randomUUID();
-            client = new MqttClient(brokerUrl, clientId, new MemoryPersistence());
-            MqttConnectOptions options = new MqttConnectOptions();
-            options.setCleanSession(true);
-            options.setUserName(username);
-            options.setPassword(password.toCharArray());
-            options.setAutomaticReconnect(true);
-            options.setConnectionTimeout(10);
-            options.setKeepAliveInterval(30);
-
-            client.setCallback(mqttCallbackHandler);
-            client.connect();
-            client.subscribe(topic);
-
-            log.info("connected to broker at {} and subscribed to topic {}", brokerUrl, topic);
+            for (int i = 0; i < connectionCount; i++) {
+                String clientId = connectionCount == 1 ? instanceId : instanceId + "-" + i;
+                MqttClient client = new MqttClient(brokerUrl, clientId, new MemoryPersistence());
+                MqttConnectOptions options = new MqttConnectOptions();
+                options.setCleanSession(!durable);
+                options.setUserName(username);
+                options.setPassword(password.toCharArray());
+                options.setAutomaticReconnect(true);
+                options.setConnectionTimeout(10);
+                options.setKeepAliveInterval(30);
+
+                client.setManualAcks(durable);
+                client.setCallback(new Connection(client, topicFilter, durable));
+                client.connect(options);
+                client.subscribe(topicFilter, QOS);
+                clients.add(client);
+            }
         } catch (MqttException e) {
             throw new RuntimeException("MQTT Connection failed",e);
         }
+        Gauge.builder("gateway.mqtt.connections", clients, MqttConnectionManager::connected)
+                .description("MQTT client connections of this instance currently connected")
+                .register(meterRegistry);
+
+        log.info("connected to broker at {} with {} connection(s) and subscribed to topic {} ({})",
+                brokerUrl, clients.size(), topicFilter, durable ? "journaled, persistent session " + instanceId : "clean session");
     }
 
     public MqttClient getMqttClient(){
-        return  client;
+        return clients.isEmpty() ? null : clients.get(0);
+    }
+
+    public List<MqttClient> getMqttClients(){
+        return clients;
+    }
+
+    /**
+     * Leaves the broker before the lanes drain (the dispatcher is destroyed after this bean), so a
+     * shared group stops sending here at once instead of after the keep-alive runs out.
+     */
+    @PreDestroy
+    public void disconnect(){
+        for (MqttClient client : clients) {
+            try {
+                if (client.isConnected()) {
+                    client.disconnect(5000);
+                }
+                // Forced: also stops an automatic reconnect that is still trying
+                client.close(true);
+            } catch (MqttException e) {
+                log.warn("Failed to disconnect {}: {}", client.getClientId(), e.getMessage());
+            }
+        }
+    }
+
+    private static double connected(List<MqttClient> clients){
+        int connected = 0;
+        for (MqttClient client : clients) {
+            if (client.isConnected()) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    /**
+     * Callback of one connection: journals and hands messages to the shared handler, resubscribes
+     * after reconnects.
+     * <p>
+     * Message ids are only meaningful on the connection that delivered them, so every connect and
+     * every loss starts a new epoch, and acknowledgements of an earlier epoch are not sent: the
+     * broker redelivers those messages on the new connection, and the idempotency claims drop them.
+     */
+    private class Connection implements MqttCallbackExtended {
+        private final MqttClient client;
+        private final String topicFilter;
+        private final boolean durable;
+        private final AtomicInteger epoch = new AtomicInteger();
+
+        private Connection(MqttClient client, String topicFilter, boolean durable){
+            this.client = client;
+            this.topicFilter = topicFilter;
+            this.durable = durable;
+        }
+
+        @Override
+        public void connectComplete(boolean reconnect, String serverURI) {
+            epoch.incrementAndGet();
+            if (!reconnect) {
+                return;
+            }
+            try {
+                client.subscribe(topicFilter);
+                log.info("MQTT client {} reconnected to {} and subscribed to {}", client.getClientId(), serverURI, topicFilter);
+            } catch (MqttException e) {
+                log.error("MQTT client {} reconnected but could not subscribe to {}: {}",
+                        client.getClientId(), topicFilter, e.getMessage());
+            }
+        }
+
+        @Override
+        public void connectionLost(Throwable cause) {
+            epoch.incrementAndGet();
+            mqttCallbackHandler.connectionLost(cause);
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) {
+            if (!durable) {
+                mqttCallbackHandler.messageArrived(topic, message);
+                return;
+            }
+            // Waits while the journal is full: the broker stops sending once its in-flight window is used up
+            long entry = ingestJournalService.append(message.getPayload(),
+                    message.getQos() == 0 ? null : acknowledgement(message, epoch.get()));
+            mqttCallbackHandler.messageArrived(topic, message, entry);
+        }
+
+        /** Run by the journal syncer once the message is on disk. */
+        private Runnable acknowledgement(MqttMessage message, int arrivalEpoch) {
+            int messageId = message.getId();
+            int qos = message.getQos();
+            return () -> {
+                if (epoch.get() != arrivalEpoch || !client.isConnected()) {
+                    return;
+                }
+                try {
+                    client.messageArrivedComplete(messageId, qos);
+                } catch (MqttException e) {
+                    log.debug("MQTT client {} could not acknowledge message {}: {}", client.getClientId(), messageId, e.getMessage());
+                }
+            };
+        }
+
+        @Override
+        public void deliveryComplete(IMqttDeliveryToken token) {
+            mqttCallbackHandler.deliveryComplete(token);
+        }
     }
 }
@@ -1,58 +1,209 @@
 package com.tracksecure.iotgatewayservice.mqtt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.common.dto.AlertDTO;
+import com.tracksecure.common.codec.TelemetryWireFormat;
+import com.tracksecure.iotgatewayservice.codec.BinaryMessageDecoder;
+import com.tracksecure.iotgatewayservice.codec.JsonTelemetryDecoder;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceTransition;
+import com.tracksecure.iotgatewayservice.journal.IngestJournal;
+import com.tracksecure.iotgatewayservice.kafka.TrackingEventPublisher;
+import com.tracksecure.iotgatewayservice.metrics.IngestMetrics;
+import com.tracksecure.iotgatewayservice.metrics.IngestStage;
 import com.tracksecure.iotgatewayservice.model.DeviceCredential;
 import com.tracksecure.iotgatewayservice.model.DeviceMessage;
 import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
-import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
-import com.tracksecure.iotgatewayservice.repository.SensorDataRepository;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
 import com.tracksecure.iotgatewayservice.service.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class MqttMessageHandler{
     private final ObjectMapper objectMapper;
+    private final BinaryMessageDecoder binaryMessageDecoder;
+    private final JsonTelemetryDecoder jsonTelemetryDecoder;
     private final DeviceAuthenticationService deviceAuthenticationService;
     private final PayloadValidationService payloadValidationService;
     private final PayloadDecryptionService payloadDecryptionService;
     private final DataEnrichmentService dataEnrichmentService;
-    private final SensorDataRepository sensorDataRepository;
+    private final GeofenceService geofenceService;
+    private final AlertRuleService alertRuleService;
+    private final AlertSuppressionService alertSuppressionService;
+    private final DeviceLivenessService deviceLivenessService;
+    private final EnrichedEventWriteBehind enrichedEventWriteBehind;
     private final IdempotencyService idempotencyService;
+    private final IngestJournalService ingestJournalService;
+    private final TrackingEventPublisher trackingEventPublisher;
+    private final PartitionedDispatcher partitionedDispatcher;
+    private final IngestMetrics ingestMetrics;
 
     public void handle(String topic, MqttMessage message){
+        handle(topic, message.getPayload(), message.isDuplicate(), IngestJournal.NO_ENTRY);
+    }
+
+    /**
+     * @param redelivered the broker or the journal has handed this message over before
+     * @param journalEntry completed once the message is stored or turned away for good; released,
+     *                     and so replayed on the next start, when it could not be stored for now
+     */
+    public void handle(String topic, byte[] payload, boolean redelivered, long journalEntry){
+        long arrivalNanos = System.nanoTime();
+        DeviceMessage deviceMessage;
         try {
-            String payload = new String(message.getPayload());
-            log.debug("Received MQTT message: {}", payload);
+            log.debug("Received MQTT message on {} ({} bytes)", topic, payload.length);
 
-            // 1. Parse raw message to DeviceMessage
-            DeviceMessage deviceMessage = objectMapper.readValue(payload, DeviceMessage.class);
+            // 1. Parse raw message to DeviceMessage (on the MQTT thread: the device id decides the lane)
+            //    Binary envelopes are told apart from JSON by their first byte
+            deviceMessage = ingestMetrics.time(IngestStage.PARSE, () -> TelemetryWireFormat.isBinary(payload)
+                    ? binaryMessageDecoder.decodeEnvelope(payload)
+                    : objectMapper.readValue(payload, DeviceMessage.class));
+        }catch (Exception e){
+            log.error("Error parsing MQTT message", e);
+            ingestJournalService.complete(journalEntry);
+            return;
+        }
+        // 2-8 run on the device's lane: in order per device, in parallel across devices
+        // (the write of 8 completes on the write-behind flusher, and so does the journal entry)
+        boolean dispatched = partitionedDispatcher.dispatch(deviceMessage.getDeviceId(), () -> {
+            CompletableFuture<Void> stored = process(deviceMessage, arrivalNanos, redelivered);
+            if (stored == null) {
+                ingestJournalService.complete(journalEntry);
+            } else {
+                // The broker has its PUBACK already: only the journal can bring an unstored message back
+                stored.whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        ingestJournalService.complete(journalEntry);
+                    } else {
+                        ingestJournalService.release(journalEntry);
+                    }
+                });
+            }
+        });
+        if (!dispatched) {
+            // Stopping: not processed here, replayed from the journal on the next start
+            ingestJournalService.release(journalEntry);
+        }
+    }
 
+    /**
+     * @return completes once the event is stored, or exceptionally if it could not be stored for
+     * now (storage, Redis, shutdown); null if the message was a duplicate or is invalid
+     */
+    CompletableFuture<Void> process(DeviceMessage deviceMessage, long arrivalNanos, boolean redelivered){
+        String idempotencyKey = IdempotencyService.keyOf(deviceMessage.getDeviceId(), deviceMessage.getMessageId());
+        boolean claimed = false;
+        try {
             // 2. Authenticate Device
-            DeviceCredential credential = deviceAuthenticationService.authenticate(deviceMessage.getDeviceId());
+            DeviceCredential credential = ingestMetrics.time(IngestStage.AUTHENTICATE,
+                    () -> deviceAuthenticationService.authenticate(deviceMessage.getDeviceId()));
 
-            // 3. Decrypt Payload
-            String decryptedJson = payloadDecryptionService.decrypt(deviceMessage.getEncryptedPayload(), credential.getSecretKey());
+            // 2b. Drop redelivered messages before paying for decryption and storage
+            if (idempotencyKey != null) {
+                claimed = ingestMetrics.time(IngestStage.DEDUPLICATE, () -> idempotencyService.claim(idempotencyKey, redelivered));
+                if (!claimed) {
+                    log.debug("Duplicate message {} from device {}", deviceMessage.getMessageId(), deviceMessage.getDeviceId());
+                    return null;
+                }
+            }
 
-            // 4. Parse Decrypted Payload to TelemetryPayload
-            TelemetryPayload telemetryPayload = objectMapper.readValue(decryptedJson, TelemetryPayload.class);
+            // 3. Decrypt Payload (plaintext stays in the lane's buffer, no String round trip)
+            ByteBuffer decrypted = ingestMetrics.time(IngestStage.DECRYPT,
+                    () -> payloadDecryptionService.decrypt(deviceMessage, credential.getSecretKey()));
 
-            // 5. Validate Payload
-            payloadValidationService.validate(telemetryPayload);
+            // 4. Parse Decrypted Payload to a TelemetryFrame (binary or JSON, whatever the device encrypted)
+            TelemetryFrame telemetryFrame = ingestMetrics.time(IngestStage.PARSE_PAYLOAD, () -> {
+                byte[] buf = decrypted.array();
+                int offset = decrypted.arrayOffset() + decrypted.position();
+                return TelemetryWireFormat.isBinary(buf, offset, decrypted.remaining())
+                        ? binaryMessageDecoder.decodeTelemetry(buf, offset, decrypted.remaining())
+                        : jsonTelemetryDecoder.decode(buf, offset, decrypted.remaining());
+            });
+
+            // 5. Validate Payload (precompiled range checks, no Bean Validation on this path)
+            ingestMetrics.time(IngestStage.VALIDATE, () -> {
+                payloadValidationService.validate(telemetryFrame);
+                return null;
+            });
 
             // 6. Enrich Data
-            EnrichedEvent enrichedEvent = dataEnrichmentService.enrich(telemetryPayload, deviceMessage);
+            EnrichedEvent enrichedEvent = ingestMetrics.time(IngestStage.ENRICH,
+                    () -> dataEnrichmentService.enrich(telemetryFrame, deviceMessage));
+            ingestMetrics.recordLag(telemetryFrame.getEventTimestamp(), deviceMessage.getReceivedTimestamp());
+
+            // 6b. Geofences: entries and exits, testing only the fences of the location's grid cell
+            List<GeofenceTransition> transitions = ingestMetrics.time(IngestStage.GEOFENCE,
+                    () -> geofenceService.evaluate(enrichedEvent));
+
+            // 6c. Alert rules of the device, its shipment and the whole fleet
+            List<AlertDTO> alerts = ingestMetrics.time(IngestStage.ALERT,
+                    () -> alertRuleService.evaluate(telemetryFrame));
+
+            // 7. Publish to Kafka, keyed by device (asynchronous; only waits while the producer buffer is full)
+            ingestMetrics.time(IngestStage.PUBLISH, () -> {
+                trackingEventPublisher.publish(enrichedEvent);
+                for (GeofenceTransition transition : transitions) {
+                    trackingEventPublisher.publish(enrichedEvent, transition);
+                }
+                for (AlertDTO alert : alerts) {
+                    alertSuppressionService.publish(alert);
+                }
+                return null;
+            });
 
-            // 7. Save to MongoDB
-            sensorDataRepository.save(enrichedEvent);
-            log.info("Saved sensor data to MongoDB: {}", enrichedEvent.getEventId());
+            // 8. Save to MongoDB: queued for the next bulk insert, the lane moves on to its next message
+            CompletableFuture<Void> stored = ingestMetrics.time(IngestStage.PERSIST,
+                    () -> enrichedEventWriteBehind.submit(enrichedEvent));
+            boolean release = claimed;
+            stored.whenComplete((ignored, error) -> {
+                if (error == null) {
+                    ingestMetrics.recordAccepted(arrivalNanos);
+                    // Accepted: the device is alive (a volatile write unless it was offline)
+                    deviceLivenessService.touch(enrichedEvent);
+                    log.debug("Saved sensor data to MongoDB: {}", enrichedEvent.getEventId());
+                    return;
+                }
+                ingestMetrics.recordFailure(IngestStage.PERSIST, error);
+                if (release) {
+                    idempotencyService.release(idempotencyKey);
+                }
+            });
+            return stored;
 
         }catch (Exception e){
-            log.error("Error handling MQTT message", e);
+            if (e instanceof InterruptedException) {
+                // The lane is being stopped while the write-behind was full: let it see the interrupt
+                Thread.currentThread().interrupt();
+            }
+            log.error("Error handling MQTT message from device {}", deviceMessage.getDeviceId(), e);
+            if (claimed) {
+                // Not stored: a redelivery of this message must not be taken for a duplicate
+                idempotencyService.release(idempotencyKey);
+            }
+            return isTransient(e) ? CompletableFuture.failedFuture(e) : null;
+        }
+    }
+
+    /**
+     * A failure of the infrastructure rather than of the message, which a later attempt may get
+     * past. Anything else would fail again on replay, and a released entry keeps the journal from
+     * checkpointing past it, so those messages are completed and dropped.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessException || cause instanceof InterruptedException) {
+                return true;
+            }
         }
+        return false;
     }
 }
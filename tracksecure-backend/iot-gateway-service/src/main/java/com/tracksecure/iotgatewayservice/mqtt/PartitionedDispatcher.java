@@ -0,0 +1,168 @@
+package com.tracksecure.iotgatewayservice.mqtt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves message processing off Paho's single callback thread onto N worker lanes.
+ * <p>
+ * A message is routed to the lane chosen by hashing its partition key (the device id), so
+ * messages of one device are processed in arrival order while different devices run in
+ * parallel. Lane queues are bounded: when a lane is full, {@link #dispatch} blocks the
+ * MQTT callback thread, which in turn stops Paho reading from the broker instead of
+ * letting the heap grow.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PartitionedDispatcher {
+    // How long an idle lane waits for a task before it looks at the running flag again
+    private static final long POLL_MS = 100;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.dispatch.lanes:0}")
+    private int configuredLanes;
+    @Value("${gateway.dispatch.queue-capacity:1000}")
+    private int queueCapacity;
+    @Value("${gateway.dispatch.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private Lane[] lanes;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start(){
+        int laneCount = configuredLanes > 0 ? configuredLanes : Runtime.getRuntime().availableProcessors();
+        lanes = new Lane[laneCount];
+        running = true;
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+            lanes[i].thread.start();
+        }
+        log.info("Dispatcher started with {} lanes of capacity {}", laneCount, queueCapacity);
+    }
+
+    /**
+     * Queues a task on the lane owning {@code partitionKey}, waiting while that lane is full.
+     *
+     * @return false if the task was not queued (dispatcher stopped, or interrupted while waiting); it will not run
+     */
+    public boolean dispatch(String partitionKey, Runnable task){
+        if (!running) {
+            log.warn("Dispatcher stopped, rejecting message for {}", partitionKey);
+            return false;
+        }
+        Lane lane = lanes[laneOf(partitionKey)];
+        if (lane.queue.offer(task)) {
+            return true;
+        }
+        lane.blocked.increment();
+        try {
+            lane.queue.put(task);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for lane {}, message for {} dropped", lane.index, partitionKey);
+            return false;
+        }
+    }
+
+    public int laneOf(String partitionKey){
+        int h = partitionKey == null ? 0 : partitionKey.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), lanes.length);
+    }
+
+    public int getLaneCount(){
+        return lanes.length;
+    }
+
+    @PreDestroy
+    public void stop(){
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        // Wakes lanes blocked inside a task; a task that swallows the interrupt still sees running=false
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!lane.queue.isEmpty()) {
+                log.warn("Lane {} stopped with {} unprocessed messages", lane.index, lane.queue.size());
+            }
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread thread;
+        private final Counter blocked;
+        private final Counter processed;
+
+        private Lane(int index){
+            this.index = index;
+            this.thread = new Thread(this, "mqtt-lane-" + index);
+            // stop() waits for the drain; a lane stuck in a task past its timeout must not keep the JVM up
+            this.thread.setDaemon(true);
+            Tags tags = Tags.of("lane", Integer.toString(index));
+            Gauge.builder("gateway.dispatch.lane.depth", queue, BlockingQueue::size)
+                    .tags(tags)
+                    .description("Messages waiting in the lane")
+                    .register(meterRegistry);
+            Gauge.builder("gateway.dispatch.lane.saturation", queue, q -> (double) q.size() / queueCapacity)
+                    .tags(tags)
+                    .description("Lane queue fill ratio (1.0 = full, intake blocked)")
+                    .register(meterRegistry);
+            this.blocked = Counter.builder("gateway.dispatch.lane.blocked")
+                    .tags(tags)
+                    .description("Dispatches that had to wait for room in the lane")
+                    .register(meterRegistry);
+            this.processed = Counter.builder("gateway.dispatch.lane.processed")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void run(){
+            while (true) {
+                Runnable task;
+                try {
+                    // Once stopped, finish what is already queued, then exit
+                    task = running ? queue.poll(POLL_MS, TimeUnit.MILLISECONDS) : queue.poll();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (task == null) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error("Unhandled error on lane {}", index, e);
+                }
+                processed.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.tracksecure.iotgatewayservice.repository;
+
+import com.tracksecure.iotgatewayservice.model.AlertRuleDefinition;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AlertRuleDefinitionRepository extends MongoRepository<AlertRuleDefinition, String> {
+}
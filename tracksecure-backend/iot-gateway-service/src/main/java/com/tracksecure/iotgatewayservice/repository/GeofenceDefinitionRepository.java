@@ -0,0 +1,9 @@
+package com.tracksecure.iotgatewayservice.repository;
+
+import com.tracksecure.iotgatewayservice.model.GeofenceDefinition;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GeofenceDefinitionRepository extends MongoRepository<GeofenceDefinition, String> {
+}
@@ -0,0 +1,216 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.tracksecure.common.dto.AlertDTO;
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.alert.AlertEngine;
+import com.tracksecure.iotgatewayservice.alert.AlertRule;
+import com.tracksecure.iotgatewayservice.alert.AlertRuleTable;
+import com.tracksecure.iotgatewayservice.alert.AlertTrigger;
+import com.tracksecure.iotgatewayservice.model.AlertRuleDefinition;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import com.tracksecure.iotgatewayservice.repository.AlertRuleDefinitionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Threshold, duration and rate-of-change alerts for the ingest pipeline.
+ * <p>
+ * Rules live in the alert_rules collection and are compiled into an {@link AlertRuleTable}. The
+ * table is rebuilt at startup, after every change made through this service, and every
+ * {@code refresh-interval-ms} if the stored rules differ from the compiled ones. Each reading is
+ * checked by the {@link AlertEngine} on its worker lane, right after enrichment, and the rules
+ * that start to fire come back as AlertDTOs for the alerts topic. A rule that does not compile
+ * is logged and left out.
+ * <p>
+ * Meters: gateway.alerts.raised{type,severity}, gateway.alerts.cleared, gateway.alerts.rules and
+ * gateway.alerts.devices.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertRuleService {
+    private final AlertRuleDefinitionRepository alertRuleDefinitionRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.alerts.enabled:true}")
+    private boolean enabled;
+    @Value("${gateway.alerts.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    private final AlertEngine engine = new AlertEngine(AlertRuleTable.empty());
+    private List<AlertRuleDefinition> compiled = List.of();
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("gateway.alerts.rules", engine, e -> e.getTable().size())
+                .description("Alert rules in the rule table")
+                .register(meterRegistry);
+        Gauge.builder("gateway.alerts.devices", engine, AlertEngine::trackedDevices)
+                .description("Devices with rule state in the rule table")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.alerts.cleared", engine, AlertEngine::clearedCount)
+                .description("Firing rules that ended because readings returned past the hysteresis band")
+                .register(meterRegistry);
+        if (!enabled) {
+            log.info("Alert rules disabled");
+            return;
+        }
+        reload();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-rule-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::reload, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return an alert for every rule this reading made fire; empty for most readings
+     */
+    public List<AlertDTO> evaluate(TelemetryFrame frame) {
+        if (!enabled || !frame.has(TelemetryFrame.EVENT_TIMESTAMP)) {
+            return List.of();
+        }
+        List<AlertTrigger> triggers = engine.evaluate(frame.getDeviceId(), frame.getShipmentId(), frame.getEventTimestamp(),
+                frame.has(TelemetryFrame.TEMPERATURE) ? frame.getTemperature() : Double.NaN,
+                frame.has(TelemetryFrame.HUMIDITY) ? frame.getHumidity() : Double.NaN);
+        if (triggers.isEmpty()) {
+            return List.of();
+        }
+        List<AlertDTO> alerts = new ArrayList<>(triggers.size());
+        for (AlertTrigger trigger : triggers) {
+            AlertRule rule = trigger.rule();
+            alerts.add(AlertDTO.builder()
+                    // Derived from the reading: a reprocessed reading raises the same alert id
+                    .alertId(frame.getEventId() + ':' + rule.getId())
+                    .shipmentId(frame.getShipmentId())
+                    .deviceId(frame.getDeviceId())
+                    .alertType(rule.getMetric().getAlertType())
+                    .severity(rule.getSeverity().name())
+                    .alertTimestamp(toLocalDateTime(frame.getEventTimestamp()))
+                    .message(describe(trigger, frame.getEventTimestamp()))
+                    .build());
+            Counter.builder("gateway.alerts.raised")
+                    .tag("type", rule.getMetric().getAlertType())
+                    .tag("severity", rule.getSeverity().name())
+                    .description("Alerts raised by the rule engine")
+                    .register(meterRegistry)
+                    .increment();
+            log.debug("Rule {} fired for device {}", rule.getId(), frame.getDeviceId());
+        }
+        return alerts;
+    }
+
+    /** Drops the rule state of a device that stopped reporting; its next reading starts afresh. */
+    public void forget(String deviceId) {
+        engine.forget(deviceId);
+    }
+
+    public List<AlertRuleDefinition> findAll() {
+        return alertRuleDefinitionRepository.findAll();
+    }
+
+    /** Stores (or replaces) a rule and rebuilds the table. */
+    public AlertRuleDefinition save(AlertRuleDefinition definition) {
+        try {
+            toRule(definition);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPayloadException("Invalid alert rule: " + e.getMessage(), e);
+        }
+        AlertRuleDefinition saved = alertRuleDefinitionRepository.save(definition);
+        reload();
+        return saved;
+    }
+
+    /** @return false if there was no such rule */
+    public boolean delete(String id) {
+        if (!alertRuleDefinitionRepository.existsById(id)) {
+            return false;
+        }
+        alertRuleDefinitionRepository.deleteById(id);
+        reload();
+        return true;
+    }
+
+    /** Recompiles the rules if they changed; keeps the current table if loading fails. */
+    public synchronized void reload() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<AlertRuleDefinition> definitions = alertRuleDefinitionRepository.findAll();
+            if (definitions.equals(compiled)) {
+                return;
+            }
+            List<AlertRule> rules = new ArrayList<>(definitions.size());
+            for (AlertRuleDefinition definition : definitions) {
+                try {
+                    rules.add(toRule(definition));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping alert rule {}: {}", definition.getId(), e.getMessage());
+                }
+            }
+            engine.setTable(new AlertRuleTable(rules));
+            compiled = definitions;
+            log.info("Compiled {} alert rules", rules.size());
+        } catch (RuntimeException e) {
+            log.error("❌ Failed to reload alert rules, keeping {} compiled: {}", engine.getTable().size(), e.getMessage());
+        }
+    }
+
+    static AlertRule toRule(AlertRuleDefinition definition) {
+        if (definition.getLimit() == null) {
+            throw new IllegalArgumentException("limit is required");
+        }
+        return new AlertRule(definition.getId(), definition.getName(), definition.getDeviceId(), definition.getShipmentId(),
+                definition.getMetric(), definition.getKind(), definition.getDirection(), definition.getLimit(),
+                definition.getHysteresis() == null ? 0 : definition.getHysteresis(),
+                definition.getDurationSeconds() == null ? 0 : definition.getDurationSeconds(),
+                definition.getSeverity());
+    }
+
+    private static String describe(AlertTrigger trigger, long epochSecond) {
+        AlertRule rule = trigger.rule();
+        String metric = rule.getMetric().name().toLowerCase(Locale.ROOT);
+        String direction = rule.getDirection().name().toLowerCase(Locale.ROOT);
+        String ruleName = rule.getName() != null ? rule.getName() : rule.getId();
+        return switch (rule.getKind()) {
+            case THRESHOLD -> String.format(Locale.ROOT, "%s %.2f %s limit %.2f (rule %s)",
+                    metric, trigger.reading(), direction, rule.getLimit(), ruleName);
+            case DURATION -> String.format(Locale.ROOT, "%s %.2f %s limit %.2f for %d s (rule %s)",
+                    metric, trigger.reading(), direction, rule.getLimit(), epochSecond - trigger.since(), ruleName);
+            case RATE_OF_CHANGE -> String.format(Locale.ROOT, "%s changing %.2f per minute, %s limit %.2f (rule %s)",
+                    metric, trigger.observed(), direction, rule.getLimit(), ruleName);
+        };
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return Instant.ofEpochSecond(epochSecond).atZone(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
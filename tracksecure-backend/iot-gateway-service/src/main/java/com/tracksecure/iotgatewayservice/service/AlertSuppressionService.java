@@ -0,0 +1,114 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.tracksecure.common.dto.AlertDTO;
+import com.tracksecure.iotgatewayservice.alert.AlertSuppressor;
+import com.tracksecure.iotgatewayservice.kafka.AlertPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Sits between the rule engine and the alerts topic and keeps alert storms off it, see
+ * {@link AlertSuppressor}: a door left open raises one open alert per device and type, whose count
+ * grows and whose severity steps up every {@code escalate-after} repeats, instead of one alert per
+ * reading. Open alerts are held in memory, at most {@code max-open} of them, each closing after
+ * {@code window-ms} without a repeat or when acknowledged through /api/alerts.
+ * <p>
+ * Meters: gateway.alerts.suppression{outcome} (opened, suppressed, escalated),
+ * gateway.alerts.closed{reason} and gateway.alerts.open.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertSuppressionService {
+    private final AlertPublisher alertPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.alerts.suppression.enabled:true}")
+    private boolean enabled;
+    @Value("${gateway.alerts.suppression.window-ms:300000}")
+    private long windowMs;
+    @Value("${gateway.alerts.suppression.max-open:100000}")
+    private long maxOpen;
+    @Value("${gateway.alerts.suppression.escalate-after:10}")
+    private int escalateAfter;
+
+    private AlertSuppressor suppressor;
+    private final Map<AlertSuppressor.Outcome, Counter> outcomeCounters = new EnumMap<>(AlertSuppressor.Outcome.class);
+    private final Map<AlertSuppressor.CloseReason, Counter> closeCounters = new EnumMap<>(AlertSuppressor.CloseReason.class);
+
+    @PostConstruct
+    public void start() {
+        for (AlertSuppressor.Outcome outcome : AlertSuppressor.Outcome.values()) {
+            outcomeCounters.put(outcome, Counter.builder("gateway.alerts.suppression")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .description("Alerts from the rule engine by what suppression did with them")
+                    .register(meterRegistry));
+        }
+        for (AlertSuppressor.CloseReason reason : AlertSuppressor.CloseReason.values()) {
+            closeCounters.put(reason, Counter.builder("gateway.alerts.closed")
+                    .tag("reason", reason.name().toLowerCase())
+                    .description("Open alerts closed")
+                    .register(meterRegistry));
+        }
+        suppressor = new AlertSuppressor(Duration.ofMillis(windowMs), maxOpen, escalateAfter, this::onClose);
+        Gauge.builder("gateway.alerts.open", suppressor, AlertSuppressor::openCount)
+                .description("Alerts open and absorbing repeats")
+                .register(meterRegistry);
+        log.info("Alert suppression {} (window={}ms, maxOpen={}, escalateAfter={})",
+                enabled ? "enabled" : "disabled", windowMs, maxOpen, escalateAfter);
+    }
+
+    /** Publishes the alert, or folds it into the open alert of its device, type and severity. */
+    public void publish(AlertDTO alert) {
+        if (!enabled) {
+            alertPublisher.publish(alert);
+            return;
+        }
+        AlertSuppressor.Decision decision = suppressor.offer(alert);
+        outcomeCounters.get(decision.outcome()).increment();
+        if (decision.publish() != null) {
+            alertPublisher.publish(decision.publish());
+        }
+    }
+
+    /**
+     * Closes an open alert and publishes it acknowledged.
+     *
+     * @return the closed alert, or empty if no alert with this id is open
+     */
+    public Optional<AlertDTO> acknowledge(String alertId, String ackedBy) {
+        Optional<AlertDTO> closed = suppressor.acknowledge(alertId, ackedBy, LocalDateTime.now(ZoneOffset.UTC));
+        closed.ifPresent(alert -> {
+            closeCounters.get(AlertSuppressor.CloseReason.ACKNOWLEDGED).increment();
+            alertPublisher.publish(alert);
+            log.info("Alert {} acknowledged by {} after {} occurrences", alertId, ackedBy, alert.getCount());
+        });
+        return closed;
+    }
+
+    public List<AlertDTO> openAlerts() {
+        return suppressor.openAlerts();
+    }
+
+    private void onClose(AlertSuppressor.CloseReason reason, AlertDTO summary) {
+        closeCounters.get(reason).increment();
+        if (summary != null) {
+            // The repeats folded in since the last publish, so consumers see the final count
+            alertPublisher.publish(summary);
+        }
+    }
+}
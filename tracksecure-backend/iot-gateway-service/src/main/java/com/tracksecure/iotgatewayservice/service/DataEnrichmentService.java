@@ -2,6 +2,7 @@ package com.tracksecure.iotgatewayservice.service;
 
 import com.tracksecure.iotgatewayservice.model.DeviceMessage;
 import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
 import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
 import org.springframework.stereotype.Service;
 
@@ -13,6 +14,7 @@ import java.util.Map;
 
 @Service
 public class DataEnrichmentService {
+    private static final Map<String, Object> SOURCE_METADATA = Map.of("source","iot-gateway");
 
     public EnrichedEvent enrich(TelemetryPayload payload, DeviceMessage message){
         return EnrichedEvent.builder()
@@ -28,7 +30,26 @@ public class DataEnrichmentService {
                 .humidity(payload.getHumidity() != null ? payload.getHumidity().doubleValue() : null)
                 .firmwareVersion(message.getFirmwareVersion())
                 .transmissionMethod(message.getTransmissionMethod())
-                .metadata(Map.of("source","iot-gateway"))
+                .metadata(SOURCE_METADATA)
+                .build();
+    }
+
+    /** The MQTT path: numbers are already doubles, absent ones stay null. */
+    public EnrichedEvent enrich(TelemetryFrame frame, DeviceMessage message){
+        return EnrichedEvent.builder()
+                .eventId(frame.getEventId())
+                .deviceId(frame.getDeviceId())
+                .shipmentId(frame.getShipmentId())
+                .eventType(frame.getEventType())
+                .eventTimestamp(toLocalDateTime(frame.getEventTimestamp()))
+                .receivedTimestamp(toLocalDateTime(message.getReceivedTimestamp()))
+                .latitude(frame.has(TelemetryFrame.LATITUDE) ? frame.getLatitude() : null)
+                .longitude(frame.has(TelemetryFrame.LONGITUDE) ? frame.getLongitude() : null)
+                .temperature(frame.has(TelemetryFrame.TEMPERATURE) ? frame.getTemperature() : null)
+                .humidity(frame.has(TelemetryFrame.HUMIDITY) ? frame.getHumidity() : null)
+                .firmwareVersion(message.getFirmwareVersion())
+                .transmissionMethod(message.getTransmissionMethod())
+                .metadata(SOURCE_METADATA)
                 .build();
     }
 
@@ -0,0 +1,269 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.tracksecure.iotgatewayservice.model.DeviceCredential;
+import com.tracksecure.iotgatewayservice.repository.DeviceCredentialRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisKeyValueAdapter;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.convert.Bucket;
+import org.springframework.data.redis.core.convert.RedisData;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * In-process near-cache of DeviceCredentials in front of the Redis repository.
+ * <ul>
+ *     <li>bounded (size and TTL); unknown devices are cached too, with a shorter TTL</li>
+ *     <li>concurrent misses for one device share a single Redis load</li>
+ *     <li>warmed at startup by reading every credential hash in pipelined batches</li>
+ *     <li>entries are dropped when Redis reports a change to DeviceCredential:&lt;id&gt; (keyspace
+ *     notifications) or when a device id is published on the invalidation channel</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class DeviceCredentialCache {
+    private static final String KEYSPACE = "DeviceCredential";
+    private static final String KEY_PREFIX = KEYSPACE + ":";
+    private static final String NOTIFY_KEYSPACE_EVENTS = "notify-keyspace-events";
+    // K = keyspace channel, g = DEL/EXPIRE..., h = hash commands, x = expired
+    private static final String REQUIRED_KEYSPACE_FLAGS = "Kghx";
+    private static final String ALIASED_BY_A = "g$lshzxetd";
+
+    private final DeviceCredentialRepository deviceCredentialRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisKeyValueAdapter redisKeyValueAdapter;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final PayloadDecryptionService payloadDecryptionService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.credentials.cache.max-size:50000}")
+    private long maxSize;
+    @Value("${gateway.credentials.cache.ttl-ms:600000}")
+    private long ttlMs;
+    @Value("${gateway.credentials.cache.negative-ttl-ms:30000}")
+    private long negativeTtlMs;
+    @Value("${gateway.credentials.cache.warm-up:true}")
+    private boolean warmUp;
+    @Value("${gateway.credentials.cache.warm-up-batch-size:500}")
+    private int warmUpBatchSize;
+    @Value("${gateway.credentials.cache.configure-keyspace-events:true}")
+    private boolean configureKeyspaceEvents;
+    @Value("${gateway.credentials.cache.invalidation-channel:device-credentials:invalidate}")
+    private String invalidationChannel;
+
+    private LoadingCache<String, Optional<DeviceCredential>> cache;
+    private Counter invalidationCounter;
+
+    public DeviceCredentialCache(DeviceCredentialRepository deviceCredentialRepository,
+                                 StringRedisTemplate stringRedisTemplate,
+                                 RedisKeyValueAdapter redisKeyValueAdapter,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 PayloadDecryptionService payloadDecryptionService,
+                                 MeterRegistry meterRegistry) {
+        this.deviceCredentialRepository = deviceCredentialRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisKeyValueAdapter = redisKeyValueAdapter;
+        this.listenerContainer = listenerContainer;
+        this.payloadDecryptionService = payloadDecryptionService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        long ttlNanos = Duration.ofMillis(ttlMs).toNanos();
+        long negativeTtlNanos = Duration.ofMillis(negativeTtlMs).toNanos();
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Optional<DeviceCredential>>() {
+                    @Override
+                    public long expireAfterCreate(String deviceId, Optional<DeviceCredential> credential, long currentTime) {
+                        return credential.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String deviceId, Optional<DeviceCredential> credential, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(deviceId, credential, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String deviceId, Optional<DeviceCredential> credential, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String deviceId, Optional<DeviceCredential> credential, RemovalCause cause) -> {
+                    // A changed or revoked secret must not keep its key material around in the decryption engine
+                    if (cause == RemovalCause.EXPLICIT && credential != null) {
+                        credential.map(DeviceCredential::getSecretKey).ifPresent(payloadDecryptionService::evictKey);
+                    }
+                })
+                .recordStats()
+                // LoadingCache.get runs one load per key; concurrent callers for that key wait for it
+                .build(deviceCredentialRepository::findById);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "device.credentials");
+        invalidationCounter = meterRegistry.counter("device.credentials.invalidations");
+
+        subscribeToInvalidations();
+        if (warmUp) {
+            warmUp();
+        }
+    }
+
+    /** The credential of a device, from memory when possible; empty if Redis has none. */
+    public Optional<DeviceCredential> get(String deviceId) {
+        return cache.get(deviceId);
+    }
+
+    public void invalidate(String deviceId) {
+        cache.invalidate(deviceId);
+        invalidationCounter.increment();
+        log.debug("Invalidated cached credential of {}", deviceId);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private void subscribeToInvalidations() {
+        if (configureKeyspaceEvents) {
+            try {
+                // The setting is server-wide: only add the flags we need to whatever is there
+                stringRedisTemplate.execute((RedisCallback<Void>) connection -> {
+                    Properties config = connection.serverCommands().getConfig(NOTIFY_KEYSPACE_EVENTS);
+                    String current = config == null ? "" : config.getProperty(NOTIFY_KEYSPACE_EVENTS, "");
+                    String merged = withKeyspaceFlags(current, REQUIRED_KEYSPACE_FLAGS);
+                    if (!merged.equals(current)) {
+                        connection.serverCommands().setConfig(NOTIFY_KEYSPACE_EVENTS, merged);
+                        log.info("Keyspace notifications changed from \"{}\" to \"{}\"", current, merged);
+                    }
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                // Managed Redis often forbids CONFIG; the server must then be configured up front
+                log.warn("Could not enable keyspace notifications ({}); relying on {} and TTL",
+                        e.getMessage(), invalidationChannel);
+            }
+        }
+        listenerContainer.addMessageListener(this::onKeyspaceEvent, new PatternTopic("__keyspace@*__:" + KEY_PREFIX + "*"));
+        listenerContainer.addMessageListener(this::onInvalidationMessage, new ChannelTopic(invalidationChannel));
+    }
+
+    /**
+     * {@code current} plus those of {@code required} it lacks. A flag counts as present when the
+     * alias A (every event class except key-miss and new-key) stands for it.
+     */
+    static String withKeyspaceFlags(String current, String required) {
+        StringBuilder merged = new StringBuilder(current);
+        for (char flag : required.toCharArray()) {
+            boolean aliased = current.indexOf('A') >= 0 && ALIASED_BY_A.indexOf(flag) >= 0;
+            if (merged.indexOf(String.valueOf(flag)) < 0 && !aliased) {
+                merged.append(flag);
+            }
+        }
+        return merged.toString();
+    }
+
+    private void onKeyspaceEvent(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int prefix = channel.indexOf(KEY_PREFIX);
+        if (prefix < 0) {
+            return;
+        }
+        String deviceId = channel.substring(prefix + KEY_PREFIX.length());
+        // Secondary index keys (DeviceCredential:serialNumber:..., DeviceCredential:<id>:idx) are not entities
+        if (!deviceId.isEmpty() && deviceId.indexOf(':') < 0) {
+            invalidate(deviceId);
+        }
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String deviceId = new String(message.getBody(), StandardCharsets.UTF_8).trim();
+        if (!deviceId.isEmpty()) {
+            invalidate(deviceId);
+        }
+    }
+
+    /**
+     * Loads every credential with SMEMBERS plus pipelined HGETALLs, instead of the one round trip
+     * per entity that CrudRepository.findAll would make. Failures only cost the warm start.
+     */
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            Set<String> deviceIds = stringRedisTemplate.opsForSet().members(KEYSPACE);
+            if (deviceIds == null || deviceIds.isEmpty()) {
+                return;
+            }
+            List<String> ids = new ArrayList<>(deviceIds);
+            int loaded = 0;
+            for (int from = 0; from < ids.size(); from += warmUpBatchSize) {
+                List<String> batch = ids.subList(from, Math.min(ids.size(), from + warmUpBatchSize));
+                List<Object> hashes = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (String id : batch) {
+                        hGetAll(connection, id);
+                    }
+                    return null;
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    DeviceCredential credential = toCredential(batch.get(i), hashes.get(i));
+                    if (credential != null) {
+                        cache.put(batch.get(i), Optional.of(credential));
+                        loaded++;
+                    }
+                }
+            }
+            log.info("Warmed credential cache with {} devices in {} ms", loaded, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Credential cache warm-up failed, loading on demand: {}", e.getMessage());
+        }
+    }
+
+    private static void hGetAll(RedisConnection connection, String deviceId) {
+        connection.hashCommands().hGetAll((KEY_PREFIX + deviceId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DeviceCredential toCredential(String deviceId, Object hash) {
+        if (!(hash instanceof Map<?, ?> fields) || fields.isEmpty()) {
+            return null;
+        }
+        // executePipelined decodes hashes with the template's (String) hash serializers
+        Map<byte[], byte[]> raw = new HashMap<>(fields.size() * 2);
+        fields.forEach((field, value) -> raw.put(toBytes(field), toBytes(value)));
+        // Same mapping the repository applies, so warmed and lazily loaded entries are identical
+        RedisData data = new RedisData(Bucket.newBucketFromRawMap(raw));
+        data.setId(deviceId);
+        data.setKeyspace(KEYSPACE);
+        return redisKeyValueAdapter.getConverter().read(DeviceCredential.class, data);
+    }
+
+    private static byte[] toBytes(Object value) {
+        return value instanceof byte[] bytes ? bytes : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
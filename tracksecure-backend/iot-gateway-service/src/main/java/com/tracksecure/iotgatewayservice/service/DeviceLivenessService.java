@@ -0,0 +1,231 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.tracksecure.common.dto.DeviceDTO;
+import com.tracksecure.iotgatewayservice.kafka.DeviceStatusPublisher;
+import com.tracksecure.iotgatewayservice.kafka.TrackingEventPublisher;
+import com.tracksecure.iotgatewayservice.liveness.DeviceLiveness;
+import com.tracksecure.iotgatewayservice.liveness.DeviceLivenessTracker;
+import com.tracksecure.iotgatewayservice.liveness.LivenessTransition;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells which devices are reporting, see {@link DeviceLivenessTracker}. Every accepted message
+ * touches its device; a device silent for {@code missed-intervals} times its expected interval goes
+ * offline, which is published as a DEVICE_FAILURE tracking event and as an OFFLINE status on the
+ * compacted device-status topic. Its next message publishes ONLINE again. A device silent for
+ * {@code forget-after-ms} is dropped, and with it its alert rule state.
+ * <p>
+ * The expected interval is taken from {@code device-intervals} for the device, else from
+ * {@code firmware-intervals} for its firmware version, else {@code default-interval-ms}. Both maps
+ * are written {@code key:millis,key:millis}.
+ * <p>
+ * Liveness is kept in memory: a device that went silent before a restart is unknown until it
+ * reports again. Meters: gateway.liveness.transitions{state}, gateway.liveness.devices.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceLivenessService {
+    private final TrackingEventPublisher trackingEventPublisher;
+    private final DeviceStatusPublisher deviceStatusPublisher;
+    private final AlertRuleService alertRuleService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.liveness.enabled:true}")
+    private boolean enabled;
+    @Value("${gateway.liveness.tick-ms:1000}")
+    private long tickMs;
+    @Value("${gateway.liveness.default-interval-ms:60000}")
+    private long defaultIntervalMs;
+    @Value("${gateway.liveness.missed-intervals:3}")
+    private int missedIntervals;
+    @Value("${gateway.liveness.forget-after-ms:604800000}")
+    private long forgetAfterMs;
+    @Value("${gateway.liveness.firmware-intervals:}")
+    private String firmwareIntervals;
+    @Value("${gateway.liveness.device-intervals:}")
+    private String deviceIntervals;
+
+    private DeviceLivenessTracker tracker;
+    private Map<String, Long> intervalByFirmware;
+    private Map<String, Long> intervalByDevice;
+    private ScheduledExecutorService ticker;
+    private final Map<DeviceLiveness.State, Counter> transitionCounters = new EnumMap<>(DeviceLiveness.State.class);
+
+    @PostConstruct
+    public void start() {
+        intervalByFirmware = parseIntervals("gateway.liveness.firmware-intervals", firmwareIntervals);
+        intervalByDevice = parseIntervals("gateway.liveness.device-intervals", deviceIntervals);
+        long now = System.currentTimeMillis();
+        tracker = new DeviceLivenessTracker(tickMs, forgetAfterMs, now);
+
+        for (DeviceLiveness.State state : List.of(DeviceLiveness.State.ONLINE, DeviceLiveness.State.OFFLINE)) {
+            transitionCounters.put(state, Counter.builder("gateway.liveness.transitions")
+                    .tag("state", state.name().toLowerCase())
+                    .description("Devices going offline, or online again after being offline")
+                    .register(meterRegistry));
+        }
+        Gauge.builder("gateway.liveness.devices", tracker, DeviceLivenessTracker::size)
+                .description("Devices tracked for liveness, online or offline")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            log.info("Device liveness disabled");
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "liveness-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("Device liveness started (tick={}ms, defaultInterval={}ms, missedIntervals={}, {} firmware and {} device intervals)",
+                tickMs, defaultIntervalMs, missedIntervals, intervalByFirmware.size(), intervalByDevice.size());
+    }
+
+    /** Records an accepted message of the event's device; publishes ONLINE if it was offline. */
+    public void touch(EnrichedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long timeoutMillis = expectedIntervalMillis(event.getDeviceId(), event.getFirmwareVersion()) * missedIntervals;
+        LivenessTransition transition = tracker.touch(event.getDeviceId(), event.getShipmentId(),
+                event.getFirmwareVersion(), timeoutMillis, System.currentTimeMillis());
+        if (transition != null) {
+            publish(transition);
+        }
+    }
+
+    public Optional<DeviceDTO> status(String deviceId) {
+        return Optional.ofNullable(tracker.get(deviceId)).map(DeviceLivenessService::toDto);
+    }
+
+    /**
+     * @param state ONLINE or OFFLINE, or null for both
+     * @return at most {@code limit} devices, those silent longest first
+     */
+    public List<DeviceDTO> statuses(DeviceLiveness.State state, int limit) {
+        List<DeviceLiveness> matching = new ArrayList<>();
+        for (DeviceLiveness device : tracker.devices()) {
+            if (state == null || device.getState() == state) {
+                matching.add(device);
+            }
+        }
+        matching.sort(Comparator.comparingLong(DeviceLiveness::getLastSeenMillis));
+        List<DeviceDTO> statuses = new ArrayList<>(Math.min(limit, matching.size()));
+        for (int i = 0; i < matching.size() && i < limit; i++) {
+            statuses.add(toDto(matching.get(i)));
+        }
+        return statuses;
+    }
+
+    private long expectedIntervalMillis(String deviceId, String firmwareVersion) {
+        if (!intervalByDevice.isEmpty()) {
+            Long interval = intervalByDevice.get(deviceId);
+            if (interval != null) {
+                return interval;
+            }
+        }
+        if (firmwareVersion != null && !intervalByFirmware.isEmpty()) {
+            Long interval = intervalByFirmware.get(firmwareVersion);
+            if (interval != null) {
+                return interval;
+            }
+        }
+        return defaultIntervalMs;
+    }
+
+    private void tick() {
+        try {
+            for (LivenessTransition transition : tracker.advance(System.currentTimeMillis())) {
+                if (transition.state() == DeviceLiveness.State.FORGOTTEN) {
+                    log.debug("Device {} forgotten after {}s of silence", transition.device().getDeviceId(),
+                            transition.silentMillis() / 1000);
+                    alertRuleService.forget(transition.device().getDeviceId());
+                } else {
+                    publish(transition);
+                }
+            }
+        } catch (Exception e) {
+            // Keep ticking: an exception would cancel the schedule
+            log.error("❌ Liveness tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void publish(LivenessTransition transition) {
+        DeviceLiveness device = transition.device();
+        transitionCounters.get(transition.state()).increment();
+        if (transition.state() == DeviceLiveness.State.OFFLINE) {
+            log.warn("Device {} offline, silent for {}s", device.getDeviceId(), transition.silentMillis() / 1000);
+            trackingEventPublisher.publishDeviceFailure(device.getDeviceId(), device.getShipmentId(),
+                    device.getLastSeenMillis(),
+                    "No message for " + transition.silentMillis() / 1000 + "s (expected every "
+                            + device.getTimeoutMillis() / missedIntervals / 1000 + "s)");
+        } else {
+            log.info("Device {} back online after {}s", device.getDeviceId(), transition.silentMillis() / 1000);
+        }
+        DeviceDTO status = toDto(device);
+        // The transition's state, not the entry's: the device may have moved on already
+        status.setStatus(transition.state().name());
+        deviceStatusPublisher.publish(status);
+    }
+
+    private static DeviceDTO toDto(DeviceLiveness device) {
+        return DeviceDTO.builder()
+                .deviceId(device.getDeviceId())
+                .firmwareVersion(device.getFirmwareVersion())
+                .status(device.getState().name())
+                .lastCommunicationTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(device.getLastSeenMillis()), ZoneOffset.UTC))
+                .assignedShipementId(device.getShipmentId())
+                .build();
+    }
+
+    private static Map<String, Long> parseIntervals(String property, String value) {
+        Map<String, Long> intervals = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return intervals;
+        }
+        for (String entry : value.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException(property + ": expected key:millis, got '" + entry.trim() + "'");
+            }
+            long millis = Long.parseLong(entry.substring(colon + 1).trim());
+            if (millis <= 0) {
+                throw new IllegalArgumentException(property + ": interval of " + entry.trim() + " must be positive");
+            }
+            intervals.put(entry.substring(0, colon).trim(), millis);
+        }
+        return intervals;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
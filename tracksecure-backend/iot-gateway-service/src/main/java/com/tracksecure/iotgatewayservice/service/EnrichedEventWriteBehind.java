@@ -0,0 +1,311 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batching sink for {@link EnrichedEvent}s, replacing one save round trip per message.
+ * <p>
+ * Worker lanes hand events to {@link #submit(EnrichedEvent)}. Flusher threads write each batch as a
+ * single unordered bulk insert once {@code batch-size} events are waiting or {@code flush-interval-ms}
+ * has elapsed since the first one arrived. Transient errors (connection, timeout, primary step-down)
+ * retry the whole batch up to {@code max-attempts} times with doubling backoff. A duplicate key means
+ * the event is already stored (an earlier attempt or a redelivery) and counts as written. Items
+ * that fail in any other way are saved one by one, so one bad document does not fail its batch.
+ * The events of each batch that were stored are then folded into the latest states.
+ * <p>
+ * The queue is bounded: when it is full, {@link #submit} blocks the lane, which backs up into the
+ * dispatcher and the MQTT intake as everywhere else in the pipeline.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EnrichedEventWriteBehind {
+    private static final int DUPLICATE_KEY = 11000;
+    private static final String RETRYABLE_WRITE_ERROR = "RetryableWriteError";
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final LatestStateService latestStateService;
+
+    @Value("${gateway.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${gateway.persistence.batch-size:500}")
+    private int batchSize;
+    @Value("${gateway.persistence.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    @Value("${gateway.persistence.flushers:2}")
+    private int flusherCount;
+    @Value("${gateway.persistence.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${gateway.persistence.retry-backoff-ms:100}")
+    private long retryBackoffMs;
+    @Value("${gateway.persistence.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private record Pending(EnrichedEvent event, CompletableFuture<Void> stored) {
+    }
+
+    private BlockingQueue<Pending> queue;
+    private Thread[] flushers;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private DistributionSummary batchSizeSummary;
+    private Counter writtenCounter;
+    private Counter duplicateCounter;
+    private Counter fallbackCounter;
+    private Counter failedCounter;
+    private Counter retryCounter;
+    private Counter blockedCounter;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("gateway.persistence.queue.depth", queue, BlockingQueue::size)
+                .description("Enriched events waiting for the next bulk insert")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("gateway.persistence.flush")
+                .description("Latency of one bulk insert, retries and per-document fallback included")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("gateway.persistence.batch.size")
+                .description("Events per bulk insert")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        writtenCounter = meterRegistry.counter("gateway.persistence.written");
+        duplicateCounter = meterRegistry.counter("gateway.persistence.duplicates");
+        fallbackCounter = meterRegistry.counter("gateway.persistence.fallbacks");
+        failedCounter = meterRegistry.counter("gateway.persistence.failed");
+        retryCounter = meterRegistry.counter("gateway.persistence.retries");
+        blockedCounter = meterRegistry.counter("gateway.persistence.blocked");
+
+        running = true;
+        flushers = new Thread[Math.max(1, flusherCount)];
+        for (int i = 0; i < flushers.length; i++) {
+            flushers[i] = new Thread(this::runFlusher, "event-write-behind-" + i);
+            flushers[i].setDaemon(true);
+            flushers[i].start();
+        }
+        log.info("Event write-behind started (capacity={}, batchSize={}, flushInterval={}ms, flushers={}, maxAttempts={})",
+                queueCapacity, batchSize, flushIntervalMs, flushers.length, maxAttempts);
+    }
+
+    /**
+     * Queues an event for the next bulk insert, waiting while the queue is full.
+     *
+     * @return completes once the event is stored, or exceptionally with the error that kept it out
+     */
+    public CompletableFuture<Void> submit(EnrichedEvent event) throws InterruptedException {
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+        if (!running) {
+            stored.completeExceptionally(new IllegalStateException("Event write-behind is stopped"));
+            return stored;
+        }
+        Pending pending = new Pending(event, stored);
+        if (!queue.offer(pending)) {
+            blockedCounter.increment();
+            queue.put(pending);
+        }
+        return stored;
+    }
+
+    private void runFlusher() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and write whatever we already hold
+                queue.drainTo(batch);
+                running = false;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            insert(batch);
+        } finally {
+            sample.stop(flushTimer);
+            batchSizeSummary.record(batch.size());
+        }
+        List<EnrichedEvent> stored = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (!pending.stored().isCompletedExceptionally()) {
+                stored.add(pending.event());
+            }
+        }
+        latestStateService.apply(stored);
+    }
+
+    private void insert(List<Pending> batch) {
+        List<EnrichedEvent> events = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            events.add(pending.event());
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                mongoTemplate.bulkOps(BulkMode.UNORDERED, EnrichedEvent.class).insert(events).execute();
+                writtenCounter.increment(batch.size());
+                batch.forEach(pending -> pending.stored().complete(null));
+                log.debug("Flushed {} enriched events to MongoDB", batch.size());
+                return;
+            } catch (BulkOperationException e) {
+                // Unordered: every item without an error was inserted
+                handleItemErrors(batch, e.getErrors());
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || attempt >= maxAttempts) {
+                    fail(batch, e);
+                    return;
+                }
+                retryCounter.increment();
+                log.warn("Bulk insert of {} events failed (attempt {}/{}), retrying: {}",
+                        batch.size(), attempt, maxAttempts, e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs << (attempt - 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    fail(batch, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handleItemErrors(List<Pending> batch, List<BulkWriteError> errors) {
+        BitSet failed = new BitSet(batch.size());
+        BitSet duplicates = new BitSet(batch.size());
+        for (BulkWriteError error : errors) {
+            (isDuplicateId(error) ? duplicates : failed).set(error.getIndex());
+        }
+        duplicateCounter.increment(duplicates.cardinality());
+        writtenCounter.increment(batch.size() - failed.cardinality());
+        for (int i = 0; i < batch.size(); i++) {
+            if (!failed.get(i)) {
+                batch.get(i).stored().complete(null);
+            }
+        }
+        for (int i = failed.nextSetBit(0); i >= 0; i = failed.nextSetBit(i + 1)) {
+            saveOne(batch.get(i));
+        }
+    }
+
+    private void saveOne(Pending pending) {
+        fallbackCounter.increment();
+        try {
+            mongoTemplate.save(pending.event());
+            writtenCounter.increment();
+            pending.stored().complete(null);
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            log.error("❌ Failed to store event {}: {}", pending.event().getEventId(), e.getMessage());
+            pending.stored().completeExceptionally(e);
+        }
+    }
+
+    private void fail(List<Pending> batch, RuntimeException error) {
+        failedCounter.increment(batch.size());
+        log.error("❌ Failed to write {} enriched events to MongoDB: {}", batch.size(), error.getMessage());
+        batch.forEach(pending -> pending.stored().completeExceptionally(error));
+    }
+
+    /** A duplicate of the event id itself; duplicates on any other unique index are real failures. */
+    private static boolean isDuplicateId(BulkWriteError error) {
+        if (error.getCode() != DUPLICATE_KEY) {
+            return false;
+        }
+        BsonValue keyPattern = error.getDetails().get("keyPattern");
+        if (keyPattern != null && keyPattern.isDocument()) {
+            return keyPattern.asDocument().containsKey("_id");
+        }
+        return error.getMessage() != null && error.getMessage().contains("index: _id_ ");
+    }
+
+    // MongoTemplate translates some driver errors and lets others through, so check both kinds
+    private static boolean isTransient(RuntimeException e) {
+        if (e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException) {
+            return true;
+        }
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof MongoSocketException || cause instanceof MongoTimeoutException) {
+                return true;
+            }
+            if (cause instanceof MongoException mongo && mongo.hasErrorLabel(RETRYABLE_WRITE_ERROR)) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            for (Thread flusher : flushers) {
+                flusher.join(shutdownTimeoutMs);
+                if (flusher.isAlive()) {
+                    log.warn("Event write-behind did not drain within {}ms, {} events lost", shutdownTimeoutMs, queue.size());
+                    flusher.interrupt();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
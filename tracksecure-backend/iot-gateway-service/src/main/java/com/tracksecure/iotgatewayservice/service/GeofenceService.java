@@ -0,0 +1,196 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.geofence.CircleGeofence;
+import com.tracksecure.iotgatewayservice.geofence.Geofence;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceEvaluator;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceIndex;
+import com.tracksecure.iotgatewayservice.geofence.GeofenceTransition;
+import com.tracksecure.iotgatewayservice.geofence.PolygonGeofence;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import com.tracksecure.iotgatewayservice.model.GeofenceDefinition;
+import com.tracksecure.iotgatewayservice.model.GeofenceDefinition.Vertex;
+import com.tracksecure.iotgatewayservice.repository.GeofenceDefinitionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geofences for the ingest pipeline: keeps the fences of the geofences collection in a
+ * {@link GeofenceIndex} and reports the entries and exits each location update causes.
+ * <p>
+ * The index is rebuilt from MongoDB at startup, after every change made through this service,
+ * and every {@code refresh-interval-ms} to pick up changes made by other instances or directly
+ * in the database. A rebuild that fails keeps the previous index; a definition that does not
+ * form a valid shape is logged and left out.
+ * <p>
+ * Meters: gateway.geofence.transitions{type}, gateway.geofence.fences and
+ * gateway.geofence.devices-inside.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GeofenceService {
+    private final GeofenceDefinitionRepository geofenceDefinitionRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.geofence.enabled:true}")
+    private boolean enabled;
+    @Value("${gateway.geofence.cell-degrees:0.05}")
+    private double cellDegrees;
+    @Value("${gateway.geofence.max-cells-per-fence:1024}")
+    private int maxCellsPerFence;
+    @Value("${gateway.geofence.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    private final GeofenceEvaluator evaluator = new GeofenceEvaluator(GeofenceIndex.empty());
+    private ScheduledExecutorService refresher;
+
+    private Counter entryCounter;
+    private Counter exitCounter;
+
+    @PostConstruct
+    public void start() {
+        entryCounter = transitions(GeofenceTransition.Type.ENTRY);
+        exitCounter = transitions(GeofenceTransition.Type.EXIT);
+        Gauge.builder("gateway.geofence.fences", evaluator, e -> e.getIndex().size())
+                .description("Geofences in the index")
+                .register(meterRegistry);
+        Gauge.builder("gateway.geofence.devices-inside", evaluator, GeofenceEvaluator::trackedDevices)
+                .description("Devices inside at least one geofence")
+                .register(meterRegistry);
+        if (!enabled) {
+            log.info("Geofence evaluation disabled");
+            return;
+        }
+        reload();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "geofence-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::reload, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the fences the event's device entered or left; empty without a location
+     */
+    public List<GeofenceTransition> evaluate(EnrichedEvent event) {
+        if (!enabled || event.getLatitude() == null || event.getLongitude() == null) {
+            return List.of();
+        }
+        List<GeofenceTransition> transitions = evaluator.evaluate(
+                event.getDeviceId(), event.getShipmentId(), event.getLatitude(), event.getLongitude());
+        for (GeofenceTransition transition : transitions) {
+            (transition.type() == GeofenceTransition.Type.ENTRY ? entryCounter : exitCounter).increment();
+            log.debug("Device {} {} geofence {}", event.getDeviceId(),
+                    transition.type() == GeofenceTransition.Type.ENTRY ? "entered" : "left", transition.fence().getId());
+        }
+        return transitions;
+    }
+
+    public List<GeofenceDefinition> findAll() {
+        return geofenceDefinitionRepository.findAll();
+    }
+
+    /** Stores (or replaces) a fence and rebuilds the index. */
+    public GeofenceDefinition save(GeofenceDefinition definition) {
+        try {
+            toGeofence(definition);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPayloadException("Invalid geofence: " + e.getMessage(), e);
+        }
+        GeofenceDefinition saved = geofenceDefinitionRepository.save(definition);
+        reload();
+        return saved;
+    }
+
+    /** @return false if there was no such fence */
+    public boolean delete(String id) {
+        if (!geofenceDefinitionRepository.existsById(id)) {
+            return false;
+        }
+        geofenceDefinitionRepository.deleteById(id);
+        reload();
+        return true;
+    }
+
+    /** Rebuilds the index from the geofences collection; keeps the current one if that fails. */
+    public synchronized void reload() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            List<Geofence> fences = new ArrayList<>();
+            for (GeofenceDefinition definition : geofenceDefinitionRepository.findAll()) {
+                try {
+                    fences.add(toGeofence(definition));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping geofence {}: {}", definition.getId(), e.getMessage());
+                }
+            }
+            evaluator.setIndex(new GeofenceIndex(fences, cellDegrees, maxCellsPerFence));
+            log.debug("Indexed {} geofences in {} ms", fences.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("❌ Failed to reload geofences, keeping {} indexed: {}", evaluator.getIndex().size(), e.getMessage());
+        }
+    }
+
+    static Geofence toGeofence(GeofenceDefinition definition) {
+        if (definition.getType() == null) {
+            throw new IllegalArgumentException("type is required");
+        }
+        return switch (definition.getType()) {
+            case CIRCLE -> {
+                if (definition.getCenterLatitude() == null || definition.getCenterLongitude() == null
+                        || definition.getRadiusMeters() == null) {
+                    throw new IllegalArgumentException("a circle needs centerLatitude, centerLongitude and radiusMeters");
+                }
+                yield new CircleGeofence(definition.getId(), definition.getName(), definition.getShipmentId(),
+                        definition.getCenterLatitude(), definition.getCenterLongitude(), definition.getRadiusMeters());
+            }
+            case POLYGON -> {
+                List<Vertex> vertices = definition.getVertices() == null ? List.of() : definition.getVertices();
+                double[] latitudes = new double[vertices.size()];
+                double[] longitudes = new double[vertices.size()];
+                for (int i = 0; i < vertices.size(); i++) {
+                    Vertex vertex = vertices.get(i);
+                    if (vertex == null || vertex.getLatitude() == null || vertex.getLongitude() == null) {
+                        throw new IllegalArgumentException("vertex " + i + " needs latitude and longitude");
+                    }
+                    latitudes[i] = vertex.getLatitude();
+                    longitudes[i] = vertex.getLongitude();
+                }
+                yield new PolygonGeofence(definition.getId(), definition.getName(), definition.getShipmentId(),
+                        latitudes, longitudes);
+            }
+        };
+    }
+
+    private Counter transitions(GeofenceTransition.Type type) {
+        return Counter.builder("gateway.geofence.transitions")
+                .tag("type", type.name().toLowerCase())
+                .description("Geofence entries and exits detected")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -1,25 +1,305 @@
 package com.tracksecure.iotgatewayservice.service;
 
 
-import lombok.RequiredArgsConstructor;
+import com.tracksecure.common.util.TimeWindowedBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Exactly-once admission of device messages, keyed by device id and message id.
+ * <p>
+ * A claim is a single atomic {@code SET key NX PX ttl}: whoever sets the key first processes the
+ * message, everyone else sees a duplicate. In front of Redis sits a {@link TimeWindowedBloomFilter}
+ * of the keys this instance has claimed:
+ * <ul>
+ *     <li>definitely new (the common case) - the message is admitted at once and its claim is
+ *     written to Redis in the background, in pipelined batches</li>
+ *     <li>maybe seen - the claim is made synchronously; if Redis accepts it the filter answer
+ *     was a false positive</li>
+ * </ul>
+ * A background claim that Redis rejects means another instance (or this one, after the filter
+ * forgot the key) already had the message; it is counted as a late duplicate.
+ * <p>
+ * Meters: gateway.idempotency.messages{result}, gateway.idempotency.filter{outcome},
+ * gateway.idempotency.late-duplicates, gateway.idempotency.filter.expected-fpp and
+ * gateway.idempotency.pending.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class IdempotencyService {
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final byte[] CLAIMED = "processed".getBytes(StandardCharsets.UTF_8);
+
     private final StringRedisTemplate stringRedisTemplate;
-    private static final Duration TTL = Duration.ofMinutes(10); //(time to live) which means each key will automatically expires after 10 minutes
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.idempotency.ttl-ms:600000}")
+    private long ttlMs;
+    @Value("${gateway.idempotency.local-filter.enabled:true}")
+    private boolean localFilterEnabled;
+    @Value("${gateway.idempotency.local-filter.expected-keys:1000000}")
+    private long expectedKeys;
+    @Value("${gateway.idempotency.local-filter.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+    @Value("${gateway.idempotency.write-behind.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    @Value("${gateway.idempotency.write-behind.batch-size:500}")
+    private int batchSize;
+    @Value("${gateway.idempotency.write-behind.max-pending:100000}")
+    private int maxPending;
+
+    private TimeWindowedBloomFilter filter;
+    // Claims admitted locally but not yet written to Redis
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<String> pendingQueue = new ConcurrentLinkedQueue<>();
+    // Held by a flush from taking its batch until the batch is out of pending, and by release
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    private Counter newMessages;
+    private Counter duplicateMessages;
+    private Counter filterNegatives;
+    private Counter filterFalsePositives;
+    private Counter filterTruePositives;
+    private Counter lateDuplicates;
+    private Counter redisErrors;
+
+    public IdempotencyService(StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        newMessages = messages("new");
+        duplicateMessages = messages("duplicate");
+        filterNegatives = filterOutcome("definitely-new");
+        filterFalsePositives = filterOutcome("false-positive");
+        filterTruePositives = filterOutcome("duplicate");
+        lateDuplicates = Counter.builder("gateway.idempotency.late-duplicates")
+                .description("Background claims rejected by Redis: duplicates admitted before Redis was asked")
+                .register(meterRegistry);
+        redisErrors = Counter.builder("gateway.idempotency.redis-errors")
+                .description("Claims that could not reach Redis; the message was admitted")
+                .register(meterRegistry);
+        Gauge.builder("gateway.idempotency.pending", pending, Set::size)
+                .description("Admitted messages whose claim is not yet in Redis")
+                .register(meterRegistry);
+
+        if (localFilterEnabled) {
+            // The filter must remember a key at least as long as Redis does
+            filter = new TimeWindowedBloomFilter(expectedKeys, falsePositiveRate, ttlMs);
+            Gauge.builder("gateway.idempotency.filter.expected-fpp", filter, TimeWindowedBloomFilter::expectedFalsePositiveRate)
+                    .description("False positive probability of the local filter at its current fill")
+                    .register(meterRegistry);
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "idempotency-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            log.info("Idempotency filter: {} bits, {} hashes, window {} ms",
+                    filter.getBitCount(), filter.getHashCount(), ttlMs);
+        }
+    }
+
+    /** The Redis key of a device message, or null if the message carries no id to deduplicate on. */
+    public static String keyOf(String deviceId, String messageId) {
+        if (deviceId == null || messageId == null || messageId.isBlank()) {
+            return null;
+        }
+        return KEY_PREFIX + deviceId + ':' + messageId;
+    }
+
+    /**
+     * Claims a key for processing.
+     *
+     * @return true if the caller is the first to claim it and should process the message
+     */
+    public boolean claim(String key) {
+        return claim(key, false);
+    }
+
+    /**
+     * Claims a key for processing. A redelivery (MQTT DUP flag) is claimed in Redis directly, not
+     * through the local filter: with a shared subscription the broker may hand it to an instance
+     * whose filter never saw the first delivery.
+     *
+     * @return true if the caller is the first to claim it and should process the message
+     */
+    public boolean claim(String key, boolean redelivered) {
+        boolean claimed = localFilterEnabled && !redelivered ? claimThroughFilter(key) : claimInRedis(key);
+        (claimed ? newMessages : duplicateMessages).increment();
+        return claimed;
+    }
+
+    /**
+     * Claims many keys in one pipelined round trip, bypassing the local filter.
+     *
+     * @return per key, in order, whether this call claimed it
+     */
+    public List<Boolean> claimAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        Expiration expiration = Expiration.milliseconds(ttlMs);
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), CLAIMED, expiration, SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+        List<Boolean> claimed = new ArrayList<>(replies.size());
+        for (Object reply : replies) {
+            claimed.add(Boolean.TRUE.equals(reply));
+        }
+        return claimed;
+    }
+
+    /**
+     * Gives a claim back after processing failed, so a redelivery of the message is not dropped.
+     * The local filter cannot forget the key; the redelivery costs one synchronous claim.
+     * <p>
+     * A key still pending is simply dropped, unless a flush is writing it right now: the lock
+     * waits for that write, and the key is then deleted from Redis like any other.
+     */
+    public void release(String key) {
+        synchronized (flushLock) {
+            if (pending.remove(key)) {
+                return;
+            }
+        }
+        try {
+            stringRedisTemplate.delete(key);
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    private boolean claimThroughFilter(String key) {
+        if (!filter.putAndCheck(key)) {
+            filterNegatives.increment();
+            if (pending.size() >= maxPending) {
+                // Redis is not keeping up with the background claims: fall back to waiting for it
+                return claimInRedis(key);
+            }
+            pending.add(key);
+            pendingQueue.add(key);
+            return true;
+        }
+        if (pending.contains(key)) {
+            // Seen moments ago, its background claim has not been flushed yet
+            filterTruePositives.increment();
+            return false;
+        }
+        boolean claimed = claimInRedis(key);
+        (claimed ? filterFalsePositives : filterTruePositives).increment();
+        return claimed;
+    }
+
+    private boolean claimInRedis(String key) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, "processed", Duration.ofMillis(ttlMs)));
+        } catch (RuntimeException e) {
+            // Failing open: a duplicate is cheaper than dropping telemetry while Redis is away
+            redisErrors.increment();
+            log.warn("Idempotency claim of {} failed, admitting the message: {}", key, e.getMessage());
+            return true;
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            while (flush() == batchSize) {
+                // a full batch means more may be waiting
+            }
+        } catch (RuntimeException e) {
+            log.warn("Writing idempotency claims to Redis failed: {}", e.getMessage());
+        }
+    }
+
+    private int flush() {
+        synchronized (flushLock) {
+            return flushLocked();
+        }
+    }
+
+    private int flushLocked() {
+        List<String> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        String key;
+        while (batch.size() < batchSize && (key = pendingQueue.poll()) != null) {
+            if (pending.contains(key)) { // released keys stay out of Redis
+                batch.add(key);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            List<Boolean> claimed = claimAll(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                if (!claimed.get(i)) {
+                    lateDuplicates.increment();
+                    log.debug("Message {} was already claimed elsewhere", batch.get(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            // The filter still remembers these keys locally; only other instances lose sight of them
+            redisErrors.increment(batch.size());
+            throw e;
+        } finally {
+            batch.forEach(pending::remove);
+        }
+        return batch.size();
+    }
 
-    public boolean isDuplicated(String key){
-        return stringRedisTemplate.hasKey(key);
+    private Counter messages(String result) {
+        return Counter.builder("gateway.idempotency.messages")
+                .tag("result", result)
+                .description("Messages by idempotency outcome; duplicate / total is the duplicate rate")
+                .register(meterRegistry);
     }
 
-    public void markProcessed(String key){
-        stringRedisTemplate.opsForValue().set(key,"processed",TTL);
-        //this comes after a successfully processing a request and method will mark it as "processed"
-        // if the same request sent again (holding the same key, isDuplicated() will catch it
+    private Counter filterOutcome(String outcome) {
+        return Counter.builder("gateway.idempotency.filter")
+                .tag("outcome", outcome)
+                .description("Local filter answers; false-positive / (false-positive + duplicate) is its observed error")
+                .register(meterRegistry);
     }
 }
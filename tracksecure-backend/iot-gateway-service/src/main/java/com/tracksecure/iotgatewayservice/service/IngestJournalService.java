@@ -0,0 +1,213 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.tracksecure.iotgatewayservice.journal.IngestJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-ahead journal of the MQTT intake, see {@link IngestJournal}. Every QoS 1 message is appended
+ * before it is dispatched, and the broker gets its PUBACK only once the entry is on disk. The
+ * {@code journal-syncer} thread syncs whatever has been appended since its last round in one go (a
+ * group commit, so one fsync acknowledges a whole batch), moves the processed watermark, and every
+ * {@code checkpoint-interval-ms} records it and deletes the segments below it.
+ * <p>
+ * Entries left unprocessed by a crash or a restart are {@link #replay replayed} before the broker
+ * connection is opened. They may have been stored already, which the idempotency claims catch.
+ * With {@code fsync=false} entries are acknowledged once in the page cache: a crash of the process
+ * loses nothing, one of the machine may. Meters: gateway.journal.*.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IngestJournalService {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.journal.enabled:true}")
+    private boolean enabled;
+    @Value("${gateway.journal.dir:data/ingest-journal}")
+    private String dir;
+    @Value("${gateway.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+    @Value("${gateway.journal.max-unprocessed:262144}")
+    private int maxUnprocessed;
+    @Value("${gateway.journal.fsync:true}")
+    private boolean fsync;
+    @Value("${gateway.journal.sync-interval-ms:2}")
+    private long syncIntervalMs;
+    @Value("${gateway.journal.checkpoint-interval-ms:1000}")
+    private long checkpointIntervalMs;
+
+    private IngestJournal journal;
+    private Thread syncer;
+    private volatile boolean running;
+
+    private Timer syncTimer;
+    private DistributionSummary batchSummary;
+    private Counter replayedCounter;
+    private Counter compactedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            log.info("Ingest journal disabled: messages are acknowledged on arrival and lost if the gateway stops");
+            return;
+        }
+        journal = new IngestJournal(Path.of(dir), segmentBytes, maxUnprocessed);
+        IngestJournal.Recovery recovery = journal.open();
+
+        syncTimer = Timer.builder("gateway.journal.sync")
+                .description("Latency of one journal sync, the fsync included")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        batchSummary = DistributionSummary.builder("gateway.journal.sync.batch")
+                .description("Journal entries made durable (and acknowledged) per sync")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("gateway.journal.unprocessed", journal, IngestJournal::unprocessed)
+                .description("Journaled messages not yet processed to the end")
+                .register(meterRegistry);
+        Gauge.builder("gateway.journal.segments", journal, IngestJournal::segmentCount)
+                .description("Journal segment files on disk")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.journal.blocked", journal, IngestJournal::blockedCount)
+                .description("Appends that waited because max-unprocessed entries were unprocessed")
+                .register(meterRegistry);
+        replayedCounter = meterRegistry.counter("gateway.journal.replayed");
+        compactedCounter = meterRegistry.counter("gateway.journal.compacted");
+        failedCounter = meterRegistry.counter("gateway.journal.sync.failed");
+
+        running = true;
+        syncer = new Thread(this::runSyncer, "journal-syncer");
+        syncer.setDaemon(true);
+        syncer.start();
+        log.info("Ingest journal opened in {} (instance {}, checkpoint {}, {} entries to replay, {} segments, "
+                        + "{} segments discarded, {} torn bytes cut, fsync={})",
+                Path.of(dir).toAbsolutePath(), journal.instanceId(), recovery.checkpoint(), recovery.unprocessed(),
+                recovery.segments(), recovery.discardedSegments(), recovery.truncatedBytes(), fsync);
+        if (recovery.discardedSegments() > 0) {
+            log.warn("Ingest journal had a broken record: {} later segments renamed *.discarded, their messages are not replayed",
+                    recovery.discardedSegments());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Names the broker session that belongs to this journal; stable across restarts. */
+    public String instanceId() {
+        return journal.instanceId();
+    }
+
+    /**
+     * Journals a message, waiting while {@code max-unprocessed} entries are unprocessed.
+     *
+     * @param onDurable run on the syncer once the entry is durable: where the message is acknowledged
+     * @return the entry to {@link #complete}, or {@link IngestJournal#NO_ENTRY} when the journal is disabled
+     */
+    public long append(byte[] payload, Runnable onDurable) {
+        if (!enabled) {
+            return IngestJournal.NO_ENTRY;
+        }
+        return journal.append(payload, onDurable);
+    }
+
+    /** The message of the entry is done with, whatever the outcome; ignores {@link IngestJournal#NO_ENTRY}. */
+    public void complete(long sequence) {
+        if (enabled) {
+            journal.complete(sequence);
+        }
+    }
+
+    /**
+     * The message of the entry was given up unprocessed (the gateway is stopping, or storage is
+     * failing): it stops holding up the watermark, and is replayed on the next start. Until then
+     * checkpoints stay below it.
+     */
+    public void release(long sequence) {
+        if (enabled) {
+            journal.release(sequence);
+        }
+    }
+
+    /**
+     * Hands the entries a previous run left unprocessed to {@code consumer}, oldest first; each one
+     * must be {@link #complete completed}. Call before new messages are appended.
+     */
+    public long replay(IngestJournal.ReplayConsumer consumer) {
+        if (!enabled) {
+            return 0;
+        }
+        long replayed = journal.replay(consumer);
+        replayedCounter.increment(replayed);
+        if (replayed > 0) {
+            log.info("Replayed {} journaled messages left unprocessed by the previous run", replayed);
+        }
+        return replayed;
+    }
+
+    private void runSyncer() {
+        long syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMs);
+        long checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMs);
+        long nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+        while (running) {
+            try {
+                long durable = journal.getDurableSequence();
+                if (journal.getAppendedSequence() > durable) {
+                    long start = System.nanoTime();
+                    long synced = journal.sync(fsync);
+                    syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    batchSummary.record(synced - durable);
+                } else {
+                    LockSupport.parkNanos(syncIntervalNanos);
+                }
+                journal.advanceProcessed();
+                if (System.nanoTime() - nextCheckpoint >= 0) {
+                    compactedCounter.increment(journal.checkpoint());
+                    nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // Unacknowledged entries stay pending and are tried again; the broker redelivers meanwhile
+                failedCounter.increment();
+                log.error("❌ Ingest journal sync failed: {}", e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+    }
+
+    /** Stops syncing and checkpoints what is done; the rest is replayed on the next start. */
+    @PreDestroy
+    public void stop() {
+        if (journal == null) {
+            return;
+        }
+        running = false;
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(5));
+            journal.close();
+            log.info("Ingest journal closed at checkpoint {} ({} entries left for replay)",
+                    journal.getCheckpointedSequence(), journal.getAppendedSequence() - journal.getCheckpointedSequence());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("❌ Failed to close the ingest journal: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import com.tracksecure.iotgatewayservice.model.LatestState;
+import com.tracksecure.iotgatewayservice.model.LatestState.Scope;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maintains the latest_state collection and answers "latest" queries from it.
+ * <p>
+ * {@link #apply} is called with every batch the event write-behind has stored. The batch is first
+ * reduced in memory to the newest event per device and per shipment. Each survivor then becomes
+ * one conditional upsert, and all of them go out in a single unordered bulk write:
+ * {@code {_id: id, eventTimestamp: {$lt: t}}}. If the stored state is newer the filter does not
+ * match, and the upsert's insert fails with a duplicate key. That duplicate can also mean another
+ * flusher created the document in the meantime, so those items are retried once as plain
+ * conditional updates. Reads are a lookup by _id, or one index seek for the newest device overall,
+ * however large sensor_data grows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LatestStateService {
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private Timer flushTimer;
+    private Counter updatedCounter;
+    private Counter staleCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        flushTimer = Timer.builder("gateway.latest-state.flush")
+                .description("Latency of one latest-state bulk upsert")
+                .register(meterRegistry);
+        updatedCounter = meterRegistry.counter("gateway.latest-state.updated");
+        staleCounter = meterRegistry.counter("gateway.latest-state.stale");
+        failedCounter = meterRegistry.counter("gateway.latest-state.failed");
+    }
+
+    public Optional<EnrichedEvent> latestOfDevice(String deviceId) {
+        return find(LatestState.idOf(Scope.DEVICE, deviceId));
+    }
+
+    public Optional<EnrichedEvent> latestOfShipment(String shipmentId) {
+        return find(LatestState.idOf(Scope.SHIPMENT, shipmentId));
+    }
+
+    /** Newest event of any device, via the (scope, eventTimestamp) index. */
+    public Optional<EnrichedEvent> latest() {
+        Query query = Query.query(Criteria.where("scope").is(Scope.DEVICE))
+                .with(Sort.by(Sort.Direction.DESC, "eventTimestamp"))
+                .limit(1);
+        return Optional.ofNullable(mongoTemplate.findOne(query, LatestState.class)).map(LatestState::getEvent);
+    }
+
+    /**
+     * Folds stored events into the latest states. Never throws: sensor_data stays the source of
+     * truth, so a failed update is counted and logged, and the next event of that device repairs it.
+     */
+    public void apply(Collection<EnrichedEvent> stored) {
+        Map<String, LatestState> newest = new HashMap<>();
+        for (EnrichedEvent event : stored) {
+            if (event.getEventTimestamp() == null) {
+                continue;
+            }
+            offer(newest, Scope.DEVICE, event.getDeviceId(), event);
+            offer(newest, Scope.SHIPMENT, event.getShipmentId(), event);
+        }
+        if (newest.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<LatestState> raced = write(newest.values(), true);
+            if (!raced.isEmpty()) {
+                write(raced, false);
+            }
+            log.debug("Applied {} latest states", newest.size());
+        } catch (Exception e) {
+            failedCounter.increment(newest.size());
+            log.error("❌ Failed to update {} latest states: {}", newest.size(), e.getMessage());
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    private Optional<EnrichedEvent> find(String id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, LatestState.class)).map(LatestState::getEvent);
+    }
+
+    private static void offer(Map<String, LatestState> newest, Scope scope, String key, EnrichedEvent event) {
+        if (key == null) {
+            return;
+        }
+        newest.merge(LatestState.idOf(scope, key),
+                new LatestState(LatestState.idOf(scope, key), scope, key, event.getEventTimestamp(), event),
+                (current, candidate) -> candidate.getEventTimestamp().isBefore(current.getEventTimestamp()) ? current : candidate);
+    }
+
+    /**
+     * @return with {@code upsert}, the states whose insert hit a duplicate key; otherwise empty
+     */
+    private List<LatestState> write(Collection<LatestState> states, boolean upsert) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LatestState.class);
+        List<LatestState> ordered = new ArrayList<>(states);
+        for (LatestState state : ordered) {
+            Query query = Query.query(Criteria.where("_id").is(state.getId())
+                    .and("eventTimestamp").lt(state.getEventTimestamp()));
+            Update update = new Update()
+                    .set("scope", state.getScope())
+                    .set("key", state.getKey())
+                    .set("eventTimestamp", state.getEventTimestamp())
+                    .set("event", state.getEvent());
+            if (upsert) {
+                bulk.upsert(query, update);
+            } else {
+                bulk.updateOne(query, update);
+            }
+        }
+        List<LatestState> raced = new ArrayList<>();
+        BulkWriteResult result;
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                if (upsert && error.getCode() == DUPLICATE_KEY) {
+                    raced.add(ordered.get(error.getIndex()));
+                } else {
+                    failedCounter.increment();
+                    log.warn("Latest state {} not updated: {}", ordered.get(error.getIndex()).getId(), error.getMessage());
+                }
+            }
+        }
+        int updated = result.getModifiedCount() + result.getUpserts().size();
+        updatedCounter.increment(updated);
+        if (!upsert) {
+            // Conditional updates that matched nothing: the stored state was already newer
+            staleCounter.increment(ordered.size() - updated);
+        }
+        return raced;
+    }
+}
@@ -1,13 +1,48 @@
 package com.tracksecure.iotgatewayservice.service;
 
-import com.tracksecure.common.util.EncryptionUtil;
-import lombok.RequiredArgsConstructor;
+import com.tracksecure.common.util.AesCipherEngine;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+
 @Service
 public class PayloadDecryptionService {
-    public String decrypt(String encryptedPayload,String secretKey) {
-        //we call the helper method "decrypt" defined in the utils-common microservice
-        return EncryptionUtil.decrypt(encryptedPayload, secretKey);
+    // Same AES/Base64 format as EncryptionUtil, with cached keys and per-thread Cipher instances
+    private final AesCipherEngine cipherEngine;
+
+    public PayloadDecryptionService(@Value("${gateway.crypto.key-cache-size:10000}") int keyCacheSize,
+                                    @Value("${gateway.crypto.ciphers-per-thread:256}") int ciphersPerThread) {
+        this.cipherEngine = new AesCipherEngine(keyCacheSize, ciphersPerThread);
+    }
+
+    /**
+     * Decrypts the Base64 payload of a DeviceMessage.
+     *
+     * @return the plaintext JSON bytes, backed by a buffer of the calling thread that the next
+     * decrypt on that thread overwrites; parse it before decrypting the next message
+     */
+    public ByteBuffer decrypt(String encryptedPayload, String secretKey) {
+        return cipherEngine.decryptBytes(encryptedPayload, secretKey);
+    }
+
+    /**
+     * Decrypts the payload of a DeviceMessage in either encoding: raw ciphertext from a binary
+     * envelope, or Base64 text from a JSON one.
+     *
+     * @return the plaintext, backed by the calling thread's buffer (see {@link #decrypt(String, String)})
+     */
+    public ByteBuffer decrypt(DeviceMessage message, String secretKey) {
+        if (message.hasRawCiphertext()) {
+            return cipherEngine.decryptRaw(message.getCiphertextBuffer(), message.getCiphertextOffset(),
+                    message.getCiphertextLength(), secretKey);
+        }
+        return decrypt(message.getEncryptedPayload(), secretKey);
+    }
+
+    /** Forgets the cached key of a device whose secret was rotated or revoked. */
+    public void evictKey(String secretKey) {
+        cipherEngine.evict(secretKey);
     }
 }
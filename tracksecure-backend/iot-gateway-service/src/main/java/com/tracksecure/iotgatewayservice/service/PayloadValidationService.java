@@ -1,19 +1,35 @@
 package com.tracksecure.iotgatewayservice.service;
 
 import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
 import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
 import jakarta.validation.ConstraintViolation;
+import jakarta.validation.MessageInterpolator;
+import jakarta.validation.Validation;
 import jakarta.validation.Validator;
-import lombok.RequiredArgsConstructor;
+import jakarta.validation.ValidatorFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.Set;
 
 @Service
-@RequiredArgsConstructor
-//This automatically generates constructors for all final fields
 public class PayloadValidationService {
     private final Validator validator;
+    private final TelemetryFrameConstraints frameConstraints;
+
+    public PayloadValidationService(Validator validator){
+        this.validator = validator;
+        this.frameConstraints = TelemetryFrameConstraints.compile(validator, messageInterpolator(validator));
+    }
+
+    // Spring's validator is its own factory; a bare one comes with the provider's default interpolator
+    private static MessageInterpolator messageInterpolator(Validator validator){
+        if (validator instanceof ValidatorFactory factory) {
+            return factory.getMessageInterpolator();
+        }
+        return Validation.byDefaultProvider().configure().getDefaultMessageInterpolator();
+    }
+
     public void validate(TelemetryPayload payload){
         //Here we will ask the validator to find all the violations on the payload object and store them on a set
         Set<ConstraintViolation<TelemetryPayload>> violations = validator.validate(payload);
@@ -23,7 +39,12 @@ public class PayloadValidationService {
             throw new InvalidPayloadException("Telemetry validation failed: " + message);
         }
     }
-}
-
-
 
+    /** Same constraints as {@link #validate(TelemetryPayload)}, checked without reflection; stops at the first violation. */
+    public void validate(TelemetryFrame frame){
+        String message = frameConstraints.firstViolation(frame);
+        if(message != null){
+            throw new InvalidPayloadException("Telemetry validation failed: " + message);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
+import jakarta.validation.MessageInterpolator;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.*;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * TelemetryPayload's Bean Validation constraints compiled once into plain checks on a
+ * {@link TelemetryFrame}: no reflection, no violation set and no allocation per message. The
+ * limits are read from the validator's metadata and the messages are interpolated once by its
+ * MessageInterpolator, so the REST and MQTT paths cannot drift apart, and a constraint this class
+ * does not understand fails at startup instead of being skipped.
+ */
+final class TelemetryFrameConstraints {
+
+    @FunctionalInterface
+    private interface Check {
+        /** @return the violation message, or null if the frame satisfies the constraint */
+        String test(TelemetryFrame frame);
+    }
+
+    private record NumberField(int bit, ToDoubleFunction<TelemetryFrame> value) {
+    }
+
+    private static final Map<String, Function<TelemetryFrame, String>> TEXT_FIELDS = Map.of(
+            "eventId", TelemetryFrame::getEventId,
+            "deviceId", TelemetryFrame::getDeviceId,
+            "shipmentId", TelemetryFrame::getShipmentId,
+            "eventType", TelemetryFrame::getEventType,
+            "description", TelemetryFrame::getDescription);
+
+    private static final Map<String, NumberField> NUMBER_FIELDS = Map.of(
+            "eventTimestamp", new NumberField(TelemetryFrame.EVENT_TIMESTAMP, frame -> frame.getEventTimestamp()),
+            "latitude", new NumberField(TelemetryFrame.LATITUDE, TelemetryFrame::getLatitude),
+            "longitude", new NumberField(TelemetryFrame.LONGITUDE, TelemetryFrame::getLongitude),
+            "temperature", new NumberField(TelemetryFrame.TEMPERATURE, TelemetryFrame::getTemperature),
+            "humidity", new NumberField(TelemetryFrame.HUMIDITY, TelemetryFrame::getHumidity));
+
+    private final Check[] checks;
+
+    private TelemetryFrameConstraints(Check[] checks) {
+        this.checks = checks;
+    }
+
+    static TelemetryFrameConstraints compile(Validator validator, MessageInterpolator interpolator) {
+        BeanDescriptor bean = validator.getConstraintsForClass(TelemetryPayload.class);
+        List<Check> checks = new ArrayList<>();
+        // Declaration order, so the first violation reported is stable
+        for (Field field : TelemetryPayload.class.getDeclaredFields()) {
+            PropertyDescriptor property = bean.getConstraintsForProperty(field.getName());
+            if (property == null) {
+                continue;
+            }
+            for (ConstraintDescriptor<?> constraint : property.getConstraintDescriptors()) {
+                checks.add(compile(field.getName(), constraint, message(interpolator, constraint)));
+            }
+        }
+        return new TelemetryFrameConstraints(checks.toArray(new Check[0]));
+    }
+
+    /** @return the message of the first violated constraint, or null if the frame is valid */
+    String firstViolation(TelemetryFrame frame) {
+        for (Check check : checks) {
+            String message = check.test(frame);
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    private static Check compile(String property, ConstraintDescriptor<?> constraint, String message) {
+        Annotation annotation = constraint.getAnnotation();
+        Function<TelemetryFrame, String> text = TEXT_FIELDS.get(property);
+        NumberField number = NUMBER_FIELDS.get(property);
+
+        if (text != null) {
+            if (annotation instanceof NotNull) {
+                return frame -> text.apply(frame) == null ? message : null;
+            }
+            if (annotation instanceof NotBlank) {
+                return frame -> {
+                    String value = text.apply(frame);
+                    return value == null || value.isBlank() ? message : null;
+                };
+            }
+            if (annotation instanceof Size size) {
+                int min = size.min();
+                int max = size.max();
+                return frame -> {
+                    String value = text.apply(frame);
+                    return value != null && (value.length() < min || value.length() > max) ? message : null;
+                };
+            }
+        }
+
+        if (number != null) {
+            int bit = number.bit();
+            ToDoubleFunction<TelemetryFrame> value = number.value();
+            if (annotation instanceof NotNull) {
+                return frame -> frame.has(bit) ? null : message;
+            }
+            if (annotation instanceof DecimalMin decimalMin) {
+                return lowerBound(message, bit, value, new BigDecimal(decimalMin.value()).doubleValue(),
+                        decimalMin.inclusive());
+            }
+            if (annotation instanceof DecimalMax decimalMax) {
+                return upperBound(message, bit, value, new BigDecimal(decimalMax.value()).doubleValue(),
+                        decimalMax.inclusive());
+            }
+            if (annotation instanceof Min min) {
+                return lowerBound(message, bit, value, min.value(), true);
+            }
+            if (annotation instanceof Max max) {
+                return upperBound(message, bit, value, max.value(), true);
+            }
+        }
+
+        throw new IllegalStateException("No TelemetryFrame check for @" + annotation.annotationType().getSimpleName()
+                + " on TelemetryPayload." + property);
+    }
+
+    // Written as !(value >= min) so that NaN is rejected too
+    private static Check lowerBound(String message, int bit, ToDoubleFunction<TelemetryFrame> value, double min,
+                                    boolean inclusive) {
+        return inclusive
+                ? frame -> frame.has(bit) && !(value.applyAsDouble(frame) >= min) ? message : null
+                : frame -> frame.has(bit) && !(value.applyAsDouble(frame) > min) ? message : null;
+    }
+
+    private static Check upperBound(String message, int bit, ToDoubleFunction<TelemetryFrame> value, double max,
+                                    boolean inclusive) {
+        return inclusive
+                ? frame -> frame.has(bit) && !(value.applyAsDouble(frame) <= max) ? message : null
+                : frame -> frame.has(bit) && !(value.applyAsDouble(frame) < max) ? message : null;
+    }
+
+    /**
+     * The message a violation of the constraint reports on the bean path. Interpolated without a
+     * validated value: the checks run once per message, and the templates only use the attributes.
+     */
+    private static String message(MessageInterpolator interpolator, ConstraintDescriptor<?> constraint) {
+        return interpolator.interpolate(constraint.getMessageTemplate(), new MessageInterpolator.Context() {
+            @Override
+            public ConstraintDescriptor<?> getConstraintDescriptor() {
+                return constraint;
+            }
+
+            @Override
+            public Object getValidatedValue() {
+                return null;
+            }
+
+            @Override
+            public <T> T unwrap(Class<T> type) {
+                throw new ValidationException("TelemetryFrameConstraints does not support unwrapping to " + type.getName());
+            }
+        });
+    }
+}
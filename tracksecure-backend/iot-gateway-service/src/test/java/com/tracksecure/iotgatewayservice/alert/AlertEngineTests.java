@@ -0,0 +1,197 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+import com.tracksecure.iotgatewayservice.alert.AlertRule.Direction;
+import com.tracksecure.iotgatewayservice.alert.AlertRule.Kind;
+import com.tracksecure.iotgatewayservice.alert.AlertRule.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertEngineTests {
+    private static final String DEVICE = "device-1";
+    private static final long T0 = 1_700_000_000L;
+
+    private static final AlertRule TOO_WARM = rule("too-warm", Kind.THRESHOLD, Direction.ABOVE, 8, 1, 0);
+    private static final AlertRule WARM_FOR_5_MIN = rule("warm-5min", Kind.DURATION, Direction.ABOVE, 8, 1, 300);
+    private static final AlertRule WARMING_FAST = rule("warming-fast", Kind.RATE_OF_CHANGE, Direction.ABOVE, 2, 0, 0);
+
+    @Test
+    void firesOnceWhileAReadingHoversAtTheLimit() {
+        AlertEngine engine = engine(TOO_WARM);
+
+        assertEquals(List.of("too-warm"), fired(engine, T0, 8.5));
+        // Inside the band (7 < t <= 8) and past the limit again: still the same alert
+        assertEquals(List.of(), fired(engine, T0 + 10, 7.5));
+        assertEquals(List.of(), fired(engine, T0 + 20, 8.5));
+        assertEquals(0, engine.clearedCount());
+
+        assertEquals(List.of(), fired(engine, T0 + 30, 7.0));
+        assertEquals(1, engine.clearedCount());
+        assertEquals(List.of("too-warm"), fired(engine, T0 + 40, 8.5));
+    }
+
+    @Test
+    void firesBelowTheLimitAndClearsAboveTheBand() {
+        AlertEngine engine = engine(rule("too-cold", Kind.THRESHOLD, Direction.BELOW, 2, 0.5, 0));
+
+        assertEquals(List.of(), fired(engine, T0, 2));
+        assertEquals(List.of("too-cold"), fired(engine, T0 + 10, 1.9));
+        assertEquals(List.of(), fired(engine, T0 + 20, 2.4));
+        assertEquals(List.of(), fired(engine, T0 + 30, 1.0));
+        assertEquals(List.of(), fired(engine, T0 + 40, 2.5));
+        assertEquals(List.of("too-cold"), fired(engine, T0 + 50, 1.9));
+    }
+
+    @Test
+    void keepsTheDurationClockRunningInsideTheBand() {
+        AlertEngine engine = engine(WARM_FOR_5_MIN);
+
+        assertEquals(List.of(), fired(engine, T0, 9));
+        assertEquals(List.of(), fired(engine, T0 + 100, 7.5));
+        assertEquals(List.of(), fired(engine, T0 + 299, 9));
+
+        List<AlertTrigger> triggers = engine.evaluate(DEVICE, null, T0 + 300, 9, Double.NaN);
+        assertEquals(1, triggers.size());
+        assertEquals(T0, triggers.get(0).since());
+        assertEquals(List.of(), fired(engine, T0 + 400, 9));
+    }
+
+    @Test
+    void restartsTheDurationClockOnlyOnAClear() {
+        AlertEngine engine = engine(WARM_FOR_5_MIN);
+
+        assertEquals(List.of(), fired(engine, T0, 9));
+        assertEquals(List.of(), fired(engine, T0 + 100, 7));
+        assertEquals(List.of(), fired(engine, T0 + 200, 9));
+        assertEquals(List.of(), fired(engine, T0 + 499, 9));
+        assertEquals(List.of("warm-5min"), fired(engine, T0 + 500, 9));
+
+        // A firing DURATION rule clears like a threshold, and then counts from the next breach
+        assertEquals(List.of(), fired(engine, T0 + 600, 7));
+        assertEquals(1, engine.clearedCount());
+        assertEquals(List.of(), fired(engine, T0 + 700, 9));
+        assertEquals(List.of("warm-5min"), fired(engine, T0 + 1000, 9));
+    }
+
+    @Test
+    void measuresTheRateOfChangePerMinute() {
+        AlertEngine engine = engine(WARMING_FAST);
+
+        assertEquals(List.of(), fired(engine, T0, 5));
+        assertEquals(List.of(), fired(engine, T0 + 60, 6));
+        assertEquals(List.of("warming-fast"), fired(engine, T0 + 90, 7.5));
+        assertEquals(List.of(), fired(engine, T0 + 150, 7.5));
+        assertEquals(1, engine.clearedCount());
+    }
+
+    @Test
+    void ignoresOutOfOrderAndSameSecondReadingsForTheRate() {
+        AlertEngine engine = engine(WARMING_FAST);
+
+        assertEquals(List.of(), fired(engine, T0, 5));
+        assertEquals(List.of(), fired(engine, T0 + 60, 6));
+        // Would be an infinite rate, then a steep one against the late reading
+        assertEquals(List.of(), fired(engine, T0 + 60, 20));
+        assertEquals(List.of(), fired(engine, T0 + 30, -40));
+        // Judged against (T0 + 60, 6): 1.5 per minute, not against either ignored reading
+        assertEquals(List.of(), fired(engine, T0 + 120, 7.5));
+        assertEquals(List.of("warming-fast"), fired(engine, T0 + 180, 10));
+    }
+
+    @Test
+    void skipsRulesOnAMetricTheReadingLacks() {
+        AlertEngine engine = engine(rule("too-humid", Metric.HUMIDITY, Kind.THRESHOLD, Direction.ABOVE, 80, 0, 0));
+
+        assertEquals(List.of(), fired(engine, T0, 99));
+        assertEquals(1, engine.evaluate(DEVICE, null, T0, Double.NaN, 85).size());
+    }
+
+    @Test
+    void carriesStateOverByRuleIdWhenTheTableIsSwapped() {
+        AlertEngine engine = engine(TOO_WARM, WARM_FOR_5_MIN);
+        assertEquals(List.of("too-warm"), fired(engine, T0, 9));
+
+        AlertRule tooHot = rule("too-hot", Kind.THRESHOLD, Direction.ABOVE, 8.8, 0, 0);
+        engine.setTable(new AlertRuleTable(List.of(tooHot, WARM_FOR_5_MIN, TOO_WARM)));
+        // too-warm is still firing under its new position; too-hot is new and fires
+        assertEquals(List.of("too-hot"), fired(engine, T0 + 100, 9));
+        // The duration clock started at T0 survived the swap
+        assertEquals(List.of("warm-5min"), fired(engine, T0 + 300, 9));
+
+        engine.setTable(new AlertRuleTable(List.of(tooHot)));
+        engine.setTable(new AlertRuleTable(List.of(tooHot, TOO_WARM)));
+        // Removed and restored before the device reported again: nothing changed for it
+        assertEquals(List.of(), fired(engine, T0 + 400, 9));
+        // Removed while the device reported: too-warm starts afresh when restored
+        engine.setTable(new AlertRuleTable(List.of(tooHot)));
+        fired(engine, T0 + 500, 9);
+        engine.setTable(new AlertRuleTable(List.of(tooHot, TOO_WARM)));
+        assertEquals(List.of("too-warm"), fired(engine, T0 + 600, 9));
+    }
+
+    @Test
+    void carriesStateOverWhenADeviceMovesToAnotherShipment() {
+        AlertRule shipmentRule = new AlertRule("ship-2-warm", null, null, "SHIP-2", Metric.TEMPERATURE,
+                Kind.THRESHOLD, Direction.ABOVE, 5, 0, 0, AlertSeverity.HIGH);
+        AlertEngine engine = engine(TOO_WARM, shipmentRule);
+
+        assertEquals(List.of("too-warm"), engine.evaluate(DEVICE, "SHIP-1", T0, 9, Double.NaN)
+                .stream().map(trigger -> trigger.rule().getId()).toList());
+        assertEquals(List.of("ship-2-warm"), engine.evaluate(DEVICE, "SHIP-2", T0 + 10, 9, Double.NaN)
+                .stream().map(trigger -> trigger.rule().getId()).toList());
+    }
+
+    @Test
+    void startsAfreshForAForgottenDevice() {
+        AlertEngine engine = engine(TOO_WARM);
+        assertEquals(List.of("too-warm"), fired(engine, T0, 9));
+        assertEquals(1, engine.trackedDevices());
+
+        engine.forget(DEVICE);
+        assertEquals(0, engine.trackedDevices());
+        assertEquals(List.of("too-warm"), fired(engine, T0 + 10, 9));
+    }
+
+    @Test
+    void rejectsAnInvalidRule() {
+        assertThrows(IllegalArgumentException.class,
+                () -> rule(" ", Kind.THRESHOLD, Direction.ABOVE, 8, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AlertRule("r", null, DEVICE, "SHIP-1",
+                Metric.TEMPERATURE, Kind.THRESHOLD, Direction.ABOVE, 8, 0, 0, AlertSeverity.LOW));
+        assertThrows(IllegalArgumentException.class, () -> new AlertRule("r", null, null, null,
+                Metric.TEMPERATURE, Kind.THRESHOLD, null, 8, 0, 0, AlertSeverity.LOW));
+        assertThrows(IllegalArgumentException.class,
+                () -> rule("r", Kind.THRESHOLD, Direction.ABOVE, Double.NaN, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> rule("r", Kind.THRESHOLD, Direction.ABOVE, 8, -1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> rule("r", Kind.DURATION, Direction.ABOVE, 8, 0, 0));
+        assertTrue(rule("r", Kind.THRESHOLD, Direction.ABOVE, 8, 0, 0).breached(8.01));
+    }
+
+    private static AlertEngine engine(AlertRule... rules) {
+        return new AlertEngine(new AlertRuleTable(List.of(rules)));
+    }
+
+    /** Evaluates a temperature reading and returns the ids of the rules that started to fire. */
+    private static List<String> fired(AlertEngine engine, long epochSecond, double temperature) {
+        return engine.evaluate(DEVICE, null, epochSecond, temperature, Double.NaN).stream()
+                .map(trigger -> trigger.rule().getId())
+                .toList();
+    }
+
+    private static AlertRule rule(String id, Kind kind, Direction direction, double limit, double hysteresis,
+                                  long durationSeconds) {
+        return rule(id, Metric.TEMPERATURE, kind, direction, limit, hysteresis, durationSeconds);
+    }
+
+    private static AlertRule rule(String id, Metric metric, Kind kind, Direction direction, double limit,
+                                  double hysteresis, long durationSeconds) {
+        return new AlertRule(id, null, null, null, metric, kind, direction, limit, hysteresis, durationSeconds,
+                AlertSeverity.MEDIUM);
+    }
+}
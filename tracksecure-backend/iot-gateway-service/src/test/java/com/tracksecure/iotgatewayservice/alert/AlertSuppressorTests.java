@@ -0,0 +1,191 @@
+package com.tracksecure.iotgatewayservice.alert;
+
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.tracksecure.common.constants.EventTypes;
+import com.tracksecure.common.dto.AlertDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertSuppressorTests {
+    private static final Duration WINDOW = Duration.ofMinutes(5);
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final AtomicLong nanos = new AtomicLong();
+    // Removal listeners run when the test says so, to order them against offers and acks
+    private final Queue<Runnable> listeners = new ArrayDeque<>();
+    private final List<Closed> closed = new ArrayList<>();
+    private int alertIds;
+
+    private record Closed(AlertSuppressor.CloseReason reason, AlertDTO summary) {
+    }
+
+    @Test
+    void opensFoldsAndEscalatesEveryEscalateAfterOccurrences() {
+        AlertSuppressor suppressor = suppressor(100, 3);
+
+        AlertSuppressor.Decision opened = suppressor.offer(alert("device-1", 0));
+        assertEquals(AlertSuppressor.Outcome.OPENED, opened.outcome());
+        assertEquals(1, opened.publish().getCount());
+        String alertId = opened.publish().getAlertId();
+
+        List<String> severities = new ArrayList<>();
+        for (int i = 1; i < 12; i++) {
+            AlertSuppressor.Decision decision = suppressor.offer(alert("device-1", i));
+            if (i % 3 == 2 && i < 9) {
+                assertEquals(AlertSuppressor.Outcome.ESCALATED, decision.outcome());
+                assertEquals(alertId, decision.publish().getAlertId());
+                assertEquals(i + 1, decision.publish().getCount());
+                assertEquals(T0, decision.publish().getFirstTimestamp());
+                assertEquals(T0.plusSeconds(i), decision.publish().getLastTimestamp());
+                severities.add(decision.publish().getSeverity());
+            } else {
+                // Including the 12th: CRITICAL does not escalate further
+                assertEquals(AlertSuppressor.Outcome.SUPPRESSED, decision.outcome());
+                assertNull(decision.publish());
+            }
+        }
+        assertEquals(List.of("MEDIUM", "HIGH", "CRITICAL"), severities);
+        assertEquals(1, suppressor.openCount());
+        assertEquals(12, suppressor.openAlerts().get(0).getCount());
+    }
+
+    @Test
+    void publishesTheFinalCountOnExpiry() {
+        AlertSuppressor suppressor = suppressor(100, 0);
+        String alertId = suppressor.offer(alert("device-1", 0)).publish().getAlertId();
+        advance(WINDOW.minusSeconds(1));
+        suppressor.offer(alert("device-1", 1));
+
+        // A repeat restarted the window
+        advance(WINDOW.minusSeconds(1));
+        expire(suppressor);
+        assertTrue(closed.isEmpty());
+
+        advance(Duration.ofSeconds(1));
+        expire(suppressor);
+        assertEquals(1, closed.size());
+        assertEquals(AlertSuppressor.CloseReason.EXPIRED, closed.get(0).reason());
+        assertEquals(alertId, closed.get(0).summary().getAlertId());
+        assertEquals(2, closed.get(0).summary().getCount());
+        assertEquals(0, suppressor.openCount());
+    }
+
+    @Test
+    void publishesNothingOnExpiryWhenNothingWasFoldedSinceTheLastPublish() {
+        AlertSuppressor suppressor = suppressor(100, 2);
+        suppressor.offer(alert("device-1", 0));
+        suppressor.offer(alert("device-2", 0));
+        // Escalated, so its count of 2 is already published
+        assertEquals(AlertSuppressor.Outcome.ESCALATED, suppressor.offer(alert("device-2", 1)).outcome());
+
+        advance(WINDOW);
+        expire(suppressor);
+        assertEquals(2, closed.size());
+        for (Closed close : closed) {
+            assertEquals(AlertSuppressor.CloseReason.EXPIRED, close.reason());
+            assertNull(close.summary());
+        }
+    }
+
+    @Test
+    void publishesTheFinalCountOfAnEvictedAlertOnlyIfItHadRepeats() {
+        AlertSuppressor suppressor = suppressor(1, 0);
+        suppressor.offer(alert("device-1", 0));
+        suppressor.offer(alert("device-1", 1));
+        suppressor.offer(alert("device-1", 2));
+        suppressor.offer(alert("device-2", 3));
+        expire(suppressor);
+
+        // Which one the size policy drops is Caffeine's call; what it publishes is not
+        assertEquals(1, closed.size());
+        assertEquals(1, suppressor.openCount());
+        Closed eviction = closed.get(0);
+        assertEquals(AlertSuppressor.CloseReason.EVICTED, eviction.reason());
+        if (suppressor.openAlerts().get(0).getDeviceId().equals("device-2")) {
+            assertEquals(3, eviction.summary().getCount());
+        } else {
+            assertNull(eviction.summary());
+        }
+    }
+
+    @Test
+    void acknowledgesAnOpenAlert() {
+        AlertSuppressor suppressor = suppressor(100, 0);
+        String alertId = suppressor.offer(alert("device-1", 0)).publish().getAlertId();
+        suppressor.offer(alert("device-1", 1));
+
+        Optional<AlertDTO> acked = suppressor.acknowledge(alertId, "operator", T0.plusMinutes(1));
+        assertTrue(acked.isPresent());
+        assertTrue(acked.get().isAck());
+        assertEquals("operator", acked.get().getAckedBy());
+        assertEquals(2, acked.get().getCount());
+        assertEquals(0, suppressor.openCount());
+        runListeners();
+        assertTrue(closed.isEmpty(), "an acknowledgement is published by the caller, not the close listener");
+
+        assertEquals(Optional.empty(), suppressor.acknowledge(alertId, "operator", T0.plusMinutes(2)));
+        assertEquals(AlertSuppressor.Outcome.OPENED, suppressor.offer(alert("device-1", 2)).outcome());
+    }
+
+    @Test
+    void ignoresAnAckForAnAlertWhoseKeyReopenedUnderANewId() {
+        AlertSuppressor suppressor = suppressor(100, 0);
+        String first = suppressor.offer(alert("device-1", 0)).publish().getAlertId();
+        advance(WINDOW);
+        suppressor.cleanUp();
+        // Expired, but its listener has not yet run: the old id still maps to the key
+        String second = suppressor.offer(alert("device-1", 1)).publish().getAlertId();
+
+        assertEquals(Optional.empty(), suppressor.acknowledge(first, "operator", T0.plusMinutes(6)));
+        assertEquals(1, suppressor.openCount());
+
+        runListeners();
+        assertEquals(second, suppressor.acknowledge(second, "operator", T0.plusMinutes(6)).orElseThrow().getAlertId());
+    }
+
+    private AlertSuppressor suppressor(long maxOpen, int escalateAfter) {
+        return new AlertSuppressor(WINDOW, maxOpen, escalateAfter, (reason, summary) -> closed.add(new Closed(reason, summary)),
+                nanos::get, Scheduler.disabledScheduler(), listeners::add);
+    }
+
+    private AlertDTO alert(String deviceId, int secondsAfterT0) {
+        return AlertDTO.builder()
+                .alertId("alert-" + ++alertIds)
+                .shipmentId("SHIP-1")
+                .deviceId(deviceId)
+                .alertType(EventTypes.TEMPERATURE_ALERT)
+                .severity(AlertSeverity.LOW.name())
+                .alertTimestamp(T0.plusSeconds(secondsAfterT0))
+                .message("Temperature above 8.0")
+                .build();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(TimeUnit.NANOSECONDS.convert(duration));
+    }
+
+    private void expire(AlertSuppressor suppressor) {
+        suppressor.cleanUp();
+        runListeners();
+    }
+
+    private void runListeners() {
+        Runnable listener;
+        while ((listener = listeners.poll()) != null) {
+            listener.run();
+        }
+    }
+}
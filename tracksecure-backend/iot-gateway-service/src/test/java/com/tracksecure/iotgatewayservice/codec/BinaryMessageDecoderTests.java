@@ -0,0 +1,133 @@
+package com.tracksecure.iotgatewayservice.codec;
+
+import com.tracksecure.common.codec.TelemetryWireFormat;
+import com.tracksecure.common.codec.WireWriter;
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryMessageDecoderTests {
+    private static final byte[] SIGNATURE = {1, 2, 3, 4, (byte) 0xff};
+    private static final byte[] CIPHERTEXT = new byte[300];
+
+    private final BinaryMessageDecoder decoder = new BinaryMessageDecoder();
+    private final WireWriter writer = new WireWriter();
+
+    static {
+        Arrays.fill(CIPHERTEXT, (byte) 0x5a);
+    }
+
+    @Test
+    void decodesTheEnvelopeTheWriterEncodes() {
+        byte[] payload = writer.envelope("msg-1", "device-1", 1_700_000_000L, "fw-1.2", "LTE", SIGNATURE, CIPHERTEXT);
+
+        DeviceMessage message = decoder.decodeEnvelope(payload);
+        assertEquals("msg-1", message.getMessageId());
+        assertEquals("device-1", message.getDeviceId());
+        assertEquals(1_700_000_000L, message.getReceivedTimestamp());
+        assertEquals("fw-1.2", message.getFirmwareVersion());
+        assertEquals("LTE", message.getTransmissionMethod());
+        assertEquals(Base64.getEncoder().encodeToString(SIGNATURE), message.getSignature());
+        assertTrue(message.hasRawCiphertext());
+        assertArrayEquals(CIPHERTEXT, Arrays.copyOfRange(message.getCiphertextBuffer(), message.getCiphertextOffset(),
+                message.getCiphertextOffset() + message.getCiphertextLength()));
+    }
+
+    @Test
+    void decodesAnEnvelopeWithoutItsOptionalFields() {
+        DeviceMessage message = decoder.decodeEnvelope(
+                writer.envelope("msg-1", "device-1", 0, null, null, new byte[0], new byte[0]));
+        assertNull(message.getFirmwareVersion());
+        assertNull(message.getTransmissionMethod());
+        assertEquals("", message.getSignature());
+        assertEquals(0, message.getCiphertextLength());
+    }
+
+    @Test
+    void decodesTheTelemetryTheWriterEncodes() {
+        byte[] telemetry = writer.telemetry("evt-1", "device-1", "SHIP-1", "location-update", 1_700_000_000L,
+                45.501689, -73.567256, -18.25, 65.5, "Door opened");
+
+        TelemetryFrame frame = decoder.decodeTelemetry(telemetry, 0, telemetry.length);
+        assertEquals("evt-1", frame.getEventId());
+        assertEquals("device-1", frame.getDeviceId());
+        assertEquals("SHIP-1", frame.getShipmentId());
+        assertEquals("location-update", frame.getEventType());
+        assertEquals(1_700_000_000L, frame.getEventTimestamp());
+        assertEquals(45.501689, frame.getLatitude());
+        assertEquals(-73.567256, frame.getLongitude());
+        assertEquals(-18.25, frame.getTemperature());
+        assertEquals(65.5, frame.getHumidity());
+        assertEquals("Door opened", frame.getDescription());
+    }
+
+    @Test
+    void decodesTelemetryInsideALargerBuffer() {
+        byte[] telemetry = writer.telemetry("evt-1", "device-1", "SHIP-1", "temperature-reading", 1_700_000_000L,
+                null, -73.5, 4.0, null, null);
+        byte[] buffer = new byte[telemetry.length + 20];
+        Arrays.fill(buffer, (byte) 0x7f);
+        System.arraycopy(telemetry, 0, buffer, 10, telemetry.length);
+
+        TelemetryFrame frame = decoder.decodeTelemetry(buffer, 10, telemetry.length);
+        assertEquals(4.0, frame.getTemperature());
+        // A coordinate without its pair is not written
+        assertFalse(frame.has(TelemetryFrame.LATITUDE));
+        assertFalse(frame.has(TelemetryFrame.LONGITUDE));
+        assertFalse(frame.has(TelemetryFrame.HUMIDITY));
+        assertNull(frame.getDescription());
+    }
+
+    @Test
+    void rejectsATruncatedPayload() {
+        byte[] payload = writer.envelope("msg-1", "device-1", 0, "fw-1", null, SIGNATURE, CIPHERTEXT);
+        for (int length = 0; length < payload.length; length++) {
+            byte[] truncated = Arrays.copyOf(payload, length);
+            assertThrows(InvalidPayloadException.class, () -> decoder.decodeEnvelope(truncated), "length " + length);
+        }
+        byte[] telemetry = writer.telemetry("evt-1", "device-1", "SHIP-1", "t", 0, 1.0, 2.0, 3.0, 4.0, "d");
+        for (int length = 0; length < telemetry.length; length++) {
+            int cut = length;
+            // The bytes after the range are there, but not part of it
+            assertThrows(InvalidPayloadException.class, () -> decoder.decodeTelemetry(telemetry, 0, cut), "length " + cut);
+        }
+    }
+
+    @Test
+    void rejectsTrailingBytes() {
+        byte[] payload = writer.envelope("msg-1", "device-1", 0, null, null, SIGNATURE, CIPHERTEXT);
+        InvalidPayloadException e = assertThrows(InvalidPayloadException.class,
+                () -> decoder.decodeEnvelope(Arrays.copyOf(payload, payload.length + 2)));
+        assertEquals("2 trailing bytes after binary envelope", e.getMessage());
+
+        byte[] telemetry = writer.telemetry("evt-1", "device-1", "SHIP-1", "t", 0, null, null, null, null, null);
+        byte[] padded = Arrays.copyOf(telemetry, telemetry.length + 1);
+        assertThrows(InvalidPayloadException.class, () -> decoder.decodeTelemetry(padded, 0, padded.length));
+    }
+
+    @Test
+    void rejectsAnotherMagicOrVersion() {
+        byte[] payload = writer.envelope("msg-1", "device-1", 0, null, null, SIGNATURE, CIPHERTEXT);
+
+        byte[] json = payload.clone();
+        json[0] = '{';
+        assertEquals("Not a binary envelope",
+                assertThrows(InvalidPayloadException.class, () -> decoder.decodeEnvelope(json)).getMessage());
+
+        byte[] newer = payload.clone();
+        newer[1] = (byte) (TelemetryWireFormat.VERSION + 1);
+        assertEquals("Unsupported binary envelope version " + (TelemetryWireFormat.VERSION + 1),
+                assertThrows(InvalidPayloadException.class, () -> decoder.decodeEnvelope(newer)).getMessage());
+    }
+}
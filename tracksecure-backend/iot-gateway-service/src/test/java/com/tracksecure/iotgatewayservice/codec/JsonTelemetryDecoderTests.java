@@ -0,0 +1,69 @@
+package com.tracksecure.iotgatewayservice.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonTelemetryDecoderTests {
+    private final JsonTelemetryDecoder decoder = new JsonTelemetryDecoder(new ObjectMapper());
+
+    @Test
+    void decodesNumbersAndText() throws Exception {
+        TelemetryFrame frame = decode("""
+                {"eventId":"evt-1","deviceId":"device-1","eventTimestamp":1700000000000,
+                 "latitude":45.5017,"longitude":"-73.5673","temperature":4,"extra":{"nested":[1,2]}}""");
+        assertEquals("evt-1", frame.getEventId());
+        assertEquals(1_700_000_000_000L, frame.getEventTimestamp());
+        assertEquals(45.5017, frame.getLatitude());
+        assertEquals(-73.5673, frame.getLongitude());
+        assertEquals(4.0, frame.getTemperature());
+        assertFalse(frame.has(TelemetryFrame.HUMIDITY));
+    }
+
+    @Test
+    void treatsNullAsAbsent() throws Exception {
+        TelemetryFrame frame = decode("{\"eventTimestamp\":null,\"latitude\":null,\"deviceId\":null}");
+        assertFalse(frame.has(TelemetryFrame.EVENT_TIMESTAMP));
+        assertFalse(frame.has(TelemetryFrame.LATITUDE));
+        assertNull(frame.getDeviceId());
+    }
+
+    @Test
+    void aLaterNullClearsAnEarlierValue() throws Exception {
+        // Databind keeps the last value of a duplicated key
+        TelemetryFrame frame = decode("{\"eventTimestamp\":1700000000000,\"humidity\":40,\"eventTimestamp\":null,\"humidity\":null}");
+        assertFalse(frame.has(TelemetryFrame.EVENT_TIMESTAMP));
+        assertFalse(frame.has(TelemetryFrame.HUMIDITY));
+    }
+
+    @Test
+    void rejectsNonNumericNumbers() {
+        assertThrows(InvalidPayloadException.class, () -> decode("{\"latitude\":\"north\"}"));
+        assertThrows(InvalidPayloadException.class, () -> decode("{\"latitude\":[1]}"));
+        assertThrows(InvalidPayloadException.class, () -> decode("[]"));
+    }
+
+    @Test
+    void parsesPlainDecimalsLikeDoubleParseDouble() {
+        for (String literal : new String[]{"0.1", "-12.345678", "90", "179.999999999999", "0.000001"}) {
+            char[] chars = literal.toCharArray();
+            assertEquals(Double.parseDouble(literal), JsonTelemetryDecoder.parsePlainDecimal(chars, 0, chars.length), literal);
+        }
+        char[] exponent = "1e5".toCharArray();
+        assertTrue(Double.isNaN(JsonTelemetryDecoder.parsePlainDecimal(exponent, 0, exponent.length)));
+    }
+
+    private TelemetryFrame decode(String json) throws Exception {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return decoder.decode(bytes, 0, bytes.length);
+    }
+}
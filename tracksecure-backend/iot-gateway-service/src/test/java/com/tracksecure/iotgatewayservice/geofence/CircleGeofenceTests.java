@@ -0,0 +1,55 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircleGeofenceTests {
+    @Test
+    void containsThePointsWithinItsRadius() {
+        CircleGeofence depot = new CircleGeofence("depot", null, null, 45.5, -73.6, 1_000);
+
+        // 0.008 degrees of latitude is 890 m, 0.01 is 1.11 km
+        assertTrue(depot.contains(45.508, -73.6));
+        assertFalse(depot.contains(45.51, -73.6));
+        // At 45 degrees a degree of longitude is shorter: 0.0125 is 975 m
+        assertTrue(depot.contains(45.5, -73.5875));
+        assertFalse(depot.contains(45.5, -73.585));
+    }
+
+    @Test
+    void widensItsBoxWithLatitude() {
+        CircleGeofence equator = new CircleGeofence("equator", null, null, 0, 0, 10_000);
+        CircleGeofence north = new CircleGeofence("north", null, null, 80, 0, 10_000);
+
+        double equatorWidth = equator.getMaxLongitude() - equator.getMinLongitude();
+        double northWidth = north.getMaxLongitude() - north.getMinLongitude();
+        assertEquals(equatorWidth / Math.cos(Math.toRadians(80)), northWidth, northWidth * 0.01);
+        // The box still holds the easternmost point of the circle
+        assertTrue(north.contains(80, north.getMaxLongitude() * 0.99));
+    }
+
+    @Test
+    void coversEveryLongitudeWhenItReachesAPole() {
+        CircleGeofence arctic = new CircleGeofence("arctic", null, null, 89.5, 0, 100_000);
+        assertTrue(arctic.getMinLongitude() <= -180);
+        assertTrue(arctic.getMaxLongitude() >= 180);
+        assertTrue(arctic.contains(89.8, 170));
+        assertTrue(arctic.contains(89.8, -170));
+        assertFalse(arctic.contains(88, 180));
+
+        // Centered 11 km from the south pole, reaching 1 km past it
+        CircleGeofence antarctic = new CircleGeofence("antarctic", null, null, -89.9, 0, 12_000);
+        assertEquals(180, antarctic.getMaxLongitude());
+        assertTrue(antarctic.contains(-89.98, 90));
+    }
+
+    @Test
+    void rejectsANonPositiveRadius() {
+        assertThrows(IllegalArgumentException.class, () -> new CircleGeofence("c", null, null, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CircleGeofence("c", null, null, 0, 0, Double.NaN));
+    }
+}
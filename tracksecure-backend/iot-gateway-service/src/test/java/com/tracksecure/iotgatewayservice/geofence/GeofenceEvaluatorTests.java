@@ -0,0 +1,105 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeofenceEvaluatorTests {
+    private static final PolygonGeofence DEPOT = square("depot", null, 45.0, -73.7, 0.1);
+    private static final PolygonGeofence YARD = square("yard", null, 45.05, -73.65, 0.1);
+    private static final PolygonGeofence PORT = square("port", null, 45.3, -73.7, 0.1);
+
+    @Test
+    void reportsAnEntryAndAnExitOnce() {
+        GeofenceEvaluator evaluator = evaluator(DEPOT);
+
+        assertEquals(List.of(), evaluate(evaluator, "SHIP-1", 44.9, -73.65));
+        assertEquals(List.of("ENTRY depot"), evaluate(evaluator, "SHIP-1", 45.05, -73.65));
+        assertEquals(List.of(), evaluate(evaluator, "SHIP-1", 45.06, -73.64));
+        assertEquals(1, evaluator.trackedDevices());
+
+        assertEquals(List.of("EXIT depot"), evaluate(evaluator, "SHIP-1", 45.2, -73.65));
+        assertEquals(0, evaluator.trackedDevices());
+    }
+
+    @Test
+    void diffsOverlappingFencesExitsFirst() {
+        GeofenceEvaluator evaluator = evaluator(DEPOT, YARD, PORT);
+
+        assertEquals(List.of("ENTRY depot"), evaluate(evaluator, "SHIP-1", 45.02, -73.68));
+        assertEquals(List.of("ENTRY yard"), evaluate(evaluator, "SHIP-1", 45.08, -73.62));
+        assertEquals(List.of("EXIT depot"), evaluate(evaluator, "SHIP-1", 45.12, -73.58));
+        assertEquals(List.of("EXIT yard", "ENTRY port"), evaluate(evaluator, "SHIP-1", 45.35, -73.65));
+    }
+
+    @Test
+    void watchesOnlyTheDevicesOfAFencesShipment() {
+        GeofenceEvaluator evaluator = evaluator(square("customs", "SHIP-1", 45.0, -73.7, 0.1), DEPOT);
+
+        assertEquals(List.of("ENTRY customs", "ENTRY depot"), evaluate(evaluator, "device-1", "SHIP-1", 45.05, -73.65));
+        assertEquals(List.of("ENTRY depot"), evaluate(evaluator, "device-2", "SHIP-2", 45.05, -73.65));
+        assertEquals(List.of("ENTRY depot"), evaluate(evaluator, "device-3", null, 45.05, -73.65));
+    }
+
+    @Test
+    void testsLargeFencesOnEveryUpdate() {
+        CircleGeofence arctic = new CircleGeofence("arctic", null, null, 89.5, 0, 100_000);
+        GeofenceIndex index = new GeofenceIndex(List.of(arctic, DEPOT), 1, 16);
+        assertEquals(List.of(arctic), List.of(index.large()));
+        GeofenceEvaluator evaluator = new GeofenceEvaluator(index);
+
+        // Across the pole from the center, in a cell no fence is filed under
+        assertEquals(List.of("ENTRY arctic"), evaluate(evaluator, "SHIP-1", 89.8, 170));
+        assertEquals(List.of("EXIT arctic", "ENTRY depot"), evaluate(evaluator, "SHIP-1", 45.05, -73.65));
+    }
+
+    @Test
+    void forgetsAFenceRemovedWhileADeviceIsInside() {
+        GeofenceEvaluator evaluator = evaluator(DEPOT, YARD);
+        assertEquals(List.of("ENTRY depot", "ENTRY yard"), evaluate(evaluator, "SHIP-1", 45.08, -73.62));
+
+        evaluator.setIndex(new GeofenceIndex(List.of(YARD), 0.1, 64));
+        assertEquals(List.of(), evaluate(evaluator, "SHIP-1", 45.08, -73.62));
+        evaluator.setIndex(new GeofenceIndex(List.of(), 0.1, 64));
+        assertEquals(List.of(), evaluate(evaluator, "SHIP-1", 45.08, -73.62));
+        assertEquals(0, evaluator.trackedDevices());
+
+        // Back in the fence set: an entry again
+        evaluator.setIndex(new GeofenceIndex(List.of(DEPOT), 0.1, 64));
+        assertEquals(List.of("ENTRY depot"), evaluate(evaluator, "SHIP-1", 45.08, -73.62));
+    }
+
+    @Test
+    void reportsTheFencesOfAForgottenDeviceAgain() {
+        GeofenceEvaluator evaluator = evaluator(DEPOT);
+        evaluate(evaluator, "SHIP-1", 45.05, -73.65);
+
+        evaluator.forget("device-1");
+        assertEquals(0, evaluator.trackedDevices());
+        assertEquals(List.of("ENTRY depot"), evaluate(evaluator, "SHIP-1", 45.05, -73.65));
+    }
+
+    private static GeofenceEvaluator evaluator(Geofence... fences) {
+        return new GeofenceEvaluator(new GeofenceIndex(List.of(fences), 0.1, 64));
+    }
+
+    private static List<String> evaluate(GeofenceEvaluator evaluator, String shipmentId, double latitude, double longitude) {
+        return evaluate(evaluator, "device-1", shipmentId, latitude, longitude);
+    }
+
+    /** The transitions as "TYPE fenceId". */
+    private static List<String> evaluate(GeofenceEvaluator evaluator, String deviceId, String shipmentId,
+                                         double latitude, double longitude) {
+        return evaluator.evaluate(deviceId, shipmentId, latitude, longitude).stream()
+                .map(transition -> transition.type() + " " + transition.fence().getId())
+                .toList();
+    }
+
+    static PolygonGeofence square(String id, String shipmentId, double minLatitude, double minLongitude, double side) {
+        return new PolygonGeofence(id, id, shipmentId,
+                new double[]{minLatitude, minLatitude, minLatitude + side, minLatitude + side},
+                new double[]{minLongitude, minLongitude + side, minLongitude + side, minLongitude});
+    }
+}
@@ -0,0 +1,67 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tracksecure.iotgatewayservice.geofence.GeofenceEvaluatorTests.square;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeofenceIndexTests {
+    @Test
+    void filesAFenceUnderEveryCellItsBoxOverlaps() {
+        // Straddles the equator and the prime meridian: cells -1 and 0 on both axes
+        PolygonGeofence fence = square("origin", null, -0.05, -0.05, 0.1);
+        GeofenceIndex index = new GeofenceIndex(List.of(fence), 0.1, 4);
+
+        for (double[] point : new double[][]{{-0.09, -0.09}, {-0.09, 0.09}, {0.09, -0.09}, {0.09, 0.09}}) {
+            assertEquals(List.of(fence), List.of(index.candidates(point[0], point[1])));
+        }
+        assertEquals(0, index.candidates(0.11, 0).length);
+        assertEquals(0, index.candidates(0, -0.11).length);
+        assertEquals(0, index.large().length);
+    }
+
+    @Test
+    void keepsFencesOverTooManyCellsInTheLargeList() {
+        PolygonGeofence small = square("small", null, 10.01, 10.01, 0.05);
+        PolygonGeofence large = square("large", null, 10.05, 10.05, 0.25);
+        GeofenceIndex index = new GeofenceIndex(List.of(small, large), 0.1, 4);
+
+        assertEquals(List.of(large), List.of(index.large()));
+        assertEquals(List.of(small), List.of(index.candidates(10.02, 10.02)));
+        assertEquals(0, index.candidates(10.2, 10.2).length);
+        assertSame(large, index.get("large"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void findsEveryFenceOfADenseGrid() {
+        List<Geofence> fences = new ArrayList<>();
+        for (int row = -50; row < 50; row++) {
+            for (int column = -50; column < 50; column++) {
+                fences.add(square(row + ":" + column, null, row + 0.2, column + 0.2, 0.5));
+            }
+        }
+        GeofenceIndex index = new GeofenceIndex(fences, 1, 1);
+
+        for (int row = -50; row < 50; row++) {
+            for (int column = -50; column < 50; column++) {
+                Geofence[] candidates = index.candidates(row + 0.5, column + 0.5);
+                assertEquals(1, candidates.length);
+                assertEquals(row + ":" + column, candidates[0].getId());
+            }
+        }
+        assertEquals(0, index.candidates(60.5, 0.5).length);
+    }
+
+    @Test
+    void rejectsDuplicateIdsAndAnInvalidCellSize() {
+        assertThrows(IllegalArgumentException.class, () -> new GeofenceIndex(
+                List.of(square("depot", null, 0, 0, 0.1), square("depot", null, 1, 1, 0.1)), 0.1, 4));
+        assertThrows(IllegalArgumentException.class, () -> new GeofenceIndex(List.of(), 0, 4));
+    }
+}
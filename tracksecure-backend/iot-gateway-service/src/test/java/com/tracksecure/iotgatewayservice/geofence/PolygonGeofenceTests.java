@@ -0,0 +1,65 @@
+package com.tracksecure.iotgatewayservice.geofence;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolygonGeofenceTests {
+    // An L: the square (0..2, 0..2) without its upper right quarter
+    private static final PolygonGeofence L = new PolygonGeofence("l", null, null,
+            new double[]{0, 0, 1, 1, 2, 2},
+            new double[]{0, 2, 2, 1, 1, 0});
+
+    @Test
+    void containsThePointsOfAConcavePolygon() {
+        assertTrue(L.contains(0.5, 1.5));
+        assertTrue(L.contains(1.5, 0.5));
+        // Inside the bounding box, in the notch
+        assertFalse(L.contains(1.5, 1.5));
+        assertFalse(L.contains(2.5, 0.5));
+    }
+
+    @Test
+    void countsARayThroughAVertexOnce() {
+        PolygonGeofence diamond = new PolygonGeofence("diamond", null, null,
+                new double[]{0, 1, 2, 1},
+                new double[]{1, 2, 1, 0});
+        // Same latitude as the left and right vertices
+        assertTrue(diamond.contains(1, 0.5));
+        assertTrue(diamond.contains(1, 1.5));
+        // Same latitude as the top vertex, outside the box's corner
+        assertFalse(diamond.contains(2, 0.5));
+        assertTrue(diamond.contains(1.9, 1));
+    }
+
+    @Test
+    void containsPointsAlongAHorizontalEdgeOnOneSideOnly() {
+        // The even-odd rule puts the lower edge of the L inside and its upper edges outside
+        assertTrue(L.contains(0, 1));
+        assertFalse(L.contains(2, 0.5));
+    }
+
+    @Test
+    void keepsItsOwnCopyOfTheVertices() {
+        double[] latitudes = {0, 0, 1};
+        double[] longitudes = {0, 1, 0};
+        PolygonGeofence triangle = new PolygonGeofence("triangle", null, null, latitudes, longitudes);
+        latitudes[2] = 0;
+
+        assertTrue(triangle.contains(0.2, 0.2));
+        assertEquals(3, triangle.getVertexCount());
+    }
+
+    @Test
+    void rejectsADegeneratePolygon() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PolygonGeofence("line", null, null, new double[]{0, 1}, new double[]{0, 1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PolygonGeofence("mismatched", null, null, new double[]{0, 1, 2}, new double[]{0, 1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PolygonGeofence(" ", null, null, new double[]{0, 0, 1}, new double[]{0, 1, 0}));
+    }
+}
@@ -0,0 +1,217 @@
+package com.tracksecure.iotgatewayservice.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestJournalTests {
+    // Every payload is "message-N" padded to ten bytes, so every record is 26 bytes
+    private static final int PAYLOAD_BYTES = 10;
+    private static final int RECORD_BYTES = IngestJournal.HEADER_BYTES + PAYLOAD_BYTES;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysTheEntriesPastTheCheckpoint() throws IOException {
+        IngestJournal journal = open(4096);
+        appendMessages(journal, 5);
+        journal.complete(1);
+        journal.complete(2);
+        journal.complete(4); // behind a gap: the checkpoint cannot move past 3
+        journal.close();
+
+        IngestJournal reopened = new IngestJournal(dir, 4096, 16);
+        IngestJournal.Recovery recovery = reopened.open();
+        assertEquals(2, recovery.checkpoint());
+        assertEquals(3, recovery.firstUnprocessed());
+        assertEquals(5, recovery.lastSequence());
+        assertEquals(3, recovery.unprocessed());
+        assertEquals(List.of("message-3", "message-4", "message-5"), replay(reopened));
+        assertEquals(6, reopened.append(payload(6), null));
+        reopened.close();
+    }
+
+    @Test
+    void cutsOffATornTail() throws IOException {
+        IngestJournal journal = open(4096);
+        appendMessages(journal, 5);
+        journal.close();
+        corruptPayload(onlySegment(), 2);
+
+        IngestJournal reopened = new IngestJournal(dir, 4096, 16);
+        IngestJournal.Recovery recovery = reopened.open();
+        assertEquals(2, recovery.lastSequence());
+        assertEquals(0, recovery.discardedSegments());
+        assertEquals(3L * RECORD_BYTES, recovery.truncatedBytes());
+        assertEquals(List.of("message-1", "message-2"), replay(reopened));
+        assertEquals(3, reopened.append(payload(3), null));
+        reopened.close();
+
+        // The zeroed tail leaves nothing stale behind the new record
+        IngestJournal again = new IngestJournal(dir, 4096, 16);
+        IngestJournal.Recovery next = again.open();
+        assertEquals(3, next.lastSequence());
+        assertEquals(0, next.truncatedBytes());
+        again.close();
+    }
+
+    @Test
+    void setsAsideTheSegmentsAfterABrokenChain() throws IOException {
+        // Two records per segment: [1, 2] [3, 4] [5, 6]
+        int segmentBytes = 2 * RECORD_BYTES + 8;
+        IngestJournal journal = open(segmentBytes);
+        appendMessages(journal, 6);
+        assertEquals(3, journal.segmentCount());
+        journal.close();
+        corruptPayload(segments().get(1), 1);
+
+        IngestJournal reopened = new IngestJournal(dir, segmentBytes, 16);
+        IngestJournal.Recovery recovery = reopened.open();
+        assertEquals(3, recovery.lastSequence());
+        assertEquals(2, recovery.segments());
+        assertEquals(1, recovery.discardedSegments());
+        assertTrue(recovery.truncatedBytes() > 0);
+        assertEquals(List.of("message-1", "message-2", "message-3"), replay(reopened));
+        assertEquals(4, reopened.append(payload(4), null));
+        reopened.close();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().endsWith(".discarded")).count());
+        }
+    }
+
+    @Test
+    void numbersOnAfterACheckpointWhoseRecordsWereLost() throws IOException {
+        IngestJournal journal = open(4096);
+        appendMessages(journal, 3);
+        journal.complete(1);
+        journal.complete(2);
+        journal.complete(3);
+        journal.close();
+        // As if the machine went down before the page cache reached the disk
+        corruptPayload(onlySegment(), 1);
+
+        IngestJournal reopened = new IngestJournal(dir, 4096, 16);
+        IngestJournal.Recovery recovery = reopened.open();
+        assertEquals(3, recovery.checkpoint());
+        assertEquals(3, recovery.lastSequence());
+        assertEquals(0, recovery.unprocessed());
+        assertEquals(List.of(), replay(reopened));
+        assertEquals(4, reopened.append(payload(4), null));
+        reopened.close();
+    }
+
+    @Test
+    void keepsTheCheckpointBelowAReleasedEntry() throws IOException {
+        IngestJournal journal = open(4096);
+        appendMessages(journal, 3);
+        journal.complete(1);
+        journal.release(2);
+        journal.complete(3);
+        assertEquals(3, journal.advanceProcessed());
+        journal.checkpoint();
+        assertEquals(1, journal.getCheckpointedSequence());
+        journal.close();
+
+        IngestJournal reopened = new IngestJournal(dir, 4096, 16);
+        assertEquals(1, reopened.open().checkpoint());
+        assertEquals(List.of("message-2", "message-3"), replay(reopened));
+        reopened.close();
+    }
+
+    @Test
+    void runsTheCallbacksOnSync() throws IOException {
+        IngestJournal journal = open(4096);
+        AtomicInteger durable = new AtomicInteger();
+        journal.append(payload(1), durable::incrementAndGet);
+        journal.append(payload(2), durable::incrementAndGet);
+        assertEquals(0, durable.get());
+
+        assertEquals(2, journal.sync(false));
+        assertEquals(2, durable.get());
+        assertEquals(2, journal.sync(true));
+        assertEquals(2, durable.get());
+        journal.close();
+    }
+
+    @Test
+    void deletesTheSegmentsBelowTheCheckpoint() throws IOException {
+        IngestJournal journal = open(2 * RECORD_BYTES + 8);
+        appendMessages(journal, 5);
+        for (long sequence = 1; sequence <= 4; sequence++) {
+            journal.complete(sequence);
+        }
+        journal.advanceProcessed();
+        assertEquals(2, journal.checkpoint());
+        assertEquals(1, journal.segmentCount());
+        assertEquals(1, segments().size());
+        journal.close();
+    }
+
+    private IngestJournal open(int segmentBytes) throws IOException {
+        IngestJournal journal = new IngestJournal(dir, segmentBytes, 16);
+        IngestJournal.Recovery recovery = journal.open();
+        assertEquals(0, recovery.lastSequence());
+        return journal;
+    }
+
+    private static void appendMessages(IngestJournal journal, int count) {
+        for (int i = 1; i <= count; i++) {
+            assertEquals(i, journal.append(payload(i), null));
+        }
+    }
+
+    private static List<String> replay(IngestJournal journal) {
+        List<String> replayed = new ArrayList<>();
+        journal.replay((sequence, payload) -> {
+            String text = new String(payload, StandardCharsets.UTF_8).trim();
+            assertEquals("message-" + sequence, text);
+            replayed.add(text);
+            journal.complete(sequence);
+        });
+        return replayed;
+    }
+
+    private static byte[] payload(long sequence) {
+        String text = "message-" + sequence;
+        return (text + " ".repeat(PAYLOAD_BYTES - text.length())).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Flips the first payload byte of the {@code index}-th record of a segment. */
+    private static void corruptPayload(Path segment, int index) throws IOException {
+        long position = (long) index * RECORD_BYTES + IngestJournal.HEADER_BYTES;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.put(0, (byte) ~one.get(0)).rewind();
+            channel.write(one, position);
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.tracksecure.iotgatewayservice.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.common.constants.KafkaTopics;
+import com.tracksecure.common.dto.AlertDTO;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EmbeddedKafka(partitions = 1, topics = {KafkaTopics.TRACKING_EVENTS, KafkaTopics.ALERTS})
+class TrackingEventPublisherTests {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private DefaultKafkaProducerFactory<String, Object> producerFactory;
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private Consumer<String, String> consumer;
+
+    @BeforeEach
+    void setUp(EmbeddedKafkaBroker broker) {
+        // The producer settings of application.properties that matter to the wire format and ordering
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, GatewayValueSerializer.class);
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        producerProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        producerFactory = new DefaultKafkaProducerFactory<>(producerProps);
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("publisher-tests", "false", broker);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumer = new DefaultKafkaConsumerFactory<String, String>(consumerProps).createConsumer();
+        broker.consumeFromAllEmbeddedTopics(consumer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+        producerFactory.destroy();
+    }
+
+    @Test
+    void publishesTheEventKeyedByDeviceWithoutNullFields() throws Exception {
+        TrackingEventPublisher publisher = new TrackingEventPublisher(kafkaTemplate, true, new SimpleMeterRegistry());
+        EnrichedEvent event = EnrichedEvent.builder()
+                .eventId("evt-1")
+                .deviceId("device-7")
+                .shipmentId("shipment-3")
+                .eventType("LOCATION_UPDATE")
+                .eventTimestamp(LocalDateTime.of(2025, 3, 1, 12, 30, 15))
+                .receivedTimestamp(LocalDateTime.of(2025, 3, 1, 12, 30, 16))
+                .latitude(48.85)
+                .longitude(2.35)
+                .build();
+
+        publisher.publish(event);
+        kafkaTemplate.flush();
+
+        ConsumerRecord<String, String> record = KafkaTestUtils.getSingleRecord(consumer, KafkaTopics.TRACKING_EVENTS);
+        assertEquals(KafkaTopics.TRACKING_EVENTS, record.topic());
+        assertEquals("device-7", record.key());
+        assertFalse(record.value().contains("null"), record.value());
+        assertFalse(record.headers().iterator().hasNext(), "no type headers");
+
+        JsonNode json = mapper.readTree(record.value());
+        assertEquals("evt-1", json.get("eventId").asText());
+        assertEquals("2025-03-01T12:30:15", json.get("eventTimestamp").asText());
+        assertEquals(48.85, json.get("latitude").asDouble());
+        assertFalse(json.has("temperature"));
+        assertFalse(json.has("description"));
+        assertTrue(json.get("idempotencyKey").isTextual());
+    }
+
+    @Test
+    void sharesTheProducerWithTheAlertsTopic() throws Exception {
+        AlertPublisher publisher = new AlertPublisher(kafkaTemplate, true, new SimpleMeterRegistry());
+        publisher.publish(AlertDTO.builder()
+                .alertId("alert-1")
+                .shipmentId("shipment-3")
+                .deviceId("device-7")
+                .alertType("TEMP_HIGH")
+                .severity("HIGH")
+                .build());
+        kafkaTemplate.flush();
+
+        ConsumerRecord<String, String> record = KafkaTestUtils.getSingleRecord(consumer, KafkaTopics.ALERTS);
+        assertEquals("device-7", record.key());
+        JsonNode json = mapper.readTree(record.value());
+        assertEquals("alert-1", json.get("alertId").asText());
+        assertFalse(json.has("message"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.tracksecure.iotgatewayservice.liveness;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DeviceLivenessTrackerTests {
+    private static final long START = 1_700_000_000_000L;
+    private static final long TIMEOUT = 10_000;
+    private static final long FORGET_AFTER = 60_000;
+
+    private final DeviceLivenessTracker tracker = new DeviceLivenessTracker(100, FORGET_AFTER, START);
+
+    @Test
+    void reportsADeviceOfflineThenForgotten() {
+        tracker.touch("device-1", null, "fw-1", TIMEOUT, START);
+
+        assertEquals(List.of(), tracker.advance(START + TIMEOUT - 100));
+        assertEquals(List.of(DeviceLiveness.State.OFFLINE), states(tracker.advance(START + TIMEOUT + 100)));
+
+        List<LivenessTransition> forgotten = tracker.advance(START + FORGET_AFTER + 100);
+        assertEquals(List.of(DeviceLiveness.State.FORGOTTEN), states(forgotten));
+        assertEquals("device-1", forgotten.get(0).device().getDeviceId());
+        assertNull(tracker.get("device-1"));
+        assertEquals(0, tracker.scheduled());
+    }
+
+    @Test
+    void bringsAnOfflineDeviceBackOnline() {
+        tracker.touch("device-1", null, "fw-1", TIMEOUT, START);
+        tracker.advance(START + TIMEOUT + 100);
+
+        LivenessTransition online = tracker.touch("device-1", null, "fw-1", TIMEOUT, START + 20_000);
+        assertEquals(DeviceLiveness.State.ONLINE, online.state());
+        assertEquals(20_000, online.silentMillis());
+        assertEquals(List.of(), tracker.advance(START + 20_000 + TIMEOUT - 100));
+        assertEquals(DeviceLiveness.State.ONLINE, tracker.get("device-1").getState());
+        assertEquals(1, tracker.scheduled());
+    }
+
+    private static List<DeviceLiveness.State> states(List<LivenessTransition> transitions) {
+        return transitions.stream().map(LivenessTransition::state).toList();
+    }
+}
@@ -0,0 +1,132 @@
+package com.tracksecure.iotgatewayservice.liveness;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+    private static final long TICK = 1000;
+    private static final long START = 1_700_000_123_000L;
+
+    private static final class TestTimer extends TimingWheel.Timer {
+        final long deadline;
+
+        TestTimer(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    @Test
+    void firesEveryTimerOnItsTickAcrossCascades() {
+        // Up to 300k ticks ahead spans levels 0 to 3, so timers cascade down two or three times
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(TICK, START);
+        Random random = new Random(42);
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            long deadline = START + TICK + random.nextLong(300_000) * TICK;
+            wheel.schedule(new TestTimer(deadline), deadline);
+        }
+        assertEquals(count, wheel.size());
+
+        List<TestTimer> due = new ArrayList<>();
+        int fired = 0;
+        for (long now = START + TICK; now <= START + 300_001 * TICK; now += TICK) {
+            wheel.advance(now, due);
+            for (TestTimer timer : due) {
+                assertEquals(now, timer.deadline);
+            }
+            fired += due.size();
+            due.clear();
+        }
+        assertEquals(count, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void roundsDeadlinesUpToTheNextTick() {
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(TICK, START);
+        TestTimer timer = new TestTimer(0);
+        wheel.schedule(timer, START + 1500);
+
+        List<TestTimer> due = new ArrayList<>();
+        wheel.advance(START + 1999, due);
+        assertTrue(due.isEmpty());
+        wheel.advance(START + 2000, due);
+        assertEquals(List.of(timer), due);
+    }
+
+    @Test
+    void firesOverdueTimersOnTheNextTick() {
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(TICK, START);
+        TestTimer timer = new TestTimer(0);
+        wheel.schedule(timer, START - 60_000);
+
+        List<TestTimer> due = new ArrayList<>();
+        wheel.advance(START + 999, due);
+        assertTrue(due.isEmpty());
+        wheel.advance(START + 1000, due);
+        assertEquals(List.of(timer), due);
+    }
+
+    @Test
+    void advancingOverManyTicksFiresInDeadlineOrder() {
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(TICK, START);
+        TestTimer late = new TestTimer(START + 5000 * TICK);
+        TestTimer early = new TestTimer(START + 70 * TICK);
+        TestTimer middle = new TestTimer(START + 4097 * TICK);
+        for (TestTimer timer : List.of(late, early, middle)) {
+            wheel.schedule(timer, timer.deadline);
+        }
+
+        List<TestTimer> due = new ArrayList<>();
+        wheel.advance(START + 10_000 * TICK, due);
+        assertEquals(List.of(early, middle, late), due);
+    }
+
+    @Test
+    void cancelsAndReschedules() {
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(TICK, START);
+        TestTimer cancelled = new TestTimer(0);
+        TestTimer moved = new TestTimer(0);
+        wheel.schedule(cancelled, START + 10 * TICK);
+        wheel.schedule(moved, START + 10 * TICK);
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        wheel.schedule(moved, START + 200 * TICK);
+        assertEquals(1, wheel.size());
+
+        List<TestTimer> due = new ArrayList<>();
+        wheel.advance(START + 199 * TICK, due);
+        assertTrue(due.isEmpty());
+        wheel.advance(START + 200 * TICK, due);
+        assertEquals(List.of(moved), due);
+        assertEquals(0, wheel.size());
+        assertFalse(wheel.cancel(moved));
+    }
+
+    @Test
+    void parksTimersBeyondTheTopLevel() {
+        // 64^4 ticks is the reach of the wheel; this one is re-filed when the top slot cascades
+        long ticks = (1L << 24) + 100;
+        TimingWheel<TestTimer> wheel = new TimingWheel<>(1, 0);
+        TestTimer timer = new TestTimer(ticks);
+        wheel.schedule(timer, ticks);
+
+        List<TestTimer> due = new ArrayList<>();
+        for (long now = 1; now < ticks; now++) {
+            wheel.advance(now, due);
+            if (!due.isEmpty()) {
+                break;
+            }
+        }
+        assertTrue(due.isEmpty());
+        wheel.advance(ticks, due);
+        assertEquals(List.of(timer), due);
+    }
+}
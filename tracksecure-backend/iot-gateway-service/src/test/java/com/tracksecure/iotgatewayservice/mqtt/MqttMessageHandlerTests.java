@@ -0,0 +1,167 @@
+package com.tracksecure.iotgatewayservice.mqtt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.codec.BinaryMessageDecoder;
+import com.tracksecure.iotgatewayservice.codec.JsonTelemetryDecoder;
+import com.tracksecure.iotgatewayservice.kafka.TrackingEventPublisher;
+import com.tracksecure.iotgatewayservice.metrics.IngestMetrics;
+import com.tracksecure.iotgatewayservice.model.DeviceCredential;
+import com.tracksecure.iotgatewayservice.model.DeviceMessage;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import com.tracksecure.iotgatewayservice.service.AlertRuleService;
+import com.tracksecure.iotgatewayservice.service.AlertSuppressionService;
+import com.tracksecure.iotgatewayservice.service.DataEnrichmentService;
+import com.tracksecure.iotgatewayservice.service.DeviceAuthenticationService;
+import com.tracksecure.iotgatewayservice.service.DeviceLivenessService;
+import com.tracksecure.iotgatewayservice.service.EnrichedEventWriteBehind;
+import com.tracksecure.iotgatewayservice.service.GeofenceService;
+import com.tracksecure.iotgatewayservice.service.IdempotencyService;
+import com.tracksecure.iotgatewayservice.service.IngestJournalService;
+import com.tracksecure.iotgatewayservice.service.PayloadDecryptionService;
+import com.tracksecure.iotgatewayservice.service.PayloadValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MqttMessageHandlerTests {
+    private static final String TOPIC = "devices/device-1/telemetry";
+    private static final byte[] MESSAGE = """
+            {"messageId":"msg-1","deviceId":"device-1","encryptedPayload":"c2VhbGVk","signature":"sig",
+             "receivedTimestamp":1700000000000}""".getBytes(StandardCharsets.UTF_8);
+    private static final String TELEMETRY = """
+            {"eventId":"evt-1","deviceId":"device-1","eventTimestamp":1700000000000,"latitude":45.5,"longitude":-73.6}""";
+
+    @TempDir
+    Path dir;
+
+    private final DeviceAuthenticationService authentication = mock(DeviceAuthenticationService.class);
+    private final PayloadDecryptionService decryption = mock(PayloadDecryptionService.class);
+    private final PayloadValidationService validation = mock(PayloadValidationService.class);
+    private final DataEnrichmentService enrichment = mock(DataEnrichmentService.class);
+    private final EnrichedEventWriteBehind writeBehind = mock(EnrichedEventWriteBehind.class);
+    private final IdempotencyService idempotency = mock(IdempotencyService.class);
+    private final PartitionedDispatcher dispatcher = mock(PartitionedDispatcher.class);
+    private IngestJournalService journal;
+    private MqttMessageHandler handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        journal = openJournal();
+        handler = new MqttMessageHandler(objectMapper, mock(BinaryMessageDecoder.class), new JsonTelemetryDecoder(objectMapper),
+                authentication, validation, decryption, enrichment, mock(GeofenceService.class),
+                mock(AlertRuleService.class), mock(AlertSuppressionService.class), mock(DeviceLivenessService.class),
+                writeBehind, idempotency, journal, mock(TrackingEventPublisher.class), dispatcher, new IngestMetrics(registry));
+
+        when(authentication.authenticate("device-1")).thenReturn(DeviceCredential.builder().secretKey("0123456789abcdef").build());
+        when(idempotency.claim(anyString(), anyBoolean())).thenReturn(true);
+        when(decryption.decrypt(any(DeviceMessage.class), anyString()))
+                .thenAnswer(invocation -> ByteBuffer.wrap(TELEMETRY.getBytes(StandardCharsets.UTF_8)));
+        when(enrichment.enrich(any(TelemetryFrame.class), any(DeviceMessage.class)))
+                .thenReturn(EnrichedEvent.builder().eventId("evt-1").deviceId("device-1").build());
+        when(dispatcher.dispatch(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+    }
+
+    @Test
+    void replaysAMessageWhoseWriteFailed() throws Exception {
+        when(writeBehind.submit(any())).thenReturn(CompletableFuture.failedFuture(new DataAccessResourceFailureException("Mongo down")));
+
+        handleJournaled();
+
+        assertEquals(List.of("msg-1"), replayedAfterRestart());
+        verify(idempotency).release(IdempotencyService.keyOf("device-1", "msg-1"));
+    }
+
+    @Test
+    void replaysAMessageRedisCouldNotAuthenticate() throws Exception {
+        when(authentication.authenticate("device-1")).thenThrow(new RedisConnectionFailureException("Redis down"));
+
+        handleJournaled();
+
+        assertEquals(List.of("msg-1"), replayedAfterRestart());
+    }
+
+    @Test
+    void completesAStoredMessage() throws Exception {
+        when(writeBehind.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        handleJournaled();
+
+        assertEquals(List.of(), replayedAfterRestart());
+    }
+
+    @Test
+    void completesAnInvalidMessage() throws Exception {
+        doThrow(new InvalidPayloadException("Latitude out of range")).when(validation).validate(any(TelemetryFrame.class));
+
+        handleJournaled();
+
+        assertEquals(List.of(), replayedAfterRestart());
+        verify(idempotency).release(IdempotencyService.keyOf("device-1", "msg-1"));
+    }
+
+    private void handleJournaled() {
+        long entry = journal.append(MESSAGE, null);
+        handler.handle(TOPIC, MESSAGE, false, entry);
+    }
+
+    /** Stops the journal as a shutdown would, reopens it and collects the message ids it replays. */
+    private List<String> replayedAfterRestart() throws Exception {
+        journal.stop();
+        IngestJournalService reopened = openJournal();
+        List<String> replayed = new ArrayList<>();
+        ObjectMapper objectMapper = new ObjectMapper();
+        reopened.replay((sequence, payload) -> {
+            assertArrayEquals(MESSAGE, payload);
+            try {
+                replayed.add(objectMapper.readTree(payload).get("messageId").asText());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            reopened.complete(sequence);
+        });
+        reopened.stop();
+        return replayed;
+    }
+
+    private IngestJournalService openJournal() throws Exception {
+        IngestJournalService service = new IngestJournalService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "dir", dir.toString());
+        ReflectionTestUtils.setField(service, "segmentBytes", 1 << 16);
+        ReflectionTestUtils.setField(service, "maxUnprocessed", 64);
+        ReflectionTestUtils.setField(service, "fsync", false);
+        ReflectionTestUtils.setField(service, "syncIntervalMs", 2L);
+        ReflectionTestUtils.setField(service, "checkpointIntervalMs", 10L);
+        service.start();
+        return service;
+    }
+}
@@ -0,0 +1,81 @@
+package com.tracksecure.iotgatewayservice.mqtt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedDispatcherTests {
+    private PartitionedDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new PartitionedDispatcher(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "configuredLanes", 2);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 100);
+        ReflectionTestUtils.setField(dispatcher, "shutdownTimeoutMs", 5_000L);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    @Test
+    void runsTheTasksOfOneKeyInOrder() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            assertTrue(dispatcher.dispatch("device-1", () -> {
+                order.add(value);
+                done.countDown();
+            }));
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void stopsALaneWhoseTaskSwallowedTheInterrupt() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch queuedBehind = new CountDownLatch(1);
+        dispatcher.dispatch("device-1", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                // swallowed, as a careless task would
+            }
+        });
+        dispatcher.dispatch("device-1", queuedBehind::countDown);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        dispatcher.stop();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4), "stop() waited for its timeout");
+        assertEquals(0, queuedBehind.getCount());
+        assertTrue(laneThreads().isEmpty(), "lanes still alive: " + laneThreads());
+        assertFalse(dispatcher.dispatch("device-1", () -> { }));
+    }
+
+    private static List<Thread> laneThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("mqtt-lane-") && thread.isAlive())
+                .toList();
+    }
+}
@@ -0,0 +1,28 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeviceCredentialCacheTests {
+    private static final String REQUIRED = "Kghx";
+
+    @Test
+    void addsTheMissingKeyspaceFlags() {
+        assertEquals("Kghx", DeviceCredentialCache.withKeyspaceFlags("", REQUIRED));
+        assertEquals("ExKgh", DeviceCredentialCache.withKeyspaceFlags("Ex", REQUIRED));
+        assertEquals("KEgxh", DeviceCredentialCache.withKeyspaceFlags("KEgx", REQUIRED));
+    }
+
+    @Test
+    void keepsASufficientConfiguration() {
+        assertEquals("Kghx", DeviceCredentialCache.withKeyspaceFlags("Kghx", REQUIRED));
+        assertEquals("xhgKE", DeviceCredentialCache.withKeyspaceFlags("xhgKE", REQUIRED));
+    }
+
+    @Test
+    void countsTheAliasAsTheFlagsItStandsFor() {
+        assertEquals("AK", DeviceCredentialCache.withKeyspaceFlags("AK", REQUIRED));
+        assertEquals("AEK", DeviceCredentialCache.withKeyspaceFlags("AE", REQUIRED));
+    }
+}
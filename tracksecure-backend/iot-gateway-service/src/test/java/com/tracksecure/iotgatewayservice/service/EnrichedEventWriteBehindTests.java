@@ -0,0 +1,204 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnrichedEventWriteBehindTests {
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final LatestStateService latestStateService = mock(LatestStateService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // What each flush handed to the latest states
+    private final List<List<String>> applied = new CopyOnWriteArrayList<>();
+    private EnrichedEventWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, EnrichedEvent.class)).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+        doAnswer(invocation -> {
+            applied.add(invocation.<Collection<EnrichedEvent>>getArgument(0).stream().map(EnrichedEvent::getEventId).toList());
+            return null;
+        }).when(latestStateService).apply(any());
+
+        writeBehind = new EnrichedEventWriteBehind(mongoTemplate, registry, latestStateService);
+        ReflectionTestUtils.setField(writeBehind, "queueCapacity", 100);
+        // One flusher, and an interval long enough for the three events of a test to go out as one batch
+        ReflectionTestUtils.setField(writeBehind, "batchSize", 3);
+        ReflectionTestUtils.setField(writeBehind, "flushIntervalMs", 500L);
+        ReflectionTestUtils.setField(writeBehind, "flusherCount", 1);
+        ReflectionTestUtils.setField(writeBehind, "maxAttempts", 3);
+        ReflectionTestUtils.setField(writeBehind, "retryBackoffMs", 1L);
+        ReflectionTestUtils.setField(writeBehind, "shutdownTimeoutMs", 5_000L);
+        writeBehind.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.stop();
+    }
+
+    @Test
+    void storesABatchInOneBulkInsert() throws Exception {
+        when(bulk.execute()).thenReturn(result(3));
+
+        List<CompletableFuture<Void>> stored = submitThree();
+        awaitAll(stored);
+
+        verify(bulk, times(1)).execute();
+        assertEquals(List.of(List.of("evt-0", "evt-1", "evt-2")), awaitApplied());
+        assertEquals(3, count("gateway.persistence.written"));
+    }
+
+    @Test
+    void countsADuplicateIdAsWritten() throws Exception {
+        // Reported with a key pattern by current servers, and only in the message by older ones
+        BulkWriteError byKeyPattern = new BulkWriteError(11000, "E11000 duplicate key error",
+                new BsonDocument("keyPattern", new BsonDocument("_id", new BsonInt32(1))), 0);
+        BulkWriteError byMessage = new BulkWriteError(11000,
+                "E11000 duplicate key error collection: tracksecure.sensor_data index: _id_ dup key: { _id: \"evt-2\" }",
+                new BsonDocument(), 2);
+        when(bulk.execute()).thenThrow(bulkFailure(1, byKeyPattern, byMessage));
+
+        awaitAll(submitThree());
+
+        verify(mongoTemplate, never()).save(any(EnrichedEvent.class));
+        assertEquals(List.of(List.of("evt-0", "evt-1", "evt-2")), awaitApplied());
+        assertEquals(2, count("gateway.persistence.duplicates"));
+        assertEquals(3, count("gateway.persistence.written"));
+    }
+
+    @Test
+    void savesTheItemsThatFailedOneByOne() throws Exception {
+        BulkWriteError invalid = new BulkWriteError(121, "Document failed validation", new BsonDocument(), 0);
+        // A duplicate on another unique index is not the event already being stored
+        BulkWriteError otherIndex = new BulkWriteError(11000, "E11000 duplicate key error",
+                new BsonDocument("keyPattern", new BsonDocument("deviceId", new BsonInt32(1))), 2);
+        when(bulk.execute()).thenThrow(bulkFailure(1, invalid, otherIndex));
+        when(mongoTemplate.save(any(EnrichedEvent.class))).thenAnswer(invocation -> {
+            EnrichedEvent event = invocation.getArgument(0);
+            if (event.getEventId().equals("evt-2")) {
+                throw new IllegalArgumentException("still a duplicate");
+            }
+            return event;
+        });
+
+        List<CompletableFuture<Void>> stored = submitThree();
+        stored.get(0).get(5, TimeUnit.SECONDS);
+        stored.get(1).get(5, TimeUnit.SECONDS);
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> stored.get(2).get(5, TimeUnit.SECONDS));
+        assertEquals("still a duplicate", failed.getCause().getMessage());
+
+        verify(mongoTemplate, times(2)).save(any(EnrichedEvent.class));
+        assertEquals(List.of(List.of("evt-0", "evt-1")), awaitApplied());
+        assertEquals(2, count("gateway.persistence.fallbacks"));
+        assertEquals(1, count("gateway.persistence.failed"));
+        assertEquals(2, count("gateway.persistence.written"));
+    }
+
+    @Test
+    void retriesATransientFailure() throws Exception {
+        when(bulk.execute())
+                .thenThrow(new DataAccessResourceFailureException("primary stepped down"))
+                .thenReturn(result(3));
+
+        awaitAll(submitThree());
+
+        verify(bulk, times(2)).execute();
+        assertEquals(1, count("gateway.persistence.retries"));
+        assertEquals(List.of(List.of("evt-0", "evt-1", "evt-2")), awaitApplied());
+    }
+
+    @Test
+    void failsTheBatchOnAnotherError() throws Exception {
+        when(bulk.execute()).thenThrow(new IllegalStateException("codec not found"));
+
+        List<CompletableFuture<Void>> stored = submitThree();
+        for (CompletableFuture<Void> future : stored) {
+            assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        }
+        verify(bulk, times(1)).execute();
+        assertEquals(List.of(List.of()), awaitApplied());
+        assertEquals(3, count("gateway.persistence.failed"));
+    }
+
+    private List<CompletableFuture<Void>> submitThree() throws InterruptedException {
+        List<CompletableFuture<Void>> stored = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            stored.add(writeBehind.submit(EnrichedEvent.builder()
+                    .eventId("evt-" + i)
+                    .deviceId("device-1")
+                    .eventTimestamp(T0.plusSeconds(i))
+                    .build()));
+        }
+        return stored;
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> stored) throws Exception {
+        for (CompletableFuture<Void> future : stored) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /** The flusher hands a batch to the latest states after completing its futures. */
+    private List<List<String>> awaitApplied() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (applied.isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "batch not applied within 5 s");
+            Thread.sleep(5);
+        }
+        return applied;
+    }
+
+    private static BulkWriteResult result(int inserted) {
+        return BulkWriteResult.acknowledged(inserted, 0, 0, 0, List.of(), List.of());
+    }
+
+    private static BulkOperationException bulkFailure(int inserted, BulkWriteError... errors) {
+        return new BulkOperationException("Bulk write operation error", new MongoBulkWriteException(
+                result(inserted), List.of(errors), null, new ServerAddress(), Set.of()));
+    }
+
+    private double count(String name) {
+        return registry.get(name).counter().count();
+    }
+}
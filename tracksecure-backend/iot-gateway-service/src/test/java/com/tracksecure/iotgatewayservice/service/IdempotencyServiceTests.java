@@ -0,0 +1,172 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTests {
+    private static final String KEY = IdempotencyService.keyOf("device-1", "msg-1");
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // What the mocked Redis holds, and the keys written by pipelined background claims
+    private final Set<String> stored = new HashSet<>();
+    private final List<String> pipelined = new ArrayList<>();
+    private IdempotencyService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> stored.add(invocation.getArgument(0)));
+        when(redis.delete(anyString())).thenAnswer(invocation -> stored.remove(invocation.<String>getArgument(0)));
+        when(redis.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            List<String> keys = new ArrayList<>();
+            RedisStringCommands commands = mock(RedisStringCommands.class);
+            when(commands.set(any(byte[].class), any(byte[].class), any(), any())).thenAnswer(set -> {
+                keys.add(new String(set.<byte[]>getArgument(0), StandardCharsets.UTF_8));
+                return null;
+            });
+            RedisConnection connection = mock(RedisConnection.class);
+            when(connection.stringCommands()).thenReturn(commands);
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            pipelined.addAll(keys);
+            List<Object> replies = new ArrayList<>();
+            keys.forEach(key -> replies.add(stored.add(key)));
+            return replies;
+        });
+        service = service(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void admitsANewKeyLocallyAndWritesItBehind() {
+        assertTrue(service.claim(KEY));
+        assertFalse(service.claim(KEY));
+        verify(values, never()).setIfAbsent(anyString(), anyString(), any(Duration.class));
+
+        service.stop();
+        assertEquals(List.of(KEY), pipelined);
+        assertEquals(1, count("gateway.idempotency.messages", "result", "new"));
+        assertEquals(1, count("gateway.idempotency.messages", "result", "duplicate"));
+    }
+
+    @Test
+    void asksRedisWhenTheFilterMaySeeADuplicate() {
+        assertTrue(service.claim(KEY));
+        service.stop();
+
+        assertFalse(service.claim(KEY));
+        verify(values).setIfAbsent(eq(KEY), anyString(), any(Duration.class));
+        assertEquals(1, count("gateway.idempotency.filter", "outcome", "duplicate"));
+    }
+
+    @Test
+    void claimsRedeliveriesInRedis() {
+        stored.add(KEY); // claimed by another instance
+        assertFalse(service.claim(KEY, true));
+        assertTrue(service.claim(IdempotencyService.keyOf("device-1", "msg-2"), true));
+        service.stop();
+        assertTrue(pipelined.isEmpty());
+    }
+
+    @Test
+    void countsBackgroundClaimsRedisRejects() {
+        stored.add(KEY);
+        assertTrue(service.claim(KEY));
+        service.stop();
+        assertEquals(1, count("gateway.idempotency.late-duplicates"));
+    }
+
+    @Test
+    void releasesAPendingKeyWithoutWritingIt() {
+        assertTrue(service.claim(KEY));
+        service.release(KEY);
+        service.stop();
+
+        assertTrue(pipelined.isEmpty());
+        verify(redis, never()).delete(anyString());
+        // The filter still remembers the key: the redelivery is claimed in Redis, and succeeds
+        assertTrue(service.claim(KEY));
+        verify(values).setIfAbsent(eq(KEY), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void releasesAWrittenKeyInRedis() {
+        assertTrue(service.claim(KEY));
+        service.stop();
+        service.release(KEY);
+
+        verify(redis).delete(KEY);
+        assertTrue(service.claim(KEY));
+    }
+
+    @Test
+    void failsOpenWhenRedisIsDown() {
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        assertTrue(service.claim(KEY, true));
+        assertEquals(1, count("gateway.idempotency.redis-errors"));
+    }
+
+    @Test
+    void claimsEveryKeyInRedisWithoutTheFilter() {
+        IdempotencyService direct = service(false);
+        assertTrue(direct.claim(KEY));
+        assertFalse(direct.claim(KEY));
+        verify(values, times(2)).setIfAbsent(eq(KEY), anyString(), any(Duration.class));
+        direct.stop();
+    }
+
+    private IdempotencyService service(boolean localFilter) {
+        IdempotencyService created = new IdempotencyService(redis, registry);
+        ReflectionTestUtils.setField(created, "ttlMs", 600_000L);
+        ReflectionTestUtils.setField(created, "localFilterEnabled", localFilter);
+        ReflectionTestUtils.setField(created, "expectedKeys", 10_000L);
+        ReflectionTestUtils.setField(created, "falsePositiveRate", 0.001);
+        // Flushed by stop() only, so the tests decide when claims reach Redis
+        ReflectionTestUtils.setField(created, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(created, "batchSize", 100);
+        ReflectionTestUtils.setField(created, "maxPending", 1000);
+        created.start();
+        return created;
+    }
+
+    private double count(String name, String... tags) {
+        return registry.get(name).tags(tags).counter().count();
+    }
+}
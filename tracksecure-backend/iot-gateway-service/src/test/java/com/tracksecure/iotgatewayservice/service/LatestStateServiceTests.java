@@ -0,0 +1,206 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.tracksecure.iotgatewayservice.model.EnrichedEvent;
+import com.tracksecure.iotgatewayservice.model.LatestState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LatestStateServiceTests {
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // What the mocked latest_state collection holds: _id -> stored event
+    private final Map<String, EnrichedEvent> collection = new HashMap<>();
+    // Ids another flusher inserts, with an older event, just before this one's upsert
+    private final Map<String, EnrichedEvent> racing = new HashMap<>();
+    // Ids whose writes fail document validation
+    private Set<String> rejecting = Set.of();
+    private final List<String> bulkModes = new ArrayList<>();
+    private LatestStateService service;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, LatestState.class)).thenAnswer(invocation -> bulk());
+        service = new LatestStateService(mongoTemplate, registry);
+        service.init();
+    }
+
+    @Test
+    void keepsTheNewestEventPerDeviceAndShipmentOfABatch() {
+        service.apply(List.of(
+                event("evt-1", "device-1", "SHIP-1", 10),
+                event("evt-2", "device-1", "SHIP-1", 30),
+                event("evt-3", "device-2", "SHIP-1", 20),
+                event("evt-4", "device-2", null, 40),
+                event("evt-5", "device-3", "SHIP-2", null)));
+
+        assertEquals(List.of("upsert"), bulkModes);
+        assertEquals(Map.of("DEVICE:device-1", "evt-2", "DEVICE:device-2", "evt-4", "SHIPMENT:SHIP-1", "evt-2"),
+                storedEventIds());
+        assertEquals(3, count("gateway.latest-state.updated"));
+    }
+
+    @Test
+    void replacesAnOlderStoredState() {
+        service.apply(List.of(event("evt-1", "device-1", "SHIP-1", 10)));
+        service.apply(List.of(event("evt-2", "device-1", "SHIP-1", 20)));
+
+        assertEquals(Map.of("DEVICE:device-1", "evt-2", "SHIPMENT:SHIP-1", "evt-2"), storedEventIds());
+        assertEquals(List.of("upsert", "upsert"), bulkModes);
+        assertEquals(4, count("gateway.latest-state.updated"));
+    }
+
+    @Test
+    void neverOverwritesANewerStateWithAnOlderEvent() {
+        service.apply(List.of(event("evt-2", "device-1", "SHIP-1", 20)));
+        // A late reading of the same device, and a new shipment whose state it does create
+        service.apply(List.of(event("evt-1", "device-1", "SHIP-2", 10)));
+
+        assertEquals(Map.of("DEVICE:device-1", "evt-2", "SHIPMENT:SHIP-1", "evt-2", "SHIPMENT:SHIP-2", "evt-1"),
+                storedEventIds());
+        // The device's duplicate key is retried as a plain conditional update, which matches nothing
+        assertEquals(List.of("upsert", "upsert", "updateOne"), bulkModes);
+        assertEquals(1, count("gateway.latest-state.stale"));
+        assertEquals(0, count("gateway.latest-state.failed"));
+    }
+
+    @Test
+    void updatesAStateAnotherFlusherCreatedMeanwhile() {
+        racing.put("DEVICE:device-1", event("evt-0", "device-1", "SHIP-1", 5));
+
+        service.apply(List.of(event("evt-1", "device-1", "SHIP-1", 10)));
+
+        assertEquals(Map.of("DEVICE:device-1", "evt-1", "SHIPMENT:SHIP-1", "evt-1"), storedEventIds());
+        assertEquals(List.of("upsert", "updateOne"), bulkModes);
+        assertEquals(2, count("gateway.latest-state.updated"));
+        assertEquals(0, count("gateway.latest-state.stale"));
+    }
+
+    @Test
+    void countsOtherItemErrorsAsFailed() {
+        collection.put("DEVICE:device-1", event("evt-bad", "device-1", "SHIP-1", 5));
+        rejecting = Set.of("DEVICE:device-1");
+
+        service.apply(List.of(event("evt-1", "device-1", "SHIP-1", 10)));
+
+        assertEquals(Map.of("DEVICE:device-1", "evt-bad", "SHIPMENT:SHIP-1", "evt-1"), storedEventIds());
+        assertEquals(List.of("upsert"), bulkModes);
+        assertEquals(1, count("gateway.latest-state.failed"));
+    }
+
+    @Test
+    void swallowsAFailedBulkWrite() {
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, LatestState.class))
+                .thenThrow(new DataAccessResourceFailureException("Mongo down"));
+
+        service.apply(List.of(event("evt-1", "device-1", "SHIP-1", 10)));
+
+        assertEquals(2, count("gateway.latest-state.failed"));
+    }
+
+    /**
+     * A bulk that applies its operations to {@link #collection} as MongoDB would: the filter is
+     * {@code {_id, eventTimestamp: {$lt: t}}}, and an upsert that matches nothing inserts, which
+     * fails with a duplicate key if the _id is taken.
+     */
+    private BulkOperations bulk() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        List<Object[]> operations = new ArrayList<>();
+        when(bulk.upsert(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            operations.add(new Object[]{true, invocation.getArgument(0), invocation.getArgument(1)});
+            return bulk;
+        });
+        when(bulk.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            operations.add(new Object[]{false, invocation.getArgument(0), invocation.getArgument(1)});
+            return bulk;
+        });
+        when(bulk.execute()).thenAnswer(invocation -> {
+            bulkModes.add((boolean) operations.get(0)[0] ? "upsert" : "updateOne");
+            int modified = 0;
+            List<BulkWriteUpsert> upserts = new ArrayList<>();
+            List<BulkWriteError> errors = new ArrayList<>();
+            for (int i = 0; i < operations.size(); i++) {
+                boolean upsert = (boolean) operations.get(i)[0];
+                Document filter = ((Query) operations.get(i)[1]).getQueryObject();
+                Document set = ((Update) operations.get(i)[2]).getUpdateObject().get("$set", Document.class);
+                String id = filter.getString("_id");
+                LocalDateTime before = (LocalDateTime) filter.get("eventTimestamp", Document.class).get("$lt");
+                if (rejecting.contains(id)) {
+                    errors.add(new BulkWriteError(121, "Document failed validation", new BsonDocument(), i));
+                    continue;
+                }
+                EnrichedEvent raced = racing.remove(id);
+                if (raced != null) {
+                    collection.put(id, raced);
+                    errors.add(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), i));
+                    continue;
+                }
+                EnrichedEvent current = collection.get(id);
+                if (current != null && current.getEventTimestamp().isBefore(before)) {
+                    collection.put(id, (EnrichedEvent) set.get("event"));
+                    modified++;
+                } else if (current == null && upsert) {
+                    collection.put(id, (EnrichedEvent) set.get("event"));
+                    upserts.add(new BulkWriteUpsert(i, new BsonString(id)));
+                } else if (upsert) {
+                    errors.add(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), i));
+                }
+            }
+            BulkWriteResult result = BulkWriteResult.acknowledged(0, modified, 0, modified, upserts, List.of());
+            if (!errors.isEmpty()) {
+                throw new BulkOperationException("Bulk write operation error",
+                        new MongoBulkWriteException(result, errors, null, new ServerAddress(), Set.of()));
+            }
+            return result;
+        });
+        return bulk;
+    }
+
+    private Map<String, String> storedEventIds() {
+        Map<String, String> ids = new HashMap<>();
+        collection.forEach((id, event) -> ids.put(id, event.getEventId()));
+        return ids;
+    }
+
+    private static EnrichedEvent event(String eventId, String deviceId, String shipmentId, Integer secondsAfterT0) {
+        return EnrichedEvent.builder()
+                .eventId(eventId)
+                .deviceId(deviceId)
+                .shipmentId(shipmentId)
+                .eventTimestamp(secondsAfterT0 == null ? null : T0.plusSeconds(secondsAfterT0))
+                .build();
+    }
+
+    private double count(String name) {
+        return registry.get(name).counter().count();
+    }
+}
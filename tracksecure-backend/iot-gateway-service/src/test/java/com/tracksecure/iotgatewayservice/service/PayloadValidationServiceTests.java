@@ -0,0 +1,95 @@
+package com.tracksecure.iotgatewayservice.service;
+
+import com.tracksecure.common.exception.InvalidPayloadException;
+import com.tracksecure.iotgatewayservice.model.TelemetryFrame;
+import com.tracksecure.iotgatewayservice.model.TelemetryPayload;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PayloadValidationServiceTests {
+    private static LocalValidatorFactoryBean validator;
+    private static PayloadValidationService service;
+
+    @BeforeAll
+    static void setUp() {
+        validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        service = new PayloadValidationService(validator);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        validator.close();
+    }
+
+    @Test
+    void acceptsAValidFrame() {
+        assertDoesNotThrow(() -> service.validate(frame(frame -> { })));
+    }
+
+    @Test
+    void reportsTheAnnotationMessage() {
+        assertSameViolation(frame -> frame.setDeviceId(" "), payload -> payload.setDeviceId(" "));
+        assertSameViolation(frame -> frame.clear(TelemetryFrame.EVENT_TIMESTAMP), payload -> payload.setEventTimestamp(null));
+    }
+
+    @Test
+    void reportsTheInterpolatedDefaultMessage() {
+        assertSameViolation(frame -> frame.setLatitude(91), payload -> payload.setLatitude(new BigDecimal("91")));
+        assertSameViolation(frame -> frame.setHumidity(-0.5), payload -> payload.setHumidity(new BigDecimal("-0.5")));
+        assertSameViolation(frame -> frame.setEventId("x".repeat(51)), payload -> payload.setEventId("x".repeat(51)));
+    }
+
+    @Test
+    void rejectsNaN() {
+        assertThrows(InvalidPayloadException.class, () -> service.validate(frame(frame -> frame.setTemperature(Double.NaN))));
+    }
+
+    private static void assertSameViolation(Consumer<TelemetryFrame> frameChange, Consumer<TelemetryPayload> payloadChange) {
+        InvalidPayloadException frameError = assertThrows(InvalidPayloadException.class,
+                () -> service.validate(frame(frameChange)));
+        InvalidPayloadException payloadError = assertThrows(InvalidPayloadException.class,
+                () -> service.validate(payload(payloadChange)));
+        assertEquals(payloadError.getMessage(), frameError.getMessage());
+    }
+
+    private static TelemetryFrame frame(Consumer<TelemetryFrame> change) {
+        TelemetryFrame frame = new TelemetryFrame();
+        frame.setEventId("evt-1");
+        frame.setDeviceId("device-1");
+        frame.setShipmentId("shipment-1");
+        frame.setEventType("LOCATION_UPDATE");
+        frame.setEventTimestamp(1_700_000_000_000L);
+        frame.setLatitude(45.5);
+        frame.setLongitude(-73.6);
+        frame.setTemperature(4.2);
+        frame.setHumidity(55);
+        change.accept(frame);
+        return frame;
+    }
+
+    private static TelemetryPayload payload(Consumer<TelemetryPayload> change) {
+        TelemetryPayload payload = TelemetryPayload.builder()
+                .eventId("evt-1")
+                .deviceId("device-1")
+                .shipmentId("shipment-1")
+                .eventType("LOCATION_UPDATE")
+                .eventTimestamp(1_700_000_000_000L)
+                .latitude(new BigDecimal("45.5"))
+                .longitude(new BigDecimal("-73.6"))
+                .temperature(new BigDecimal("4.2"))
+                .humidity(new BigDecimal("55"))
+                .build();
+        change.accept(payload);
+        return payload;
+    }
+}
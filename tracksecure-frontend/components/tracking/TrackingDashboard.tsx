@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { useAuth } from '../../context/AuthContext';
-import { fetchTrackingData, getPackages, getPackagesForUser, getAddressFromCoordinates } from '../../services/trackingService';
-// polling used instead of websocket for debugging/proxy-free operation
+import { fetchTrackingData, subscribeTrackingData, getPackages, getPackagesForUser, getAddressFromCoordinates } from '../../services/trackingService';
+// live updates arrive over Server-Sent Events (no websocket proxying needed)
 import { TrackingData, PackageData } from '../../types';
 import DashboardCard from '../DashboardCard';
 import MapCard from '../MapCard';
@@ -97,21 +97,16 @@ const TrackingDashboard: React.FC<TrackingDashboardProps> = ({ selectedPackageId
       // initial snapshot
       loadTrackingData();
 
-      // Replace WebSocket live updates with simple AJAX polling for environments
-      // where WebSocket proxying is problematic. Poll every 5 seconds.
-      const POLL_INTERVAL = 5000; // ms
-      setWsConnected(true); // indicate 'Live' (polling)
-
-      const timer = window.setInterval(() => {
-        try {
-          loadTrackingData();
-        } catch (e) {
-          console.error('Polling error', e);
-        }
-      }, POLL_INTERVAL);
+      // Live updates are pushed by the backend over Server-Sent Events
+      const unsubscribe = subscribeTrackingData(
+        selectedPackageId,
+        (data) => setTrackingData(prev =>
+          prev && isEqualIgnoringTimestamps(prev, data) ? prev : data),
+        setWsConnected,
+      );
 
       return () => {
-        clearInterval(timer);
+        unsubscribe();
         setWsConnected(false);
       };
     } else {
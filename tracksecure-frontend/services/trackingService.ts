@@ -18,20 +18,45 @@ export const fetchTrackingData = async (packageId: string): Promise<TrackingData
     }
     const backendData: EnrichedEvent = await response.json();
 
-    const transformedData: TrackingData = {
-        temperature: backendData.dhtData.temperature,
-        humidity: backendData.dhtData.humidity,
-        coordinates: {
-            lat: backendData.gpsData.latitude,
-            lon: backendData.gpsData.longitude,
-        },
-        timestamp: backendData.dhtData.timestamp || new Date().toISOString(),
-        packageId: packageId,
-    };
-
-    return transformedData;
+    return toTrackingData(backendData, packageId);
 };
 
+/**
+ * S'abonne au flux Server-Sent Events du backend (/api/sensor/stream).
+ * Le serveur pousse chaque nouvelle mesure ; plus besoin d'interroger /api/sensor/latest.
+ * Sans deviceId, le flux suit le même appareil par défaut que /api/sensor/latest.
+ * Retourne une fonction qui ferme le flux.
+ */
+export const subscribeTrackingData = (
+    packageId: string,
+    onData: (data: TrackingData) => void,
+    onConnectionChange: (connected: boolean) => void,
+): (() => void) => {
+    const apiUrl = import.meta.env.VITE_API_URL;
+    const source = new EventSource(`${apiUrl}/api/sensor/stream`);
+
+    source.onopen = () => onConnectionChange(true);
+    // EventSource se reconnecte automatiquement après une erreur
+    source.onerror = () => onConnectionChange(false);
+    source.addEventListener('sensor', (event) => {
+        const backendData: EnrichedEvent = JSON.parse((event as MessageEvent).data);
+        onData(toTrackingData(backendData, packageId));
+    });
+
+    return () => source.close();
+};
+
+const toTrackingData = (backendData: EnrichedEvent, packageId: string): TrackingData => ({
+    temperature: backendData.dhtData.temperature,
+    humidity: backendData.dhtData.humidity,
+    coordinates: {
+        lat: backendData.gpsData.latitude,
+        lon: backendData.gpsData.longitude,
+    },
+    timestamp: backendData.dhtData.timestamp || new Date().toISOString(),
+    packageId: packageId,
+});
+
 /**
  * Récupère l'adresse à partir des coordonnées GPS via Nominatim (OpenStreetMap)
  * avec un fallback sur BigDataCloud si Nominatim échoue.